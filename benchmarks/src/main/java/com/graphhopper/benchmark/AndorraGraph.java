@@ -0,0 +1,220 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.routing.AlgorithmOptions;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.RoutingAlgorithmFactorySimple;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.util.Weighting;
+import com.graphhopper.routing.util.WeightingMap;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.LevelGraph;
+import com.graphhopper.storage.LevelGraphStorage;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.shapes.BBox;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Imports the bundled andorra extract once per fork with CH for car/fastest and prepares a fixed
+ * set of random queries, so that every benchmark measures the same routes.
+ * <p/>
+ * @author Peter Karich
+ */
+@State(Scope.Benchmark)
+public class AndorraGraph
+{
+    static final String OSM_RESOURCE = "andorra.osm.pbf";
+    private static final int QUERIES = 200;
+    /**
+     * Use -p freezeAdjacency=false,true to compare the edge links with the frozen adjacency
+     */
+    @Param(
+            {
+                "false"
+            })
+    public boolean freezeAdjacency;
+    /**
+     * Use -p nodeOrder=none,spatial,level to compare the node orders, see GraphHopper.setNodeOrder
+     */
+    @Param(
+            {
+                "none"
+            })
+    public String nodeOrder;
+    private File folder;
+    GraphHopper hopper;
+    FlagEncoder encoder;
+    Weighting weighting;
+    Graph baseGraph;
+    LevelGraph levelGraph;
+    /**
+     * Pairs of start and end node for which a route exists
+     */
+    int[] fromNodes;
+    int[] toNodes;
+    /**
+     * Points near, but not exactly at, a junction or pillar of the road network
+     */
+    double[] lats;
+    double[] lons;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException
+    {
+        folder = File.createTempFile("gh-benchmark", "");
+        if (!folder.delete() || !folder.mkdirs())
+            throw new IOException("Cannot create temporary folder " + folder);
+
+        File osmFile = new File(folder, OSM_RESOURCE);
+        copy(openOSMResource(), osmFile);
+        hopper = new GraphHopper().
+                setStoreOnFlush(false).
+                setOSMFile(osmFile.getAbsolutePath()).
+                setGraphHopperLocation(new File(folder, "graph").getAbsolutePath()).
+                setEncodingManager(new EncodingManager("CAR")).
+                setCHWeighting("fastest").
+                setFreezeAdjacency(freezeAdjacency).
+                setNodeOrder(nodeOrder).
+                importOrLoad();
+
+        encoder = hopper.getEncodingManager().getEncoder("CAR");
+        weighting = hopper.createWeighting(new WeightingMap("fastest"), encoder);
+        baseGraph = hopper.getGraph().getBaseGraph();
+        levelGraph = ((LevelGraphStorage) hopper.getGraph()).getLevelGraph(encoder, "fastest");
+        createQueries(new Random(123));
+    }
+
+    private void createQueries( Random rand )
+    {
+        NodeAccess na = baseGraph.getNodeAccess();
+        fromNodes = new int[QUERIES];
+        toNodes = new int[QUERIES];
+        lats = new double[QUERIES];
+        lons = new double[QUERIES];
+        AlgorithmOptions opts = createAlgoOptions(AlgorithmOptions.DIJKSTRA_BI);
+        RoutingAlgorithmFactorySimple factory = new RoutingAlgorithmFactorySimple();
+        int i = 0;
+        while (i < QUERIES)
+        {
+            // pick the nodes via their location to get the same queries for every node order
+            int from = findClosestNode(rand);
+            int to = findClosestNode(rand);
+            if (from < 0 || to < 0)
+                continue;
+
+            Path path = factory.createAlgo(baseGraph, opts).calcPath(from, to);
+            if (!path.isFound() || path.calcNodes().size() < 2)
+                continue;
+
+            fromNodes[i] = from;
+            toNodes[i] = to;
+            lats[i] = na.getLatitude(from) + (rand.nextDouble() - 0.5) * 0.001;
+            lons[i] = na.getLongitude(from) + (rand.nextDouble() - 0.5) * 0.001;
+            i++;
+        }
+    }
+
+    private int findClosestNode( Random rand )
+    {
+        BBox bounds = baseGraph.getBounds();
+        double lat = bounds.minLat + rand.nextDouble() * (bounds.maxLat - bounds.minLat);
+        double lon = bounds.minLon + rand.nextDouble() * (bounds.maxLon - bounds.minLon);
+        QueryResult qr = hopper.getLocationIndex().findClosest(lat, lon, EdgeFilter.ALL_EDGES);
+        return qr.isValid() ? qr.getClosestNode() : -1;
+    }
+
+    AlgorithmOptions createAlgoOptions( String algorithm )
+    {
+        return AlgorithmOptions.start().algorithm(algorithm).traversalMode(TraversalMode.NODE_BASED).
+                flagEncoder(encoder).weighting(weighting).build();
+    }
+
+    /**
+     * @return the paths of all queries calculated on the base graph
+     */
+    List<Path> calcPaths()
+    {
+        AlgorithmOptions opts = createAlgoOptions(AlgorithmOptions.DIJKSTRA_BI);
+        RoutingAlgorithmFactorySimple factory = new RoutingAlgorithmFactorySimple();
+        List<Path> paths = new ArrayList<Path>(QUERIES);
+        for (int i = 0; i < QUERIES; i++)
+        {
+            paths.add(factory.createAlgo(baseGraph, opts).calcPath(fromNodes[i], toNodes[i]));
+        }
+        return paths;
+    }
+
+    int size()
+    {
+        return QUERIES;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        hopper.close();
+        Helper.removeDir(folder);
+    }
+
+    static InputStream openOSMResource() throws IOException
+    {
+        InputStream is = AndorraGraph.class.getResourceAsStream("/" + OSM_RESOURCE);
+        if (is == null)
+            throw new IOException("Cannot find bundled " + OSM_RESOURCE);
+
+        return is;
+    }
+
+    private static void copy( InputStream is, File file ) throws IOException
+    {
+        OutputStream os = new FileOutputStream(file);
+        try
+        {
+            byte[] buffer = new byte[8 * 1024];
+            int len;
+            while ((len = is.read(buffer)) >= 0)
+            {
+                os.write(buffer, 0, len);
+            }
+        } finally
+        {
+            Helper.close(os);
+            Helper.close(is);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar. Accepts the usual JMH command line options, e.g.
+ * <code>java -jar benchmarks/target/benchmarks.jar Routing</code> for a subset, but unlike the
+ * plain JMH runner it attaches the GC profiler, so that the normalized allocation rate
+ * (gc.alloc.rate.norm) is reported for every hot path, and writes the results as JSON to make
+ * two runs comparable. Specify -prof or -rf to override these defaults.
+ * <p/>
+ * @author Peter Karich
+ */
+public class BenchmarkRunner
+{
+    public static void main( String[] args ) throws Exception
+    {
+        CommandLineOptions cmdOptions = new CommandLineOptions(args);
+        if (cmdOptions.shouldHelp() || cmdOptions.shouldList() || cmdOptions.shouldListWithParams()
+                || cmdOptions.shouldListProfilers() || cmdOptions.shouldListResultFormats())
+        {
+            Main.main(args);
+            return;
+        }
+
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(cmdOptions);
+        if (cmdOptions.getProfilers().isEmpty())
+            builder.addProfiler(GCProfiler.class);
+
+        if (!cmdOptions.getResultFormat().hasValue())
+            builder.resultFormat(ResultFormatType.JSON).result("jmh-result.json");
+
+        new Runner(builder.build()).run();
+    }
+}
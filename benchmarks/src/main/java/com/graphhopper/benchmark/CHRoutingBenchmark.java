@@ -0,0 +1,72 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.routing.AlgorithmOptions;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.RoutingAlgorithmFactory;
+import org.openjdk.jmh.annotations.Param;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Calculates the fixed random routes with the bidirectional algorithms on the contracted graph,
+ * including the unpacking of the shortcuts.
+ * <p/>
+ * @author Peter Karich
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CHRoutingBenchmark
+{
+    @Param(
+            {
+                AlgorithmOptions.DIJKSTRA_BI, AlgorithmOptions.ASTAR_BI
+            })
+    private String algorithm;
+    private RoutingAlgorithmFactory factory;
+    private AlgorithmOptions opts;
+    private int counter;
+
+    @Setup
+    public void setUp( AndorraGraph andorra )
+    {
+        factory = andorra.hopper.getAlgorithmFactory();
+        opts = andorra.createAlgoOptions(algorithm);
+    }
+
+    @Benchmark
+    public Path calcPath( AndorraGraph andorra )
+    {
+        int i = counter++ % andorra.size();
+        return factory.createAlgo(andorra.levelGraph, opts).calcPath(andorra.fromNodes[i], andorra.toNodes[i]);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.routing.Path;
+import com.graphhopper.util.DouglasPeucker;
+import com.graphhopper.util.PointList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Simplifies the geometry of the calculated routes with the same maximum distance GraphHopper
+ * uses by default. As simplify changes the list in place every invocation works on a copy,
+ * subtract the copy benchmark to get the time of the simplification alone.
+ * <p/>
+ * @author Peter Karich
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DouglasPeuckerBenchmark
+{
+    private final DouglasPeucker peucker = new DouglasPeucker().setMaxDistance(1);
+    private List<PointList> pointLists;
+    private int counter;
+
+    @Setup
+    public void setUp( AndorraGraph andorra )
+    {
+        pointLists = new ArrayList<PointList>();
+        for (Path path : andorra.calcPaths())
+        {
+            pointLists.add(path.calcPoints());
+        }
+    }
+
+    @Benchmark
+    public PointList copy()
+    {
+        PointList pl = pointLists.get(counter++ % pointLists.size());
+        return pl.copy(0, pl.getSize());
+    }
+
+    @Benchmark
+    public int simplify()
+    {
+        PointList pl = pointLists.get(counter++ % pointLists.size());
+        return peucker.simplify(pl.copy(0, pl.getSize()));
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Iterates over all edges of the andorra graph, once via the adjacency list of every node and
+ * once via the edge table.
+ * <p/>
+ * @author Peter Karich
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GraphStorageBenchmark
+{
+    private EdgeExplorer explorer;
+
+    @Setup
+    public void setUp( AndorraGraph andorra )
+    {
+        explorer = andorra.baseGraph.createEdgeExplorer();
+    }
+
+    @Benchmark
+    public double exploreAllNodes( AndorraGraph andorra )
+    {
+        double sum = 0;
+        int nodes = andorra.baseGraph.getNodes();
+        for (int node = 0; node < nodes; node++)
+        {
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next())
+            {
+                sum += iter.getDistance() + iter.getAdjNode();
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double allEdges( AndorraGraph andorra )
+    {
+        double sum = 0;
+        AllEdgesIterator iter = andorra.baseGraph.getAllEdges();
+        while (iter.next())
+        {
+            sum += iter.getDistance() + iter.getAdjNode();
+        }
+        return sum;
+    }
+}
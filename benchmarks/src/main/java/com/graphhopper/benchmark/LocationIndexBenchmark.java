@@ -0,0 +1,79 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.routing.util.DefaultEdgeFilter;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.QueryResult;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Looks up the closest edge for points near the road network, which is done for every point of
+ * a route request.
+ * <p/>
+ * @author Peter Karich
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocationIndexBenchmark
+{
+    private LocationIndexTree index;
+    private EdgeFilter edgeFilter;
+    private QueryResult reusedResult;
+    private int counter;
+
+    @Setup
+    public void setUp( AndorraGraph andorra )
+    {
+        index = (LocationIndexTree) andorra.hopper.getLocationIndex();
+        edgeFilter = new DefaultEdgeFilter(andorra.encoder);
+        reusedResult = new QueryResult(0, 0);
+    }
+
+    @Benchmark
+    public QueryResult findClosest( AndorraGraph andorra )
+    {
+        int i = counter++ % andorra.size();
+        return index.findClosest(andorra.lats[i], andorra.lons[i], edgeFilter);
+    }
+
+    /**
+     * The same lookups but filling one QueryResult again and again.
+     */
+    @Benchmark
+    public QueryResult findClosestReuseResult( AndorraGraph andorra )
+    {
+        int i = counter++ % andorra.size();
+        return index.findClosest(andorra.lats[i], andorra.lons[i], edgeFilter, reusedResult);
+    }
+}
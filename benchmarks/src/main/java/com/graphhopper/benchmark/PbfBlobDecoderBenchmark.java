@@ -0,0 +1,100 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.reader.OSMElement;
+import com.graphhopper.reader.pbf.PbfBlobDecoder;
+import com.graphhopper.reader.pbf.PbfBlobDecoderListener;
+import com.graphhopper.reader.pbf.PbfRawBlob;
+import com.graphhopper.reader.pbf.PbfStreamSplitter;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decodes all blobs of the bundled andorra extract in the calling thread. Reading the raw blobs
+ * from disc is done before, so only the decompression and the protobuf decoding are measured.
+ * <p/>
+ * @author Peter Karich
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PbfBlobDecoderBenchmark
+{
+    private final List<PbfRawBlob> blobs = new ArrayList<PbfRawBlob>();
+    private int elements;
+    private final PbfBlobDecoderListener listener = new PbfBlobDecoderListener()
+    {
+        @Override
+        public void complete( List<OSMElement> decodedEntities, int contentTypes )
+        {
+            elements += decodedEntities.size();
+        }
+
+        @Override
+        public void error( Exception ex )
+        {
+            throw new RuntimeException(ex);
+        }
+    };
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        DataInputStream dis = new DataInputStream(new BufferedInputStream(AndorraGraph.openOSMResource()));
+        try
+        {
+            PbfStreamSplitter splitter = new PbfStreamSplitter(dis);
+            while (splitter.hasNext())
+            {
+                blobs.add(splitter.next());
+            }
+        } finally
+        {
+            dis.close();
+        }
+    }
+
+    @Benchmark
+    public int decode()
+    {
+        elements = 0;
+        for (PbfRawBlob blob : blobs)
+        {
+            new PbfBlobDecoder(blob.getType(), blob.getData(), listener).run();
+        }
+        return elements;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper;
+
+import com.graphhopper.routing.util.WeightingMap;
+import com.graphhopper.util.shapes.GHPoint;
+
+/**
+ * Request to calculate the area reachable from one point within a time or distance limit.
+ * <p/>
+ * @see GraphHopper#calcIsochrone(GHIsochroneRequest)
+ * @author Peter Karich
+ */
+public class GHIsochroneRequest
+{
+    private final GHPoint point;
+    private final WeightingMap hints = new WeightingMap();
+    private String vehicle = "";
+    private double timeLimit = -1;
+    private double distanceLimit = -1;
+    private int buckets = 1;
+
+    public GHIsochroneRequest( double lat, double lon )
+    {
+        this(new GHPoint(lat, lon));
+    }
+
+    public GHIsochroneRequest( GHPoint point )
+    {
+        if (point == null)
+            throw new IllegalArgumentException("point cannot be null");
+
+        this.point = point;
+    }
+
+    public GHPoint getPoint()
+    {
+        return point;
+    }
+
+    /**
+     * Calculates the area reachable within the specified seconds. This uses the fastest weighting.
+     */
+    public GHIsochroneRequest setTimeLimit( double seconds )
+    {
+        this.timeLimit = seconds;
+        return this;
+    }
+
+    /**
+     * @return the time limit in seconds or a negative value if not specified
+     */
+    public double getTimeLimit()
+    {
+        return timeLimit;
+    }
+
+    /**
+     * Calculates the area reachable within the specified meters. This uses the shortest weighting.
+     */
+    public GHIsochroneRequest setDistanceLimit( double meters )
+    {
+        this.distanceLimit = meters;
+        return this;
+    }
+
+    /**
+     * @return the distance limit in meter or a negative value if not specified
+     */
+    public double getDistanceLimit()
+    {
+        return distanceLimit;
+    }
+
+    /**
+     * Specifies into how many equally sized parts the limit is split. Every bucket results in one
+     * polygon.
+     */
+    public GHIsochroneRequest setBuckets( int buckets )
+    {
+        this.buckets = buckets;
+        return this;
+    }
+
+    public int getBuckets()
+    {
+        return buckets;
+    }
+
+    /**
+     * Specifiy car, bike or foot. Or specify empty to use default.
+     */
+    public GHIsochroneRequest setVehicle( String vehicle )
+    {
+        if (vehicle != null)
+            this.vehicle = vehicle;
+        return this;
+    }
+
+    public String getVehicle()
+    {
+        return vehicle;
+    }
+
+    public WeightingMap getHints()
+    {
+        return hints;
+    }
+
+    @Override
+    public String toString()
+    {
+        return point + ", time:" + timeLimit + ", distance:" + distanceLimit + "(" + vehicle + ")";
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper;
+
+import com.graphhopper.util.PointList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of an isochrone request: all reachable locations with their weight and one polygon per
+ * bucket.
+ * <p/>
+ * @author Peter Karich
+ */
+public class GHIsochroneResponse
+{
+    private String debugInfo = "";
+    private final List<Throwable> errors = new ArrayList<Throwable>(4);
+    private PointList points = PointList.EMPTY;
+    private double[] weights = new double[0];
+    private List<PointList> polygons = Collections.emptyList();
+
+    public GHIsochroneResponse()
+    {
+    }
+
+    public String getDebugInfo()
+    {
+        check("getDebugInfo");
+        return debugInfo;
+    }
+
+    public GHIsochroneResponse setDebugInfo( String debugInfo )
+    {
+        if (debugInfo != null)
+            this.debugInfo = debugInfo;
+        return this;
+    }
+
+    private void check( String method )
+    {
+        if (hasErrors())
+        {
+            throw new RuntimeException("You cannot call " + method + " if response contains errors. Check this with ghResponse.hasErrors(). "
+                    + "Errors are: " + getErrors());
+        }
+    }
+
+    /**
+     * @return true if one or more error found
+     */
+    public boolean hasErrors()
+    {
+        return !errors.isEmpty();
+    }
+
+    public List<Throwable> getErrors()
+    {
+        return errors;
+    }
+
+    public GHIsochroneResponse addError( Throwable error )
+    {
+        errors.add(error);
+        return this;
+    }
+
+    /**
+     * @param points the reachable locations
+     * @param weights the weight for every location, i.e. the seconds or meters to reach it
+     */
+    public GHIsochroneResponse setReachable( PointList points, double[] weights )
+    {
+        if (points.getSize() != weights.length)
+            throw new IllegalArgumentException("points and weights must have the same size "
+                    + points.getSize() + " vs. " + weights.length);
+
+        this.points = points;
+        this.weights = weights;
+        return this;
+    }
+
+    /**
+     * @return all reachable locations
+     */
+    public PointList getPoints()
+    {
+        check("getPoints");
+        return points;
+    }
+
+    /**
+     * @return the weight of the reachable location at the specified index
+     */
+    public double getWeight( int index )
+    {
+        check("getWeight");
+        return weights[index];
+    }
+
+    public GHIsochroneResponse setPolygons( List<PointList> polygons )
+    {
+        this.polygons = polygons;
+        return this;
+    }
+
+    /**
+     * @return a closed polygon for every bucket, from the smallest to the largest limit
+     */
+    public List<PointList> getPolygons()
+    {
+        check("getPolygons");
+        return polygons;
+    }
+
+    @Override
+    public String toString()
+    {
+        if (hasErrors())
+            return errors.toString();
+
+        return "reachable:" + points.getSize() + ", polygons:" + polygons.size();
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of a matrix request. The first index is the index of the from point and the second the
+ * index of the to point.
+ * <p/>
+ * @author Peter Karich
+ */
+public class GHMatrixResponse
+{
+    private String debugInfo = "";
+    private final List<Throwable> errors = new ArrayList<Throwable>(4);
+    private double[][] weights;
+    private double[][] distances;
+    private long[][] millis;
+
+    public GHMatrixResponse()
+    {
+    }
+
+    public String getDebugInfo()
+    {
+        check("getDebugInfo");
+        return debugInfo;
+    }
+
+    public GHMatrixResponse setDebugInfo( String debugInfo )
+    {
+        if (debugInfo != null)
+            this.debugInfo = debugInfo;
+        return this;
+    }
+
+    private void check( String method )
+    {
+        if (hasErrors())
+        {
+            throw new RuntimeException("You cannot call " + method + " if response contains errors. Check this with ghResponse.hasErrors(). "
+                    + "Errors are: " + getErrors());
+        }
+    }
+
+    /**
+     * @return true if one or more error found
+     */
+    public boolean hasErrors()
+    {
+        return !errors.isEmpty();
+    }
+
+    public List<Throwable> getErrors()
+    {
+        return errors;
+    }
+
+    public GHMatrixResponse addError( Throwable error )
+    {
+        errors.add(error);
+        return this;
+    }
+
+    public GHMatrixResponse setWeights( double[][] weights )
+    {
+        this.weights = weights;
+        return this;
+    }
+
+    public GHMatrixResponse setDistances( double[][] distances )
+    {
+        this.distances = distances;
+        return this;
+    }
+
+    public GHMatrixResponse setMillis( long[][] millis )
+    {
+        this.millis = millis;
+        return this;
+    }
+
+    /**
+     * @return true if the to point can be reached from the from point
+     */
+    public boolean isConnected( int fromIndex, int toIndex )
+    {
+        check("isConnected");
+        return weights[fromIndex][toIndex] < Double.MAX_VALUE;
+    }
+
+    /**
+     * @return the weight of the best route or Double.MAX_VALUE if not connected
+     */
+    public double getWeight( int fromIndex, int toIndex )
+    {
+        check("getWeight");
+        return weights[fromIndex][toIndex];
+    }
+
+    /**
+     * @return the distance in meter or Double.MAX_VALUE if not connected
+     */
+    public double getDistance( int fromIndex, int toIndex )
+    {
+        check("getDistance");
+        return distances[fromIndex][toIndex];
+    }
+
+    /**
+     * @return the time in millis or Long.MAX_VALUE if not connected
+     */
+    public long getMillis( int fromIndex, int toIndex )
+    {
+        check("getMillis");
+        return millis[fromIndex][toIndex];
+    }
+
+    public int getFromSize()
+    {
+        check("getFromSize");
+        return weights.length;
+    }
+
+    public int getToSize()
+    {
+        check("getToSize");
+        return weights.length == 0 ? 0 : weights[0].length;
+    }
+
+    @Override
+    public String toString()
+    {
+        if (hasErrors())
+            return errors.toString();
+
+        return "matrix " + getFromSize() + "x" + getToSize();
+    }
+}
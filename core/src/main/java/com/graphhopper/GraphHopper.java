@@ -23,17 +23,24 @@ import com.graphhopper.reader.dem.CGIARProvider;
 import com.graphhopper.reader.dem.ElevationProvider;
 import com.graphhopper.reader.dem.SRTMProvider;
 import com.graphhopper.routing.*;
+import com.graphhopper.routing.ch.ManyToManyCH;
 import com.graphhopper.routing.ch.PrepareContractionHierarchies;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.storage.*;
 import com.graphhopper.storage.index.*;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.GHPoint;
+import gnu.trove.list.array.TIntArrayList;
 
 import java.io.File;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
@@ -55,23 +62,29 @@ public class GraphHopper implements GraphHopperAPI
     private String ghLocation = "";
     private DAType dataAccessType = DAType.RAM_STORE;
     private boolean sortGraph = false;
+    private boolean freezeAdjacency = false;
+    private String nodeOrder = "none";
     boolean removeZipped = true;
     private boolean elevation = false;
     private LockFactory lockFactory = new NativeFSLockFactory();
     private final String fileLockName = "gh.lock";
     private boolean allowWrites = true;
     boolean enableInstructions = true;
-    private boolean fullyLoaded = false;
+    // volatile as it publishes the frozen graph to the routing threads
+    private volatile boolean fullyLoaded = false;
     // for routing
     private double defaultWeightLimit = Double.MAX_VALUE;
     private boolean simplifyResponse = true;
     private TraversalMode traversalMode = TraversalMode.NODE_BASED;
     private String defaultVehicleStr;
     private RoutingAlgorithmFactory algoFactory;
+    // reused if CH is not possible for the requested vehicle so that its search states are pooled
+    private final RoutingAlgorithmFactory fallbackAlgoFactory = new RoutingAlgorithmFactorySimple();
     // for index
     private LocationIndex locationIndex;
     private int preciseIndexResolution = 300;
     private int maxRegionSearch = 4;
+    private int indexThreads = -1;
     // for prepare
     private int minNetworkSize = 200;
     private int minOneWayNetworkSize = 0;
@@ -79,10 +92,16 @@ public class GraphHopper implements GraphHopperAPI
     private boolean doPrepare = true;
     private boolean chEnabled = true;
     private String chWeightingStr = "fastest";
+    // empty means only the default vehicle
+    private String chVehiclesStr = "";
+    // one preparation per vehicle and weighting, the first one is the default algoFactory
+    private final Map<String, PrepareContractionHierarchies> chPreparations = new LinkedHashMap<String, PrepareContractionHierarchies>();
     private int periodicUpdates = -1;
     private int lazyUpdates = -1;
     private int neighborUpdates = -1;
     private double logMessages = -1;
+    private int prepareThreads = -1;
+    private int unpackCacheSize = 0;
     // for OSM import
     private String osmFile;
     private double osmReaderWayPointMaxDistance = 1;
@@ -285,7 +304,8 @@ public class GraphHopper implements GraphHopperAPI
     /**
      * Enables the use of contraction hierarchies to reduce query times. Enabled by default.
      * <p/>
-     * @param weighting can be "fastest", "shortest" or your own weight-calculation type.
+     * @param weighting can be "fastest", "shortest" or your own weight-calculation type. Use a comma
+     * separated list like "fastest,shortest" to prepare one CH profile per weighting.
      * @see #setCHEnable(boolean)
      */
     public GraphHopper setCHWeighting( String weighting )
@@ -300,6 +320,56 @@ public class GraphHopper implements GraphHopperAPI
         return chWeightingStr;
     }
 
+    /**
+     * Specifies the vehicles for which the CH profiles are prepared. Every vehicle is combined with
+     * every weighting of setCHWeighting. By default only the first vehicle is prepared.
+     * <p/>
+     * @param vehicles a comma separated list like "car,bike"
+     */
+    public GraphHopper setCHVehicles( String vehicles )
+    {
+        ensureNotLoaded();
+        chVehiclesStr = vehicles;
+        return this;
+    }
+
+    public String getCHVehicles()
+    {
+        return chVehiclesStr;
+    }
+
+    private List<FlagEncoder> getCHEncoders()
+    {
+        List<FlagEncoder> list = new ArrayList<FlagEncoder>();
+        for (String vehicle : chVehiclesStr.split(","))
+        {
+            vehicle = vehicle.trim();
+            if (!vehicle.isEmpty())
+                list.add(encodingManager.getEncoder(vehicle));
+        }
+
+        if (list.isEmpty())
+            list.add(getDefaultVehicle());
+        return list;
+    }
+
+    private List<String> getCHWeightings()
+    {
+        List<String> list = new ArrayList<String>();
+        for (String weighting : chWeightingStr.split(","))
+        {
+            weighting = weighting.trim().toLowerCase();
+            if (!weighting.isEmpty())
+                list.add(weighting);
+        }
+        return list;
+    }
+
+    private static String createCHKey( FlagEncoder encoder, String weighting )
+    {
+        return (encoder.toString() + "_" + weighting).toLowerCase();
+    }
+
     /**
      * Disables the "CH-preparation" preparation only. Use only if you know what you do. To disable
      * the full usage of CH use setCHEnable(false) instead.
@@ -471,6 +541,32 @@ public class GraphHopper implements GraphHopperAPI
         return this;
     }
 
+    /**
+     * Stores the adjacency of all nodes in one contiguous array after the import and the CH
+     * preparation, which speeds up the routing for bigger graphs but requires 16 bytes more per
+     * edge and 4 bytes per node. A graph imported with this option uses the array also when
+     * loading it.
+     */
+    public GraphHopper setFreezeAdjacency( boolean freezeAdjacency )
+    {
+        ensureNotLoaded();
+        this.freezeAdjacency = freezeAdjacency;
+        return this;
+    }
+
+    /**
+     * Renumbers the nodes and edges after the preparation so that the data used by one query is
+     * stored close together, which reduces the page faults for MMAP. Possible values are 'none',
+     * 'spatial' (along a z-curve), 'level' (highest CH levels first, CH only) and 'dfs'
+     * (depth-first traversal).
+     */
+    public GraphHopper setNodeOrder( String nodeOrder )
+    {
+        ensureNotLoaded();
+        this.nodeOrder = nodeOrder;
+        return this;
+    }
+
     /**
      * Specifies if it is allowed for GraphHopper to write. E.g. for read only filesystems it is not
      * possible to create a lock file and so we can avoid write locks.
@@ -521,6 +617,8 @@ public class GraphHopper implements GraphHopperAPI
 
         sortGraph = args.getBool("graph.doSort", sortGraph);
         removeZipped = args.getBool("graph.removeZipped", removeZipped);
+        freezeAdjacency = args.getBool("graph.freezeAdjacency", freezeAdjacency);
+        nodeOrder = args.get("graph.nodeOrder", nodeOrder);
         int bytesForFlags = args.getInt("graph.bytesForFlags", 4);
         if (args.get("graph.locktype", "native").equals("simple"))
             lockFactory = new SimpleFSLockFactory();
@@ -558,14 +656,24 @@ public class GraphHopper implements GraphHopperAPI
         // prepare CH
         doPrepare = args.getBool("prepare.doPrepare", doPrepare);
         String tmpCHWeighting = args.get("prepare.chWeighting", "fastest");
-        chEnabled = "fastest".equals(tmpCHWeighting) || "shortest".equals(tmpCHWeighting);
+        chEnabled = !tmpCHWeighting.isEmpty();
+        for (String weighting : tmpCHWeighting.split(","))
+        {
+            weighting = weighting.trim();
+            if (!"fastest".equals(weighting) && !"shortest".equals(weighting))
+                chEnabled = false;
+        }
         if (chEnabled)
             setCHWeighting(tmpCHWeighting);
 
+        chVehiclesStr = args.get("prepare.chVehicles", chVehiclesStr);
+
         periodicUpdates = args.getInt("prepare.updates.periodic", periodicUpdates);
         lazyUpdates = args.getInt("prepare.updates.lazy", lazyUpdates);
         neighborUpdates = args.getInt("prepare.updates.neighbor", neighborUpdates);
         logMessages = args.getDouble("prepare.logmessages", logMessages);
+        prepareThreads = args.getInt("prepare.threads", prepareThreads);
+        unpackCacheSize = args.getInt("prepare.unpackCacheSize", unpackCacheSize);
 
         // osm import
         osmReaderWayPointMaxDistance = args.getDouble("osmreader.wayPointMaxDistance", osmReaderWayPointMaxDistance);
@@ -579,6 +687,7 @@ public class GraphHopper implements GraphHopperAPI
         // index
         preciseIndexResolution = args.getInt("index.highResolution", preciseIndexResolution);
         maxRegionSearch = args.getInt("index.maxRegionSearch", maxRegionSearch);
+        indexThreads = args.getInt("index.threads", indexThreads);
 
         // routing
         defaultWeightLimit = args.getDouble("routing.defaultWeightLimit", defaultWeightLimit);
@@ -638,6 +747,9 @@ public class GraphHopper implements GraphHopperAPI
             cleanUp();
             optimize();
             postProcessing();
+            if (freezeAdjacency)
+                graph.freezeAdjacency();
+
             flush();
         } finally
         {
@@ -734,8 +846,17 @@ public class GraphHopper implements GraphHopperAPI
 
         GHDirectory dir = new GHDirectory(ghLocation, dataAccessType);
         if (chEnabled)
-            graph = new LevelGraphStorage(dir, encodingManager, hasElevation());
-        else if (encodingManager.needsTurnCostsSupport())
+        {
+            LevelGraphStorage lgs = new LevelGraphStorage(dir, encodingManager, hasElevation());
+            for (FlagEncoder encoder : getCHEncoders())
+            {
+                for (String weighting : getCHWeightings())
+                {
+                    lgs.addLevelGraph(encoder, weighting);
+                }
+            }
+            graph = lgs;
+        } else if (encodingManager.needsTurnCostsSupport())
             graph = new GraphHopperStorage(dir, encodingManager, hasElevation(), new TurnCostExtension());
         else
             graph = new GraphHopperStorage(dir, encodingManager, hasElevation());
@@ -759,6 +880,7 @@ public class GraphHopper implements GraphHopperAPI
                 return false;
 
             postProcessing();
+            graph.getDirectory().freeze();
             fullyLoaded = true;
             return true;
         } finally
@@ -786,7 +908,6 @@ public class GraphHopper implements GraphHopperAPI
      */
     protected void postProcessing()
     {
-        initLocationIndex();
         if (chEnabled)
             algoFactory = createPrepare();
         else
@@ -794,6 +915,12 @@ public class GraphHopper implements GraphHopperAPI
 
         if (!isPrepared())
             prepare();
+
+        if (!"none".equals(nodeOrder) && !nodeOrder.equals(graph.getProperties().get("graph.nodeOrder")))
+            reorderNodes();
+
+        // the location index refers to node and edge ids so create it after reordering them
+        initLocationIndex();
     }
 
     private boolean isPrepared()
@@ -801,16 +928,37 @@ public class GraphHopper implements GraphHopperAPI
         return "true".equals(graph.getProperties().get("prepare.done"));
     }
 
+    /**
+     * Creates the CH preparations for all configured vehicles and weightings.
+     * <p/>
+     * @return the preparation of the first vehicle and weighting
+     */
     protected RoutingAlgorithmFactory createPrepare()
     {
-        FlagEncoder defaultVehicle = getDefaultVehicle();
-        Weighting weighting = createWeighting(new WeightingMap(chWeightingStr), defaultVehicle);
-        PrepareContractionHierarchies tmpPrepareCH = new PrepareContractionHierarchies((LevelGraph) graph,
-                defaultVehicle, weighting, traversalMode);
+        chPreparations.clear();
+        LevelGraphStorage lgs = (LevelGraphStorage) graph;
+        for (FlagEncoder encoder : getCHEncoders())
+        {
+            for (String weighting : getCHWeightings())
+            {
+                chPreparations.put(createCHKey(encoder, weighting),
+                        createPrepare(lgs.getLevelGraph(encoder, weighting), encoder, weighting));
+            }
+        }
+        return chPreparations.values().iterator().next();
+    }
+
+    protected PrepareContractionHierarchies createPrepare( LevelGraph levelGraph, FlagEncoder encoder, String weightingStr )
+    {
+        Weighting weighting = createWeighting(new WeightingMap(weightingStr), encoder);
+        PrepareContractionHierarchies tmpPrepareCH = new PrepareContractionHierarchies(levelGraph,
+                encoder, weighting, traversalMode);
         tmpPrepareCH.setPeriodicUpdates(periodicUpdates).
                 setLazyUpdates(lazyUpdates).
                 setNeighborUpdates(neighborUpdates).
-                setLogMessages(logMessages);
+                setLogMessages(logMessages).
+                setThreads(prepareThreads).
+                setUnpackCacheSize(unpackCacheSize);
 
         return tmpPrepareCH;
     }
@@ -859,9 +1007,17 @@ public class GraphHopper implements GraphHopperAPI
 
     @Override
     public GHResponse route( GHRequest request )
+    {
+        return route(request, null);
+    }
+
+    /**
+     * @param qResults the already looked up points of the request or null to look them up
+     */
+    private GHResponse route( GHRequest request, List<QueryResult> qResults )
     {
         GHResponse response = new GHResponse();
-        List<Path> paths = getPaths(request, response);
+        List<Path> paths = getPaths(request, response, qResults);
         if (response.hasErrors())
             return response;
 
@@ -880,7 +1036,115 @@ public class GraphHopper implements GraphHopperAPI
         return response;
     }
 
+    /**
+     * Calculates the routes of all requests concurrently. The points of all requests are looked up
+     * in one pass before, identical points only once.
+     * <p/>
+     * @param executor the executor which calculates the routes, limit its threads to avoid
+     * overloading the server
+     * @return one future per request in the order of the requests
+     */
+    public List<Future<GHResponse>> routeBatch( List<GHRequest> requests, ExecutorService executor )
+    {
+        if (graph == null || !fullyLoaded)
+            throw new IllegalStateException("Call load or importOrLoad before routing");
+
+        final Map<String, QueryResult> lookups = lookupBatch(requests);
+        List<Future<GHResponse>> futures = new ArrayList<Future<GHResponse>>(requests.size());
+        for (final GHRequest request : requests)
+        {
+            final String vehicle = request.getVehicle().isEmpty() ? getDefaultVehicle().toString() : request.getVehicle();
+            futures.add(executor.submit(new Callable<GHResponse>()
+            {
+                @Override
+                public GHResponse call()
+                {
+                    if (!encodingManager.supports(vehicle))
+                        return route(request, null);
+
+                    // every QueryGraph changes its query results
+                    List<GHPoint> points = request.getPoints();
+                    List<QueryResult> qResults = new ArrayList<QueryResult>(points.size());
+                    for (GHPoint point : points)
+                    {
+                        qResults.add(lookups.get(createLookupKey(vehicle, point)).copy());
+                    }
+                    return route(request, qResults);
+                }
+            }));
+        }
+        return futures;
+    }
+
+    /**
+     * Looks up the distinct points of all requests with one batch per vehicle.
+     */
+    private Map<String, QueryResult> lookupBatch( List<GHRequest> requests )
+    {
+        Map<String, Map<String, GHPoint>> vehiclePoints = new HashMap<String, Map<String, GHPoint>>();
+        int count = 0;
+        for (GHRequest request : requests)
+        {
+            String vehicle = request.getVehicle().isEmpty() ? getDefaultVehicle().toString() : request.getVehicle();
+            if (!encodingManager.supports(vehicle))
+                continue;
+
+            Map<String, GHPoint> points = vehiclePoints.get(vehicle);
+            if (points == null)
+            {
+                points = new LinkedHashMap<String, GHPoint>();
+                vehiclePoints.put(vehicle, points);
+            }
+            for (GHPoint point : request.getPoints())
+            {
+                points.put(createLookupKey(vehicle, point), point);
+            }
+            count += request.getPoints().size();
+        }
+
+        Map<String, QueryResult> lookups = new HashMap<String, QueryResult>(count);
+        for (Map.Entry<String, Map<String, GHPoint>> e : vehiclePoints.entrySet())
+        {
+            EdgeFilter edgeFilter = new DefaultEdgeFilter(encodingManager.getEncoder(e.getKey()));
+            QueryResult[] results = findClosest(new ArrayList<GHPoint>(e.getValue().values()), edgeFilter);
+            int i = 0;
+            for (String key : e.getValue().keySet())
+            {
+                lookups.put(key, results[i++]);
+            }
+        }
+        return lookups;
+    }
+
+    /**
+     * Looks up all points with one call of LocationIndex.findClosestBatch.
+     */
+    private QueryResult[] findClosest( List<GHPoint> points, EdgeFilter edgeFilter )
+    {
+        double[] lats = new double[points.size()];
+        double[] lons = new double[points.size()];
+        for (int i = 0; i < lats.length; i++)
+        {
+            lats[i] = points.get(i).lat;
+            lons[i] = points.get(i).lon;
+        }
+        return locationIndex.findClosestBatch(lats, lons, edgeFilter);
+    }
+
+    private static String createLookupKey( String vehicle, GHPoint point )
+    {
+        return vehicle.toLowerCase() + "|" + String.format(Locale.ROOT, "%011.6f,%011.6f", point.lat + 90, point.lon + 180);
+    }
+
     protected List<Path> getPaths( GHRequest request, GHResponse rsp )
+    {
+        return getPaths(request, rsp, null);
+    }
+
+    /**
+     * @param preparedResults the already looked up points of the request or null to look them up
+     */
+    protected List<Path> getPaths( GHRequest request, GHResponse rsp, List<QueryResult> preparedResults )
     {
         if (graph == null || !fullyLoaded)
             throw new IllegalStateException("Call load or importOrLoad before routing");
@@ -924,10 +1188,11 @@ public class GraphHopper implements GraphHopperAPI
 
         StopWatch sw = new StopWatch().start();
         List<QueryResult> qResults = new ArrayList<QueryResult>(points.size());
+        QueryResult[] lookups = preparedResults == null ? findClosest(points, edgeFilter) : null;
         for (int placeIndex = 0; placeIndex < points.size(); placeIndex++)
         {
             GHPoint point = points.get(placeIndex);
-            QueryResult res = locationIndex.findClosest(point.lat, point.lon, edgeFilter);
+            QueryResult res = preparedResults == null ? lookups[placeIndex] : preparedResults.get(placeIndex);
             if (!res.isValid())
                 rsp.addError(new IllegalArgumentException("Cannot find point " + placeIndex + ": " + point));
 
@@ -941,11 +1206,24 @@ public class GraphHopper implements GraphHopperAPI
 
         QueryGraph queryGraph;
         RoutingAlgorithmFactory tmpAlgoFactory = getAlgorithmFactory();
-        if (chEnabled && !vehicle.equalsIgnoreCase(getDefaultVehicle().toString()))
+        if (chEnabled)
         {
-            // fall back to normal traversing
-            tmpAlgoFactory = new RoutingAlgorithmFactorySimple();
-            queryGraph = new QueryGraph(graph.getBaseGraph());
+            // without an explicit weighting the first CH weighting is used like before
+            String weightingStr = request.getHints().getWeighting().toLowerCase();
+            if (weightingStr.isEmpty())
+                weightingStr = getCHWeightings().get(0);
+
+            PrepareContractionHierarchies chPrepare = chPreparations.get(createCHKey(encoder, weightingStr));
+            if (chPrepare == null)
+            {
+                // no CH profile for this vehicle and weighting => fall back to normal traversing
+                tmpAlgoFactory = fallbackAlgoFactory;
+                queryGraph = new QueryGraph(graph.getBaseGraph());
+            } else
+            {
+                tmpAlgoFactory = chPrepare;
+                queryGraph = new QueryGraph(((LevelGraphStorage) graph).getLevelGraph(encoder, weightingStr));
+            }
         } else
         {
             queryGraph = new QueryGraph(graph);
@@ -963,6 +1241,10 @@ public class GraphHopper implements GraphHopperAPI
         AlgorithmOptions algoOpts = AlgorithmOptions.start().
                 algorithm(algoStr).traversalMode(tMode).flagEncoder(encoder).weighting(weighting).
                 build();
+        // without points and instructions the edges of the path are not necessary
+        boolean calcPath = request.getHints().getBool("instructions", enableInstructions)
+                || request.getHints().getBool("calcPoints", calcPoints);
+        algoOpts.getHints().put("ch.unpack", calcPath);
 
         for (int placeIndex = 1; placeIndex < points.size(); placeIndex++)
         {
@@ -994,11 +1276,232 @@ public class GraphHopper implements GraphHopperAPI
         return paths;
     }
 
+    /**
+     * Calculates weight, distance and time from every from point to every to point. Every point is
+     * looked up only once and if a CH preparation exists for the vehicle and weighting only one
+     * upward search per point is necessary, otherwise one Dijkstra per from point is used.
+     */
+    public GHMatrixResponse calcMatrix( GHMatrixRequest request )
+    {
+        if (graph == null || !fullyLoaded)
+            throw new IllegalStateException("Call load or importOrLoad before routing");
+
+        if (graph.isClosed())
+            throw new IllegalStateException("You need to create a new GraphHopper instance as it is already closed");
+
+        GHMatrixResponse rsp = new GHMatrixResponse();
+        String vehicle = request.getVehicle();
+        if (vehicle.isEmpty())
+            vehicle = getDefaultVehicle().toString();
+
+        if (!encodingManager.supports(vehicle))
+            return rsp.addError(new IllegalArgumentException("Vehicle " + vehicle + " unsupported. "
+                    + "Supported are: " + getEncodingManager()));
+
+        List<GHPoint> fromPoints = request.getFromPoints();
+        List<GHPoint> toPoints = request.getToPoints();
+        if (fromPoints.isEmpty() || toPoints.isEmpty())
+            return rsp.addError(new IllegalArgumentException("At least one from and one to point has to be specified, but was:"
+                    + fromPoints.size() + "x" + toPoints.size()));
+
+        FlagEncoder encoder = encodingManager.getEncoder(vehicle);
+        EdgeFilter edgeFilter = new DefaultEdgeFilter(encoder);
+
+        // identical points are looked up only once, e.g. if from and to points are the same
+        StopWatch sw = new StopWatch().start();
+        Map<GHPoint, QueryResult> lookups = new LinkedHashMap<GHPoint, QueryResult>();
+        int[] fromNodes = new int[fromPoints.size()];
+        int[] toNodes = new int[toPoints.size()];
+        QueryResult[] fromResults = lookupMatrixPoints(fromPoints, lookups, edgeFilter, "from", rsp);
+        QueryResult[] toResults = lookupMatrixPoints(toPoints, lookups, edgeFilter, "to", rsp);
+        if (rsp.hasErrors())
+            return rsp;
+
+        String debug = "idLookup:" + sw.stop().getSeconds() + "s";
+
+        QueryGraph queryGraph;
+        PrepareContractionHierarchies chPrepare = null;
+        String weightingStr = request.getHints().getWeighting().toLowerCase();
+        if (chEnabled)
+        {
+            if (weightingStr.isEmpty())
+                weightingStr = getCHWeightings().get(0);
+
+            chPrepare = chPreparations.get(createCHKey(encoder, weightingStr));
+            if (chPrepare == null)
+                queryGraph = new QueryGraph(graph.getBaseGraph());
+            else
+                queryGraph = new QueryGraph(((LevelGraphStorage) graph).getLevelGraph(encoder, weightingStr));
+        } else
+        {
+            queryGraph = new QueryGraph(graph);
+        }
+
+        queryGraph.lookup(new ArrayList<QueryResult>(lookups.values()));
+        for (int i = 0; i < fromNodes.length; i++)
+        {
+            fromNodes[i] = fromResults[i].getClosestNode();
+        }
+        for (int i = 0; i < toNodes.length; i++)
+        {
+            toNodes[i] = toResults[i].getClosestNode();
+        }
+
+        sw = new StopWatch().start();
+        if (chPrepare != null)
+        {
+            ManyToManyCH algo;
+            try
+            {
+                algo = chPrepare.createManyToMany(queryGraph);
+            } catch (UnsupportedOperationException ex)
+            {
+                return rsp.addError(ex);
+            }
+            algo.calcMatrix(fromNodes, toNodes);
+            rsp.setWeights(algo.getWeights()).setDistances(algo.getDistances()).setMillis(algo.getMillis());
+            debug += ", " + algo.getName() + ":" + sw.stop().getSeconds() + "s, visited nodes:" + algo.getVisitedNodes();
+        } else
+        {
+            Weighting weighting = createWeighting(request.getHints(), encoder);
+            double[][] weights = new double[fromNodes.length][toNodes.length];
+            double[][] distances = new double[fromNodes.length][toNodes.length];
+            long[][] millis = new long[fromNodes.length][toNodes.length];
+            DijkstraOneToMany algo = new DijkstraOneToMany(queryGraph, encoder, weighting, TraversalMode.NODE_BASED);
+            for (int fromIndex = 0; fromIndex < fromNodes.length; fromIndex++)
+            {
+                // the search space of one from node is reused for all to nodes
+                algo.clear();
+                for (int toIndex = 0; toIndex < toNodes.length; toIndex++)
+                {
+                    Path path = algo.calcPath(fromNodes[fromIndex], toNodes[toIndex]);
+                    if (path.isFound())
+                    {
+                        weights[fromIndex][toIndex] = path.getWeight();
+                        distances[fromIndex][toIndex] = path.getDistance();
+                        millis[fromIndex][toIndex] = path.getMillis();
+                    } else
+                    {
+                        weights[fromIndex][toIndex] = Double.MAX_VALUE;
+                        distances[fromIndex][toIndex] = Double.MAX_VALUE;
+                        millis[fromIndex][toIndex] = Long.MAX_VALUE;
+                    }
+                }
+            }
+            rsp.setWeights(weights).setDistances(distances).setMillis(millis);
+            debug += ", " + algo.getName() + ":" + sw.stop().getSeconds() + "s, visited nodes:" + algo.getVisitedNodes();
+        }
+        return rsp.setDebugInfo(debug);
+    }
+
+    private QueryResult[] lookupMatrixPoints( List<GHPoint> points, Map<GHPoint, QueryResult> lookups,
+            EdgeFilter edgeFilter, String type, GHMatrixResponse rsp )
+    {
+        QueryResult[] results = new QueryResult[points.size()];
+        List<GHPoint> missingPoints = new ArrayList<GHPoint>();
+        for (int i = 0; i < points.size(); i++)
+        {
+            results[i] = lookups.get(points.get(i));
+            if (results[i] == null)
+                missingPoints.add(points.get(i));
+        }
+        if (missingPoints.isEmpty())
+            return results;
+
+        QueryResult[] missingResults = findClosest(missingPoints, edgeFilter);
+        int missingIndex = 0;
+        for (int i = 0; i < points.size(); i++)
+        {
+            if (results[i] != null)
+                continue;
+
+            GHPoint point = points.get(i);
+            QueryResult res = missingResults[missingIndex++];
+            if (!res.isValid())
+            {
+                rsp.addError(new IllegalArgumentException("Cannot find " + type + " point " + i + ": " + point));
+            } else if (lookups.containsKey(point))
+            {
+                // the same point is contained twice
+                res = lookups.get(point);
+            } else
+            {
+                lookups.put(point, res);
+            }
+            results[i] = res;
+        }
+        return results;
+    }
+
+    /**
+     * Calculates all locations reachable from the request point within the time or distance limit
+     * and a polygon for every bucket of the limit.
+     */
+    public GHIsochroneResponse calcIsochrone( GHIsochroneRequest request )
+    {
+        if (graph == null || !fullyLoaded)
+            throw new IllegalStateException("Call load or importOrLoad before routing");
+
+        if (graph.isClosed())
+            throw new IllegalStateException("You need to create a new GraphHopper instance as it is already closed");
+
+        GHIsochroneResponse rsp = new GHIsochroneResponse();
+        String vehicle = request.getVehicle();
+        if (vehicle.isEmpty())
+            vehicle = getDefaultVehicle().toString();
+
+        if (!encodingManager.supports(vehicle))
+            return rsp.addError(new IllegalArgumentException("Vehicle " + vehicle + " unsupported. "
+                    + "Supported are: " + getEncodingManager()));
+
+        boolean timeLimit = request.getTimeLimit() >= 0;
+        if (timeLimit == request.getDistanceLimit() >= 0)
+            return rsp.addError(new IllegalArgumentException("Specify either a time or a distance limit"));
+
+        if (request.getBuckets() < 1)
+            return rsp.addError(new IllegalArgumentException("At least one bucket is necessary but was " + request.getBuckets()));
+
+        FlagEncoder encoder = encodingManager.getEncoder(vehicle);
+        GHPoint point = request.getPoint();
+        StopWatch sw = new StopWatch().start();
+        QueryResult qResult = locationIndex.findClosest(point.lat, point.lon, new DefaultEdgeFilter(encoder));
+        if (!qResult.isValid())
+            return rsp.addError(new IllegalArgumentException("Cannot find point: " + point));
+
+        String debug = "idLookup:" + sw.stop().getSeconds() + "s";
+
+        // the search does not use shortcuts
+        QueryGraph queryGraph = new QueryGraph(graph.getBaseGraph());
+        queryGraph.lookup(Collections.singletonList(qResult));
+
+        // for fastest the weight is in seconds and for shortest in meter. Not via createWeighting as
+        // this would return the PriorityWeighting for bike and foot, which is not in seconds
+        Weighting weighting = timeLimit ? new FastestWeighting(encoder) : new ShortestWeighting();
+        Isochrone isochrone = new Isochrone(queryGraph, encoder, weighting);
+        isochrone.setWeightLimit(timeLimit ? request.getTimeLimit() : request.getDistanceLimit());
+
+        sw = new StopWatch().start();
+        TIntArrayList nodes = isochrone.search(qResult.getClosestNode());
+        NodeAccess na = queryGraph.getNodeAccess();
+        PointList points = new PointList(nodes.size(), na.is3D());
+        double[] weights = new double[nodes.size()];
+        for (int i = 0; i < nodes.size(); i++)
+        {
+            int node = nodes.get(i);
+            points.add(na, node);
+            weights[i] = isochrone.getWeight(node);
+        }
+        rsp.setReachable(points, weights).setPolygons(isochrone.calcPolygons(request.getBuckets()));
+        debug += ", isochrone:" + sw.stop().getSeconds() + "s, visited nodes:" + isochrone.getVisitedNodes();
+        return rsp.setDebugInfo(debug);
+    }
+
     protected LocationIndex createLocationIndex( Directory dir )
     {
         LocationIndexTree tmpIndex = new LocationIndexTree(graph.getBaseGraph(), dir);
         tmpIndex.setResolution(preciseIndexResolution);
         tmpIndex.setMaxRegionSearch(maxRegionSearch);
+        tmpIndex.setThreads(indexThreads);
         if (!tmpIndex.loadExisting())
         {
             ensureWriteAccess();
@@ -1026,11 +1529,11 @@ public class GraphHopper implements GraphHopperAPI
         logger.info("finished optimize (" + Helper.getMemInfo() + ")");
 
         // Later: move this into the GraphStorage.optimize method
-        // Or: Doing it after preparation to optimize shortcuts too. But not possible yet #12
+        // For prepared graphs including the shortcuts use setNodeOrder instead
         if (sortGraph)
         {
             if (graph instanceof LevelGraph && isPrepared())
-                throw new IllegalArgumentException("Sorting prepared LevelGraph is not possible yet. See #12");
+                throw new IllegalArgumentException("Sorting prepared LevelGraph is not possible, use graph.nodeOrder instead");
 
             GraphStorage newGraph = GHUtility.newStorage(graph);
             GHUtility.sortDFS(graph, newGraph);
@@ -1039,25 +1542,103 @@ public class GraphHopper implements GraphHopperAPI
         }
     }
 
+    /**
+     * Renumbers the nodes and edges of the graph including the shortcuts according to nodeOrder.
+     */
+    protected void reorderNodes()
+    {
+        ensureWriteAccess();
+        if (locationIndex != null)
+            throw new IllegalStateException("Reorder the nodes before creating the location index");
+
+        int[] oldToNew;
+        if ("spatial".equals(nodeOrder))
+            oldToNew = GHUtility.createSpatialOrder(graph);
+        else if ("dfs".equals(nodeOrder))
+            oldToNew = GHUtility.createDFSOrder(graph.getBaseGraph());
+        else if ("level".equals(nodeOrder))
+        {
+            if (!(graph instanceof LevelGraph))
+                throw new IllegalArgumentException("Node order 'level' requires CH");
+
+            oldToNew = GHUtility.createLevelOrder((LevelGraph) graph);
+        } else
+            throw new IllegalArgumentException("Unknown node order " + nodeOrder);
+
+        logger.info("reordering nodes by " + nodeOrder + " ... (" + Helper.getMemInfo() + ")");
+        graph.renumberNodes(oldToNew);
+        // a stored location index refers to the old ids
+        Directory dir = graph.getDirectory();
+        dir.remove(dir.find("location_index"));
+        graph.getProperties().put("graph.nodeOrder", nodeOrder);
+        logger.info("finished reordering nodes (" + Helper.getMemInfo() + ")");
+    }
+
     protected void prepare()
     {
         boolean tmpPrepare = doPrepare && algoFactory instanceof PrepareContractionHierarchies;
         if (tmpPrepare)
         {
             ensureWriteAccess();
-            logger.info("calling prepare.doWork for " + getDefaultVehicle() + " ... (" + Helper.getMemInfo() + ")");
-            ((PrepareContractionHierarchies) algoFactory).doWork();
+            logger.info("calling prepare.doWork for " + chPreparations.keySet() + " ... (" + Helper.getMemInfo() + ")");
+            if (chPreparations.size() <= 1)
+                ((PrepareContractionHierarchies) algoFactory).doWork();
+            else
+                prepareConcurrently();
+
             graph.getProperties().put("prepare.date", formatDateTime(new Date()));
         }
         graph.getProperties().put("prepare.done", tmpPrepare);
     }
 
+    /**
+     * The CH profiles share only the read-only base graph and can therefor be prepared at the same
+     * time.
+     */
+    private void prepareConcurrently()
+    {
+        ExecutorService executorService = Executors.newFixedThreadPool(chPreparations.size());
+        try
+        {
+            List<Future<Object>> futures = new ArrayList<Future<Object>>(chPreparations.size());
+            for (final Map.Entry<String, PrepareContractionHierarchies> entry : chPreparations.entrySet())
+            {
+                futures.add(executorService.submit(new Callable<Object>()
+                {
+                    @Override
+                    public Object call()
+                    {
+                        entry.getValue().doWork();
+                        logger.info("finished CH preparation for " + entry.getKey() + " (" + Helper.getMemInfo() + ")");
+                        return null;
+                    }
+                }));
+            }
+
+            for (Future<Object> future : futures)
+            {
+                future.get();
+            }
+        } catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while preparing CH profiles", ex);
+        } catch (ExecutionException ex)
+        {
+            throw new RuntimeException("Cannot prepare CH profiles " + chPreparations.keySet(), ex.getCause());
+        } finally
+        {
+            executorService.shutdownNow();
+        }
+    }
+
     protected void cleanUp()
     {
         int prev = graph.getNodes();
         PrepareRoutingSubnetworks preparation = new PrepareRoutingSubnetworks(graph, encodingManager);
         preparation.setMinNetworkSize(minNetworkSize);
         preparation.setMinOneWayNetworkSize(minOneWayNetworkSize);
+        preparation.setThreads(prepareThreads);
         logger.info("start finding subnetworks, " + Helper.getMemInfo());
         preparation.doWork();
         int n = graph.getNodes();
@@ -1071,6 +1652,8 @@ public class GraphHopper implements GraphHopperAPI
     {
         logger.info("flushing graph " + graph.toString() + ", details:" + graph.toDetailsString() + ", " + Helper.getMemInfo() + ")");
         graph.flush();
+        // no changes are allowed from now on which makes concurrent routing safe
+        graph.getDirectory().freeze();
         fullyLoaded = true;
     }
 
@@ -0,0 +1,203 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.graphhopper.util.NotThreadSafe;
+import java.util.Arrays;
+
+/**
+ * An open addressing map from int keys to int values which is cleared in O(1) via a version stamp.
+ * A slot is only valid if its stamp equals the current version, so clearing just increments the
+ * version and the arrays can be reused for many small queries without allocating. Used e.g. by the
+ * search state of the routing algorithms and by GHIntStampedSet.
+ * <p/>
+ * @author Peter Karich
+ */
+@NotThreadSafe
+public class GHIntIntStampedMap
+{
+    public static final int NO_VALUE = -1;
+    private static final float LOAD_FACTOR = 0.5f;
+    private int[] keys;
+    private int[] values;
+    private int[] stamps;
+    private int mask;
+    private int size;
+    private int version = 1;
+
+    public GHIntIntStampedMap()
+    {
+        this(16);
+    }
+
+    /**
+     * @param initialCapacity the number of keys which can be added without rehashing
+     */
+    public GHIntIntStampedMap( int initialCapacity )
+    {
+        initTable(calcSlots(Math.max(4, initialCapacity)));
+    }
+
+    private static int calcSlots( int capacity )
+    {
+        // the smallest power of two which keeps the load factor
+        return Integer.highestOneBit((int) (capacity / LOAD_FACTOR) - 1) << 1;
+    }
+
+    private void initTable( int slots )
+    {
+        keys = new int[slots];
+        values = new int[slots];
+        stamps = new int[slots];
+        mask = slots - 1;
+        size = 0;
+        version = 1;
+    }
+
+    private static int hash( int key )
+    {
+        // spread the bits as ids of one area are often consecutive
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return the value associated to the specified key or NO_VALUE
+     */
+    public int get( int key )
+    {
+        int slot = hash(key) & mask;
+        while (stamps[slot] == version)
+        {
+            if (keys[slot] == key)
+                return values[slot];
+
+            slot = (slot + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    public boolean containsKey( int key )
+    {
+        return get(key) != NO_VALUE;
+    }
+
+    /**
+     * Associates the specified value to the key and overwrites an existing value.
+     */
+    public void put( int key, int value )
+    {
+        put(key, value, true);
+    }
+
+    /**
+     * Associates the specified value to the key only if the key is not yet contained.
+     * <p/>
+     * @return the existing value or NO_VALUE if the specified value was added
+     */
+    public int putIfAbsent( int key, int value )
+    {
+        return put(key, value, false);
+    }
+
+    private int put( int key, int value, boolean overwrite )
+    {
+        if (size >= keys.length * LOAD_FACTOR)
+            rehash(keys.length << 1);
+
+        int slot = hash(key) & mask;
+        while (stamps[slot] == version)
+        {
+            if (keys[slot] == key)
+            {
+                int old = values[slot];
+                if (overwrite)
+                    values[slot] = value;
+                return old;
+            }
+            slot = (slot + 1) & mask;
+        }
+        stamps[slot] = version;
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        return NO_VALUE;
+    }
+
+    private void rehash( int newSlots )
+    {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        int[] oldStamps = stamps;
+        int oldVersion = version;
+        initTable(newSlots);
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            if (oldStamps[i] == oldVersion)
+                put(oldKeys[i], oldValues[i], true);
+        }
+    }
+
+    /**
+     * Makes sure that the specified number of keys can be contained without rehashing.
+     */
+    public void ensureCapacity( int capacity )
+    {
+        int slots = calcSlots(capacity);
+        if (slots > keys.length)
+            rehash(slots);
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * Forgets all keys without touching the arrays.
+     */
+    public void clear()
+    {
+        size = 0;
+        version++;
+        if (version == Integer.MAX_VALUE)
+        {
+            Arrays.fill(stamps, 0);
+            version = 1;
+        }
+    }
+
+    /**
+     * @return approximative memory usage in bytes
+     */
+    public long getCapacityInBytes()
+    {
+        return 12L * keys.length;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "size:" + size + ", slots:" + keys.length;
+    }
+}
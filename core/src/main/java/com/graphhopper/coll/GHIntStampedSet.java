@@ -0,0 +1,169 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.graphhopper.util.NotThreadSafe;
+import java.util.Arrays;
+
+/**
+ * A set of int values which is cleared in O(1) as it is backed by a GHIntIntStampedMap, so it can
+ * be reused for many small queries without allocating. The values are additionally kept in
+ * insertion order which makes the iteration via get(index) cheap and deterministic.
+ * <p/>
+ * @author Peter Karich
+ */
+@NotThreadSafe
+public class GHIntStampedSet implements GHBitSet
+{
+    // value -> index in insertion order
+    private final GHIntIntStampedMap indices;
+    private int[] values;
+    private int size;
+
+    public GHIntStampedSet()
+    {
+        this(64);
+    }
+
+    public GHIntStampedSet( int initialCapacity )
+    {
+        initialCapacity = Math.max(8, initialCapacity);
+        indices = new GHIntIntStampedMap(initialCapacity);
+        values = new int[initialCapacity];
+    }
+
+    @Override
+    public boolean contains( int value )
+    {
+        return indices.containsKey(value);
+    }
+
+    @Override
+    public void add( int value )
+    {
+        addOnce(value);
+    }
+
+    /**
+     * @return true if the value was not yet in this set
+     */
+    public boolean addOnce( int value )
+    {
+        if (indices.putIfAbsent(value, size) != GHIntIntStampedMap.NO_VALUE)
+            return false;
+
+        if (size == values.length)
+            values = Arrays.copyOf(values, size * 2);
+
+        values[size++] = value;
+        return true;
+    }
+
+    /**
+     * @return the value at the specified position in insertion order
+     */
+    public int get( int index )
+    {
+        if (index >= size)
+            throw new ArrayIndexOutOfBoundsException("index " + index + " >= size " + size);
+
+        return values[index];
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    @Override
+    public int getCardinality()
+    {
+        return size;
+    }
+
+    @Override
+    public void clear()
+    {
+        size = 0;
+        indices.clear();
+    }
+
+    /**
+     * Every int value can be added to this set, so in contrast to a bit set there is nothing to
+     * grow for big values. Instead the specified number of values can be added afterwards without
+     * rehashing.
+     */
+    @Override
+    public void ensureCapacity( int capacity )
+    {
+        indices.ensureCapacity(capacity);
+        if (capacity > values.length)
+            values = Arrays.copyOf(values, capacity);
+    }
+
+    /**
+     * Scans all values as they are not sorted. O(size)
+     * <p/>
+     * @return the smallest value which is greater or equal to the specified one or -1
+     */
+    @Override
+    public int next( int value )
+    {
+        int next = -1;
+        boolean found = false;
+        for (int i = 0; i < size; i++)
+        {
+            int tmp = values[i];
+            if (tmp >= value && (!found || tmp < next))
+            {
+                next = tmp;
+                found = true;
+            }
+        }
+        return next;
+    }
+    @Override
+    public GHBitSet copyTo( GHBitSet bs )
+    {
+        bs.clear();
+        for (int i = 0; i < size; i++)
+        {
+            bs.add(values[i]);
+        }
+        return bs;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < size; i++)
+        {
+            if (i > 0)
+                sb.append(", ");
+
+            sb.append(values[i]);
+        }
+        return sb.toString();
+    }
+}
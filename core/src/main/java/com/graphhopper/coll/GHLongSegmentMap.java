@@ -0,0 +1,343 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.util.Helper;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.hash.TLongLongHashMap;
+
+/**
+ * A map from long keys to int or long values which keeps nearly all of its data in a DataAccess,
+ * so it works with RAM, MMAP or UNSAFE storage and needs only a small heap.
+ * <p/>
+ * The keys are split into segments of 1024 consecutive keys. Every segment is a sorted record in
+ * the DataAccess which stores the keys relative to the segment start as short and the values in a
+ * separate column. An in-memory fence index maps the segment number to the position of its record.
+ * Records grow in a few capacity classes and freed records are reused. As OSM ids are dense and
+ * nearly sorted this needs roughly 6 bytes per int entry and appending is the common case.
+ * <p/>
+ * Keys which are negative or bigger than 2^40 are rare and stored in a heap map.
+ * <p/>
+ * @author Peter Karich
+ */
+public class GHLongSegmentMap implements LongIntMap
+{
+    private static final int SEGMENT_BITS = 10;
+    private static final int SEGMENT_MASK = (1 << SEGMENT_BITS) - 1;
+    private static final long MAX_KEY = 1L << 40;
+    private static final int FENCE_PAGE_BITS = 16;
+    private static final int FENCE_PAGE_MASK = (1 << FENCE_PAGE_BITS) - 1;
+    private static final int[] CAPACITIES =
+    {
+        4, 16, 64, 256, 1 << SEGMENT_BITS
+    };
+    // count and capacity class, aligned to 8 bytes
+    private static final int HEADER_BYTES = 8;
+    private final Directory dir;
+    private final DataAccess da;
+    private final int valueBytes;
+    private final long noEntryValue;
+    // the record position of a segment divided by 8 plus 1, treated as unsigned, 0 means empty
+    // so records can start below 32 GiB
+    static final long MAX_RECORD = (0xFFFFFFFFL - 1) << 3;
+    private final int[][] fence = new int[(int) (MAX_KEY >>> (SEGMENT_BITS + FENCE_PAGE_BITS))][];
+    private final TLongArrayList[] freeRecords = new TLongArrayList[CAPACITIES.length];
+    private final TLongLongHashMap otherKeys;
+    private long nextRecord;
+    private long size;
+
+    /**
+     * Creates a map with int values and -1 for missing keys.
+     */
+    public GHLongSegmentMap( Directory dir, String name )
+    {
+        this(dir, name, 4, -1);
+    }
+
+    /**
+     * @param valueBytes 4 for int values and 8 for long values
+     * @param noEntryValue the value returned for missing keys
+     */
+    public GHLongSegmentMap( Directory dir, String name, int valueBytes, long noEntryValue )
+    {
+        if (valueBytes != 4 && valueBytes != 8)
+            throw new IllegalArgumentException("Values must have 4 or 8 bytes but was " + valueBytes);
+
+        this.dir = dir;
+        this.valueBytes = valueBytes;
+        this.noEntryValue = noEntryValue;
+        this.da = dir.find(name).create(1000);
+        this.otherKeys = new TLongLongHashMap(10, .5f, 0, noEntryValue);
+        for (int i = 0; i < freeRecords.length; i++)
+        {
+            freeRecords[i] = new TLongArrayList();
+        }
+    }
+
+    @Override
+    public int put( long key, int value )
+    {
+        return (int) putLong(key, value);
+    }
+
+    @Override
+    public int get( long key )
+    {
+        return (int) getLong(key);
+    }
+
+    /**
+     * @return the old value or the no entry value if the key was not present
+     */
+    public long putLong( long key, long value )
+    {
+        if (key < 0 || key >= MAX_KEY)
+        {
+            int oldSize = otherKeys.size();
+            long old = otherKeys.put(key, value);
+            size += otherKeys.size() - oldSize;
+            return old;
+        }
+
+        long segment = key >>> SEGMENT_BITS;
+        short offset = (short) (key & SEGMENT_MASK);
+        long record = getRecord(segment);
+        if (record < 0)
+        {
+            record = allocate(0);
+            setRecord(segment, record);
+        }
+
+        int header = da.getInt(record);
+        int count = header & 0xFFFF;
+        // nearly sorted keys are mostly appended
+        int index;
+        if (count == 0 || getKeyOffset(record, header, count - 1) < offset)
+            index = ~count;
+        else
+            index = binarySearch(record, header, count, offset);
+
+        if (index >= 0)
+        {
+            long old = getValue(record, index);
+            setValue(record, index, value);
+            return old;
+        }
+
+        index = ~index;
+        int capacityClass = header >>> 16;
+        if (count == CAPACITIES[capacityClass])
+        {
+            record = grow(segment, record, capacityClass, count);
+            header = da.getInt(record);
+        }
+
+        for (int i = count; i > index; i--)
+        {
+            setKeyOffset(record, header, i, getKeyOffset(record, header, i - 1));
+            setValue(record, i, getValue(record, i - 1));
+        }
+        setKeyOffset(record, header, index, offset);
+        setValue(record, index, value);
+        da.setInt(record, header + 1);
+        size++;
+        return noEntryValue;
+    }
+
+    public long getLong( long key )
+    {
+        if (key < 0 || key >= MAX_KEY)
+            return otherKeys.get(key);
+
+        long record = getRecord(key >>> SEGMENT_BITS);
+        if (record < 0)
+            return noEntryValue;
+
+        int header = da.getInt(record);
+        int index = binarySearch(record, header, header & 0xFFFF, (short) (key & SEGMENT_MASK));
+        if (index < 0)
+            return noEntryValue;
+
+        return getValue(record, index);
+    }
+
+    private long getRecord( long segment )
+    {
+        int[] page = fence[(int) (segment >>> FENCE_PAGE_BITS)];
+        if (page == null)
+            return -1;
+
+        long pointer = page[(int) (segment & FENCE_PAGE_MASK)] & 0xFFFFFFFFL;
+        return (pointer - 1) << 3;
+    }
+
+    private void setRecord( long segment, long record )
+    {
+        int pageIndex = (int) (segment >>> FENCE_PAGE_BITS);
+        int[] page = fence[pageIndex];
+        if (page == null)
+        {
+            page = new int[1 << FENCE_PAGE_BITS];
+            fence[pageIndex] = page;
+        }
+        page[(int) (segment & FENCE_PAGE_MASK)] = toFencePointer(record);
+    }
+
+    static int toFencePointer( long record )
+    {
+        if (record < 0 || record > MAX_RECORD)
+            throw new IllegalStateException("Record position " + record + " cannot be stored in the fence index, "
+                    + "the maximum is " + MAX_RECORD);
+
+        return (int) ((record >>> 3) + 1);
+    }
+
+    private long getRecordBytes( int capacityClass )
+    {
+        return HEADER_BYTES + (long) CAPACITIES[capacityClass] * (valueBytes + 2);
+    }
+
+    private long allocate( int capacityClass )
+    {
+        long record;
+        TLongArrayList free = freeRecords[capacityClass];
+        if (free.isEmpty())
+        {
+            // fail before the storage grows and not when the segment is stored
+            toFencePointer(nextRecord);
+            record = nextRecord;
+            nextRecord += getRecordBytes(capacityClass);
+            da.ensureCapacity(nextRecord);
+        } else
+        {
+            record = free.removeAt(free.size() - 1);
+        }
+        da.setInt(record, capacityClass << 16);
+        return record;
+    }
+
+    private long grow( long segment, long record, int capacityClass, int count )
+    {
+        int oldHeader = da.getInt(record);
+        long newRecord = allocate(capacityClass + 1);
+        int newHeader = da.getInt(newRecord);
+        for (int i = 0; i < count; i++)
+        {
+            setKeyOffset(newRecord, newHeader, i, getKeyOffset(record, oldHeader, i));
+            setValue(newRecord, i, getValue(record, i));
+        }
+        da.setInt(newRecord, newHeader | count);
+        freeRecords[capacityClass].add(record);
+        setRecord(segment, newRecord);
+        return newRecord;
+    }
+
+    private int binarySearch( long record, int header, int count, short offset )
+    {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            short midOffset = getKeyOffset(record, header, mid);
+            if (midOffset < offset)
+                low = mid + 1;
+            else if (midOffset > offset)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return ~low;
+    }
+
+    private long getKeyPointer( long record, int header, int index )
+    {
+        return record + HEADER_BYTES + (long) CAPACITIES[header >>> 16] * valueBytes + index * 2;
+    }
+
+    private short getKeyOffset( long record, int header, int index )
+    {
+        return da.getShort(getKeyPointer(record, header, index));
+    }
+
+    private void setKeyOffset( long record, int header, int index, short offset )
+    {
+        da.setShort(getKeyPointer(record, header, index), offset);
+    }
+
+    private long getValue( long record, int index )
+    {
+        long pointer = record + HEADER_BYTES + (long) index * valueBytes;
+        if (valueBytes == 4)
+            return da.getInt(pointer);
+
+        return ((long) da.getInt(pointer) << 32) | (da.getInt(pointer + 4) & 0xFFFFFFFFL);
+    }
+
+    private void setValue( long record, int index, long value )
+    {
+        long pointer = record + HEADER_BYTES + (long) index * valueBytes;
+        if (valueBytes == 4)
+        {
+            da.setInt(pointer, (int) value);
+        } else
+        {
+            da.setInt(pointer, (int) (value >>> 32));
+            da.setInt(pointer + 4, (int) value);
+        }
+    }
+
+    @Override
+    public long getSize()
+    {
+        return size;
+    }
+
+    @Override
+    public void optimize()
+    {
+    }
+
+    @Override
+    public int getMemoryUsage()
+    {
+        long fenceBytes = 0;
+        for (int[] page : fence)
+        {
+            if (page != null)
+                fenceBytes += page.length * 4;
+        }
+        return Math.round((da.getCapacity() + fenceBytes + otherKeys.capacity() * 16) / Helper.MB);
+    }
+
+    /**
+     * Removes the underlying storage. The map must not be used afterwards.
+     */
+    public void remove()
+    {
+        dir.remove(da);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "size:" + size + ", records:" + nextRecord / Helper.MB + "MB";
+    }
+}
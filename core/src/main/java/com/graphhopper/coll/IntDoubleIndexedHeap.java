@@ -0,0 +1,285 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap for dense int elements (e.g. node ids or entry ids) with double keys. In
+ * contrast to IntDoubleBinHeap it keeps the heap position of every element so that update (e.g.
+ * decrease-key) and contains are O(log n) and O(1) instead of a linear scan.
+ * <p/>
+ * The key of an element is kept after it was polled, see getKey.
+ * <p/>
+ * @author Peter Karich
+ */
+public class IntDoubleIndexedHeap implements BinHeapWrapper<Number, Integer>
+{
+    private static final double GROW_FACTOR = 1.5;
+    // indexed by element
+    private double[] keys;
+    // indexed by element, 0 means not contained
+    private int[] positions;
+    // 1-based heap of elements
+    private int[] heap;
+    private int size;
+
+    public IntDoubleIndexedHeap()
+    {
+        this(1000);
+    }
+
+    /**
+     * @param capacity the expected maximum element plus one. The heap grows if necessary.
+     */
+    public IntDoubleIndexedHeap( int capacity )
+    {
+        capacity = Math.max(10, capacity);
+        keys = new double[capacity];
+        positions = new int[capacity];
+        heap = new int[capacity + 1];
+    }
+
+    @Override
+    public int getSize()
+    {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public boolean contains( int element )
+    {
+        return element < positions.length && positions[element] > 0;
+    }
+
+    /**
+     * @return the key of the element which is still available after it was polled
+     */
+    public double getKey( int element )
+    {
+        return keys[element];
+    }
+
+    @Override
+    public Double peekKey()
+    {
+        return peek_key();
+    }
+
+    public double peek_key()
+    {
+        if (size == 0)
+            throw new IllegalStateException("An empty queue does not have a minimum key.");
+
+        return keys[heap[1]];
+    }
+
+    @Override
+    public Integer peekElement()
+    {
+        return peek_element();
+    }
+
+    public int peek_element()
+    {
+        if (size == 0)
+            throw new IllegalStateException("An empty queue does not have a minimum value.");
+
+        return heap[1];
+    }
+
+    @Override
+    public Integer pollElement()
+    {
+        return poll_element();
+    }
+
+    public int poll_element()
+    {
+        if (size == 0)
+            throw new IllegalStateException("An empty queue does not have a minimum value.");
+
+        int min = heap[1];
+        positions[min] = 0;
+        int last = heap[size];
+        size--;
+        if (size > 0)
+            siftDown(1, last);
+
+        return min;
+    }
+
+    @Override
+    public void insert( Number key, Integer element )
+    {
+        insert_(key.doubleValue(), element);
+    }
+
+    /**
+     * Adds an element which is not yet contained. O(log n)
+     */
+    public void insert_( double key, int element )
+    {
+        if (element >= positions.length)
+            ensureCapacity(Math.max(element + 1, (int) (positions.length * GROW_FACTOR)));
+
+        if (positions[element] > 0)
+            throw new IllegalStateException("Element " + element + " is already contained");
+
+        size++;
+        if (size >= heap.length)
+            heap = Arrays.copyOf(heap, (int) (heap.length * GROW_FACTOR) + 1);
+
+        keys[element] = key;
+        siftUp(size, element);
+    }
+
+    @Override
+    public void update( Number key, Integer element )
+    {
+        update_(key.doubleValue(), element);
+    }
+
+    /**
+     * Changes the key of a contained element. O(log n)
+     * <p/>
+     * @return false if the element is not contained
+     */
+    public boolean update_( double key, int element )
+    {
+        if (!contains(element))
+            return false;
+
+        double oldKey = keys[element];
+        keys[element] = key;
+        if (key < oldKey)
+            siftUp(positions[element], element);
+        else
+            siftDown(positions[element], element);
+        return true;
+    }
+
+    /**
+     * Inserts the element or changes its key if already contained.
+     */
+    public void insertOrUpdate( double key, int element )
+    {
+        if (!update_(key, element))
+            insert_(key, element);
+    }
+
+    private void siftUp( int pos, int element )
+    {
+        double key = keys[element];
+        while (pos > 1)
+        {
+            int parentPos = pos >> 1;
+            int parent = heap[parentPos];
+            if (keys[parent] <= key)
+                break;
+
+            heap[pos] = parent;
+            positions[parent] = pos;
+            pos = parentPos;
+        }
+        heap[pos] = element;
+        positions[element] = pos;
+    }
+
+    private void siftDown( int pos, int element )
+    {
+        double key = keys[element];
+        while (true)
+        {
+            int child = pos << 1;
+            if (child > size)
+                break;
+
+            if (child < size && keys[heap[child + 1]] < keys[heap[child]])
+                child++;
+
+            int childElement = heap[child];
+            if (keys[childElement] >= key)
+                break;
+
+            heap[pos] = childElement;
+            positions[childElement] = pos;
+            pos = child;
+        }
+        heap[pos] = element;
+        positions[element] = pos;
+    }
+
+    /**
+     * Removes all elements in O(size) without touching the rest of the arrays.
+     */
+    @Override
+    public void clear()
+    {
+        for (int i = 1; i <= size; i++)
+        {
+            positions[heap[i]] = 0;
+        }
+        size = 0;
+    }
+
+    /**
+     * Ensures that elements smaller than the specified capacity can be inserted without growing.
+     */
+    @Override
+    public void ensureCapacity( int capacity )
+    {
+        if (capacity <= positions.length)
+            return;
+
+        keys = Arrays.copyOf(keys, capacity);
+        positions = Arrays.copyOf(positions, capacity);
+    }
+
+    public int getCapacity()
+    {
+        return positions.length;
+    }
+
+    /**
+     * @return approximative memory usage in bytes
+     */
+    public long getCapacityInBytes()
+    {
+        return 12L * positions.length + 4L * heap.length;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i <= size; i++)
+        {
+            if (i > 1)
+                sb.append(", ");
+
+            sb.append(keys[heap[i]]).append(":").append(heap[i]);
+        }
+        return sb.toString();
+    }
+}
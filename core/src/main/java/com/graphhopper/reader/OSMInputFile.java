@@ -17,6 +17,7 @@
  */
 package com.graphhopper.reader;
 
+import com.graphhopper.reader.pbf.PbfBlobIndex;
 import com.graphhopper.reader.pbf.Sink;
 import com.graphhopper.reader.pbf.PbfReader;
 
@@ -26,6 +27,9 @@ import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import java.io.*;
 import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -45,14 +49,21 @@ public class OSMInputFile implements Sink, Closeable
     private XMLStreamReader parser;
     // for pbf parsing
     private boolean binary = false;
-    private final BlockingQueue<OSMElement> itemQueue;
-    private boolean hasIncomingData;
+    // marks the end of the pbf stream in the batch queue
+    private static final List<OSMElement> END_OF_STREAM = new ArrayList<OSMElement>(0);
+    private final BlockingQueue<List<OSMElement>> batchQueue;
+    private Iterator<OSMElement> currentBatch = END_OF_STREAM.iterator();
+    private volatile boolean closed;
     private int workerThreads = -1;
+    private PbfBlobIndex blobIndex;
+    private int typeMask = PbfBlobIndex.ALL_TYPES;
+    private boolean nodeBlocks;
 
     public OSMInputFile( File file ) throws IOException
     {
         bis = decode(file);
-        itemQueue = new LinkedBlockingQueue<OSMElement>(50000);
+        // one batch is one pbf blob, i.e. roughly 8000 elements
+        batchQueue = new LinkedBlockingQueue<List<OSMElement>>(64);
     }
 
     public OSMInputFile open() throws XMLStreamException
@@ -76,6 +87,28 @@ public class OSMInputFile implements Sink, Closeable
         return this;
     }
 
+    /**
+     * Currently only for pbf format. Decodes only the specified element types, see
+     * PbfBlobIndex.toMask, other types may still be returned. If the index is empty it is filled
+     * while reading, if it is complete all blobs without the specified types are skipped.
+     */
+    public OSMInputFile setBlobIndex( PbfBlobIndex blobIndex, int typeMask )
+    {
+        this.blobIndex = blobIndex;
+        this.typeMask = typeMask;
+        return this;
+    }
+
+    /**
+     * Currently only for pbf format. If true most nodes are returned in blocks of the type
+     * OSMElement.NODE_BLOCK instead of separate OSMNode elements.
+     */
+    public OSMInputFile setNodeBlocks( boolean nodeBlocks )
+    {
+        this.nodeBlocks = nodeBlocks;
+        return this;
+    }
+
     @SuppressWarnings("unchecked")
     private InputStream decode( File file ) throws IOException
     {
@@ -234,6 +267,7 @@ public class OSMInputFile implements Sink, Closeable
         } finally
         {
             eof = true;
+            closed = true;
             bis.close();
             // if exception happend on OSMInputFile-thread we need to shutdown the pbf handling
             if (pbfReaderThread != null && pbfReaderThread.isAlive())
@@ -244,59 +278,63 @@ public class OSMInputFile implements Sink, Closeable
 
     private void openPBFReader( InputStream stream )
     {
-        hasIncomingData = true;
         if (workerThreads <= 0)
-            workerThreads = 2;
+            workerThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
 
-        PbfReader reader = new PbfReader(stream, this, workerThreads);
+        PbfReader reader = new PbfReader(stream, this, workerThreads).setBlobIndex(blobIndex, typeMask).
+                setNodeBlocks(nodeBlocks);
         pbfReaderThread = new Thread(reader, "PBF Reader");
         pbfReaderThread.start();
     }
 
     @Override
-    public void process( OSMElement item )
+    public void process( List<OSMElement> items )
     {
         try
         {
             // blocks if full
-            itemQueue.put(item);
+            batchQueue.put(items);
         } catch (InterruptedException ex)
         {
             throw new RuntimeException(ex);
         }
-
-        // throw exception if full
-        // itemQueue.add(item);
     }
 
     @Override
     public void complete()
     {
-        hasIncomingData = false;
+        try
+        {
+            // if nobody is reading anymore the queue could stay full forever
+            while (!closed && !batchQueue.offer(END_OF_STREAM, 100, TimeUnit.MILLISECONDS))
+            {
+            }
+        } catch (InterruptedException ex)
+        {
+            // close was called
+        }
     }
 
     private OSMElement getNextPBF()
     {
-        OSMElement next = null;
-        while (next == null)
+        // synchronize with the pbf reader only once per blob
+        while (!currentBatch.hasNext())
         {
-            if (!hasIncomingData && itemQueue.isEmpty())
-            {
-                // we are done, stop polling
-                eof = true;
-                break;
-            }
-
             try
             {
-                // we cannot use "itemQueue.take()" as it blocks and hasIncomingData can change
-                next = itemQueue.poll(10, TimeUnit.MILLISECONDS);
+                List<OSMElement> batch = batchQueue.take();
+                if (batch == END_OF_STREAM)
+                {
+                    eof = true;
+                    return null;
+                }
+                currentBatch = batch.iterator();
             } catch (InterruptedException ex)
             {
                 eof = true;
-                break;
+                return null;
             }
         }
-        return next;
+        return currentBatch.next();
     }
 }
@@ -0,0 +1,118 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader;
+
+/**
+ * Stores the dense nodes of one pbf block in columns instead of creating one OSMNode with its own
+ * tag map per node. The tags are kept as indices into the string table of the block. Use
+ * createNode to get an OSMNode for the few nodes which are really required.
+ * <p/>
+ * @author Peter Karich
+ */
+public class OSMNodeBlock extends OSMElement
+{
+    private final long[] ids;
+    // in 1e-7 degree
+    private final int[] lats;
+    private final int[] lons;
+    // the tags of node i are keysVals[tagOffsets[i]] to keysVals[tagOffsets[i + 1]], key index
+    // followed by value index
+    private final int[] tagOffsets;
+    private final int[] keysVals;
+    private final String[] strings;
+
+    public OSMNodeBlock( long[] ids, int[] lats, int[] lons, int[] tagOffsets, int[] keysVals, String[] strings )
+    {
+        super(ids.length == 0 ? 0 : ids[0], NODE_BLOCK);
+        if (ids.length != lats.length || ids.length != lons.length || ids.length + 1 != tagOffsets.length)
+            throw new IllegalArgumentException("Columns of node block do not match " + ids.length + ", "
+                    + lats.length + ", " + lons.length + ", " + tagOffsets.length);
+
+        this.ids = ids;
+        this.lats = lats;
+        this.lons = lons;
+        this.tagOffsets = tagOffsets;
+        this.keysVals = keysVals;
+        this.strings = strings;
+    }
+
+    /**
+     * @return the number of nodes in this block
+     */
+    public int getSize()
+    {
+        return ids.length;
+    }
+
+    public long getId( int index )
+    {
+        return ids[index];
+    }
+
+    public double getLat( int index )
+    {
+        return ((double) lats[index]) / 10000000;
+    }
+
+    public double getLon( int index )
+    {
+        return ((double) lons[index]) / 10000000;
+    }
+
+    public boolean hasTags( int index )
+    {
+        return tagOffsets[index] < tagOffsets[index + 1];
+    }
+
+    /**
+     * @return the value of the specified tag or null if the node does not have it
+     */
+    public String getTag( int index, String key )
+    {
+        for (int i = tagOffsets[index]; i < tagOffsets[index + 1]; i += 2)
+        {
+            if (key.equals(strings[keysVals[i]]))
+                return strings[keysVals[i + 1]];
+        }
+        return null;
+    }
+
+    public boolean hasTag( int index, String key, String value )
+    {
+        return value.equals(getTag(index, key));
+    }
+
+    /**
+     * Creates a standalone node with a copy of the tags of the node at the specified index.
+     */
+    public OSMNode createNode( int index )
+    {
+        OSMNode node = new OSMNode(ids[index], getLat(index), getLon(index));
+        for (int i = tagOffsets[index]; i < tagOffsets[index + 1]; i += 2)
+        {
+            node.setTag(strings[keysVals[i]], strings[keysVals[i + 1]]);
+        }
+        return node;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Node block: " + ids.length + " nodes starting with " + getId();
+    }
+}
@@ -21,7 +21,6 @@ import static com.graphhopper.util.Helper.nf;
 import gnu.trove.list.TLongList;
 import gnu.trove.list.array.TLongArrayList;
 import gnu.trove.map.TIntLongMap;
-import gnu.trove.map.TLongLongMap;
 import gnu.trove.map.hash.TIntLongHashMap;
 import gnu.trove.map.hash.TLongLongHashMap;
 import gnu.trove.set.TLongSet;
@@ -38,10 +37,11 @@ import javax.xml.stream.XMLStreamException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.graphhopper.coll.GHLongIntBTree;
+import com.graphhopper.coll.GHLongSegmentMap;
 import com.graphhopper.coll.LongIntMap;
 import com.graphhopper.reader.OSMTurnRelation.TurnCostTableEntry;
 import com.graphhopper.reader.dem.ElevationProvider;
+import com.graphhopper.reader.pbf.PbfBlobIndex;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.storage.*;
 import com.graphhopper.util.*;
@@ -71,6 +71,11 @@ import java.util.*;
  * When creating an edge the pillar node information from the intermediate datastructure will be
  * stored in the way geometry of that edge.
  * <p/>
+ * For pbf files the first pass decodes only ways and relations and remembers the element types of
+ * every blob. The second pass uses this to skip all blobs without nodes and ways (and relations if
+ * turn costs are required) without reading them. Dense nodes are read in columns, see OSMNodeBlock,
+ * and an OSMNode is only created for the nodes used by ways.
+ * <p/>
  * @author Peter Karich
  */
 public class OSMReader implements DataReader
@@ -87,6 +92,7 @@ public class OSMReader implements DataReader
     private final NodeAccess nodeAccess;
     private EncodingManager encodingManager = null;
     private int workerThreads = -1;
+    private final PbfBlobIndex blobIndex = new PbfBlobIndex();
     protected long zeroCounter = 0;
     // Using the correct Map<Long, Integer> is hard. We need a memory efficient and fast solution for big data sets!
     //
@@ -95,10 +101,11 @@ public class OSMReader implements DataReader
     // same here: not applicable as ways introduces the nodes in 'wrong' order: new OSMIDSegmentedMap
     // memory overhead due to open addressing and full rehash:
     //        nodeOsmIdToIndexMap = new BigLongIntMap(expectedNodes, EMPTY);
-    // smaller memory overhead for bigger data sets because of avoiding a "rehash"
+    // smaller memory overhead for bigger data sets because of avoiding a "rehash": new GHLongIntBTree
+    // off-heap via the graph directory and nearly sorted ids are appended: new GHLongSegmentMap
     // remember how many times a node was used to identify tower nodes
-    private LongIntMap osmNodeIdToInternalNodeMap;
-    private TLongLongHashMap osmNodeIdToNodeFlagsMap;
+    private GHLongSegmentMap osmNodeIdToInternalNodeMap;
+    private GHLongSegmentMap osmNodeIdToNodeFlagsMap;
     private TLongLongHashMap osmWayIdToRouteWeightMap;
     // stores osm way ids used by relations to identify which edge ids needs to be mapped later
     private TLongHashSet osmWayIdSet = new TLongHashSet();
@@ -124,8 +131,8 @@ public class OSMReader implements DataReader
         this.graphStorage = storage;
         this.nodeAccess = graphStorage.getNodeAccess();
 
-        osmNodeIdToInternalNodeMap = new GHLongIntBTree(200);
-        osmNodeIdToNodeFlagsMap = new TLongLongHashMap(200, .5f, 0, 0);
+        osmNodeIdToInternalNodeMap = new GHLongSegmentMap(graphStorage.getDirectory(), "tmpNodeMap");
+        osmNodeIdToNodeFlagsMap = new GHLongSegmentMap(graphStorage.getDirectory(), "tmpNodeFlagsMap", 8, 0);
         osmWayIdToRouteWeightMap = new TLongLongHashMap(200, .5f, 0, 0);
         pillarInfo = new PillarInfo(nodeAccess.is3D(), graphStorage.getDirectory());
     }
@@ -163,13 +170,17 @@ public class OSMReader implements DataReader
         OSMInputFile in = null;
         try
         {
-            in = new OSMInputFile(osmFile).setWorkerThreads(workerThreads).open();
+            int typeMask = PbfBlobIndex.toMask(OSMElement.WAY) | PbfBlobIndex.toMask(OSMElement.RELATION);
+            in = new OSMInputFile(osmFile).setWorkerThreads(workerThreads).setBlobIndex(blobIndex, typeMask).open();
 
             long tmpWayCounter = 1;
             long tmpRelationCounter = 1;
+            long elementCounter = 0;
+            long startNanos = System.nanoTime();
             OSMElement item;
             while ((item = in.getNext()) != null)
             {
+                elementCounter++;
                 if (item.isType(OSMElement.WAY))
                 {
                     final OSMWay way = (OSMWay) item;
@@ -186,7 +197,8 @@ public class OSMReader implements DataReader
                         if (++tmpWayCounter % 5000000 == 0)
                         {
                             logger.info(nf(tmpWayCounter) + " (preprocess), osmIdMap:" + nf(getNodeMap().getSize()) + " ("
-                                    + getNodeMap().getMemoryUsage() + "MB) " + Helper.getMemInfo());
+                                    + getNodeMap().getMemoryUsage() + "MB), " + perSecond(elementCounter, startNanos)
+                                    + " " + Helper.getMemInfo());
                         }
                     }
                 }
@@ -202,11 +214,12 @@ public class OSMReader implements DataReader
                     if (++tmpRelationCounter % 50000 == 0)
                     {
                         logger.info(nf(tmpRelationCounter) + " (preprocess), osmWayMap:" + nf(getRelFlagsMap().size())
-                                + " " + Helper.getMemInfo());
+                                + ", " + perSecond(elementCounter, startNanos) + " " + Helper.getMemInfo());
                     }
 
                 }
             }
+            logger.info(nf(elementCounter) + " elements (preprocess), " + perSecond(elementCounter, startNanos));
         } catch (Exception ex)
         {
             throw new RuntimeException("Problem while parsing file", ex);
@@ -272,10 +285,18 @@ public class OSMReader implements DataReader
         long wayStart = -1;
         long relationStart = -1;
         long counter = 1;
+        long nextProgressCounter = 100000000;
+        long startNanos = System.nanoTime();
         OSMInputFile in = null;
         try
         {
-            in = new OSMInputFile(osmFile).setWorkerThreads(workerThreads).open();
+            int typeMask = PbfBlobIndex.toMask(OSMElement.NODE) | PbfBlobIndex.toMask(OSMElement.WAY);
+            // relations are only used for turn costs in this pass
+            if (graphStorage.getExtension() instanceof TurnCostExtension)
+                typeMask |= PbfBlobIndex.toMask(OSMElement.RELATION);
+
+            in = new OSMInputFile(osmFile).setWorkerThreads(workerThreads).setBlobIndex(blobIndex, typeMask).
+                    setNodeBlocks(true).open();
             LongIntMap nodeFilter = getNodeMap();
 
             OSMElement item;
@@ -290,6 +311,18 @@ public class OSMReader implements DataReader
                         }
                         break;
 
+                    case OSMElement.NODE_BLOCK:
+                        // create nodes only for the small fraction we need
+                        OSMNodeBlock nodeBlock = (OSMNodeBlock) item;
+                        int size = nodeBlock.getSize();
+                        for (int index = 0; index < size; index++)
+                        {
+                            if (nodeFilter.get(nodeBlock.getId(index)) != -1)
+                                processNode(nodeBlock.createNode(index));
+                        }
+                        counter += size - 1;
+                        break;
+
                     case OSMElement.WAY:
                         if (wayStart < 0)
                         {
@@ -307,11 +340,14 @@ public class OSMReader implements DataReader
                         processRelation((OSMRelation) item);
                         break;
                 }
-                if (++counter % 100000000 == 0)
+                if (++counter >= nextProgressCounter)
                 {
-                    logger.info(nf(counter) + ", locs:" + nf(locations) + " (" + skippedLocations + ") " + Helper.getMemInfo());
+                    nextProgressCounter += 100000000;
+                    logger.info(nf(counter) + ", locs:" + nf(locations) + " (" + skippedLocations + "), "
+                            + perSecond(counter, startNanos) + " " + Helper.getMemInfo());
                 }
             }
+            logger.info(nf(counter - 1) + " elements, " + perSecond(counter - 1, startNanos));
 
             // logger.info("storage nodes:" + storage.nodes() + " vs. graph nodes:" + storage.getGraph().nodes());
         } catch (Exception ex)
@@ -327,6 +363,19 @@ public class OSMReader implements DataReader
             throw new IllegalStateException("osm must not be empty. read " + counter + " lines and " + locations + " locations");
     }
 
+    private static String perSecond( long elements, long startNanos )
+    {
+        return nf(calcPerSecond(elements, System.nanoTime() - startNanos)) + " elements/s";
+    }
+
+    /**
+     * Calculates in double as elements * 10^9 overflows a long for more than 9.2 billion elements.
+     */
+    static long calcPerSecond( long elements, long nanos )
+    {
+        return Math.round(elements / (Math.max(1, nanos) / 1e9));
+    }
+
     /**
      * Process properties, encode flags and create edges for the way.
      */
@@ -375,14 +424,14 @@ public class OSMReader implements DataReader
         for (int i = 0; i < size; i++)
         {
             long nodeId = osmNodeIds.get(i);
-            long nodeFlags = getNodeFlagsMap().get(nodeId);
+            long nodeFlags = getNodeFlagsMap().getLong(nodeId);
             // barrier was spotted and way is otherwise passable for that mode of travel
             if (nodeFlags > 0)
             {
                 if ((nodeFlags & wayFlags) > 0)
                 {
                     // remove barrier to avoid duplicates
-                    getNodeFlagsMap().put(nodeId, 0);
+                    getNodeFlagsMap().putLong(nodeId, 0);
 
                     // create shadow node copy for zero length edge
                     long newNodeId = addBarrierNode(nodeId);
@@ -566,7 +615,7 @@ public class OSMReader implements DataReader
             {
                 long nodeFlags = encodingManager.handleNodeTags(node);
                 if (nodeFlags != 0)
-                    getNodeFlagsMap().put(node.getId(), nodeFlags);
+                    getNodeFlagsMap().putLong(node.getId(), nodeFlags);
             }
 
             locations++;
@@ -842,7 +891,9 @@ public class OSMReader implements DataReader
         printInfo("way");
         pillarInfo.clear();
         eleProvider.release();
+        osmNodeIdToInternalNodeMap.remove();
         osmNodeIdToInternalNodeMap = null;
+        osmNodeIdToNodeFlagsMap.remove();
         osmNodeIdToNodeFlagsMap = null;
         osmWayIdToRouteWeightMap = null;
         osmWayIdSet = null;
@@ -945,7 +996,7 @@ public class OSMReader implements DataReader
         return osmNodeIdToInternalNodeMap;
     }
 
-    protected TLongLongMap getNodeFlagsMap()
+    protected GHLongSegmentMap getNodeFlagsMap()
     {
         return osmNodeIdToNodeFlagsMap;
     }
@@ -999,7 +1050,7 @@ public class OSMReader implements DataReader
     {
         LoggerFactory.getLogger(getClass()).info(
                 "finished " + str + " processing." + " nodes: " + graphStorage.getNodes() + ", osmIdMap.size:" + getNodeMap().getSize()
-                + ", osmIdMap:" + getNodeMap().getMemoryUsage() + "MB" + ", nodeFlagsMap.size:" + getNodeFlagsMap().size()
+                + ", osmIdMap:" + getNodeMap().getMemoryUsage() + "MB" + ", nodeFlagsMap.size:" + getNodeFlagsMap().getSize()
                 + ", relFlagsMap.size:" + getRelFlagsMap().size() + " " + Helper.getMemInfo());
     }
 
@@ -1,9 +1,12 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package com.graphhopper.reader.pbf;
 
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
 import com.graphhopper.reader.OSMElement;
 import com.graphhopper.reader.OSMNode;
+import com.graphhopper.reader.OSMNodeBlock;
 import com.graphhopper.reader.OSMRelation;
 import com.graphhopper.reader.OSMWay;
 import org.openstreetmap.osmosis.osmbinary.Fileformat;
@@ -31,7 +34,11 @@ public class PbfBlobDecoder implements Runnable
     private final String blobType;
     private final byte[] rawBlob;
     private final PbfBlobDecoderListener listener;
+    private final int typeMask;
+    private final boolean nodeBlocks;
     private List<OSMElement> decodedEntities;
+    private int contentTypes;
+    private final PbfStringCache stringCache;
 
     /**
      * Creates a new instance.
@@ -42,9 +49,40 @@ public class PbfBlobDecoder implements Runnable
      */
     public PbfBlobDecoder( String blobType, byte[] rawBlob, PbfBlobDecoderListener listener )
     {
+        this(blobType, rawBlob, listener, PbfBlobIndex.ALL_TYPES);
+    }
+
+    /**
+     * @param typeMask The element types to decode, see PbfBlobIndex.toMask. All other elements are
+     * skipped without creating objects for them.
+     */
+    public PbfBlobDecoder( String blobType, byte[] rawBlob, PbfBlobDecoderListener listener, int typeMask )
+    {
+        this(blobType, rawBlob, listener, typeMask, false);
+    }
+
+    /**
+     * @param nodeBlocks If true dense nodes are decoded into one OSMNodeBlock per primitive group
+     * instead of one OSMNode per node.
+     */
+    public PbfBlobDecoder( String blobType, byte[] rawBlob, PbfBlobDecoderListener listener, int typeMask,
+            boolean nodeBlocks )
+    {
+        this(blobType, rawBlob, listener, typeMask, nodeBlocks, null);
+    }
+
+    /**
+     * @param stringCache shares the strings of all blocks, null to keep a copy per block
+     */
+    public PbfBlobDecoder( String blobType, byte[] rawBlob, PbfBlobDecoderListener listener, int typeMask,
+            boolean nodeBlocks, PbfStringCache stringCache )
+    {
+        this.stringCache = stringCache;
         this.blobType = blobType;
         this.rawBlob = rawBlob;
         this.listener = listener;
+        this.typeMask = typeMask;
+        this.nodeBlocks = nodeBlocks;
     }
 
     private byte[] readBlobContent() throws IOException
@@ -267,6 +305,61 @@ public class PbfBlobDecoder implements Runnable
         }
     }
 
+    private void processNodeBlock( Osmformat.DenseNodes nodes, PbfFieldDecoder fieldDecoder )
+    {
+        int size = nodes.getIdCount();
+        if (size == 0)
+            return;
+
+        if (size != nodes.getLatCount() || size != nodes.getLonCount())
+        {
+            throw new RuntimeException("Number of ids (" + size + "), latitudes (" + nodes.getLatCount()
+                    + "), and longitudes (" + nodes.getLonCount() + ") don't match");
+        }
+
+        long[] ids = new long[size];
+        int[] lats = new int[size];
+        int[] lons = new int[size];
+        int[] tagOffsets = new int[size + 1];
+        // the same layout as in the pbf array but without the 0 delimiters
+        int keysValsCount = nodes.getKeysValsCount();
+        int[] keysVals = new int[Math.max(0, keysValsCount - size)];
+        int keysValsIndex = 0;
+        int tagIndex = 0;
+        long nodeId = 0;
+        long latitude = 0;
+        long longitude = 0;
+        for (int i = 0; i < size; i++)
+        {
+            // Delta decode node fields.
+            nodeId += nodes.getId(i);
+            latitude += nodes.getLat(i);
+            longitude += nodes.getLon(i);
+            ids[i] = nodeId;
+            lats[i] = (int) latitude;
+            lons[i] = (int) longitude;
+
+            tagOffsets[i] = tagIndex;
+            while (keysValsIndex < keysValsCount)
+            {
+                int keyIndex = nodes.getKeysVals(keysValsIndex++);
+                if (keyIndex == 0)
+                    break;
+
+                if (keysValsIndex >= keysValsCount)
+                {
+                    throw new RuntimeException(
+                            "The PBF DenseInfo keys/values list contains a key with no corresponding value.");
+                }
+                keysVals[tagIndex++] = keyIndex;
+                keysVals[tagIndex++] = nodes.getKeysVals(keysValsIndex++);
+            }
+        }
+        tagOffsets[size] = tagIndex;
+
+        decodedEntities.add(new OSMNodeBlock(ids, lats, lons, tagOffsets, keysVals, fieldDecoder.getStrings()));
+    }
+
     private void processWays( List<Osmformat.Way> ways, PbfFieldDecoder fieldDecoder )
     {
         for (Osmformat.Way way : ways)
@@ -359,18 +452,83 @@ public class PbfBlobDecoder implements Runnable
         }
     }
 
-    private void processOsmPrimitives( byte[] data ) throws InvalidProtocolBufferException
+    /**
+     * Determines the element types of a primitive block by only looking at the field numbers of its
+     * primitive groups. This is a lot cheaper than parsing the block and avoids the full parse for
+     * blocks we are not interested in.
+     */
+    static int scanContentTypes( byte[] data ) throws IOException
     {
+        int types = 0;
+        CodedInputStream input = CodedInputStream.newInstance(data);
+        while (true)
+        {
+            int tag = input.readTag();
+            if (tag == 0)
+                break;
+
+            if (WireFormat.getTagFieldNumber(tag) != Osmformat.PrimitiveBlock.PRIMITIVEGROUP_FIELD_NUMBER)
+            {
+                input.skipField(tag);
+                continue;
+            }
+
+            int oldLimit = input.pushLimit(input.readRawVarint32());
+            while (true)
+            {
+                int groupTag = input.readTag();
+                if (groupTag == 0)
+                    break;
+
+                switch (WireFormat.getTagFieldNumber(groupTag))
+                {
+                    case Osmformat.PrimitiveGroup.NODES_FIELD_NUMBER:
+                    case Osmformat.PrimitiveGroup.DENSE_FIELD_NUMBER:
+                        types |= PbfBlobIndex.toMask(OSMElement.NODE);
+                        break;
+                    case Osmformat.PrimitiveGroup.WAYS_FIELD_NUMBER:
+                        types |= PbfBlobIndex.toMask(OSMElement.WAY);
+                        break;
+                    case Osmformat.PrimitiveGroup.RELATIONS_FIELD_NUMBER:
+                        types |= PbfBlobIndex.toMask(OSMElement.RELATION);
+                        break;
+                }
+                input.skipField(groupTag);
+            }
+            input.popLimit(oldLimit);
+        }
+        return types;
+    }
+
+    private void processOsmPrimitives( byte[] data ) throws IOException
+    {
+        contentTypes = scanContentTypes(data);
+        if ((contentTypes & typeMask) == 0)
+            return;
+
         Osmformat.PrimitiveBlock block = Osmformat.PrimitiveBlock.parseFrom(data);
-        PbfFieldDecoder fieldDecoder = new PbfFieldDecoder(block);
+        PbfFieldDecoder fieldDecoder = new PbfFieldDecoder(block, stringCache);
+        boolean nodes = (typeMask & PbfBlobIndex.toMask(OSMElement.NODE)) != 0;
+        boolean ways = (typeMask & PbfBlobIndex.toMask(OSMElement.WAY)) != 0;
+        boolean relations = (typeMask & PbfBlobIndex.toMask(OSMElement.RELATION)) != 0;
 
         for (Osmformat.PrimitiveGroup primitiveGroup : block.getPrimitivegroupList())
         {
             log.debug("Processing OSM primitive group.");
-            processNodes(primitiveGroup.getDense(), fieldDecoder);
-            processNodes(primitiveGroup.getNodesList(), fieldDecoder);
-            processWays(primitiveGroup.getWaysList(), fieldDecoder);
-            processRelations(primitiveGroup.getRelationsList(), fieldDecoder);
+            if (nodes)
+            {
+                if (nodeBlocks && fieldDecoder.hasDefaultCoordinates())
+                    processNodeBlock(primitiveGroup.getDense(), fieldDecoder);
+                else
+                    processNodes(primitiveGroup.getDense(), fieldDecoder);
+
+                processNodes(primitiveGroup.getNodesList(), fieldDecoder);
+            }
+            if (ways)
+                processWays(primitiveGroup.getWaysList(), fieldDecoder);
+
+            if (relations)
+                processRelations(primitiveGroup.getRelationsList(), fieldDecoder);
         }
     }
 
@@ -404,7 +562,7 @@ public class PbfBlobDecoder implements Runnable
         try
         {
             runAndTrapExceptions();
-            listener.complete(decodedEntities);
+            listener.complete(decodedEntities, contentTypes);
 
         } catch (RuntimeException e)
         {
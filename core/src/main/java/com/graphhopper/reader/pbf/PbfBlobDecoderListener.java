@@ -16,8 +16,10 @@ public interface PbfBlobDecoderListener
      * Provides the listener with the list of decoded entities.
      * <p/>
      * @param decodedEntities The decoded entities.
+     * @param contentTypes The element types the blob contains, including the ones that were not
+     * decoded. See PbfBlobIndex.toMask
      */
-    void complete( List<OSMElement> decodedEntities );
+    void complete( List<OSMElement> decodedEntities, int contentTypes );
 
     /**
      * Notifies the listener that an error occurred during processing.
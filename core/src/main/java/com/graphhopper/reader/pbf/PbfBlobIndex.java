@@ -0,0 +1,98 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.pbf;
+
+import gnu.trove.list.array.TByteArrayList;
+
+/**
+ * Remembers which element types every blob of a PBF file contains. It is filled while the file is
+ * read the first time and makes it possible to skip blobs in later passes without reading or
+ * decoding them. Blobs are identified by their position in the file.
+ * <p/>
+ * @author Peter Karich
+ */
+public class PbfBlobIndex
+{
+    /**
+     * The mask for nodes, ways and relations.
+     */
+    public static final int ALL_TYPES = 0x7;
+    private final TByteArrayList contentTypes = new TByteArrayList();
+    private boolean complete;
+
+    /**
+     * @return the type mask for the specified element type like OSMElement.NODE
+     */
+    public static int toMask( int elementType )
+    {
+        return 1 << elementType;
+    }
+
+    void setContentTypes( int blob, int typeMask )
+    {
+        if (complete)
+            throw new IllegalStateException("Index is already complete");
+
+        while (contentTypes.size() <= blob)
+        {
+            contentTypes.add((byte) 0);
+        }
+        contentTypes.set(blob, (byte) typeMask);
+    }
+
+    void setComplete( int blobs )
+    {
+        while (contentTypes.size() < blobs)
+        {
+            contentTypes.add((byte) 0);
+        }
+        complete = true;
+    }
+
+    /**
+     * @return true if the whole file was indexed
+     */
+    public boolean isComplete()
+    {
+        return complete;
+    }
+
+    public int getBlobs()
+    {
+        return contentTypes.size();
+    }
+
+    /**
+     * @return the element types the specified blob contains as mask, see toMask
+     */
+    public int getContentTypes( int blob )
+    {
+        return contentTypes.get(blob);
+    }
+
+    /**
+     * @return true if the specified blob is known to contain none of the element types in typeMask
+     */
+    boolean canSkip( int blob, int typeMask )
+    {
+        if (!complete || blob >= contentTypes.size())
+            return false;
+
+        return (contentTypes.get(blob) & typeMask) == 0;
+    }
+}
@@ -12,16 +12,21 @@ import com.graphhopper.reader.OSMElement;
  */
 public class PbfBlobResult
 {
+    private final int blob;
     private List<OSMElement> entities;
+    private int contentTypes;
     private boolean complete;
     private boolean success;
     private Exception ex;
 
     /**
      * Creates a new instance.
+     * <p/>
+     * @param blob The position of the blob in the file.
      */
-    public PbfBlobResult()
+    public PbfBlobResult( int blob )
     {
+        this.blob = blob;
         complete = false;
         success = false;
         ex = new RuntimeException("no success result stored");
@@ -31,10 +36,12 @@ public class PbfBlobResult
      * Stores the results of a successful blob decoding operation.
      * <p/>
      * @param decodedEntities The entities from the blob.
+     * @param contentTypes The element types contained in the blob.
      */
-    public void storeSuccessResult( List<OSMElement> decodedEntities )
+    public void storeSuccessResult( List<OSMElement> decodedEntities, int contentTypes )
     {
         entities = decodedEntities;
+        this.contentTypes = contentTypes;
         complete = true;
         success = true;
     }
@@ -84,4 +91,18 @@ public class PbfBlobResult
     {
         return entities;
     }
+
+    public int getBlob()
+    {
+        return blob;
+    }
+
+    /**
+     * Gets the element types of the blob as mask, see PbfBlobIndex.toMask. This is only valid
+     * after complete becomes true, and if success is true.
+     */
+    public int getContentTypes()
+    {
+        return contentTypes;
+    }
 }
@@ -20,13 +20,19 @@ import java.util.concurrent.locks.ReentrantLock;
  */
 public class PbfDecoder implements Runnable
 {
+    // enough for all keys and the common values, but names and refs cannot fill the memory
+    private static final int MAX_SHARED_STRINGS = 100000;
     private final PbfStreamSplitter streamSplitter;
     private final ExecutorService executorService;
     private final int maxPendingBlobs;
     private final Sink sink;
+    private final PbfBlobIndex blobIndex;
+    private final int typeMask;
+    private boolean nodeBlocks;
     private final Lock lock;
     private final Condition dataWaitCondition;
     private final Queue<PbfBlobResult> blobResults;
+    private final PbfStringCache stringCache = new PbfStringCache(MAX_SHARED_STRINGS);
 
     /**
      * Creates a new instance.
@@ -38,11 +44,30 @@ public class PbfDecoder implements Runnable
      */
     public PbfDecoder( PbfStreamSplitter streamSplitter, ExecutorService executorService, int maxPendingBlobs,
             Sink sink )
+    {
+        this(streamSplitter, executorService, maxPendingBlobs, sink, null, PbfBlobIndex.ALL_TYPES);
+    }
+
+    /**
+     * @param blobIndex If not complete it is filled with the content types of all blobs, otherwise
+     * it is used by the stream splitter to skip blobs. Can be null.
+     * @param typeMask The element types to decode, see PbfBlobIndex.toMask
+     */
+    public PbfDecoder( PbfStreamSplitter streamSplitter, ExecutorService executorService, int maxPendingBlobs,
+            Sink sink, PbfBlobIndex blobIndex, int typeMask )
     {
         this.streamSplitter = streamSplitter;
         this.executorService = executorService;
         this.maxPendingBlobs = maxPendingBlobs;
         this.sink = sink;
+        this.typeMask = typeMask;
+        if (blobIndex != null && blobIndex.isComplete())
+        {
+            streamSplitter.setBlobFilter(blobIndex, typeMask);
+            // nothing to record
+            blobIndex = null;
+        }
+        this.blobIndex = blobIndex;
 
         // Create the thread synchronisation primitives.
         lock = new ReentrantLock();
@@ -52,6 +77,15 @@ public class PbfDecoder implements Runnable
         blobResults = new LinkedList<PbfBlobResult>();
     }
 
+    /**
+     * Decodes dense nodes into OSMNodeBlock elements instead of OSMNode elements.
+     */
+    public PbfDecoder setNodeBlocks( boolean nodeBlocks )
+    {
+        this.nodeBlocks = nodeBlocks;
+        return this;
+    }
+
     /**
      * Any thread can call this method when they wish to wait until an update has been performed by
      * another thread.
@@ -95,16 +129,20 @@ public class PbfDecoder implements Runnable
                 throw new RuntimeException("A PBF decoding worker thread failed, aborting.", blobResult.getException());
             }
 
-            // Send the processed entities to the sink. We can release the lock
-            // for the duration of processing to allow worker threads to post
-            // their results.
+            if (blobIndex != null)
+                blobIndex.setContentTypes(blobResult.getBlob(), blobResult.getContentTypes());
+
+            List<OSMElement> entities = blobResult.getEntities();
+            if (entities.isEmpty())
+                continue;
+
+            // Send the processed entities to the sink as one batch. We can release
+            // the lock for the duration of processing to allow worker threads to
+            // post their results.
             lock.unlock();
             try
             {
-                for (OSMElement entity : blobResult.getEntities())
-                {
-                    sink.process(entity);
-                }
+                sink.process(entities);
             } finally
             {
                 lock.lock();
@@ -122,7 +160,7 @@ public class PbfDecoder implements Runnable
 
             // Create the result object to capture the results of the decoded
             // blob and add it to the blob results queue.
-            final PbfBlobResult blobResult = new PbfBlobResult();
+            final PbfBlobResult blobResult = new PbfBlobResult(rawBlob.getPosition());
             blobResults.add(blobResult);
 
             // Create the listener object that will update the blob results
@@ -146,12 +184,12 @@ public class PbfDecoder implements Runnable
                 }
 
                 @Override
-                public void complete( List<OSMElement> decodedEntities )
+                public void complete( List<OSMElement> decodedEntities, int contentTypes )
                 {
                     lock.lock();
                     try
                     {
-                        blobResult.storeSuccessResult(decodedEntities);
+                        blobResult.storeSuccessResult(decodedEntities, contentTypes);
                         signalUpdate();
 
                     } finally
@@ -162,7 +200,8 @@ public class PbfDecoder implements Runnable
             };
 
             // Create the blob decoder itself and execute it on a worker thread.
-            PbfBlobDecoder blobDecoder = new PbfBlobDecoder(rawBlob.getType(), rawBlob.getData(), decoderListener);
+            PbfBlobDecoder blobDecoder = new PbfBlobDecoder(rawBlob.getType(), rawBlob.getData(), decoderListener, typeMask,
+                    nodeBlocks, stringCache);
             executorService.execute(blobDecoder);
 
             // If the number of pending blobs has reached capacity we must begin
@@ -173,6 +212,8 @@ public class PbfDecoder implements Runnable
 
         // There are no more entities available in the PBF stream, so send all remaining data to the sink.
         sendResultsToSink(0);
+        if (blobIndex != null)
+            blobIndex.setComplete(streamSplitter.getBlobCount());
     }
 
     @Override
@@ -26,6 +26,15 @@ public class PbfFieldDecoder
      * @param primitiveBlock The primitive block containing the fields to be decoded.
      */
     public PbfFieldDecoder( Osmformat.PrimitiveBlock primitiveBlock )
+    {
+        this(primitiveBlock, null);
+    }
+
+    /**
+     * @param stringCache shares the strings of the string table with other blocks, null to keep a
+     * copy per block
+     */
+    public PbfFieldDecoder( Osmformat.PrimitiveBlock primitiveBlock, PbfStringCache stringCache )
     {
         this.coordGranularity = primitiveBlock.getGranularity();
         this.coordLatitudeOffset = primitiveBlock.getLatOffset();
@@ -36,7 +45,10 @@ public class PbfFieldDecoder
         strings = new String[stringTable.getSCount()];
         for (int i = 0; i < strings.length; i++)
         {
-            strings[i] = stringTable.getS(i).toStringUtf8();
+            // keys and most values repeat a lot over all blocks, share them instead of keeping a
+            // copy per block
+            String str = stringTable.getS(i).toStringUtf8();
+            strings[i] = stringCache == null ? str : stringCache.get(str);
         }
     }
 
@@ -83,4 +95,20 @@ public class PbfFieldDecoder
     {
         return strings[rawString];
     }
+
+    /**
+     * @return the string table of the block, the raw string values are indices into it
+     */
+    public String[] getStrings()
+    {
+        return strings;
+    }
+
+    /**
+     * @return true if raw coordinates of this block are in 1e-7 degree
+     */
+    public boolean hasDefaultCoordinates()
+    {
+        return coordGranularity == 100 && coordLatitudeOffset == 0 && coordLongitudeOffset == 0;
+    }
 }
@@ -9,6 +9,7 @@ package com.graphhopper.reader.pbf;
  */
 public class PbfRawBlob
 {
+    private int position;
     private String type;
     private byte[] data;
 
@@ -21,10 +22,24 @@ public class PbfRawBlob
      */
     public PbfRawBlob( String type, byte[] data )
     {
+        this(0, type, data);
+    }
+
+    /**
+     * @param position The position of this blob in the PBF stream, starting with 0.
+     */
+    public PbfRawBlob( int position, String type, byte[] data )
+    {
+        this.position = position;
         this.type = type;
         this.data = data;
     }
 
+    public int getPosition()
+    {
+        return position;
+    }
+
     /**
      * Gets the type of data represented by this blob. This corresponds to the type field in the
      * blob header.
@@ -16,6 +16,9 @@ public class PbfReader implements Runnable
     private InputStream inputStream;
     private Sink sink;
     private int workers;
+    private PbfBlobIndex blobIndex;
+    private int typeMask = PbfBlobIndex.ALL_TYPES;
+    private boolean nodeBlocks;
 
     /**
      * Creates a new instance.
@@ -30,6 +33,26 @@ public class PbfReader implements Runnable
         this.workers = workers;
     }
 
+    /**
+     * Decodes only the specified element types and uses or fills the specified index, see
+     * PbfDecoder.
+     */
+    public PbfReader setBlobIndex( PbfBlobIndex blobIndex, int typeMask )
+    {
+        this.blobIndex = blobIndex;
+        this.typeMask = typeMask;
+        return this;
+    }
+
+    /**
+     * Decodes dense nodes into OSMNodeBlock elements, see PbfDecoder.
+     */
+    public PbfReader setNodeBlocks( boolean nodeBlocks )
+    {
+        this.nodeBlocks = nodeBlocks;
+        return this;
+    }
+
     @Override
     public void run()
     {
@@ -45,7 +68,8 @@ public class PbfReader implements Runnable
             // immediately ready for processing when a worker thread completes.
             // The main thread is responsible for splitting blobs from the
             // request stream, and sending decoded entities to the sink.
-            PbfDecoder pbfDecoder = new PbfDecoder(streamSplitter, executorService, workers + 1, sink);
+            PbfDecoder pbfDecoder = new PbfDecoder(streamSplitter, executorService, workers + 1, sink,
+                    blobIndex, typeMask).setNodeBlocks(nodeBlocks);
             pbfDecoder.run();
 
         } catch (Exception e)
@@ -20,9 +20,11 @@ public class PbfStreamSplitter implements Iterator<PbfRawBlob>
 {
     private static Logger log = Logger.getLogger(PbfStreamSplitter.class.getName());
     private DataInputStream dis;
-    private int dataBlockCount;
     private boolean eof;
     private PbfRawBlob nextBlob;
+    private int blobCount;
+    private PbfBlobIndex blobIndex;
+    private int typeMask = PbfBlobIndex.ALL_TYPES;
 
     /**
      * Creates a new instance.
@@ -32,10 +34,40 @@ public class PbfStreamSplitter implements Iterator<PbfRawBlob>
     public PbfStreamSplitter( DataInputStream pbfStream )
     {
         dis = pbfStream;
-        dataBlockCount = 0;
         eof = false;
     }
 
+    /**
+     * Skips all blobs which are known to contain none of the specified element types.
+     * <p/>
+     * @param blobIndex The index of a previous complete pass over the same file.
+     * @param typeMask The element types which are required, see PbfBlobIndex.toMask
+     */
+    public PbfStreamSplitter setBlobFilter( PbfBlobIndex blobIndex, int typeMask )
+    {
+        this.blobIndex = blobIndex;
+        this.typeMask = typeMask;
+        return this;
+    }
+
+    /**
+     * @return the number of blobs read or skipped so far
+     */
+    public int getBlobCount()
+    {
+        return blobCount;
+    }
+
+    private void skipRawBlob( Fileformat.BlobHeader blobHeader ) throws IOException
+    {
+        int size = blobHeader.getDatasize();
+        // for a file stream this results in a seek instead of a read
+        if (dis.skipBytes(size) != size)
+        {
+            throw new EOFException("PBF stream ended within a blob");
+        }
+    }
+
     private Fileformat.BlobHeader readHeader( int headerLength ) throws IOException
     {
         byte[] headerBuffer = new byte[headerLength];
@@ -59,37 +91,51 @@ public class PbfStreamSplitter implements Iterator<PbfRawBlob>
     {
         try
         {
-            // Read the length of the next header block. This is the only time
-            // we should expect to encounter an EOF exception. In all other
-            // cases it indicates a corrupt or truncated file.
-            int headerLength;
-            try
-            {
-                headerLength = dis.readInt();
-            } catch (EOFException e)
-            {
-                eof = true;
-                return;
-            }
-
-            if (log.isLoggable(Level.FINER))
+            while (!eof && nextBlob == null)
             {
-                log.finer("Reading header for blob " + dataBlockCount++);
+                readNextBlob();
             }
-            Fileformat.BlobHeader blobHeader = readHeader(headerLength);
+        } catch (IOException e)
+        {
+            throw new RuntimeException("Unable to get next blob from PBF stream.", e);
+        }
+    }
 
-            if (log.isLoggable(Level.FINER))
-            {
-                log.finer("Processing blob of type " + blobHeader.getType() + ".");
-            }
-            byte[] blobData = readRawBlob(blobHeader);
+    private void readNextBlob() throws IOException
+    {
+        // Read the length of the next header block. This is the only time
+        // we should expect to encounter an EOF exception. In all other
+        // cases it indicates a corrupt or truncated file.
+        int headerLength;
+        try
+        {
+            headerLength = dis.readInt();
+        } catch (EOFException e)
+        {
+            eof = true;
+            return;
+        }
 
-            nextBlob = new PbfRawBlob(blobHeader.getType(), blobData);
+        if (log.isLoggable(Level.FINER))
+        {
+            log.finer("Reading header for blob " + blobCount);
+        }
+        Fileformat.BlobHeader blobHeader = readHeader(headerLength);
 
-        } catch (IOException e)
+        if (log.isLoggable(Level.FINER))
         {
-            throw new RuntimeException("Unable to get next blob from PBF stream.", e);
+            log.finer("Processing blob of type " + blobHeader.getType() + ".");
+        }
+        int position = blobCount++;
+        if (blobIndex != null && blobIndex.canSkip(position, typeMask))
+        {
+            skipRawBlob(blobHeader);
+            return;
         }
+
+        byte[] blobData = readRawBlob(blobHeader);
+
+        nextBlob = new PbfRawBlob(position, blobHeader.getType(), blobData);
     }
 
     @Override
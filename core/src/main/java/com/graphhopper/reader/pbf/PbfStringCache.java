@@ -0,0 +1,103 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.pbf;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shares equal strings of the string tables of all blocks of one PBF file. Tag keys and common
+ * values repeat in nearly every block, but names, refs or house numbers are mostly unique. Instead
+ * of String.intern, which would keep all of them in the string table of the JVM, the number of
+ * entries is bounded: once full, new strings are no longer shared. Only the keys and values the
+ * flag encoders look up most are always shared, so they do not depend on the order of the blocks.
+ * <p/>
+ * Sharing saves memory. The encoders still compare tags via String.equals, which is correct for
+ * unshared strings too, the shared ones only take its identity shortcut. The cache can be used
+ * from all decoder threads.
+ * <p/>
+ * @author Peter Karich
+ */
+public class PbfStringCache
+{
+    private static final String[] COMMON_STRINGS =
+    {
+        // keys
+        "highway", "access", "oneway", "junction", "maxspeed", "surface", "tracktype", "barrier",
+        "motorcar", "motor_vehicle", "vehicle", "bicycle", "foot", "route", "railway", "service",
+        "sidewalk", "cycleway", "name", "ref", "lanes", "bridge", "tunnel", "layer", "area",
+        "building",
+        // values
+        "yes", "no", "true", "1", "-1", "private", "permissive", "designated", "destination",
+        "delivery", "agricultural", "forestry", "roundabout", "ferry", "gate", "lift_gate",
+        "bollard", "motorway", "motorway_link", "trunk", "trunk_link", "primary", "primary_link",
+        "secondary", "secondary_link", "tertiary", "tertiary_link", "unclassified", "residential",
+        "living_street", "road", "track", "path", "footway", "steps", "pedestrian", "bridleway",
+        "asphalt", "paved", "unpaved", "gravel", "ground"
+    };
+    private static final Map<String, String> COMMON = new HashMap<String, String>();
+
+    static
+    {
+        for (String str : COMMON_STRINGS)
+        {
+            COMMON.put(str, str);
+        }
+    }
+
+    private final ConcurrentMap<String, String> strings = new ConcurrentHashMap<String, String>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final int maxEntries;
+
+    public PbfStringCache( int maxEntries )
+    {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @return the shared instance equal to the specified string or the string itself
+     */
+    public String get( String str )
+    {
+        String shared = COMMON.get(str);
+        if (shared != null)
+            return shared;
+
+        shared = strings.get(str);
+        if (shared != null)
+            return shared;
+
+        if (size.get() >= maxEntries)
+            return str;
+
+        shared = strings.putIfAbsent(str, str);
+        if (shared != null)
+            return shared;
+
+        size.incrementAndGet();
+        return str;
+    }
+
+    public int getSize()
+    {
+        return size.get();
+    }
+}
@@ -19,12 +19,18 @@ package com.graphhopper.reader.pbf;
 
 import com.graphhopper.reader.OSMElement;
 
+import java.util.List;
+
 /**
  * @author Nop
  */
 public interface Sink
 {
-    void process( OSMElement item );
+    /**
+     * Receives the decoded elements of one blob in file order. A blob usually contains only one
+     * element type.
+     */
+    void process( List<OSMElement> items );
 
     void complete();
 }
@@ -18,17 +18,11 @@
 package com.graphhopper.routing;
 
 import com.graphhopper.util.DistancePlaneProjection;
-import gnu.trove.map.TIntObjectMap;
-import gnu.trove.map.hash.TIntObjectHashMap;
-
-import java.util.PriorityQueue;
-
 import com.graphhopper.routing.util.FlagEncoder;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.util.Weighting;
 import com.graphhopper.routing.util.WeightApproximator;
 import com.graphhopper.routing.util.BeelineWeightApproximator;
-import com.graphhopper.storage.EdgeEntry;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.util.EdgeExplorer;
 import com.graphhopper.util.EdgeIterator;
@@ -39,15 +33,18 @@ import com.graphhopper.util.EdgeIterator;
  * <p/>
  * Different distance calculations can be used via setApproximation.
  * <p/>
+ * The weight of an entry is the weight of the visited path only, the heap is sorted by the
+ * estimated full weight.
+ * <p/>
  * @author Peter Karich
  */
 public class AStar extends AbstractRoutingAlgorithm
 {
     private WeightApproximator weightApprox;
     private int visitedCount;
-    private TIntObjectMap<AStarEdge> fromMap;
-    private PriorityQueue<AStarEdge> prioQueueOpenSet;
-    private AStarEdge currEdge;
+    private SearchState fromState;
+    private int currEdge = SearchState.NO_ENTRY;
+    private int initialCapacity;
     private int to1 = -1;
 
     public AStar( Graph g, FlagEncoder encoder, Weighting weighting, TraversalMode tMode )
@@ -70,8 +67,7 @@ public class AStar extends AbstractRoutingAlgorithm
 
     protected void initCollections( int size )
     {
-        fromMap = new TIntObjectHashMap<AStarEdge>();
-        prioQueueOpenSet = new PriorityQueue<AStarEdge>(size);
+        initialCapacity = size;
     }
 
     @Override
@@ -80,21 +76,29 @@ public class AStar extends AbstractRoutingAlgorithm
         checkAlreadyRun();
         to1 = to;
         weightApprox.setGoalNode(to);
-        currEdge = createEdgeEntry(from, 0);
-        if (!traversalMode.isEdgeBased())
+        fromState = acquireState(initialCapacity);
+        try
         {
-            fromMap.put(from, currEdge);
+            currEdge = fromState.add(EdgeIterator.NO_EDGE, from, 0, SearchState.NO_ENTRY);
+            if (!traversalMode.isEdgeBased())
+            {
+                fromState.put(from, currEdge);
+            }
+            return runAlgo();
+        } finally
+        {
+            releaseState(fromState);
         }
-        return runAlgo();
     }
 
     private Path runAlgo()
     {
         double currWeightToGoal, distEstimation;
         EdgeExplorer explorer = outEdgeExplorer;
+        SearchState state = fromState;
         while (true)
         {
-            int currVertex = currEdge.adjNode;
+            int currVertex = state.getAdjNode(currEdge);
             visitedCount++;
             if (isWeightLimitReached())
                 return createEmptyPath();
@@ -102,51 +106,44 @@ public class AStar extends AbstractRoutingAlgorithm
             if (finished())
                 break;
 
+            int currEdgeId = state.getEdge(currEdge);
+            double currWeight = state.getWeight(currEdge);
             EdgeIterator iter = explorer.setBaseNode(currVertex);
             while (iter.next())
             {
-                if (!accept(iter, currEdge.edge))
+                if (!accept(iter, currEdgeId))
                     continue;
 
                 int neighborNode = iter.getAdjNode();
                 int traversalId = traversalMode.createTraversalId(iter, false);
-                // cast to float to avoid rounding errors in comparison to float entry of AStarEdge weight
-                float alreadyVisitedWeight = (float) (weighting.calcWeight(iter, false, currEdge.edge)
-                        + currEdge.weightOfVisitedPath);
+                double alreadyVisitedWeight = weighting.calcWeight(iter, false, currEdgeId) + currWeight;
                 if (Double.isInfinite(alreadyVisitedWeight))
                     continue;
 
-                AStarEdge ase = fromMap.get(traversalId);
-                if ((ase == null) || ase.weightOfVisitedPath > alreadyVisitedWeight)
+                int ase = state.get(traversalId);
+                if (ase == SearchState.NO_ENTRY || state.getWeight(ase) > alreadyVisitedWeight)
                 {
                     currWeightToGoal = weightApprox.approximate(neighborNode);
                     distEstimation = alreadyVisitedWeight + currWeightToGoal;
-                    if (ase == null)
+                    if (ase == SearchState.NO_ENTRY)
                     {
-                        ase = new AStarEdge(iter.getEdge(), neighborNode, distEstimation, alreadyVisitedWeight);
-                        fromMap.put(traversalId, ase);
+                        ase = state.add(iter.getEdge(), neighborNode, alreadyVisitedWeight, currEdge);
+                        state.put(traversalId, ase);
                     } else
                     {
-                        assert (ase.weight > distEstimation) : "Inconsistent distance estimate";
-                        prioQueueOpenSet.remove(ase);
-                        ase.edge = iter.getEdge();
-                        ase.weight = distEstimation;
-                        ase.weightOfVisitedPath = alreadyVisitedWeight;
+                        assert (state.getKey(ase) >= distEstimation) : "Inconsistent distance estimate";
+                        state.update(ase, iter.getEdge(), alreadyVisitedWeight, currEdge);
                     }
 
-                    ase.parent = currEdge;
-                    prioQueueOpenSet.add(ase);
-
-                    updateBestPath(iter, ase, traversalId);
+                    state.push(ase, distEstimation);
+                    updateBestPath(iter, state, ase, traversalId);
                 }
             }
 
-            if (prioQueueOpenSet.isEmpty())
+            if (state.isHeapEmpty())
                 return createEmptyPath();
 
-            currEdge = prioQueueOpenSet.poll();
-            if (currEdge == null)
-                throw new AssertionError("Empty edge cannot happen");
+            currEdge = state.poll();
         }
 
         return extractPath();
@@ -155,19 +152,14 @@ public class AStar extends AbstractRoutingAlgorithm
     @Override
     protected Path extractPath()
     {
-        return new Path(graph, flagEncoder).setWeight(currEdge.weight).setEdgeEntry(currEdge).extract();
-    }
-
-    @Override
-    protected AStarEdge createEdgeEntry( int node, double dist )
-    {
-        return new AStarEdge(EdgeIterator.NO_EDGE, node, dist, dist);
+        return new Path(graph, flagEncoder).setWeight(fromState.getWeight(currEdge)).
+                setEdgeEntry(fromState.createEdgeEntry(currEdge)).extract();
     }
 
     @Override
     protected boolean finished()
     {
-        return currEdge.adjNode == to1;
+        return fromState.getAdjNode(currEdge) == to1;
     }
 
     @Override
@@ -178,20 +170,7 @@ public class AStar extends AbstractRoutingAlgorithm
 
     protected boolean isWeightLimitReached()
     {
-        return currEdge.weight >= weightLimit;
-    }
-
-    public static class AStarEdge extends EdgeEntry
-    {
-        // the variable 'weight' is used to let heap select smallest *full* distance.
-        // but to compare distance we need it only from start:
-        double weightOfVisitedPath;
-
-        public AStarEdge( int edgeId, int adjNode, double weightForHeap, double weightOfVisitedPath )
-        {
-            super(edgeId, adjNode, weightForHeap);
-            this.weightOfVisitedPath = (float) weightOfVisitedPath;
-        }
+        return fromState.getWeight(currEdge) >= weightLimit;
     }
 
     @Override
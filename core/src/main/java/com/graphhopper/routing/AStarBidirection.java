@@ -18,12 +18,6 @@
 package com.graphhopper.routing;
 
 import com.graphhopper.routing.util.*;
-import gnu.trove.map.TIntObjectMap;
-import gnu.trove.map.hash.TIntObjectHashMap;
-
-import java.util.PriorityQueue;
-
-import com.graphhopper.routing.AStar.AStarEdge;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.util.*;
 
@@ -55,14 +49,17 @@ import com.graphhopper.util.*;
 public class AStarBidirection extends AbstractBidirAlgo
 {
     private ConsistentWeightApproximator weightApprox;
-    private PriorityQueue<AStarEdge> prioQueueOpenSetFrom;
-    private TIntObjectMap<AStarEdge> bestWeightMapFrom;
-    private PriorityQueue<AStarEdge> prioQueueOpenSetTo;
-    private TIntObjectMap<AStarEdge> bestWeightMapTo;
-    private TIntObjectMap<AStarEdge> bestWeightMapOther;
-    protected AStarEdge currFrom;
-    protected AStarEdge currTo;
+    private SearchState stateFrom;
+    private SearchState stateTo;
+    private SearchState stateOther;
+    protected int currFrom = SearchState.NO_ENTRY;
+    protected int currTo = SearchState.NO_ENTRY;
     protected PathBidirRef bestPath;
+    private SearchState bestStateCurrent;
+    private SearchState bestStateOther;
+    private int bestEntryCurrent = SearchState.NO_ENTRY;
+    private int bestEntryOther = SearchState.NO_ENTRY;
+    private int initialCapacity;
 
     public AStarBidirection( Graph graph, FlagEncoder encoder, Weighting weighting, TraversalMode tMode )
     {
@@ -76,11 +73,7 @@ public class AStarBidirection extends AbstractBidirAlgo
 
     protected void initCollections( int size )
     {
-        prioQueueOpenSetFrom = new PriorityQueue<AStarEdge>(size / 10);
-        bestWeightMapFrom = new TIntObjectHashMap<AStarEdge>(size / 10);
-
-        prioQueueOpenSetTo = new PriorityQueue<AStarEdge>(size / 10);
-        bestWeightMapTo = new TIntObjectHashMap<AStarEdge>(size / 10);
+        initialCapacity = size / 10;
     }
 
     /**
@@ -93,32 +86,40 @@ public class AStarBidirection extends AbstractBidirAlgo
     }
 
     @Override
-    protected AStarEdge createEdgeEntry( int node, double dist )
+    public Path calcPath( int from, int to )
     {
-        return new AStarEdge(EdgeIterator.NO_EDGE, node, dist, dist);
+        stateFrom = acquireState(initialCapacity);
+        stateTo = acquireState(initialCapacity);
+        try
+        {
+            return super.calcPath(from, to);
+        } finally
+        {
+            releaseState(stateFrom);
+            releaseState(stateTo);
+        }
     }
 
     @Override
     public void initFrom( int from, double dist )
     {
-        currFrom = createEdgeEntry(from, dist);
+        currFrom = stateFrom.add(EdgeIterator.NO_EDGE, from, dist, SearchState.NO_ENTRY);
         weightApprox.setSourceNode(from);
-        prioQueueOpenSetFrom.add(currFrom);
+        stateFrom.push(currFrom, dist);
         if (!traversalMode.isEdgeBased())
         {
-            bestWeightMapFrom.put(from, currFrom);
-            if (currTo != null)
+            stateFrom.put(from, currFrom);
+            if (currTo != SearchState.NO_ENTRY)
             {
-                bestWeightMapOther = bestWeightMapTo;
-                updateBestPath(GHUtility.getEdge(graph, from, currTo.adjNode), currTo, from);
+                stateOther = stateTo;
+                updateBestPath(GHUtility.getEdge(graph, from, stateTo.getAdjNode(currTo)), stateTo, currTo, from);
             }
         } else
         {
-            if (currTo != null && currTo.adjNode == from)
+            if (currTo != SearchState.NO_ENTRY && stateTo.getAdjNode(currTo) == from)
             {
                 // special case of identical start and end
-                bestPath.edgeEntry = currFrom;
-                bestPath.edgeTo = currTo;
+                setBestEntries(stateFrom, currFrom, stateTo, currTo);
                 finishedFrom = true;
                 finishedTo = true;
             }
@@ -128,24 +129,23 @@ public class AStarBidirection extends AbstractBidirAlgo
     @Override
     public void initTo( int to, double dist )
     {
-        currTo = createEdgeEntry(to, dist);
+        currTo = stateTo.add(EdgeIterator.NO_EDGE, to, dist, SearchState.NO_ENTRY);
         weightApprox.setGoalNode(to);
-        prioQueueOpenSetTo.add(currTo);
+        stateTo.push(currTo, dist);
         if (!traversalMode.isEdgeBased())
         {
-            bestWeightMapTo.put(to, currTo);
-            if (currFrom != null)
+            stateTo.put(to, currTo);
+            if (currFrom != SearchState.NO_ENTRY)
             {
-                bestWeightMapOther = bestWeightMapFrom;
-                updateBestPath(GHUtility.getEdge(graph, currFrom.adjNode, to), currFrom, to);
+                stateOther = stateFrom;
+                updateBestPath(GHUtility.getEdge(graph, stateFrom.getAdjNode(currFrom), to), stateFrom, currFrom, to);
             }
         } else
         {
-            if (currFrom != null && currFrom.adjNode == to)
+            if (currFrom != SearchState.NO_ENTRY && stateFrom.getAdjNode(currFrom) == to)
             {
                 // special case of identical start and end
-                bestPath.edgeEntry = currFrom;
-                bestPath.edgeTo = currTo;
+                setBestEntries(stateFrom, currFrom, stateTo, currTo);
                 finishedFrom = true;
                 finishedTo = true;
             }
@@ -165,14 +165,19 @@ public class AStarBidirection extends AbstractBidirAlgo
         if (isWeightLimitReached())
             return bestPath;
 
+        if (bestEntryCurrent != SearchState.NO_ENTRY)
+        {
+            bestPath.setEdgeEntry(bestStateCurrent.createEdgeEntry(bestEntryCurrent));
+            bestPath.setEdgeEntryTo(bestStateOther.createEdgeEntry(bestEntryOther));
+        }
         return bestPath.extract();
     }
 
     @Override
     void checkState( int fromBase, int fromAdj, int toBase, int toAdj )
     {
-        if (bestWeightMapFrom.isEmpty() || bestWeightMapTo.isEmpty())
-            throw new IllegalStateException("Either 'from'-edge or 'to'-edge is inaccessible. From:" + bestWeightMapFrom + ", to:" + bestWeightMapTo);
+        if (stateFrom.isEmpty() || stateTo.isEmpty())
+            throw new IllegalStateException("Either 'from'-edge or 'to'-edge is inaccessible. From:" + stateFrom + ", to:" + stateTo);
     }
 
     @Override
@@ -181,24 +186,40 @@ public class AStarBidirection extends AbstractBidirAlgo
         if (finishedFrom || finishedTo)
             return true;
 
-        return currFrom.weight + currTo.weight >= bestPath.getWeight();
+        return getCurrFromWeight() + getCurrToWeight() >= bestPath.getWeight();
     }
 
     @Override
     protected boolean isWeightLimitReached()
     {
-        return currFrom.weight + currTo.weight >= weightLimit;
+        return getCurrFromWeight() + getCurrToWeight() >= weightLimit;
+    }
+
+    /**
+     * @return the estimated full weight of the current 'from' entry, i.e. its key in the heap
+     */
+    protected double getCurrFromWeight()
+    {
+        return stateFrom.getKey(currFrom);
+    }
+
+    /**
+     * @return the estimated full weight of the current 'to' entry, i.e. its key in the heap
+     */
+    protected double getCurrToWeight()
+    {
+        return stateTo.getKey(currTo);
     }
 
     @Override
     boolean fillEdgesFrom()
     {
-        if (prioQueueOpenSetFrom.isEmpty())
+        if (stateFrom.isHeapEmpty())
             return false;
 
-        currFrom = prioQueueOpenSetFrom.poll();
-        bestWeightMapOther = bestWeightMapTo;
-        fillEdges(currFrom, prioQueueOpenSetFrom, bestWeightMapFrom, outEdgeExplorer, false);
+        currFrom = stateFrom.poll();
+        stateOther = stateTo;
+        fillEdges(currFrom, stateFrom, outEdgeExplorer, false);
         visitedCountFrom++;
         return true;
     }
@@ -206,80 +227,74 @@ public class AStarBidirection extends AbstractBidirAlgo
     @Override
     boolean fillEdgesTo()
     {
-        if (prioQueueOpenSetTo.isEmpty())
+        if (stateTo.isHeapEmpty())
             return false;
 
-        currTo = prioQueueOpenSetTo.poll();
-        bestWeightMapOther = bestWeightMapFrom;
-        fillEdges(currTo, prioQueueOpenSetTo, bestWeightMapTo, inEdgeExplorer, true);
+        currTo = stateTo.poll();
+        stateOther = stateFrom;
+        fillEdges(currTo, stateTo, inEdgeExplorer, true);
         visitedCountTo++;
         return true;
     }
 
-    private void fillEdges( AStarEdge currEdge, PriorityQueue<AStarEdge> prioQueueOpenSet,
-            TIntObjectMap<AStarEdge> shortestWeightMap, EdgeExplorer explorer, boolean reverse )
+    private void fillEdges( int currEdge, SearchState state, EdgeExplorer explorer, boolean reverse )
     {
-
-        int currNode = currEdge.adjNode;
-        EdgeIterator iter = explorer.setBaseNode(currNode);
+        int currEdgeId = state.getEdge(currEdge);
+        double currWeight = state.getWeight(currEdge);
+        EdgeIterator iter = explorer.setBaseNode(state.getAdjNode(currEdge));
         while (iter.next())
         {
-            if (!accept(iter, currEdge.edge))
+            if (!accept(iter, currEdgeId))
                 continue;
 
             int neighborNode = iter.getAdjNode();
             int traversalId = traversalMode.createTraversalId(iter, reverse);
             // TODO performance: check if the node is already existent in the opposite direction
             // then we could avoid the approximation as we already know the exact complete path!
-            float alreadyVisitedWeight = (float) (weighting.calcWeight(iter, reverse, currEdge.edge)
-                    + currEdge.weightOfVisitedPath);
+            double alreadyVisitedWeight = weighting.calcWeight(iter, reverse, currEdgeId) + currWeight;
             if (Double.isInfinite(alreadyVisitedWeight))
                 continue;
 
-            AStarEdge ase = shortestWeightMap.get(traversalId);
-            if (ase == null || ase.weightOfVisitedPath > alreadyVisitedWeight)
+            int ase = state.get(traversalId);
+            if (ase == SearchState.NO_ENTRY || state.getWeight(ase) > alreadyVisitedWeight)
             {
                 double currWeightToGoal = weightApprox.approximate(neighborNode, reverse);
                 double estimationFullDist = alreadyVisitedWeight + currWeightToGoal;
-                if (ase == null)
+                if (ase == SearchState.NO_ENTRY)
                 {
-                    ase = new AStarEdge(iter.getEdge(), neighborNode, estimationFullDist, alreadyVisitedWeight);
-                    shortestWeightMap.put(traversalId, ase);
+                    ase = state.add(iter.getEdge(), neighborNode, alreadyVisitedWeight, currEdge);
+                    state.put(traversalId, ase);
                 } else
                 {
-                    assert (ase.weight > estimationFullDist) : "Inconsistent distance estimate";
-                    prioQueueOpenSet.remove(ase);
-                    ase.edge = iter.getEdge();
-                    ase.weight = estimationFullDist;
-                    ase.weightOfVisitedPath = alreadyVisitedWeight;
+                    assert (state.getKey(ase) >= estimationFullDist) : "Inconsistent distance estimate";
+                    state.update(ase, iter.getEdge(), alreadyVisitedWeight, currEdge);
                 }
 
-                ase.parent = currEdge;
-                prioQueueOpenSet.add(ase);
-                updateBestPath(iter, ase, traversalId);
+                state.push(ase, estimationFullDist);
+                updateBestPath(iter, state, ase, traversalId);
             }
         }
     }
 
-//    @Override -> TODO use only weight => then a simple EdgeEntry is possible
-    public void updateBestPath( EdgeIteratorState edgeState, AStarEdge entryCurrent, int currLoc )
+    @Override
+    protected void updateBestPath( EdgeIteratorState edgeState, SearchState stateCurrent, int entryCurrent, int traversalId )
     {
-        AStarEdge entryOther = bestWeightMapOther.get(currLoc);
-        if (entryOther == null)
+        int entryOther = stateOther.get(traversalId);
+        if (entryOther == SearchState.NO_ENTRY)
             return;
 
-        boolean reverse = bestWeightMapFrom == bestWeightMapOther;
+        boolean reverse = stateFrom == stateOther;
         // update μ
-        double newWeight = entryCurrent.weightOfVisitedPath + entryOther.weightOfVisitedPath;
+        double newWeight = stateCurrent.getWeight(entryCurrent) + stateOther.getWeight(entryOther);
         if (traversalMode.isEdgeBased())
         {
-            if (entryOther.edge != entryCurrent.edge)
+            if (stateOther.getEdge(entryOther) != stateCurrent.getEdge(entryCurrent))
                 throw new IllegalStateException("cannot happen for edge based execution of " + getName());
 
             // see DijkstraBidirectionRef
-            if (entryOther.adjNode != entryCurrent.adjNode)
+            if (stateOther.getAdjNode(entryOther) != stateCurrent.getAdjNode(entryCurrent))
             {
-                entryCurrent = (AStar.AStarEdge) entryCurrent.parent;
+                entryCurrent = stateCurrent.getParent(entryCurrent);
                 newWeight -= weighting.calcWeight(edgeState, reverse, EdgeIterator.NO_EDGE);
             } else
             {
@@ -292,12 +307,19 @@ public class AStarBidirection extends AbstractBidirAlgo
         if (newWeight < bestPath.getWeight())
         {
             bestPath.setSwitchToFrom(reverse);
-            bestPath.edgeEntry = entryCurrent;
-            bestPath.edgeTo = entryOther;
             bestPath.setWeight(newWeight);
+            setBestEntries(stateCurrent, entryCurrent, stateOther, entryOther);
         }
     }
 
+    private void setBestEntries( SearchState stateCurrent, int entryCurrent, SearchState stateOther, int entryOther )
+    {
+        bestStateCurrent = stateCurrent;
+        bestEntryCurrent = entryCurrent;
+        bestStateOther = stateOther;
+        bestEntryOther = entryOther;
+    }
+
     @Override
     public String getName()
     {
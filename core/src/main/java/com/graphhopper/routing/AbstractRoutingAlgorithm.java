@@ -40,6 +40,7 @@ public abstract class AbstractRoutingAlgorithm implements RoutingAlgorithm
     protected final TraversalMode traversalMode;
     protected double weightLimit = Double.MAX_VALUE;
     private boolean alreadyRun;
+    private SearchStatePool statePool;
 
     /**
      * @param graph specifies the graph where this algorithm will run on
@@ -70,6 +71,30 @@ public abstract class AbstractRoutingAlgorithm implements RoutingAlgorithm
         return this;
     }
 
+    /**
+     * Specifies the pool from which the search states are taken. Without a pool every algorithm
+     * allocates its own states.
+     */
+    public RoutingAlgorithm setSearchStatePool( SearchStatePool statePool )
+    {
+        this.statePool = statePool;
+        return this;
+    }
+
+    protected SearchState acquireState( int initialCapacity )
+    {
+        if (statePool == null)
+            return new SearchState(initialCapacity);
+
+        return statePool.acquire(initialCapacity);
+    }
+
+    protected void releaseState( SearchState state )
+    {
+        if (statePool != null)
+            statePool.release(state);
+    }
+
     protected boolean accept( EdgeIterator iter, int prevOrNextEdgeId )
     {
         if (!traversalMode.hasUTurnSupport() && iter.getEdge() == prevOrNextEdgeId)
@@ -82,6 +107,13 @@ public abstract class AbstractRoutingAlgorithm implements RoutingAlgorithm
     {
     }
 
+    /**
+     * Same as updateBestPath but for algorithms storing their entries in a SearchState.
+     */
+    protected void updateBestPath( EdgeIteratorState edgeState, SearchState state, int bestEntry, int traversalId )
+    {
+    }
+
     protected void checkAlreadyRun()
     {
         if (alreadyRun)
@@ -17,15 +17,9 @@
  */
 package com.graphhopper.routing;
 
-import gnu.trove.map.TIntObjectMap;
-import gnu.trove.map.hash.TIntObjectHashMap;
-
-import java.util.PriorityQueue;
-
 import com.graphhopper.routing.util.FlagEncoder;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.util.Weighting;
-import com.graphhopper.storage.EdgeEntry;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.util.EdgeExplorer;
 import com.graphhopper.util.EdgeIterator;
@@ -34,13 +28,16 @@ import com.graphhopper.util.EdgeIterator;
  * Implements a single source shortest path algorithm
  * http://en.wikipedia.org/wiki/Dijkstra's_algorithm
  * <p/>
+ * The shortest-path-tree is kept in a SearchState which can be reused across queries, see
+ * setSearchStatePool.
+ * <p/>
  * @author Peter Karich
  */
 public class Dijkstra extends AbstractRoutingAlgorithm
 {
-    protected TIntObjectMap<EdgeEntry> fromMap;
-    protected PriorityQueue<EdgeEntry> fromHeap;
-    protected EdgeEntry currEdge;
+    protected SearchState fromState;
+    protected int currEdge = SearchState.NO_ENTRY;
+    protected int initialCapacity;
     private int visitedNodes;
     private int to = -1;
 
@@ -52,8 +49,7 @@ public class Dijkstra extends AbstractRoutingAlgorithm
 
     protected void initCollections( int size )
     {
-        fromHeap = new PriorityQueue<EdgeEntry>(size);
-        fromMap = new TIntObjectHashMap<EdgeEntry>(size);
+        initialCapacity = size;
     }
 
     @Override
@@ -61,78 +57,82 @@ public class Dijkstra extends AbstractRoutingAlgorithm
     {
         checkAlreadyRun();
         this.to = to;
-        currEdge = createEdgeEntry(from, 0);
-        if (!traversalMode.isEdgeBased())
+        fromState = acquireState(initialCapacity);
+        try
+        {
+            currEdge = fromState.add(EdgeIterator.NO_EDGE, from, 0, SearchState.NO_ENTRY);
+            if (!traversalMode.isEdgeBased())
+            {
+                fromState.put(from, currEdge);
+            }
+            runAlgo();
+            return extractPath();
+        } finally
         {
-            fromMap.put(from, currEdge);
+            releaseState(fromState);
         }
-        runAlgo();
-        return extractPath();
     }
 
     protected void runAlgo()
     {
         EdgeExplorer explorer = outEdgeExplorer;
+        SearchState state = fromState;
         while (true)
         {
             visitedNodes++;
             if (isWeightLimitReached() || finished())
                 break;
 
-            int startNode = currEdge.adjNode;
-            EdgeIterator iter = explorer.setBaseNode(startNode);
+            int currEdgeId = state.getEdge(currEdge);
+            double currWeight = state.getWeight(currEdge);
+            EdgeIterator iter = explorer.setBaseNode(state.getAdjNode(currEdge));
             while (iter.next())
             {
-                if (!accept(iter, currEdge.edge))
+                if (!accept(iter, currEdgeId))
                     continue;
 
                 int traversalId = traversalMode.createTraversalId(iter, false);
-                double tmpWeight = weighting.calcWeight(iter, false, currEdge.edge) + currEdge.weight;
+                double tmpWeight = weighting.calcWeight(iter, false, currEdgeId) + currWeight;
                 if (Double.isInfinite(tmpWeight))
                     continue;
 
-                EdgeEntry nEdge = fromMap.get(traversalId);
-                if (nEdge == null)
+                int nEdge = state.get(traversalId);
+                if (nEdge == SearchState.NO_ENTRY)
                 {
-                    nEdge = new EdgeEntry(iter.getEdge(), iter.getAdjNode(), tmpWeight);
-                    nEdge.parent = currEdge;
-                    fromMap.put(traversalId, nEdge);
-                    fromHeap.add(nEdge);
-                } else if (nEdge.weight > tmpWeight)
+                    nEdge = state.add(iter.getEdge(), iter.getAdjNode(), tmpWeight, currEdge);
+                    state.put(traversalId, nEdge);
+                    state.push(nEdge);
+                } else if (state.getWeight(nEdge) > tmpWeight)
                 {
-                    fromHeap.remove(nEdge);
-                    nEdge.edge = iter.getEdge();
-                    nEdge.weight = tmpWeight;
-                    nEdge.parent = currEdge;
-                    fromHeap.add(nEdge);
+                    state.update(nEdge, iter.getEdge(), tmpWeight, currEdge);
+                    state.push(nEdge);
                 } else
                     continue;
 
-                updateBestPath(iter, nEdge, traversalId);
+                updateBestPath(iter, state, nEdge, traversalId);
             }
 
-            if (fromHeap.isEmpty())
+            if (state.isHeapEmpty())
                 break;
 
-            currEdge = fromHeap.poll();
-            if (currEdge == null)
-                throw new AssertionError("Empty edge cannot happen");
+            currEdge = state.poll();
         }
     }
 
     @Override
     protected boolean finished()
     {
-        return currEdge.adjNode == to;
+        return fromState.getAdjNode(currEdge) == to;
     }
 
     @Override
     protected Path extractPath()
     {
-        if (currEdge == null || isWeightLimitReached() || !finished())
+        if (currEdge == SearchState.NO_ENTRY || isWeightLimitReached() || !finished())
             return createEmptyPath();
 
-        return new Path(graph, flagEncoder).setWeight(currEdge.weight).setEdgeEntry(currEdge).extract();
+        return new Path(graph, flagEncoder).setWeight(fromState.getWeight(currEdge)).
+                setEdgeEntry(fromState.createEdgeEntry(currEdge)).extract();
     }
 
     @Override
@@ -143,7 +143,7 @@ public class Dijkstra extends AbstractRoutingAlgorithm
 
     protected boolean isWeightLimitReached()
     {
-        return currEdge.weight >= weightLimit;
+        return fromState.getWeight(currEdge) >= weightLimit;
     }
 
     @Override
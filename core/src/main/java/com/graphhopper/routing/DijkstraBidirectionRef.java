@@ -17,15 +17,9 @@
  */
 package com.graphhopper.routing;
 
-import gnu.trove.map.TIntObjectMap;
-import gnu.trove.map.hash.TIntObjectHashMap;
-
-import java.util.PriorityQueue;
-
 import com.graphhopper.routing.util.FlagEncoder;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.util.Weighting;
-import com.graphhopper.storage.EdgeEntry;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.util.EdgeExplorer;
 import com.graphhopper.util.EdgeIterator;
@@ -35,20 +29,26 @@ import com.graphhopper.util.GHUtility;
 /**
  * Calculates best path in bidirectional way.
  * <p/>
- * 'Ref' stands for reference implementation and is using the normal Java-'reference'-way.
+ * 'Ref' stands for reference implementation. The shortest-path-trees of both directions are kept
+ * in reusable SearchState objects and only the entries of the resulting path are converted into
+ * EdgeEntry objects.
  * <p>
  * @author Peter Karich
  */
 public class DijkstraBidirectionRef extends AbstractBidirAlgo
 {
-    private PriorityQueue<EdgeEntry> openSetFrom;
-    private PriorityQueue<EdgeEntry> openSetTo;
-    private TIntObjectMap<EdgeEntry> bestWeightMapFrom;
-    private TIntObjectMap<EdgeEntry> bestWeightMapTo;
-    protected TIntObjectMap<EdgeEntry> bestWeightMapOther;
-    protected EdgeEntry currFrom;
-    protected EdgeEntry currTo;
+    private SearchState stateFrom;
+    private SearchState stateTo;
+    protected SearchState stateOther;
+    protected int currFrom = SearchState.NO_ENTRY;
+    protected int currTo = SearchState.NO_ENTRY;
     protected PathBidirRef bestPath;
+    // the meeting point of the best path, converted into EdgeEntry objects in extractPath
+    private SearchState bestStateCurrent;
+    private SearchState bestStateOther;
+    private int bestEntryCurrent = SearchState.NO_ENTRY;
+    private int bestEntryOther = SearchState.NO_ENTRY;
+    private int initialCapacity;
     private boolean updateBestPath = true;
 
     public DijkstraBidirectionRef( Graph graph, FlagEncoder encoder, Weighting weighting, TraversalMode tMode )
@@ -59,33 +59,43 @@ public class DijkstraBidirectionRef extends AbstractBidirAlgo
 
     protected void initCollections( int nodes )
     {
-        openSetFrom = new PriorityQueue<EdgeEntry>(nodes / 10);
-        bestWeightMapFrom = new TIntObjectHashMap<EdgeEntry>(nodes / 10);
+        initialCapacity = nodes / 10;
+    }
 
-        openSetTo = new PriorityQueue<EdgeEntry>(nodes / 10);
-        bestWeightMapTo = new TIntObjectHashMap<EdgeEntry>(nodes / 10);
+    @Override
+    public Path calcPath( int from, int to )
+    {
+        stateFrom = acquireState(initialCapacity);
+        stateTo = acquireState(initialCapacity);
+        try
+        {
+            return super.calcPath(from, to);
+        } finally
+        {
+            releaseState(stateFrom);
+            releaseState(stateTo);
+        }
     }
 
     @Override
     public void initFrom( int from, double dist )
     {
-        currFrom = createEdgeEntry(from, dist);
-        openSetFrom.add(currFrom);
+        currFrom = stateFrom.add(EdgeIterator.NO_EDGE, from, dist, SearchState.NO_ENTRY);
+        stateFrom.push(currFrom);
         if (!traversalMode.isEdgeBased())
         {
-            bestWeightMapFrom.put(from, currFrom);
-            if (currTo != null)
+            stateFrom.put(from, currFrom);
+            if (currTo != SearchState.NO_ENTRY)
             {
-                bestWeightMapOther = bestWeightMapTo;
-                updateBestPath(GHUtility.getEdge(graph, from, currTo.adjNode), currTo, from);
+                stateOther = stateTo;
+                updateBestPath(GHUtility.getEdge(graph, from, stateTo.getAdjNode(currTo)), stateTo, currTo, from);
             }
         } else
         {
-            if (currTo != null && currTo.adjNode == from)
+            if (currTo != SearchState.NO_ENTRY && stateTo.getAdjNode(currTo) == from)
             {
                 // special case of identical start and end
-                bestPath.edgeEntry = currFrom;
-                bestPath.edgeTo = currTo;
+                setBestEntries(stateFrom, currFrom, stateTo, currTo);
                 finishedFrom = true;
                 finishedTo = true;
             }
@@ -95,23 +105,22 @@ public class DijkstraBidirectionRef extends AbstractBidirAlgo
     @Override
     public void initTo( int to, double dist )
     {
-        currTo = createEdgeEntry(to, dist);
-        openSetTo.add(currTo);
+        currTo = stateTo.add(EdgeIterator.NO_EDGE, to, dist, SearchState.NO_ENTRY);
+        stateTo.push(currTo);
         if (!traversalMode.isEdgeBased())
         {
-            bestWeightMapTo.put(to, currTo);
-            if (currFrom != null)
+            stateTo.put(to, currTo);
+            if (currFrom != SearchState.NO_ENTRY)
             {
-                bestWeightMapOther = bestWeightMapFrom;
-                updateBestPath(GHUtility.getEdge(graph, currFrom.adjNode, to), currFrom, to);
+                stateOther = stateFrom;
+                updateBestPath(GHUtility.getEdge(graph, stateFrom.getAdjNode(currFrom), to), stateFrom, currFrom, to);
             }
         } else
         {
-            if (currFrom != null && currFrom.adjNode == to)
+            if (currFrom != SearchState.NO_ENTRY && stateFrom.getAdjNode(currFrom) == to)
             {
                 // special case of identical start and end
-                bestPath.edgeEntry = currFrom;
-                bestPath.edgeTo = currTo;
+                setBestEntries(stateFrom, currFrom, stateTo, currTo);
                 finishedFrom = true;
                 finishedTo = true;
             }
@@ -131,25 +140,30 @@ public class DijkstraBidirectionRef extends AbstractBidirAlgo
         if (isWeightLimitReached())
             return bestPath;
 
+        if (bestEntryCurrent != SearchState.NO_ENTRY)
+        {
+            bestPath.setEdgeEntry(bestStateCurrent.createEdgeEntry(bestEntryCurrent));
+            bestPath.setEdgeEntryTo(bestStateOther.createEdgeEntry(bestEntryOther));
+        }
         return bestPath.extract();
     }
 
     @Override
     void checkState( int fromBase, int fromAdj, int toBase, int toAdj )
     {
-        if (bestWeightMapFrom.isEmpty() || bestWeightMapTo.isEmpty())
-            throw new IllegalStateException("Either 'from'-edge or 'to'-edge is inaccessible. From:" + bestWeightMapFrom + ", to:" + bestWeightMapTo);
+        if (stateFrom.isEmpty() || stateTo.isEmpty())
+            throw new IllegalStateException("Either 'from'-edge or 'to'-edge is inaccessible. From:" + stateFrom + ", to:" + stateTo);
     }
 
     @Override
     public boolean fillEdgesFrom()
     {
-        if (openSetFrom.isEmpty())
+        if (stateFrom.isHeapEmpty())
             return false;
 
-        currFrom = openSetFrom.poll();
-        bestWeightMapOther = bestWeightMapTo;
-        fillEdges(currFrom, openSetFrom, bestWeightMapFrom, outEdgeExplorer, false);
+        currFrom = stateFrom.poll();
+        stateOther = stateTo;
+        fillEdges(currFrom, stateFrom, outEdgeExplorer, false);
         visitedCountFrom++;
         return true;
     }
@@ -157,11 +171,11 @@ public class DijkstraBidirectionRef extends AbstractBidirAlgo
     @Override
     public boolean fillEdgesTo()
     {
-        if (openSetTo.isEmpty())
+        if (stateTo.isHeapEmpty())
             return false;
-        currTo = openSetTo.poll();
-        bestWeightMapOther = bestWeightMapFrom;
-        fillEdges(currTo, openSetTo, bestWeightMapTo, inEdgeExplorer, true);
+        currTo = stateTo.poll();
+        stateOther = stateFrom;
+        fillEdges(currTo, stateTo, inEdgeExplorer, true);
         visitedCountTo++;
         return true;
     }
@@ -176,72 +190,78 @@ public class DijkstraBidirectionRef extends AbstractBidirAlgo
         if (finishedFrom || finishedTo)
             return true;
 
-        return currFrom.weight + currTo.weight >= bestPath.getWeight();
+        return getCurrFromWeight() + getCurrToWeight() >= bestPath.getWeight();
     }
 
     @Override
     protected boolean isWeightLimitReached()
     {
-        return currFrom.weight + currTo.weight >= weightLimit;
+        return getCurrFromWeight() + getCurrToWeight() >= weightLimit;
     }
 
-    void fillEdges( EdgeEntry currEdge, PriorityQueue<EdgeEntry> prioQueue,
-            TIntObjectMap<EdgeEntry> shortestWeightMap, EdgeExplorer explorer, boolean reverse )
+    protected double getCurrFromWeight()
     {
-        int currNode = currEdge.adjNode;
-        EdgeIterator iter = explorer.setBaseNode(currNode);
+        return stateFrom.getWeight(currFrom);
+    }
+
+    protected double getCurrToWeight()
+    {
+        return stateTo.getWeight(currTo);
+    }
+
+    void fillEdges( int currEdge, SearchState state, EdgeExplorer explorer, boolean reverse )
+    {
+        int currEdgeId = state.getEdge(currEdge);
+        double currWeight = state.getWeight(currEdge);
+        EdgeIterator iter = explorer.setBaseNode(state.getAdjNode(currEdge));
         while (iter.next())
         {
-            if (!accept(iter, currEdge.edge))
+            if (!accept(iter, currEdgeId))
                 continue;
 
             int traversalId = traversalMode.createTraversalId(iter, reverse);
-            double tmpWeight = weighting.calcWeight(iter, reverse, currEdge.edge) + currEdge.weight;
+            double tmpWeight = weighting.calcWeight(iter, reverse, currEdgeId) + currWeight;
             if (Double.isInfinite(tmpWeight))
                 continue;
 
-            EdgeEntry ee = shortestWeightMap.get(traversalId);
-            if (ee == null)
+            int ee = state.get(traversalId);
+            if (ee == SearchState.NO_ENTRY)
             {
-                ee = new EdgeEntry(iter.getEdge(), iter.getAdjNode(), tmpWeight);
-                ee.parent = currEdge;
-                shortestWeightMap.put(traversalId, ee);
-                prioQueue.add(ee);
-            } else if (ee.weight > tmpWeight)
+                ee = state.add(iter.getEdge(), iter.getAdjNode(), tmpWeight, currEdge);
+                state.put(traversalId, ee);
+                state.push(ee);
+            } else if (state.getWeight(ee) > tmpWeight)
             {
-                prioQueue.remove(ee);
-                ee.edge = iter.getEdge();
-                ee.weight = tmpWeight;
-                ee.parent = currEdge;
-                prioQueue.add(ee);
+                state.update(ee, iter.getEdge(), tmpWeight, currEdge);
+                state.push(ee);
             } else
                 continue;
 
             if (updateBestPath)
-                updateBestPath(iter, ee, traversalId);
+                updateBestPath(iter, state, ee, traversalId);
         }
     }
 
     @Override
-    protected void updateBestPath( EdgeIteratorState edgeState, EdgeEntry entryCurrent, int traversalId )
+    protected void updateBestPath( EdgeIteratorState edgeState, SearchState stateCurrent, int entryCurrent, int traversalId )
     {
-        EdgeEntry entryOther = bestWeightMapOther.get(traversalId);
-        if (entryOther == null)
+        int entryOther = stateOther.get(traversalId);
+        if (entryOther == SearchState.NO_ENTRY)
             return;
 
-        boolean reverse = bestWeightMapFrom == bestWeightMapOther;
+        boolean reverse = stateFrom == stateOther;
 
         // update μ
-        double newWeight = entryCurrent.weight + entryOther.weight;
+        double newWeight = stateCurrent.getWeight(entryCurrent) + stateOther.getWeight(entryOther);
         if (traversalMode.isEdgeBased())
         {
-            if (entryOther.edge != entryCurrent.edge)
+            if (stateOther.getEdge(entryOther) != stateCurrent.getEdge(entryCurrent))
                 throw new IllegalStateException("cannot happen for edge based execution of " + getName());
 
-            if (entryOther.adjNode != entryCurrent.adjNode)
+            if (stateOther.getAdjNode(entryOther) != stateCurrent.getAdjNode(entryCurrent))
             {
                 // prevents the path to contain the edge at the meeting point twice and subtract the weight (excluding turn weight => no previous edge)
-                entryCurrent = entryCurrent.parent;
+                entryCurrent = stateCurrent.getParent(entryCurrent);
                 newWeight -= weighting.calcWeight(edgeState, reverse, EdgeIterator.NO_EDGE);
             } else
             {
@@ -254,31 +274,37 @@ public class DijkstraBidirectionRef extends AbstractBidirAlgo
         if (newWeight < bestPath.getWeight())
         {
             bestPath.setSwitchToFrom(reverse);
-            bestPath.setEdgeEntry(entryCurrent);
             bestPath.setWeight(newWeight);
-            bestPath.setEdgeEntryTo(entryOther);
+            setBestEntries(stateCurrent, entryCurrent, stateOther, entryOther);
         }
     }
 
-    TIntObjectMap<EdgeEntry> getBestFromMap()
+    private void setBestEntries( SearchState stateCurrent, int entryCurrent, SearchState stateOther, int entryOther )
+    {
+        bestStateCurrent = stateCurrent;
+        bestEntryCurrent = entryCurrent;
+        bestStateOther = stateOther;
+        bestEntryOther = entryOther;
+    }
+
+    SearchState getFromState()
     {
-        return bestWeightMapFrom;
+        return stateFrom;
     }
 
-    TIntObjectMap<EdgeEntry> getBestToMap()
+    SearchState getToState()
     {
-        return bestWeightMapTo;
+        return stateTo;
     }
 
-    void setBestOtherMap( TIntObjectMap<EdgeEntry> other )
+    void setOtherState( SearchState other )
     {
-        bestWeightMapOther = other;
+        stateOther = other;
     }
 
     void setFromDataStructures( DijkstraBidirectionRef dijkstra )
     {
-        openSetFrom = dijkstra.openSetFrom;
-        bestWeightMapFrom = dijkstra.bestWeightMapFrom;
+        stateFrom = dijkstra.stateFrom;
         finishedFrom = dijkstra.finishedFrom;
         currFrom = dijkstra.currFrom;
         visitedCountFrom = dijkstra.visitedCountFrom;
@@ -287,8 +313,7 @@ public class DijkstraBidirectionRef extends AbstractBidirAlgo
 
     void setToDataStructures( DijkstraBidirectionRef dijkstra )
     {
-        openSetTo = dijkstra.openSetTo;
-        bestWeightMapTo = dijkstra.bestWeightMapTo;
+        stateTo = dijkstra.stateTo;
         finishedTo = dijkstra.finishedTo;
         currTo = dijkstra.currTo;
         visitedCountTo = dijkstra.visitedCountTo;
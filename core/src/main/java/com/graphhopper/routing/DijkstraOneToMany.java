@@ -17,7 +17,7 @@
  */
 package com.graphhopper.routing;
 
-import com.graphhopper.coll.IntDoubleBinHeap;
+import com.graphhopper.coll.IntDoubleIndexedHeap;
 import com.graphhopper.routing.util.FlagEncoder;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.util.Weighting;
@@ -41,7 +41,7 @@ public class DijkstraOneToMany extends AbstractRoutingAlgorithm
     private final TIntArrayListWithCap changedNodes;
     private int[] parents;
     private int[] edgeIds;
-    private IntDoubleBinHeap heap;
+    private IntDoubleIndexedHeap heap;
     private int visitedNodes;
     private boolean doClear = true;
     private int limitVisitedNodes = Integer.MAX_VALUE;
@@ -62,7 +62,7 @@ public class DijkstraOneToMany extends AbstractRoutingAlgorithm
 
         Arrays.fill(weights, Double.MAX_VALUE);
 
-        heap = new IntDoubleBinHeap();
+        heap = new IntDoubleIndexedHeap(graph.getNodes());
         changedNodes = new TIntArrayListWithCap();
     }
 
@@ -138,7 +138,8 @@ public class DijkstraOneToMany extends AbstractRoutingAlgorithm
         {
             // Cached! Re-use existing data structures
             int parentNode = parents[to];
-            if (parentNode != EMPTY_PARENT && weights[to] <= weights[currNode])
+            // the start node has no parent but is reached too, e.g. for a matrix with equal points
+            if ((parentNode != EMPTY_PARENT || to == from) && weights[to] <= weights[currNode])
                 return to;
 
             if (heap.isEmpty() || visitedNodes >= limitVisitedNodes)
@@ -149,7 +150,11 @@ public class DijkstraOneToMany extends AbstractRoutingAlgorithm
 
         visitedNodes = 0;
         if (finished())
+        {
+            // the start node was not explored yet so the next query cannot reuse the cached data
+            doClear = true;
             return currNode;
+        }
 
         while (true)
         {
@@ -236,7 +241,7 @@ public class DijkstraOneToMany extends AbstractRoutingAlgorithm
         long len = weights.length;
         return ((8L + 4L + 4L) * len
                 + changedNodes.getCapacity() * 4L
-                + heap.getCapacity() * (4L + 4L)) / Helper.MB
+                + heap.getCapacityInBytes()) / Helper.MB
                 + "MB";
     }
 
@@ -0,0 +1,191 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.util.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.PointList;
+import gnu.trove.list.array.TIntArrayList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Calculates all nodes reachable from a start node within a weight limit and the polygons around
+ * them. E.g. with the fastest weighting the weight limit is the time in seconds and with the
+ * shortest weighting the distance in meter. The search is a Dijkstra without a target which stops
+ * via isWeightLimitReached. Its state is a SearchState, so the memory grows with the number of
+ * reachable nodes and their direct neighbors and not with the size of the graph.
+ * <p/>
+ * @author Peter Karich
+ */
+public class Isochrone extends Dijkstra
+{
+    private TIntArrayList nodes = new TIntArrayList(0);
+
+    public Isochrone( Graph graph, FlagEncoder encoder, Weighting weighting )
+    {
+        super(graph, encoder, weighting, TraversalMode.NODE_BASED);
+    }
+
+    public double getWeightLimit()
+    {
+        return weightLimit;
+    }
+
+    /**
+     * Searches all reachable nodes from the specified start node. Other than calcPath this can be
+     * called several times, the state of the last search is kept for getWeight.
+     * <p/>
+     * @return the reachable nodes including the start node, in the order of discovery
+     */
+    public TIntArrayList search( int from )
+    {
+        if (fromState == null)
+            fromState = acquireState(initialCapacity);
+        else
+            fromState.reset();
+
+        currEdge = fromState.add(EdgeIterator.NO_EDGE, from, 0, SearchState.NO_ENTRY);
+        fromState.put(from, currEdge);
+        runAlgo();
+
+        // there is one entry per node, also for the neighbors beyond the limit
+        int size = fromState.getSize();
+        nodes = new TIntArrayList(size);
+        for (int entry = 0; entry < size; entry++)
+        {
+            if (fromState.getWeight(entry) <= weightLimit)
+                nodes.add(fromState.getAdjNode(entry));
+        }
+        return nodes;
+    }
+
+    /**
+     * @return the weight of the specified node reached in the last search or infinity if it was
+     * not reached
+     */
+    public double getWeight( int node )
+    {
+        int entry = fromState == null ? SearchState.NO_ENTRY : fromState.get(node);
+        if (entry == SearchState.NO_ENTRY || fromState.getWeight(entry) > weightLimit)
+            return Double.POSITIVE_INFINITY;
+
+        return fromState.getWeight(entry);
+    }
+
+    @Override
+    public String getName()
+    {
+        return "isochrone";
+    }
+
+    /**
+     * Splits the weight limit into the specified number of buckets and calculates the convex hull
+     * of the reachable nodes for every bucket. E.g. for 3 buckets and a limit of 600 seconds the
+     * polygons include the nodes reachable within 200, 400 and 600 seconds.
+     * <p/>
+     * @return a closed polygon per bucket, empty if less than three nodes are reachable
+     */
+    public List<PointList> calcPolygons( int buckets )
+    {
+        if (buckets < 1)
+            throw new IllegalArgumentException("At least one bucket is necessary but was " + buckets);
+
+        NodeAccess na = graph.getNodeAccess();
+        List<PointList> polygons = new ArrayList<PointList>(buckets);
+        int size = nodes.size();
+        for (int bucket = 1; bucket <= buckets; bucket++)
+        {
+            double bucketLimit = bucket == buckets ? weightLimit : weightLimit * bucket / buckets;
+            List<double[]> points = new ArrayList<double[]>(size);
+            for (int i = 0; i < size; i++)
+            {
+                int node = nodes.get(i);
+                if (getWeight(node) <= bucketLimit)
+                    points.add(new double[]
+                    {
+                        na.getLongitude(node), na.getLatitude(node)
+                    });
+            }
+            polygons.add(calcConvexHull(points));
+        }
+        return polygons;
+    }
+
+    /**
+     * Monotone chain algorithm to calculate the convex hull of the specified points in the format
+     * lon, lat.
+     */
+    static PointList calcConvexHull( List<double[]> points )
+    {
+        double[][] sorted = points.toArray(new double[points.size()][]);
+        Arrays.sort(sorted, new Comparator<double[]>()
+        {
+            @Override
+            public int compare( double[] o1, double[] o2 )
+            {
+                int res = Double.compare(o1[0], o2[0]);
+                return res != 0 ? res : Double.compare(o1[1], o2[1]);
+            }
+        });
+
+        int len = sorted.length;
+        double[][] hull = new double[2 * len][];
+        int k = 0;
+        // lower hull
+        for (int i = 0; i < len; i++)
+        {
+            while (k >= 2 && cross(hull[k - 2], hull[k - 1], sorted[i]) <= 0)
+            {
+                k--;
+            }
+            hull[k++] = sorted[i];
+        }
+        // upper hull
+        for (int i = len - 2, t = k + 1; i >= 0; i--)
+        {
+            while (k >= t && cross(hull[k - 2], hull[k - 1], sorted[i]) <= 0)
+            {
+                k--;
+            }
+            hull[k++] = sorted[i];
+        }
+
+        // the last point equals the first one and closes the polygon
+        PointList polygon = new PointList(k, false);
+        if (k < 4)
+            return polygon;
+
+        for (int i = 0; i < k; i++)
+        {
+            polygon.add(hull[i][1], hull[i][0]);
+        }
+        return polygon;
+    }
+
+    private static double cross( double[] o, double[] a, double[] b )
+    {
+        return (a[0] - o[0]) * (b[1] - o[1]) - (a[1] - o[1]) * (b[0] - o[0]);
+    }
+}
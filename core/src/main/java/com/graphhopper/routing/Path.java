@@ -336,11 +336,7 @@ public class Path
             @Override
             public void next( EdgeIteratorState eb, int index )
             {
-                PointList pl = eb.fetchWayGeometry(2);
-                for (int j = 0; j < pl.getSize(); j++)
-                {
-                    points.add(pl, j);
-                }
+                eb.fetchWayGeometry(2, points);
             }
         });
         return points;
@@ -394,6 +390,8 @@ public class Path
             private String name, prevName = null;
             private InstructionAnnotation annotation, prevAnnotation;
             private EdgeExplorer outEdgeExplorer = graph.createEdgeExplorer(new DefaultEdgeFilter(encoder, false, true));
+            // reused for the geometry of every edge, the points are copied into the instructions
+            private final PointList wayGeo = new PointList(10, nodeAccess.is3D());
 
             @Override
             public void next( EdgeIteratorState edge, int index )
@@ -406,7 +404,8 @@ public class Path
                 double adjLon = nodeAccess.getLongitude(adjNode);
                 double latitude, longitude;
 
-                PointList wayGeo = edge.fetchWayGeometry(3);
+                wayGeo.clear();
+                edge.fetchWayGeometry(3, wayGeo);
                 boolean isRoundabout = encoder.isBool(flags, encoder.K_ROUNDABOUT);
 
                 if (wayGeo.getSize() <= 2)
@@ -24,12 +24,15 @@ import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.util.Helper;
 
 /**
- * A simple factory creating normal algorithms (RoutingAlgorithm) without preparation.
+ * A simple factory creating normal algorithms (RoutingAlgorithm) without preparation. Algorithms
+ * which support it get their search states from a per-thread pool of this factory.
  * <p>
  * @author Peter Karich
  */
 public class RoutingAlgorithmFactorySimple implements RoutingAlgorithmFactory
 {
+    private final SearchStatePool statePool = new SearchStatePool();
+
     @Override
     public RoutingAlgorithm createAlgo( Graph g, AlgorithmOptions opts )
     {        
@@ -37,15 +40,18 @@ public class RoutingAlgorithmFactorySimple implements RoutingAlgorithmFactory
         String algoStr = opts.getAlgorithm();
         if (AlgorithmOptions.DIJKSTRA_BI.equalsIgnoreCase(algoStr))
         {
-            return new DijkstraBidirectionRef(g, opts.getFlagEncoder(), opts.getWeighting(), opts.getTraversalMode());
+            return new DijkstraBidirectionRef(g, opts.getFlagEncoder(), opts.getWeighting(), opts.getTraversalMode()).
+                    setSearchStatePool(statePool);
         } else if (AlgorithmOptions.DIJKSTRA.equalsIgnoreCase(algoStr))
         {
-            return new Dijkstra(g, opts.getFlagEncoder(), opts.getWeighting(), opts.getTraversalMode());
+            return new Dijkstra(g, opts.getFlagEncoder(), opts.getWeighting(), opts.getTraversalMode()).
+                    setSearchStatePool(statePool);
         } else if (AlgorithmOptions.ASTAR_BI.equalsIgnoreCase(algoStr))
         {
             AStarBidirection aStarBi = new AStarBidirection(g, opts.getFlagEncoder(), opts.getWeighting(),
                     opts.getTraversalMode());
             aStarBi.setApproximation(getApproximation(AlgorithmOptions.ASTAR_BI, opts, g.getNodeAccess()));
+            aStarBi.setSearchStatePool(statePool);
             return aStarBi;
         } else if (AlgorithmOptions.DIJKSTRA_ONE_TO_MANY.equalsIgnoreCase(algoStr))
         {
@@ -54,6 +60,7 @@ public class RoutingAlgorithmFactorySimple implements RoutingAlgorithmFactory
         {
             AStar aStar = new AStar(g, opts.getFlagEncoder(), opts.getWeighting(), opts.getTraversalMode());
             aStar.setApproximation(getApproximation(AlgorithmOptions.ASTAR, opts, g.getNodeAccess()));
+            aStar.setSearchStatePool(statePool);
             return aStar;
         } else
         {
@@ -0,0 +1,246 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.coll.GHIntIntStampedMap;
+import com.graphhopper.coll.IntDoubleIndexedHeap;
+import com.graphhopper.storage.EdgeEntry;
+import com.graphhopper.util.NotThreadSafe;
+
+import java.util.Arrays;
+
+/**
+ * The reusable state of one search direction. Instead of one EdgeEntry object per settled edge
+ * the entries are stored as struct-of-arrays (edge, adjacent node, weight, parent entry) and the
+ * traversal ids are mapped to entries with a GHIntIntStampedMap. Clearing is done via its version
+ * stamp so that a reset is O(1) and the arrays can be reused across many queries. The open set is
+ * an IntDoubleIndexedHeap of the entries.
+ * <p/>
+ * @author Peter Karich
+ */
+@NotThreadSafe
+public class SearchState
+{
+    public static final int NO_ENTRY = GHIntIntStampedMap.NO_VALUE;
+    // traversal id -> entry
+    private final GHIntIntStampedMap map;
+    // the entries as struct-of-arrays
+    private int[] edges;
+    private int[] adjNodes;
+    private int[] parents;
+    private double[] weights;
+    private int size;
+    // the open set, sorted by weight or by a custom key
+    private final IntDoubleIndexedHeap heap;
+
+    public SearchState()
+    {
+        this(1000);
+    }
+
+    public SearchState( int initialCapacity )
+    {
+        initialCapacity = Math.max(16, initialCapacity);
+        map = new GHIntIntStampedMap(initialCapacity);
+        edges = new int[initialCapacity];
+        adjNodes = new int[initialCapacity];
+        parents = new int[initialCapacity];
+        weights = new double[initialCapacity];
+        heap = new IntDoubleIndexedHeap(initialCapacity);
+    }
+
+    /**
+     * Forgets all entries without touching the arrays.
+     */
+    public SearchState reset()
+    {
+        map.clear();
+        size = 0;
+        heap.clear();
+        return this;
+    }
+
+    /**
+     * @return the entry associated to the specified traversal id or NO_ENTRY
+     */
+    public int get( int traversalId )
+    {
+        return map.get(traversalId);
+    }
+
+    /**
+     * Associates the specified entry to the traversal id.
+     */
+    public void put( int traversalId, int entry )
+    {
+        map.put(traversalId, entry);
+    }
+
+    /**
+     * @return true if no traversal id was associated since the last reset
+     */
+    public boolean isEmpty()
+    {
+        return map.isEmpty();
+    }
+
+    /**
+     * Creates a new entry which is neither associated to a traversal id nor added to the heap.
+     */
+    public int add( int edge, int adjNode, double weight, int parent )
+    {
+        if (size >= edges.length)
+            grow(size + (size >> 1));
+
+        edges[size] = edge;
+        adjNodes[size] = adjNode;
+        weights[size] = weight;
+        parents[size] = parent;
+        return size++;
+    }
+
+    private void grow( int capacity )
+    {
+        edges = Arrays.copyOf(edges, capacity);
+        adjNodes = Arrays.copyOf(adjNodes, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        weights = Arrays.copyOf(weights, capacity);
+        heap.ensureCapacity(capacity);
+    }
+
+    /**
+     * Changes the edge, weight and parent of an existing entry. Call push afterwards if the entry
+     * should be (re)ordered in the heap.
+     */
+    public void update( int entry, int edge, double weight, int parent )
+    {
+        edges[entry] = edge;
+        weights[entry] = weight;
+        parents[entry] = parent;
+    }
+
+    /**
+     * Adds the entry to the heap or, if already contained, moves it according to its decreased
+     * weight. O(log n)
+     */
+    public void push( int entry )
+    {
+        heap.insertOrUpdate(weights[entry], entry);
+    }
+
+    /**
+     * Same as push(entry) but the heap is sorted by the specified key instead of the weight, e.g.
+     * by the estimated full weight for A*.
+     */
+    public void push( int entry, double key )
+    {
+        heap.insertOrUpdate(key, entry);
+    }
+
+    /**
+     * @return the entry with the smallest key and removes it from the heap
+     */
+    public int poll()
+    {
+        if (heap.isEmpty())
+            throw new IllegalStateException("An empty heap does not have a minimum entry");
+
+        return heap.poll_element();
+    }
+
+    public boolean isHeapEmpty()
+    {
+        return heap.isEmpty();
+    }
+
+    public int getHeapSize()
+    {
+        return heap.getSize();
+    }
+
+    /**
+     * @return the last key with which the entry was pushed
+     */
+    public double getKey( int entry )
+    {
+        return heap.getKey(entry);
+    }
+
+    public int getEdge( int entry )
+    {
+        return edges[entry];
+    }
+
+    public int getAdjNode( int entry )
+    {
+        return adjNodes[entry];
+    }
+
+    public double getWeight( int entry )
+    {
+        return weights[entry];
+    }
+
+    public int getParent( int entry )
+    {
+        return parents[entry];
+    }
+
+    /**
+     * @return the number of created entries since the last reset
+     */
+    public int getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Creates the linked EdgeEntry chain from the specified entry back to the start. Only the
+     * entries of the resulting path are allocated.
+     */
+    public EdgeEntry createEdgeEntry( int entry )
+    {
+        if (entry == NO_ENTRY)
+            return null;
+
+        EdgeEntry first = new EdgeEntry(edges[entry], adjNodes[entry], weights[entry]);
+        EdgeEntry curr = first;
+        int parent = parents[entry];
+        while (parent != NO_ENTRY)
+        {
+            curr.parent = new EdgeEntry(edges[parent], adjNodes[parent], weights[parent]);
+            curr = curr.parent;
+            parent = parents[parent];
+        }
+        return first;
+    }
+
+    /**
+     * @return approximative memory usage in bytes
+     */
+    public long getCapacityInBytes()
+    {
+        return map.getCapacityInBytes() + 20L * edges.length + heap.getCapacityInBytes();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "entries:" + size + ", heap:" + heap.getSize();
+    }
+}
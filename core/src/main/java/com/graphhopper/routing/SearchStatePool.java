@@ -0,0 +1,78 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hands out SearchState objects per thread so that e.g. a servlet thread reuses its buffers across
+ * requests. An algorithm acquires its states before the search and releases them after the path was
+ * extracted.
+ * <p/>
+ * @author Peter Karich
+ */
+public class SearchStatePool
+{
+    private final int maxStatesPerThread;
+    private final ThreadLocal<List<SearchState>> states = new ThreadLocal<List<SearchState>>()
+    {
+        @Override
+        protected List<SearchState> initialValue()
+        {
+            return new ArrayList<SearchState>(maxStatesPerThread);
+        }
+    };
+
+    public SearchStatePool()
+    {
+        // bidirectional algorithms need two states
+        this(4);
+    }
+
+    public SearchStatePool( int maxStatesPerThread )
+    {
+        this.maxStatesPerThread = maxStatesPerThread;
+    }
+
+    /**
+     * @param initialCapacity the expected number of entries if a new state has to be created
+     * @return a cleared state which is exclusively used by the caller until it is released
+     */
+    public SearchState acquire( int initialCapacity )
+    {
+        List<SearchState> list = states.get();
+        if (list.isEmpty())
+            return new SearchState(initialCapacity);
+
+        return list.remove(list.size() - 1).reset();
+    }
+
+    /**
+     * Gives the state back to the pool of the current thread. The state must not be used afterwards.
+     */
+    public void release( SearchState state )
+    {
+        if (state == null)
+            return;
+
+        List<SearchState> list = states.get();
+        if (list.size() < maxStatesPerThread)
+            list.add(state);
+    }
+}
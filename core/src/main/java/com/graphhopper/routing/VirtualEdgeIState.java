@@ -81,6 +81,21 @@ class VirtualEdgeIState implements EdgeIteratorState, EdgeSkipIterState {
         throw new UnsupportedOperationException("Illegal mode:" + mode);
     }
 
+    @Override
+    public PointList fetchWayGeometry( int mode, PointList list )
+    {
+        if (mode < 0 || mode > 3)
+            throw new UnsupportedOperationException("Illegal mode:" + mode);
+
+        int from = (mode & 1) != 0 ? 0 : 1;
+        int end = (mode & 2) != 0 ? pointList.getSize() : pointList.getSize() - 1;
+        for (int i = from; i < end; i++)
+        {
+            list.add(pointList, i);
+        }
+        return list;
+    }
+
     @Override
     public EdgeIteratorState setWayGeometry( PointList list )
     {
@@ -91,6 +91,12 @@ class VirtualEdgeIterator implements EdgeIterator, EdgeSkipIterState {
         return edges.get(current).fetchWayGeometry(mode);
     }
 
+    @Override
+    public PointList fetchWayGeometry( int mode, PointList pointList )
+    {
+        return edges.get(current).fetchWayGeometry(mode, pointList);
+    }
+
     @Override
     public EdgeIteratorState setWayGeometry( PointList list )
     {
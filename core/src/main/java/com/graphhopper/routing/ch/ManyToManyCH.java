@@ -0,0 +1,330 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.coll.IntDoubleIndexedHeap;
+import com.graphhopper.routing.util.DefaultEdgeFilter;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.routing.util.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.LevelGraph;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeSkipIterState;
+import gnu.trove.list.array.TDoubleArrayList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TLongDoubleHashMap;
+import gnu.trove.map.hash.TLongLongHashMap;
+import java.util.Arrays;
+
+/**
+ * Calculates a distance and time table between many sources and many targets on a graph prepared
+ * with contraction hierarchies. Instead of one bidirectional search per pair only one backward
+ * upward search per target and one forward upward search per source is necessary. The backward
+ * searches store their results in a bucket of every reached node and the forward searches scan
+ * these buckets to find the best meeting node per target.
+ * <p/>
+ * Use PrepareContractionHierarchies.createManyToMany to create an instance. Not thread safe.
+ * <p/>
+ * @see PrepareContractionHierarchies
+ * @author Peter Karich
+ */
+public class ManyToManyCH
+{
+    private final Weighting weighting;
+    private final EdgeFilter levelFilter;
+    private final EdgeExplorer outEdgeExplorer;
+    private final EdgeExplorer inEdgeExplorer;
+    private final UnpackPath unpackPath;
+    // shortcuts are unpacked only once to get distance and time, key is edge and adjacent node
+    private final TLongDoubleHashMap shortcutDistances = new TLongDoubleHashMap();
+    private final TLongLongHashMap shortcutMillis = new TLongLongHashMap();
+    // the search space of one upward search
+    private final TIntIntHashMap nodeToLabel = new TIntIntHashMap(100, 0.5f, -1, -1);
+    private final TIntArrayList labelNodes = new TIntArrayList();
+    private final TDoubleArrayList labelWeights = new TDoubleArrayList();
+    private final TDoubleArrayList labelDistances = new TDoubleArrayList();
+    private final TLongArrayList labelMillis = new TLongArrayList();
+    // the elements are labels, a label which is no longer contained is settled
+    private final IntDoubleIndexedHeap heap = new IntDoubleIndexedHeap(100);
+    // buckets are linked lists stored in arrays, the head of every list is stored per node
+    private final TIntIntHashMap bucketHeads = new TIntIntHashMap(1000, 0.5f, -1, -1);
+    private final TIntArrayList bucketNext = new TIntArrayList();
+    private final TIntArrayList bucketTargets = new TIntArrayList();
+    private final TDoubleArrayList bucketWeights = new TDoubleArrayList();
+    private final TDoubleArrayList bucketDistances = new TDoubleArrayList();
+    private final TLongArrayList bucketMillis = new TLongArrayList();
+    private double[][] weights;
+    private double[][] distances;
+    private long[][] millis;
+    private int visitedNodes;
+
+    public ManyToManyCH( Graph graph, Graph baseGraph, FlagEncoder encoder, Weighting weighting,
+            EdgeFilter levelFilter )
+    {
+        this.weighting = weighting;
+        this.levelFilter = levelFilter;
+        outEdgeExplorer = graph.createEdgeExplorer(new DefaultEdgeFilter(encoder, false, true));
+        inEdgeExplorer = graph.createEdgeExplorer(new DefaultEdgeFilter(encoder, true, false));
+        unpackPath = new UnpackPath(graph, baseGraph, encoder);
+    }
+
+    /**
+     * Uses the times of the shortcuts stored in the specified level graph and unpacks shortcuts
+     * with an unknown time via its unpacking data.
+     */
+    ManyToManyCH setUnpacking( LevelGraph levelGraph )
+    {
+        // no cache as the unpacked edges are not collected and the edges are only unpacked if the
+        // time of a shortcut is unknown
+        unpackPath.setUnpacking(levelGraph, null).setUnpack(false);
+        return this;
+    }
+
+    /**
+     * Calculates the table from every node in fromNodes to every node in toNodes. Not connected
+     * entries have a weight and distance of Double.MAX_VALUE and a time of Long.MAX_VALUE.
+     */
+    public ManyToManyCH calcMatrix( int[] fromNodes, int[] toNodes )
+    {
+        weights = new double[fromNodes.length][toNodes.length];
+        distances = new double[fromNodes.length][toNodes.length];
+        millis = new long[fromNodes.length][toNodes.length];
+        visitedNodes = 0;
+        bucketHeads.clear();
+        bucketNext.resetQuick();
+        bucketTargets.resetQuick();
+        bucketWeights.resetQuick();
+        bucketDistances.resetQuick();
+        bucketMillis.resetQuick();
+
+        for (int toIndex = 0; toIndex < toNodes.length; toIndex++)
+        {
+            searchUpward(toNodes[toIndex], true);
+            int size = labelNodes.size();
+            for (int label = 0; label < size; label++)
+            {
+                int node = labelNodes.get(label);
+                bucketNext.add(bucketHeads.get(node));
+                bucketHeads.put(node, bucketTargets.size());
+                bucketTargets.add(toIndex);
+                bucketWeights.add(labelWeights.get(label));
+                bucketDistances.add(labelDistances.get(label));
+                bucketMillis.add(labelMillis.get(label));
+            }
+        }
+
+        for (int fromIndex = 0; fromIndex < fromNodes.length; fromIndex++)
+        {
+            double[] weightRow = weights[fromIndex];
+            double[] distanceRow = distances[fromIndex];
+            long[] millisRow = millis[fromIndex];
+            Arrays.fill(weightRow, Double.MAX_VALUE);
+            Arrays.fill(distanceRow, Double.MAX_VALUE);
+            Arrays.fill(millisRow, Long.MAX_VALUE);
+
+            searchUpward(fromNodes[fromIndex], false);
+            int size = labelNodes.size();
+            for (int label = 0; label < size; label++)
+            {
+                int entry = bucketHeads.get(labelNodes.get(label));
+                if (entry < 0)
+                    continue;
+
+                double weight = labelWeights.get(label);
+                double distance = labelDistances.get(label);
+                long time = labelMillis.get(label);
+                for (; entry >= 0; entry = bucketNext.get(entry))
+                {
+                    int toIndex = bucketTargets.get(entry);
+                    double tmpWeight = weight + bucketWeights.get(entry);
+                    if (tmpWeight < weightRow[toIndex])
+                    {
+                        weightRow[toIndex] = tmpWeight;
+                        distanceRow[toIndex] = distance + bucketDistances.get(entry);
+                        millisRow[toIndex] = time + bucketMillis.get(entry);
+                    }
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Explores all nodes reachable via edges leading to higher levels. Afterwards the labels
+     * contain the final weight, distance and time for every reached node.
+     */
+    private void searchUpward( int startNode, boolean reverse )
+    {
+        nodeToLabel.clear();
+        labelNodes.resetQuick();
+        labelWeights.resetQuick();
+        labelDistances.resetQuick();
+        labelMillis.resetQuick();
+        heap.clear();
+        addLabel(startNode, 0, 0, 0);
+        heap.insert_(0, 0);
+
+        EdgeExplorer explorer = reverse ? inEdgeExplorer : outEdgeExplorer;
+        while (!heap.isEmpty())
+        {
+            int label = heap.poll_element();
+            visitedNodes++;
+            int node = labelNodes.get(label);
+            double currWeight = labelWeights.get(label);
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next())
+            {
+                if (!levelFilter.accept(iter))
+                    continue;
+
+                double tmpWeight = weighting.calcWeight(iter, reverse, EdgeIterator.NO_EDGE) + currWeight;
+                if (Double.isInfinite(tmpWeight))
+                    continue;
+
+                int adjNode = iter.getAdjNode();
+                int adjLabel = nodeToLabel.get(adjNode);
+                if (adjLabel >= 0 && (!heap.contains(adjLabel) || tmpWeight >= labelWeights.get(adjLabel)))
+                    continue;
+
+                // the node where the edge ends when travelling in the direction of the route
+                int endNode = reverse ? node : adjNode;
+                double tmpDistance = labelDistances.get(label);
+                long tmpMillis = labelMillis.get(label);
+                if (((EdgeSkipIterState) iter).isShortcut())
+                {
+                    long key = createKey(iter.getEdge(), endNode);
+                    if (!shortcutMillis.containsKey(key))
+                    {
+                        unpackPath.unpack(iter.getEdge(), endNode);
+                        shortcutDistances.put(key, unpackPath.getDistance());
+                        shortcutMillis.put(key, unpackPath.getMillis());
+                    }
+                    tmpDistance += shortcutDistances.get(key);
+                    tmpMillis += shortcutMillis.get(key);
+                } else
+                {
+                    double dist = iter.getDistance();
+                    tmpDistance += dist;
+                    tmpMillis += unpackPath.calcMillis(dist, iter.getFlags(), reverse);
+                }
+
+                if (adjLabel < 0)
+                {
+                    adjLabel = addLabel(adjNode, tmpWeight, tmpDistance, tmpMillis);
+                    heap.insert_(tmpWeight, adjLabel);
+                } else
+                {
+                    labelWeights.setQuick(adjLabel, tmpWeight);
+                    labelDistances.setQuick(adjLabel, tmpDistance);
+                    labelMillis.setQuick(adjLabel, tmpMillis);
+                    heap.update_(tmpWeight, adjLabel);
+                }
+            }
+        }
+    }
+
+    private int addLabel( int node, double weight, double distance, long time )
+    {
+        int label = labelNodes.size();
+        nodeToLabel.put(node, label);
+        labelNodes.add(node);
+        labelWeights.add(weight);
+        labelDistances.add(distance);
+        labelMillis.add(time);
+        return label;
+    }
+
+    private static long createKey( int edge, int adjNode )
+    {
+        return ((long) edge << 32) | (adjNode & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return the weight matrix where the first index is the source and the second the target
+     */
+    public double[][] getWeights()
+    {
+        return weights;
+    }
+
+    /**
+     * @return the distance matrix in meter
+     */
+    public double[][] getDistances()
+    {
+        return distances;
+    }
+
+    /**
+     * @return the time matrix in millis
+     */
+    public long[][] getMillis()
+    {
+        return millis;
+    }
+
+    public int getVisitedNodes()
+    {
+        return visitedNodes;
+    }
+
+    public String getName()
+    {
+        return "manyToManyCH";
+    }
+
+    @Override
+    public String toString()
+    {
+        return getName() + "|" + weighting;
+    }
+
+    /**
+     * Reuses the shortcut unpacking of Path4CH to calculate distance and time of a single edge.
+     */
+    private static class UnpackPath extends Path4CH
+    {
+        public UnpackPath( Graph routingGraph, Graph baseGraph, FlagEncoder encoder )
+        {
+            super(routingGraph, baseGraph, encoder);
+        }
+
+        void unpack( int edge, int endNode )
+        {
+            distance = 0;
+            millis = 0;
+            processEdge(edge, endNode);
+        }
+
+        @Override
+        protected long calcMillis( double distance, long flags, boolean revert )
+        {
+            return super.calcMillis(distance, flags, revert);
+        }
+
+        @Override
+        protected void addEdge( int edge )
+        {
+            // the edge ids are not necessary
+        }
+    }
+}
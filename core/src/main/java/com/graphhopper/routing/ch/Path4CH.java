@@ -20,10 +20,16 @@ package com.graphhopper.routing.ch;
 import com.graphhopper.routing.PathBidirRef;
 import com.graphhopper.routing.util.FlagEncoder;
 import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.LevelGraph;
+import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.EdgeSkipIterState;
+import gnu.trove.list.array.TIntArrayList;
 
 /**
- * Recursivly unpack shortcuts.
+ * Recursivly unpack shortcuts. If the level graph was prepared for unpacking the skipped edges and
+ * the node between them are read directly, otherwise the edge states are fetched to find the
+ * orientation of the skipped edges. If only distance and time are required the shortcuts are not
+ * unpacked at all, see setUnpack.
  * <p/>
  * @see PrepareContractionHierarchies
  * @author Peter Karich
@@ -31,6 +37,12 @@ import com.graphhopper.util.EdgeSkipIterState;
 public class Path4CH extends PathBidirRef
 {
     private final Graph routingGraph;
+    private LevelGraph levelGraph;
+    private ShortcutUnpackCache cache;
+    // the original edges of the currently unpacked shortcut, only used to fill the cache
+    private final TIntArrayList unpackedEdges = new TIntArrayList();
+    private boolean recordEdges;
+    private boolean unpack = true;
 
     public Path4CH( Graph routingGraph, Graph baseGraph, FlagEncoder encoder )
     {
@@ -38,12 +50,128 @@ public class Path4CH extends PathBidirRef
         this.routingGraph = routingGraph;
     }
 
+    /**
+     * Use the unpacking data of the specified level graph and optionally the specified cache.
+     */
+    Path4CH setUnpacking( LevelGraph levelGraph, ShortcutUnpackCache cache )
+    {
+        this.levelGraph = levelGraph;
+        this.cache = cache;
+        return this;
+    }
+
+    /**
+     * Specifies if the shortcuts are unpacked into the original edges. If not, distance and time
+     * are read from the shortcuts where the level graph was prepared for unpacking. Then the path
+     * contains no edges and calcPoints or calcInstructions must not be used.
+     */
+    Path4CH setUnpack( boolean unpack )
+    {
+        this.unpack = unpack;
+        return this;
+    }
+
     @Override
     protected final void processEdge( int tmpEdge, int endNode )
     {
+        EdgeSkipIterState edgeState = (EdgeSkipIterState) routingGraph.getEdgeProps(tmpEdge, endNode);
+        if (!unpack && levelGraph != null && edgeState.isShortcut())
+        {
+            long shortcutMillis = levelGraph.getShortcutMillis(tmpEdge, edgeState.getBaseNode());
+            if (shortcutMillis >= 0)
+            {
+                distance += edgeState.getDistance();
+                millis += shortcutMillis;
+                return;
+            }
+        }
+
         // Shortcuts do only contain valid weight so first expand before adding
         // to distance and time
-        expandEdge((EdgeSkipIterState) routingGraph.getEdgeProps(tmpEdge, endNode), false);
+        if (levelGraph == null || !edgeState.isShortcut() || levelGraph.getSkippedNode(tmpEdge) < 0)
+        {
+            expandEdge(edgeState, false);
+            return;
+        }
+
+        int from = edgeState.getBaseNode();
+        if (cache == null)
+        {
+            unpackEdge(tmpEdge, from, endNode);
+            return;
+        }
+
+        long key = ShortcutUnpackCache.createKey(tmpEdge, from > endNode);
+        ShortcutUnpackCache.Entry entry = cache.get(key);
+        if (entry == null)
+        {
+            double prevDistance = distance;
+            long prevMillis = millis;
+            unpackedEdges.resetQuick();
+            recordEdges = true;
+            unpackEdge(tmpEdge, from, endNode);
+            recordEdges = false;
+            // store the edges in travel direction
+            if (reverseOrder)
+                unpackedEdges.reverse();
+
+            cache.put(new ShortcutUnpackCache.Entry(key, unpackedEdges.toArray(),
+                    distance - prevDistance, millis - prevMillis));
+            return;
+        }
+
+        distance += entry.distance;
+        millis += entry.millis;
+        int len = entry.edges.length;
+        for (int i = 0; i < len; i++)
+        {
+            addEdge(entry.edges[reverseOrder ? len - 1 - i : i]);
+        }
+    }
+
+    @Override
+    protected void addEdge( int edge )
+    {
+        if (recordEdges)
+            unpackedEdges.add(edge);
+        if (unpack)
+            super.addEdge(edge);
+    }
+
+    /**
+     * Unpacks the specified edge which is traveled from the node 'from' to the node 'to' via the
+     * prepared unpacking data of the level graph.
+     */
+    private void unpackEdge( int edge, int from, int to )
+    {
+        if (!levelGraph.isShortcut(edge))
+        {
+            EdgeIteratorState edgeState = routingGraph.getEdgeProps(edge, to);
+            double dist = edgeState.getDistance();
+            distance += dist;
+            millis += calcMillis(dist, edgeState.getFlags(), false);
+            addEdge(edge);
+            return;
+        }
+
+        int middle = levelGraph.getSkippedNode(edge);
+        if (middle < 0)
+        {
+            expandEdge((EdgeSkipIterState) routingGraph.getEdgeProps(edge, to), false);
+            return;
+        }
+
+        int fromEdge = levelGraph.getSkippedEdge(edge, from);
+        int toEdge = levelGraph.getSkippedEdge(edge, to);
+        if (reverseOrder)
+        {
+            unpackEdge(toEdge, middle, to);
+            unpackEdge(fromEdge, from, middle);
+        } else
+        {
+            unpackEdge(fromEdge, from, middle);
+            unpackEdge(toEdge, middle, to);
+        }
     }
 
     private void expandEdge( EdgeSkipIterState mainEdgeState, boolean reverse )
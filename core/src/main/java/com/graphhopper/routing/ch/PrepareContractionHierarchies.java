@@ -30,10 +30,16 @@ import com.graphhopper.storage.DAType;
 import com.graphhopper.storage.GHDirectory;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.LevelGraph;
-import com.graphhopper.storage.LevelGraphStorage;
 import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.util.*;
+import gnu.trove.list.array.TIntArrayList;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -55,48 +61,50 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
     private final PreparationWeighting prepareWeighting;
     private final FlagEncoder prepareFlagEncoder;
     private final TraversalMode traversalMode;
-    private EdgeSkipExplorer vehicleInExplorer;
     private EdgeSkipExplorer vehicleOutExplorer;
     private EdgeSkipExplorer vehicleAllExplorer;
     private EdgeSkipExplorer vehicleAllTmpExplorer;
-    private EdgeSkipExplorer calcPrioAllExplorer;
+    private EdgeFilter accessWithLevelFilter;
     private final LevelEdgeFilter levelFilter;
     private int maxLevel;
     private final LevelGraph prepareGraph;
+    // the access flags of shortcuts in the bit layout of the prepared vehicle
+    private final long scOneDir;
+    private final long scBothDir;
 
     // the most important nodes comes last
     private GHTreeMapComposed sortedNodes;
     private int oldPriorities[];
     private final DataAccess originalEdges;
-    private final Map<Shortcut, Shortcut> shortcuts = new HashMap<Shortcut, Shortcut>();
-    private IgnoreNodeFilter ignoreNodeFilter;
-    private DijkstraOneToMany prepareAlgo;
+    // one witness search per thread, the first one is used for the sequential parts
+    private NodeContractor[] contractors;
+    private ExecutorService executorService;
+    private int threads = 1;
     private long counter;
     private int newShortcuts;
-    private long dijkstraCount;
     private double meanDegree;
     private final Random rand = new Random(123);
-    private StopWatch dijkstraSW = new StopWatch();
     private final StopWatch allSW = new StopWatch();
+    // the number of nodes taken from the priority queue per round and thread
+    private static final int ROUND_SIZE_PER_THREAD = 16;
     private int periodicUpdatesPercentage = 20;
     private int lastNodesLazyUpdatePercentage = 10;
     private int neighborUpdatePercentage = 20;
     private int initialCollectionSize = 5000;
     private double nodesContractedPercentage = 100;
     private double logMessagesPercentage = 20;
+    private final SearchStatePool statePool = new SearchStatePool();
+    private ShortcutUnpackCache unpackCache;
 
     public PrepareContractionHierarchies( LevelGraph g, FlagEncoder encoder, Weighting weighting, TraversalMode traversalMode )
     {
         this.prepareGraph = g;
         this.traversalMode = traversalMode;
         this.prepareFlagEncoder = encoder;
-        long scFwdDir = encoder.setAccess(0, true, false);
+        scOneDir = encoder.setAccess(0, true, false);
+        scBothDir = encoder.setAccess(0, true, true);
         levelFilter = new LevelEdgeFilter(prepareGraph);
 
-        // shortcuts store weight in flags where we assume bit 1 and 2 are used for access restriction
-        if ((scFwdDir & PrepareEncoder.getScFwdDir()) == 0)
-            throw new IllegalArgumentException("Enabling the speed-up mode is currently only supported for the first vehicle.");
-
         prepareWeighting = new PreparationWeighting(weighting);
         originalEdges = new GHDirectory("", DAType.RAM_INT).find("original_edges");
         originalEdges.create(1000);
@@ -162,6 +170,31 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
         return this;
     }
 
+    /**
+     * Specifies how many threads should contract the nodes. With more than one thread independent
+     * sets of nodes are contracted in rounds, see contractNodesInParallel. The result is
+     * deterministic for the same number of threads.
+     */
+    public PrepareContractionHierarchies setThreads( int threads )
+    {
+        if (threads < 1)
+            return this;
+
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Keeps the original edges of the specified number of recently unpacked shortcuts in memory so
+     * that the path extraction of popular routes does not need to unpack them again. 0 disables
+     * the cache, which is the default.
+     */
+    public PrepareContractionHierarchies setUnpackCacheSize( int entries )
+    {
+        unpackCache = entries > 0 ? new ShortcutUnpackCache(entries) : null;
+        return this;
+    }
+
     /**
      * Define how many nodes (percentage) should be contracted. Less nodes means slower query but
      * faster contraction duration. Not yet ready for prime time.
@@ -200,10 +233,28 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
         if (!prepareEdges())
             return;
 
-        if (!prepareNodes())
-            return;
+        if (threads > 1)
+            executorService = Executors.newFixedThreadPool(threads);
+
+        try
+        {
+            if (!prepareNodes())
+                return;
 
-        contractNodes();
+            if (executorService == null)
+                contractNodes();
+            else
+                contractNodesInParallel();
+
+            prepareGraph.prepareUnpacking();
+        } finally
+        {
+            if (executorService != null)
+            {
+                executorService.shutdownNow();
+                executorService = null;
+            }
+        }
     }
 
     boolean prepareEdges()
@@ -226,10 +277,15 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
             prepareGraph.setLevel(node, maxLevel);
         }
 
+        TIntArrayList allNodes = new TIntArrayList(nodes);
         for (int node = 0; node < nodes; node++)
         {
-            int priority = oldPriorities[node] = calculatePriority(node);
-            sortedNodes.insert(node, priority);
+            allNodes.add(node);
+        }
+        calculatePriorities(allNodes);
+        for (int node = 0; node < nodes; node++)
+        {
+            sortedNodes.insert(node, oldPriorities[node]);
         }
 
         if (sortedNodes.isEmpty())
@@ -238,6 +294,84 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
         return true;
     }
 
+    /**
+     * Calculates the priorities of the specified nodes and stores them in oldPriorities. This is
+     * done in parallel if a thread pool is available.
+     */
+    void calculatePriorities( final TIntArrayList nodes )
+    {
+        runInParallel(nodes.size(), new NodeTask()
+        {
+            @Override
+            public void run( NodeContractor contractor, int index )
+            {
+                int node = nodes.get(index);
+                oldPriorities[node] = contractor.calculatePriority(node);
+            }
+        });
+    }
+
+    interface NodeTask
+    {
+        void run( NodeContractor contractor, int index );
+    }
+
+    /**
+     * Calls the task for every index in [0, count). The graph must not be modified by the task.
+     * Every thread picks the next index and uses its own NodeContractor, so the task must only
+     * write to the specified index to make the result independent of the scheduling.
+     */
+    private void runInParallel( final int count, final NodeTask task )
+    {
+        if (executorService == null || count < 2)
+        {
+            for (int i = 0; i < count; i++)
+            {
+                task.run(contractors[0], i);
+            }
+            return;
+        }
+
+        final AtomicInteger nextIndex = new AtomicInteger();
+        int workers = Math.min(threads, count);
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(workers);
+        for (int t = 0; t < workers; t++)
+        {
+            final NodeContractor contractor = contractors[t];
+            tasks.add(new Callable<Object>()
+            {
+                @Override
+                public Object call()
+                {
+                    int index;
+                    while ((index = nextIndex.getAndIncrement()) < count)
+                    {
+                        task.run(contractor, index);
+                    }
+                    return null;
+                }
+            });
+        }
+
+        try
+        {
+            for (Future<Object> future : executorService.invokeAll(tasks))
+            {
+                future.get();
+            }
+        } catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Contraction was interrupted", ex);
+        } catch (ExecutionException ex)
+        {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+
+            throw new RuntimeException(ex.getCause());
+        }
+    }
+
     void contractNodes()
     {
         meanDegree = prepareGraph.getAllEdges().getCount() / prepareGraph.getNodes();
@@ -275,7 +409,6 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
             neighborUpdate = false;
 
         StopWatch neighborSW = new StopWatch();
-        LevelGraphStorage levelGraphCast = ((LevelGraphStorage) prepareGraph);
         while (!sortedNodes.isEmpty())
         {
             // periodically update priorities of ALL nodes            
@@ -303,15 +436,15 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
                 logger.info(Helper.nf(counter) + ", updates:" + updateCounter
                         + ", nodes: " + Helper.nf(sortedNodes.getSize())
                         + ", shortcuts:" + Helper.nf(newShortcuts)
-                        + ", dijkstras:" + Helper.nf(dijkstraCount)
-                        + ", t(dijk):" + (int) dijkstraSW.getSeconds()
+                        + ", dijkstras:" + Helper.nf(getDijkstraCount())
+                        + ", t(dijk):" + (int) getDijkstraSeconds()
                         + ", t(period):" + (int) periodSW.getSeconds()
                         + ", t(lazy):" + (int) lazySW.getSeconds()
                         + ", t(neighbor):" + (int) neighborSW.getSeconds()
                         + ", meanDegree:" + (long) meanDegree
-                        + ", algo:" + prepareAlgo.getMemoryUsageAsString()
+                        + ", algo:" + contractors[0].prepareAlgo.getMemoryUsageAsString()
                         + ", " + Helper.getMemInfo());
-                dijkstraSW = new StopWatch();
+                resetDijkstraWatches();
                 periodSW = new StopWatch();
                 lazySW = new StopWatch();
                 neighborSW = new StopWatch();
@@ -360,7 +493,7 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
                     neighborSW.stop();
                 }
 
-                levelGraphCast.disconnect(vehicleAllTmpExplorer, iter);
+                prepareGraph.disconnect(vehicleAllTmpExplorer, iter);
             }
         }
 
@@ -371,8 +504,8 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
                 + ", new shortcuts: " + newShortcuts
                 + ", " + prepareWeighting
                 + ", " + prepareFlagEncoder
-                + ", dijkstras:" + dijkstraCount
-                + ", t(dijk):" + (int) dijkstraSW.getSeconds()
+                + ", dijkstras:" + getDijkstraCount()
+                + ", t(dijk):" + (int) getDijkstraSeconds()
                 + ", t(period):" + (int) periodSW.getSeconds()
                 + ", t(lazy):" + (int) lazySW.getSeconds()
                 + ", t(neighbor):" + (int) neighborSW.getSeconds()
@@ -384,15 +517,300 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
                 + ", " + Helper.getMemInfo());
     }
 
+    /**
+     * Contracts the nodes in rounds. Every round takes the next nodes from the priority queue and
+     * selects an independent set of them, i.e. no two nodes are in the same 2-hop neighbourhood.
+     * Then the witness searches of this set run in parallel while ignoring all nodes of the set and
+     * the found shortcuts are added in the order of the priorities. As only the graph is read while
+     * running in parallel the result does not depend on the scheduling but only on the number of
+     * threads, which determines the size of a round.
+     */
+    void contractNodesInParallel()
+    {
+        meanDegree = prepareGraph.getAllEdges().getCount() / prepareGraph.getNodes();
+        int level = 1;
+        counter = 0;
+        int initSize = sortedNodes.getSize();
+        long logSize = Math.round(Math.max(10, sortedNodes.getSize() / 100 * logMessagesPercentage));
+        if (logMessagesPercentage == 0)
+            logSize = Integer.MAX_VALUE;
+
+        long nextLog = 0;
+        boolean periodicUpdate = periodicUpdatesPercentage != 0;
+        long periodicUpdatesCount = Math.round(Math.max(10, sortedNodes.getSize() / 100d * periodicUpdatesPercentage));
+        long nextPeriodicUpdate = periodicUpdatesCount;
+        int updateCounter = 0;
+        long lastNodesLazyUpdates = lastNodesLazyUpdatePercentage == 0
+                ? 0L
+                : Math.round(sortedNodes.getSize() / 100d * lastNodesLazyUpdatePercentage);
+        long nodesToAvoidContract = Math.round((100 - nodesContractedPercentage) / 100 * sortedNodes.getSize());
+        boolean neighborUpdate = neighborUpdatePercentage != 0;
+        StopWatch periodSW = new StopWatch();
+        StopWatch lazySW = new StopWatch();
+        StopWatch neighborSW = new StopWatch();
+        StopWatch witnessSW = new StopWatch();
+
+        int nodes = prepareGraph.getNodes();
+        // the last round in which the node or one of its neighbors was selected
+        int[] selectedMarks = new int[nodes];
+        // the last round in which the node was added to the neighbor updates
+        int[] updateMarks = new int[nodes];
+        int roundSize = threads * ROUND_SIZE_PER_THREAD;
+        TIntArrayList candidates = new TIntArrayList(roundSize);
+        TIntArrayList postponed = new TIntArrayList(roundSize);
+        final TIntArrayList roundNodes = new TIntArrayList(roundSize);
+        TIntArrayList updateNodes = new TIntArrayList();
+        TIntArrayList updatePriorities = new TIntArrayList();
+        final List<Collection<Shortcut>> roundShortcuts = new ArrayList<Collection<Shortcut>>(roundSize);
+        final long[] degreeCounters = new long[roundSize];
+        int round = 0;
+        while (!sortedNodes.isEmpty())
+        {
+            // periodically update priorities of ALL nodes
+            if (periodicUpdate && counter >= nextPeriodicUpdate)
+            {
+                periodSW.start();
+                nextPeriodicUpdate = counter + periodicUpdatesCount;
+                sortedNodes.clear();
+                updateNodes.resetQuick();
+                for (int node = 0; node < nodes; node++)
+                {
+                    if (prepareGraph.getLevel(node) == maxLevel)
+                        updateNodes.add(node);
+                }
+                calculatePriorities(updateNodes);
+                for (int i = 0; i < updateNodes.size(); i++)
+                {
+                    int node = updateNodes.get(i);
+                    sortedNodes.insert(node, oldPriorities[node]);
+                }
+                periodSW.stop();
+                updateCounter++;
+                if (sortedNodes.isEmpty())
+                    throw new IllegalStateException("Cannot prepare as no unprepared nodes where found. Called preparation twice?");
+            }
+
+            if (counter >= nextLog)
+            {
+                nextLog = counter + logSize;
+                logger.info(Helper.nf(counter) + ", rounds:" + round
+                        + ", updates:" + updateCounter
+                        + ", nodes: " + Helper.nf(sortedNodes.getSize())
+                        + ", shortcuts:" + Helper.nf(newShortcuts)
+                        + ", dijkstras:" + Helper.nf(getDijkstraCount())
+                        + ", t(witness):" + (int) witnessSW.getSeconds()
+                        + ", t(period):" + (int) periodSW.getSeconds()
+                        + ", t(lazy):" + (int) lazySW.getSeconds()
+                        + ", t(neighbor):" + (int) neighborSW.getSeconds()
+                        + ", meanDegree:" + (long) meanDegree
+                        + ", threads:" + threads
+                        + ", " + Helper.getMemInfo());
+                witnessSW = new StopWatch();
+                periodSW = new StopWatch();
+                lazySW = new StopWatch();
+                neighborSW = new StopWatch();
+            }
+
+            round++;
+            candidates.resetQuick();
+            while (candidates.size() < roundSize && !sortedNodes.isEmpty())
+            {
+                candidates.add(sortedNodes.pollKey());
+            }
+
+            boolean lazyUpdate = sortedNodes.getSize() < lastNodesLazyUpdates;
+            if (lazyUpdate)
+            {
+                lazySW.start();
+                calculatePriorities(candidates);
+                lazySW.stop();
+            }
+
+            roundNodes.resetQuick();
+            postponed.resetQuick();
+            for (int i = 0; i < candidates.size(); i++)
+            {
+                int node = candidates.get(i);
+                if (lazyUpdate && !sortedNodes.isEmpty() && oldPriorities[node] > sortedNodes.peekValue())
+                {
+                    // current node got more important => insert as new value and contract it later
+                    postponed.add(node);
+                    continue;
+                }
+
+                if (!isIndependent(node, selectedMarks, round))
+                {
+                    postponed.add(node);
+                    continue;
+                }
+
+                selectedMarks[node] = round;
+                EdgeIterator iter = vehicleAllExplorer.setBaseNode(node);
+                while (iter.next())
+                {
+                    selectedMarks[iter.getAdjNode()] = round;
+                }
+                roundNodes.add(node);
+            }
+
+            for (int i = 0; i < postponed.size(); i++)
+            {
+                int node = postponed.get(i);
+                sortedNodes.insert(node, oldPriorities[node]);
+            }
+
+            // the witness searches must not use a node of this round
+            for (int i = 0; i < roundNodes.size(); i++)
+            {
+                prepareGraph.setLevel(roundNodes.get(i), level);
+                level++;
+            }
+
+            // contract!
+            witnessSW.start();
+            roundShortcuts.clear();
+            for (int i = 0; i < roundNodes.size(); i++)
+            {
+                roundShortcuts.add(null);
+            }
+            runInParallel(roundNodes.size(), new NodeTask()
+            {
+                @Override
+                public void run( NodeContractor contractor, int index )
+                {
+                    roundShortcuts.set(index, new ArrayList<Shortcut>(contractor.findShortcuts(roundNodes.get(index))));
+                    degreeCounters[index] = contractor.degreeCounter;
+                }
+            });
+            witnessSW.stop();
+
+            for (int i = 0; i < roundNodes.size(); i++)
+            {
+                newShortcuts += addShortcuts(roundShortcuts.get(i));
+                updateMeanDegree(degreeCounters[i]);
+            }
+            counter += roundNodes.size();
+
+            if (sortedNodes.getSize() < nodesToAvoidContract)
+                // skipped nodes are already set to maxLevel
+                break;
+
+            updateNodes.resetQuick();
+            updatePriorities.resetQuick();
+            for (int i = 0; i < roundNodes.size(); i++)
+            {
+                EdgeSkipIterator iter = vehicleAllExplorer.setBaseNode(roundNodes.get(i));
+                while (iter.next())
+                {
+                    int nn = iter.getAdjNode();
+                    if (prepareGraph.getLevel(nn) != maxLevel)
+                        continue;
+
+                    if (neighborUpdate && rand.nextInt(100) < neighborUpdatePercentage && updateMarks[nn] != round)
+                    {
+                        updateMarks[nn] = round;
+                        updateNodes.add(nn);
+                        updatePriorities.add(oldPriorities[nn]);
+                    }
+
+                    prepareGraph.disconnect(vehicleAllTmpExplorer, iter);
+                }
+            }
+
+            if (!updateNodes.isEmpty())
+            {
+                neighborSW.start();
+                calculatePriorities(updateNodes);
+                for (int i = 0; i < updateNodes.size(); i++)
+                {
+                    int nn = updateNodes.get(i);
+                    int oldPrio = updatePriorities.get(i);
+                    if (oldPriorities[nn] != oldPrio)
+                        sortedNodes.update(nn, oldPrio, oldPriorities[nn]);
+                }
+                neighborSW.stop();
+            }
+        }
+
+        close();
+        logger.info("took:" + (int) allSW.stop().getSeconds()
+                + ", new shortcuts: " + newShortcuts
+                + ", " + prepareWeighting
+                + ", " + prepareFlagEncoder
+                + ", rounds:" + round
+                + ", threads:" + threads
+                + ", dijkstras:" + getDijkstraCount()
+                + ", t(witness):" + (int) witnessSW.getSeconds()
+                + ", t(period):" + (int) periodSW.getSeconds()
+                + ", t(lazy):" + (int) lazySW.getSeconds()
+                + ", t(neighbor):" + (int) neighborSW.getSeconds()
+                + ", meanDegree:" + (long) meanDegree
+                + ", initSize:" + initSize
+                + ", periodic:" + periodicUpdatesPercentage
+                + ", lazy:" + lastNodesLazyUpdatePercentage
+                + ", neighbor:" + neighborUpdatePercentage
+                + ", " + Helper.getMemInfo());
+    }
+
+    /**
+     * @return true if neither the node nor one of its neighbors was selected in this round, i.e.
+     * the node does not share a neighbor with an already selected node.
+     */
+    private boolean isIndependent( int node, int[] selectedMarks, int round )
+    {
+        if (selectedMarks[node] == round)
+            return false;
+
+        EdgeIterator iter = vehicleAllExplorer.setBaseNode(node);
+        while (iter.next())
+        {
+            if (selectedMarks[iter.getAdjNode()] == round)
+                return false;
+        }
+        return true;
+    }
+
     public void close()
     {
-        prepareAlgo.close();
+        for (NodeContractor contractor : contractors)
+        {
+            contractor.prepareAlgo.close();
+        }
         originalEdges.close();
         sortedNodes = null;
         oldPriorities = null;
     }
-    AddShortcutHandler addScHandler = new AddShortcutHandler();
-    CalcShortcutHandler calcScHandler = new CalcShortcutHandler();
+
+    private long getDijkstraCount()
+    {
+        long sum = 0;
+        for (NodeContractor contractor : contractors)
+        {
+            sum += contractor.dijkstraCount;
+        }
+        return sum;
+    }
+
+    /**
+     * @return the time of the witness searches summed over all threads
+     */
+    private double getDijkstraSeconds()
+    {
+        double sum = 0;
+        for (NodeContractor contractor : contractors)
+        {
+            sum += contractor.dijkstraSW.getSeconds();
+        }
+        return sum;
+    }
+
+    private void resetDijkstraWatches()
+    {
+        for (NodeContractor contractor : contractors)
+        {
+            contractor.dijkstraSW = new StopWatch();
+        }
+    }
 
     interface ShortcutHandler
     {
@@ -437,10 +855,12 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
 
     class AddShortcutHandler implements ShortcutHandler
     {
+        private final Map<Shortcut, Shortcut> shortcuts;
         int node;
 
-        public AddShortcutHandler()
+        public AddShortcutHandler( Map<Shortcut, Shortcut> shortcuts )
         {
+            this.shortcuts = shortcuts;
         }
 
         @Override
@@ -478,7 +898,7 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
                 // overwrite flags only if skipped edges are identical
                 if (tmpRetSc.skippedEdge2 == skippedEdge1 && tmpRetSc.skippedEdge1 == outgoingEdges.getEdge())
                 {
-                    tmpRetSc.flags = PrepareEncoder.getScDirMask();
+                    tmpRetSc.flags = scBothDir;
                     return;
                 }
             }
@@ -492,142 +912,198 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
 
     Set<Shortcut> testFindShortcuts( int node )
     {
-        findShortcuts(addScHandler.setNode(node));
-        return shortcuts.keySet();
+        return contractors[0].findShortcuts(node);
+    }
+
+    int calculatePriority( int v )
+    {
+        return contractors[0].calculatePriority(v);
     }
 
     /**
-     * Calculates the priority of adjNode v without changing the graph. Warning: the calculated
-     * priority must NOT depend on priority(v) and therefor findShortcuts should also not depend on
-     * the priority(v). Otherwise updating the priority before contracting in contractNodes() could
-     * lead to a slowishor even endless loop.
+     * Does the witness searches to find the shortcuts of a node and to calculate its priority. It
+     * only reads the graph so every thread can use its own instance while the graph is not changed.
      */
-    int calculatePriority( int v )
+    class NodeContractor
     {
-        // set of shortcuts that would be added if adjNode v would be contracted next.
-        findShortcuts(calcScHandler.setNode(v));
-
-//        System.out.println(v + "\t " + tmpShortcuts);
-        // # huge influence: the bigger the less shortcuts gets created and the faster is the preparation
-        //
-        // every adjNode has an 'original edge' number associated. initially it is r=1
-        // when a new shortcut is introduced then r of the associated edges is summed up:
-        // r(u,w)=r(u,v)+r(v,w) now we can define
-        // originalEdgesCount = σ(v) := sum_{ (u,w) ∈ shortcuts(v) } of r(u, w)
-        int originalEdgesCount = calcScHandler.originalEdgesCount;
-//        for (Shortcut sc : tmpShortcuts) {
-//            originalEdgesCount += sc.originalEdges;
-//        }
-
-        // # lowest influence on preparation speed or shortcut creation count 
-        // (but according to paper should speed up queries)
-        //
-        // number of already contracted neighbors of v
-        int contractedNeighbors = 0;
-        int degree = 0;
-        EdgeSkipIterator iter = calcPrioAllExplorer.setBaseNode(v);
-        while (iter.next())
+        private final EdgeSkipExplorer inExplorer;
+        private final EdgeSkipExplorer outExplorer;
+        private final EdgeSkipExplorer calcPrioAllExplorer;
+        private final IgnoreNodeFilter ignoreNodeFilter;
+        private final DijkstraOneToMany prepareAlgo;
+        private final Map<Shortcut, Shortcut> shortcuts = new HashMap<Shortcut, Shortcut>();
+        private final AddShortcutHandler addScHandler = new AddShortcutHandler(shortcuts);
+        private final CalcShortcutHandler calcScHandler = new CalcShortcutHandler();
+        private long dijkstraCount;
+        private StopWatch dijkstraSW = new StopWatch();
+        // the number of incoming edges which were explored in the last findShortcuts call
+        private long degreeCounter;
+
+        NodeContractor()
         {
-            degree++;
-            if (iter.isShortcut())
-                contractedNeighbors++;
+            inExplorer = prepareGraph.createEdgeExplorer(new DefaultEdgeFilter(prepareFlagEncoder, true, false));
+            outExplorer = prepareGraph.createEdgeExplorer(new DefaultEdgeFilter(prepareFlagEncoder, false, true));
+            calcPrioAllExplorer = prepareGraph.createEdgeExplorer(accessWithLevelFilter);
+            ignoreNodeFilter = new IgnoreNodeFilter(prepareGraph, maxLevel);
+            prepareAlgo = new DijkstraOneToMany(prepareGraph, prepareFlagEncoder, prepareWeighting, traversalMode);
         }
 
-        // from shortcuts we can compute the edgeDifference
-        // # low influence: with it the shortcut creation is slightly faster
-        //
-        // |shortcuts(v)| − |{(u, v) | v uncontracted}| − |{(v, w) | v uncontracted}|        
-        // meanDegree is used instead of outDegree+inDegree as if one adjNode is in both directions
-        // only one bucket memory is used. Additionally one shortcut could also stand for two directions.
-        int edgeDifference = calcScHandler.shortcuts - degree;
+        /**
+         * @return the shortcuts which are necessary if node v is contracted next. The returned set
+         * is reused in the next call.
+         */
+        Set<Shortcut> findShortcuts( int v )
+        {
+            shortcuts.clear();
+            findShortcuts(addScHandler.setNode(v));
+            return shortcuts.keySet();
+        }
 
-        // according to the paper do a simple linear combination of the properties to get the priority.
-        // this is the current optimum for unterfranken:
-        return 10 * edgeDifference + originalEdgesCount + contractedNeighbors;
-    }
+        /**
+         * Calculates the priority of adjNode v without changing the graph. Warning: the calculated
+         * priority must NOT depend on priority(v) and therefor findShortcuts should also not depend on
+         * the priority(v). Otherwise updating the priority before contracting in contractNodes() could
+         * lead to a slowishor even endless loop.
+         */
+        int calculatePriority( int v )
+        {
+            // set of shortcuts that would be added if adjNode v would be contracted next.
+            findShortcuts(calcScHandler.setNode(v));
+
+    //        System.out.println(v + "\t " + tmpShortcuts);
+            // # huge influence: the bigger the less shortcuts gets created and the faster is the preparation
+            //
+            // every adjNode has an 'original edge' number associated. initially it is r=1
+            // when a new shortcut is introduced then r of the associated edges is summed up:
+            // r(u,w)=r(u,v)+r(v,w) now we can define
+            // originalEdgesCount = σ(v) := sum_{ (u,w) ∈ shortcuts(v) } of r(u, w)
+            int originalEdgesCount = calcScHandler.originalEdgesCount;
+    //        for (Shortcut sc : tmpShortcuts) {
+    //            originalEdgesCount += sc.originalEdges;
+    //        }
+
+            // # lowest influence on preparation speed or shortcut creation count 
+            // (but according to paper should speed up queries)
+            //
+            // number of already contracted neighbors of v
+            int contractedNeighbors = 0;
+            int degree = 0;
+            EdgeSkipIterator iter = calcPrioAllExplorer.setBaseNode(v);
+            while (iter.next())
+            {
+                degree++;
+                if (iter.isShortcut())
+                    contractedNeighbors++;
+            }
 
-    /**
-     * Finds shortcuts, does not change the underlying graph.
-     */
-    void findShortcuts( ShortcutHandler sch )
-    {
-        long tmpDegreeCounter = 0;
-        EdgeIterator incomingEdges = vehicleInExplorer.setBaseNode(sch.getNode());
-        // collect outgoing nodes (goal-nodes) only once
-        while (incomingEdges.next())
-        {
-            int u_fromNode = incomingEdges.getAdjNode();
-            // accept only uncontracted nodes
-            if (prepareGraph.getLevel(u_fromNode) != maxLevel)
-                continue;
-
-            double v_u_dist = incomingEdges.getDistance();
-            double v_u_weight = prepareWeighting.calcWeight(incomingEdges, true, EdgeIterator.NO_EDGE);
-            int skippedEdge1 = incomingEdges.getEdge();
-            int incomingEdgeOrigCount = getOrigEdgeCount(skippedEdge1);
+            // from shortcuts we can compute the edgeDifference
+            // # low influence: with it the shortcut creation is slightly faster
+            //
+            // |shortcuts(v)| − |{(u, v) | v uncontracted}| − |{(v, w) | v uncontracted}|        
+            // meanDegree is used instead of outDegree+inDegree as if one adjNode is in both directions
+            // only one bucket memory is used. Additionally one shortcut could also stand for two directions.
+            int edgeDifference = calcScHandler.shortcuts - degree;
+
+            // according to the paper do a simple linear combination of the properties to get the priority.
+            // this is the current optimum for unterfranken:
+            return 10 * edgeDifference + originalEdgesCount + contractedNeighbors;
+        }
+
+        /**
+         * Finds shortcuts, does not change the underlying graph.
+         */
+        void findShortcuts( ShortcutHandler sch )
+        {
+            long tmpDegreeCounter = 0;
+            EdgeIterator incomingEdges = inExplorer.setBaseNode(sch.getNode());
             // collect outgoing nodes (goal-nodes) only once
-            EdgeIterator outgoingEdges = vehicleOutExplorer.setBaseNode(sch.getNode());
-            // force fresh maps etc as this cannot be determined by from node alone (e.g. same from node but different avoidNode)
-            prepareAlgo.clear();
-            tmpDegreeCounter++;
-            while (outgoingEdges.next())
+            while (incomingEdges.next())
             {
-                int w_toNode = outgoingEdges.getAdjNode();
-                // add only uncontracted nodes
-                if (prepareGraph.getLevel(w_toNode) != maxLevel || u_fromNode == w_toNode)
+                int u_fromNode = incomingEdges.getAdjNode();
+                // accept only uncontracted nodes
+                if (prepareGraph.getLevel(u_fromNode) != maxLevel)
                     continue;
 
-                // Limit weight as ferries or forbidden edges can increase local search too much.
-                // If we decrease the correct weight we only explore less and introduce more shortcuts.
-                // I.e. no change to accuracy is made.
-                double existingDirectWeight = v_u_weight + prepareWeighting.calcWeight(outgoingEdges, false, incomingEdges.getEdge());
-                if (Double.isNaN(existingDirectWeight))
-                    throw new IllegalStateException("Weighting should never return NaN values"
-                            + ", in:" + getCoords(incomingEdges, prepareGraph) + ", out:" + getCoords(outgoingEdges, prepareGraph)
-                            + ", dist:" + outgoingEdges.getDistance() + ", speed:" + prepareFlagEncoder.getSpeed(outgoingEdges.getFlags()));
+                double v_u_dist = incomingEdges.getDistance();
+                double v_u_weight = prepareWeighting.calcWeight(incomingEdges, true, EdgeIterator.NO_EDGE);
+                int skippedEdge1 = incomingEdges.getEdge();
+                int incomingEdgeOrigCount = getOrigEdgeCount(skippedEdge1);
+                // collect outgoing nodes (goal-nodes) only once
+                EdgeIterator outgoingEdges = outExplorer.setBaseNode(sch.getNode());
+                // force fresh maps etc as this cannot be determined by from node alone (e.g. same from node but different avoidNode)
+                prepareAlgo.clear();
+                tmpDegreeCounter++;
+                while (outgoingEdges.next())
+                {
+                    int w_toNode = outgoingEdges.getAdjNode();
+                    // add only uncontracted nodes
+                    if (prepareGraph.getLevel(w_toNode) != maxLevel || u_fromNode == w_toNode)
+                        continue;
 
-                if (Double.isInfinite(existingDirectWeight))
-                    continue;
+                    // Limit weight as ferries or forbidden edges can increase local search too much.
+                    // If we decrease the correct weight we only explore less and introduce more shortcuts.
+                    // I.e. no change to accuracy is made.
+                    double existingDirectWeight = v_u_weight + prepareWeighting.calcWeight(outgoingEdges, false, incomingEdges.getEdge());
+                    if (Double.isNaN(existingDirectWeight))
+                        throw new IllegalStateException("Weighting should never return NaN values"
+                                + ", in:" + getCoords(incomingEdges, prepareGraph) + ", out:" + getCoords(outgoingEdges, prepareGraph)
+                                + ", dist:" + outgoingEdges.getDistance() + ", speed:" + prepareFlagEncoder.getSpeed(outgoingEdges.getFlags()));
 
-                double existingDistSum = v_u_dist + outgoingEdges.getDistance();
-                prepareAlgo.setWeightLimit(existingDirectWeight);
-                prepareAlgo.setLimitVisitedNodes((int) meanDegree * 100)
-                        .setEdgeFilter(ignoreNodeFilter.setAvoidNode(sch.getNode()));
+                    if (Double.isInfinite(existingDirectWeight))
+                        continue;
 
-                dijkstraSW.start();
-                dijkstraCount++;
-                int endNode = prepareAlgo.findEndNode(u_fromNode, w_toNode);
-                dijkstraSW.stop();
+                    double existingDistSum = v_u_dist + outgoingEdges.getDistance();
+                    prepareAlgo.setWeightLimit(existingDirectWeight);
+                    prepareAlgo.setLimitVisitedNodes((int) meanDegree * 100)
+                            .setEdgeFilter(ignoreNodeFilter.setAvoidNode(sch.getNode()));
 
-                // compare end node as the limit could force dijkstra to finish earlier
-                if (endNode == w_toNode && prepareAlgo.getWeight(endNode) <= existingDirectWeight)
-                    // FOUND witness path, so do not add shortcut                
-                    continue;
+                    dijkstraSW.start();
+                    dijkstraCount++;
+                    int endNode = prepareAlgo.findEndNode(u_fromNode, w_toNode);
+                    dijkstraSW.stop();
+
+                    // compare end node as the limit could force dijkstra to finish earlier
+                    if (endNode == w_toNode && prepareAlgo.getWeight(endNode) <= existingDirectWeight)
+                        // FOUND witness path, so do not add shortcut                
+                        continue;
 
-                sch.foundShortcut(u_fromNode, w_toNode,
-                        existingDirectWeight, existingDistSum,
-                        outgoingEdges,
-                        skippedEdge1, incomingEdgeOrigCount);
+                    sch.foundShortcut(u_fromNode, w_toNode,
+                            existingDirectWeight, existingDistSum,
+                            outgoingEdges,
+                            skippedEdge1, incomingEdgeOrigCount);
+                }
             }
-        }
-        if (sch instanceof AddShortcutHandler)
-        {
-            // sliding mean value when using "*2" => slower changes
-            meanDegree = (meanDegree * 2 + tmpDegreeCounter) / 3;
-            // meanDegree = (meanDegree + tmpDegreeCounter) / 2;
+            degreeCounter = tmpDegreeCounter;
         }
     }
 
+    private void updateMeanDegree( long degreeCounter )
+    {
+        // sliding mean value when using "*2" => slower changes
+        meanDegree = (meanDegree * 2 + degreeCounter) / 3;
+        // meanDegree = (meanDegree + degreeCounter) / 2;
+    }
+
     /**
      * Introduces the necessary shortcuts for adjNode v in the graph.
      */
     int addShortcuts( int v )
     {
-        shortcuts.clear();
-        findShortcuts(addScHandler.setNode(v));
+        NodeContractor contractor = contractors[0];
+        Collection<Shortcut> tmpShortcuts = contractor.findShortcuts(v);
+        updateMeanDegree(contractor.degreeCounter);
+        return addShortcuts(tmpShortcuts);
+    }
+
+    /**
+     * Adds the specified shortcuts to the graph or updates existing shortcuts if the new ones are
+     * better.
+     */
+    int addShortcuts( Collection<Shortcut> tmpShortcuts )
+    {
         int tmpNewShortcuts = 0;
         NEXT_SC:
-        for (Shortcut sc : shortcuts.keySet())
+        for (Shortcut sc : tmpShortcuts)
         {
             boolean updatedInGraph = false;
             // check if we need to update some existing shortcut in the graph
@@ -635,7 +1111,7 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
             while (iter.next())
             {
                 if (iter.isShortcut() && iter.getAdjNode() == sc.to
-                        && PrepareEncoder.canBeOverwritten(iter.getFlags(), sc.flags))
+                        && PrepareEncoder.canBeOverwritten(iter.getFlags(), sc.flags, scBothDir))
                 {
                     if (sc.weight >= prepareWeighting.calcWeight(iter, false, EdgeIterator.NO_EDGE))
                         continue NEXT_SC;
@@ -651,7 +1127,6 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
                                 + ", neighbors:" + GHUtility.getNeighbors(iter));
                     }
 
-                    // note: flags overwrite weight => call first
                     iter.setFlags(sc.flags);
                     iter.setWeight(sc.weight);
                     iter.setDistance(sc.dist);
@@ -665,7 +1140,6 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
             if (!updatedInGraph)
             {
                 EdgeSkipIterState edgeState = prepareGraph.shortcut(sc.from, sc.to);
-                // note: flags overwrite weight => call first
                 edgeState.setFlags(sc.flags);
                 edgeState.setWeight(sc.weight);
                 edgeState.setDistance(sc.dist);
@@ -688,12 +1162,11 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
 
     PrepareContractionHierarchies initFromGraph()
     {
-        vehicleInExplorer = prepareGraph.createEdgeExplorer(new DefaultEdgeFilter(prepareFlagEncoder, true, false));
         vehicleOutExplorer = prepareGraph.createEdgeExplorer(new DefaultEdgeFilter(prepareFlagEncoder, false, true));
         final EdgeFilter allFilter = new DefaultEdgeFilter(prepareFlagEncoder, true, true);
 
         // filter by vehicle and level number
-        final EdgeFilter accessWithLevelFilter = new LevelEdgeFilter(prepareGraph)
+        accessWithLevelFilter = new LevelEdgeFilter(prepareGraph)
         {
             @Override
             public final boolean accept( EdgeIteratorState edgeState )
@@ -706,10 +1179,8 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
         };
 
         maxLevel = prepareGraph.getNodes() + 1;
-        ignoreNodeFilter = new IgnoreNodeFilter(prepareGraph, maxLevel);
         vehicleAllExplorer = prepareGraph.createEdgeExplorer(allFilter);
         vehicleAllTmpExplorer = prepareGraph.createEdgeExplorer(allFilter);
-        calcPrioAllExplorer = prepareGraph.createEdgeExplorer(accessWithLevelFilter);
 
         // Use an alternative to PriorityQueue as it has some advantages: 
         //   1. Gets automatically smaller if less entries are stored => less total RAM used. 
@@ -718,7 +1189,11 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
         //   but we need the additional oldPriorities array to keep the old value which is necessary for the update method
         sortedNodes = new GHTreeMapComposed();
         oldPriorities = new int[prepareGraph.getNodes()];
-        prepareAlgo = new DijkstraOneToMany(prepareGraph, prepareFlagEncoder, prepareWeighting, traversalMode);
+        contractors = new NodeContractor[threads];
+        for (int i = 0; i < threads; i++)
+        {
+            contractors[i] = new NodeContractor();
+        }
         return this;
     }
 
@@ -769,9 +1244,15 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
         return originalEdges.getInt(tmp);
     }
 
+    /**
+     * Creates a bidirectional algorithm which uses the shortcuts of this preparation. If the hint
+     * 'ch.unpack' of the options is false the shortcuts of the found path are not unpacked and
+     * only its weight, distance and time are calculated.
+     */
     @Override
     public RoutingAlgorithm createAlgo( Graph graph, AlgorithmOptions opts )
     {
+        final boolean unpack = opts.getHints().getBool("ch.unpack", true);
         AbstractBidirAlgo algo;
         if (AlgorithmOptions.ASTAR_BI.equals(opts.getAlgorithm()))
         {
@@ -791,18 +1272,19 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
                     if (finishedFrom && finishedTo)
                         return true;
 
-                    if (currFrom.weight + currTo.weight > weightLimit)
+                    if (getCurrFromWeight() + getCurrToWeight() > weightLimit)
                         return true;
 
                     // changed finish condition for CH
-                    return currFrom.weight >= bestPath.getWeight() && currTo.weight >= bestPath.getWeight();
+                    return getCurrFromWeight() >= bestPath.getWeight() && getCurrToWeight() >= bestPath.getWeight();
                 }
 
                 @Override
 
                 protected Path createAndInitPath()
                 {
-                    bestPath = new Path4CH(graph, graph.getBaseGraph(), flagEncoder);
+                    bestPath = new Path4CH(graph, graph.getBaseGraph(), flagEncoder).setUnpacking(prepareGraph, unpackCache).
+                            setUnpack(unpack);
                     return bestPath;
                 }
 
@@ -838,17 +1320,18 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
                     if (finishedFrom && finishedTo)
                         return true;
 
-                    if (currFrom.weight + currTo.weight > weightLimit)
+                    if (getCurrFromWeight() + getCurrToWeight() > weightLimit)
                         return true;
 
                     // changed also the final finish condition for CH                
-                    return currFrom.weight >= bestPath.getWeight() && currTo.weight >= bestPath.getWeight();
+                    return getCurrFromWeight() >= bestPath.getWeight() && getCurrToWeight() >= bestPath.getWeight();
                 }
 
                 @Override
                 protected Path createAndInitPath()
                 {
-                    bestPath = new Path4CH(graph, graph.getBaseGraph(), flagEncoder);
+                    bestPath = new Path4CH(graph, graph.getBaseGraph(), flagEncoder).setUnpacking(prepareGraph, unpackCache).
+                            setUnpack(unpack);
                     return bestPath;
                 }
 
@@ -870,9 +1353,23 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
         }
 
         algo.setEdgeFilter(levelFilter);
+        algo.setSearchStatePool(statePool);
         return algo;
     }
 
+    /**
+     * Creates an algorithm to calculate distance and time tables between many locations with the
+     * help of the levels and shortcuts created from this preparation.
+     */
+    public ManyToManyCH createManyToMany( Graph graph )
+    {
+        if (traversalMode.isEdgeBased())
+            throw new UnsupportedOperationException("Traversal mode " + traversalMode + " not supported for many-to-many calculation");
+
+        return new ManyToManyCH(graph, graph.getBaseGraph(), prepareFlagEncoder, prepareWeighting, levelFilter).
+                setUnpacking(prepareGraph);
+    }
+
     private static class PriorityNode implements Comparable<PriorityNode>
     {
         int node;
@@ -906,7 +1403,7 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
         double dist;
         double weight;
         int originalEdges;
-        long flags = PrepareEncoder.getScFwdDir();
+        long flags = scOneDir;
 
         public Shortcut( int from, int to, double weight, double dist )
         {
@@ -943,7 +1440,7 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
         public String toString()
         {
             String str;
-            if (flags == PrepareEncoder.getScDirMask())
+            if (flags == scBothDir)
                 str = from + "<->";
             else
                 str = from + "->";
@@ -19,8 +19,9 @@
 package com.graphhopper.routing.ch;
 
 /**
- * The flags are stored differently for shortcuts: just a weight and the direction flags. Currently
- * it is not allowed to store multiple vehicles.
+ * The flags are stored differently for shortcuts: just a weight and the direction flags. The
+ * constants describe the direction flags of the first vehicle, for other vehicles the direction mask
+ * is encoder.setAccess(0, true, true).
  * <p>
  * @author Peter Karich
  */
@@ -55,7 +56,15 @@ public class PrepareEncoder
     // <->        f | f  | t
     public static final boolean canBeOverwritten( long flags1, long flags2 )
     {
-        return (flags2 & scDirMask) == scDirMask
-                || (flags1 & scDirMask) == (flags2 & scDirMask);
+        return canBeOverwritten(flags1, flags2, scDirMask);
+    }
+
+    /**
+     * Same as canBeOverwritten(flags1, flags2) but for the specified direction mask of a vehicle.
+     */
+    public static final boolean canBeOverwritten( long flags1, long flags2, long dirMask )
+    {
+        return (flags2 & dirMask) == dirMask
+                || (flags1 & dirMask) == (flags2 & dirMask);
     }
 }
@@ -0,0 +1,103 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded cache of fully unpacked shortcuts. It stores the original edge ids of a shortcut in
+ * travel direction together with the summed distance and time, so that hot shortcuts can be added
+ * to a path in linear time. Shared between all routing requests of one preparation.
+ * <p/>
+ * The cache is direct mapped: every key has exactly one slot and a new entry replaces the one
+ * stored in its slot, so recently unpacked shortcuts stay. The entries are immutable and stored
+ * with their primitive key in an AtomicReferenceArray, so neither reads nor writes lock or box.
+ * <p/>
+ * @author Peter Karich
+ */
+class ShortcutUnpackCache
+{
+    private final AtomicReferenceArray<Entry> slots;
+
+    ShortcutUnpackCache( int maxEntries )
+    {
+        if (maxEntries <= 0)
+            throw new IllegalArgumentException("Cache size must be positive but was " + maxEntries);
+
+        slots = new AtomicReferenceArray<Entry>(maxEntries);
+    }
+
+    /**
+     * @param reverse true if the shortcut is traveled from the higher to the lower node
+     */
+    static long createKey( int shortcutId, boolean reverse )
+    {
+        return ((long) shortcutId << 1) | (reverse ? 1 : 0);
+    }
+
+    private int getSlot( long key )
+    {
+        // spread the bits as shortcut ids of one area are often consecutive
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) ((h >>> 33) % slots.length());
+    }
+
+    /**
+     * @return the entry of the specified key or null if not cached
+     */
+    Entry get( long key )
+    {
+        Entry entry = slots.get(getSlot(key));
+        return entry != null && entry.key == key ? entry : null;
+    }
+
+    void put( Entry entry )
+    {
+        slots.set(getSlot(entry.key), entry);
+    }
+
+    /**
+     * @return the number of cached entries. O(maxEntries)
+     */
+    int size()
+    {
+        int size = 0;
+        for (int i = 0; i < slots.length(); i++)
+        {
+            if (slots.get(i) != null)
+                size++;
+        }
+        return size;
+    }
+
+    static class Entry
+    {
+        final long key;
+        final int[] edges;
+        final double distance;
+        final long millis;
+
+        Entry( long key, int[] edges, double distance, long millis )
+        {
+            this.key = key;
+            this.edges = edges;
+            this.distance = distance;
+            this.millis = millis;
+        }
+    }
+}
@@ -17,13 +17,16 @@
  */
 package com.graphhopper.routing.util;
 
-import com.graphhopper.coll.GHBitSet;
-import com.graphhopper.coll.GHBitSetImpl;
 import com.graphhopper.storage.GraphStorage;
 import com.graphhopper.util.*;
 import java.util.*;
-import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,10 +38,14 @@ import gnu.trove.list.array.TIntArrayList;
  * but also small subnetworks which are nearly always bugs in OSM data or indicate otherwise
  * disconnected areas e.g. via barriers - see #86.
  * <p/>
+ * The subnetworks are found via a union-find over all edges which can use several threads.
+ * <p/>
  * @author Peter Karich
  */
 public class PrepareRoutingSubnetworks
 {
+    // the nodes are distributed in chunks of this size to the threads
+    private static final int CHUNK_SIZE = 1 << 14;
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final GraphStorage g;
     private final EdgeFilter edgeFilter;
@@ -47,6 +54,7 @@ public class PrepareRoutingSubnetworks
     private int subNetworks = -1;
     private final AtomicInteger maxEdgesPerNode = new AtomicInteger(0);
     private FlagEncoder singleEncoder;
+    private int threads = 1;
 
     public PrepareRoutingSubnetworks( GraphStorage g, EncodingManager em )
     {
@@ -70,21 +78,41 @@ public class PrepareRoutingSubnetworks
         return this;
     }
 
+    /**
+     * Specifies how many threads should read the edges to find the subnetworks. The result does
+     * not depend on the number of threads.
+     */
+    public PrepareRoutingSubnetworks setThreads( int threads )
+    {
+        if (threads < 1)
+            return this;
+
+        this.threads = threads;
+        return this;
+    }
+
     public void doWork()
     {
         int del = removeZeroDegreeNodes();
-        Map<Integer, Integer> map = findSubnetworks();
-        keepLargeNetworks(map);
+        int[] subnetworkIds = findSubnetworkIds();
+        int[] sizes = countNodes(subnetworkIds);
+        int subnetworkCount = 0;
+        for (int node = 0; node < subnetworkIds.length; node++)
+        {
+            if (subnetworkIds[node] == node)
+                subnetworkCount++;
+        }
+        keepLargeNetworks(subnetworkIds, sizes);
 
         int unvisitedDeadEnds = -1;
         if ((this.minOneWayNetworkSize > 0) && singleEncoder != null)
             unvisitedDeadEnds = removeDeadEndUnvisitedNetworks(singleEncoder);
 
-        logger.info("optimize to remove subnetworks (" + map.size() + "), zero-degree-nodes (" + del + "), "
+        logger.info("optimize to remove subnetworks (" + subnetworkCount + "), zero-degree-nodes (" + del + "), "
                 + "unvisited-dead-end-nodes(" + unvisitedDeadEnds + "), "
                 + "maxEdges/node (" + maxEdgesPerNode.get() + ")");
         g.optimize();
-        subNetworks = map.size();
+        subNetworks = subnetworkCount;
     }
 
     public int getSubNetworks()
@@ -92,117 +120,208 @@ public class PrepareRoutingSubnetworks
         return subNetworks;
     }
 
+    /**
+     * @return the size of every subnetwork with the smallest node of the subnetwork as key
+     */
     public Map<Integer, Integer> findSubnetworks()
     {
-        return findSubnetworks(g.createEdgeExplorer(edgeFilter));
+        int[] subnetworkIds = findSubnetworkIds();
+        int[] sizes = countNodes(subnetworkIds);
+        Map<Integer, Integer> map = new HashMap<Integer, Integer>();
+        for (int node = 0; node < subnetworkIds.length; node++)
+        {
+            if (subnetworkIds[node] == node)
+                map.put(node, sizes[node]);
+        }
+        return map;
     }
 
-    private Map<Integer, Integer> findSubnetworks( final EdgeExplorer explorer )
+    /**
+     * Finds the subnetworks via a union-find where the edges of every node chunk are read by one of
+     * the threads. A set is always linked to the set with the smaller root node, which makes the
+     * result independent of the order in which the edges are processed.
+     * <p/>
+     * @return for every node the smallest node of its subnetwork or -1 if the node is removed
+     */
+    public int[] findSubnetworkIds()
     {
-        final Map<Integer, Integer> map = new HashMap<Integer, Integer>();
-        final AtomicInteger integ = new AtomicInteger(0);
-        int locs = g.getNodes();
-        final GHBitSet bs = new GHBitSetImpl(locs);
-        for (int start = 0; start < locs; start++)
+        final int nodes = g.getNodes();
+        final AtomicIntegerArray parents = new AtomicIntegerArray(nodes);
+        for (int node = 0; node < nodes; node++)
         {
-            if (g.isNodeRemoved(start) || bs.contains(start))
-                continue;
+            parents.set(node, node);
+        }
 
-            new BreadthFirstSearch()
+        final AtomicInteger nextChunk = new AtomicInteger();
+        final int chunks = (nodes + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        runInParallel(chunks, new Callable<Object>()
+        {
+            @Override
+            public Object call()
             {
-                int tmpCounter = 0;
-
-                @Override
-                protected GHBitSet createBitSet()
-                {
-                    return bs;
-                }
-
-                @Override
-                protected final boolean goFurther( int nodeId )
+                EdgeExplorer explorer = g.createEdgeExplorer(edgeFilter);
+                int maxEdges = 0;
+                int chunk;
+                while ((chunk = nextChunk.getAndIncrement()) < chunks)
                 {
-                    if (tmpCounter > maxEdgesPerNode.get())
-                        maxEdgesPerNode.set(tmpCounter);
+                    int to = Math.min(nodes, (chunk + 1) * CHUNK_SIZE);
+                    for (int node = chunk * CHUNK_SIZE; node < to; node++)
+                    {
+                        if (g.isNodeRemoved(node))
+                            continue;
 
-                    tmpCounter = 0;
-                    integ.incrementAndGet();
-                    return true;
+                        int edges = 0;
+                        EdgeIterator iter = explorer.setBaseNode(node);
+                        while (iter.next())
+                        {
+                            edges++;
+                            // every edge is seen from both nodes
+                            if (iter.getAdjNode() > node)
+                                union(parents, node, iter.getAdjNode());
+                        }
+                        maxEdges = Math.max(maxEdges, edges);
+                    }
                 }
 
-                @Override
-                protected final boolean checkAdjacent( EdgeIteratorState iter )
+                int prev;
+                while ((prev = maxEdgesPerNode.get()) < maxEdges
+                        && !maxEdgesPerNode.compareAndSet(prev, maxEdges))
                 {
-                    tmpCounter++;
-                    return true;
                 }
+                return null;
+            }
+        });
 
-            }.start(explorer, start);
-            map.put(start, integ.get());
-            integ.set(0);
+        int[] subnetworkIds = new int[nodes];
+        for (int node = 0; node < nodes; node++)
+        {
+            subnetworkIds[node] = g.isNodeRemoved(node) ? -1 : find(parents, node);
         }
-        return map;
+        return subnetworkIds;
     }
 
     /**
-     * Deletes all but the largest subnetworks.
+     * Runs the specified task on the configured number of threads, but not on more threads than
+     * the specified number of work items.
      */
-    void keepLargeNetworks( Map<Integer, Integer> map )
+    private void runInParallel( int workItems, Callable<Object> task )
     {
-        if (map.size() < 2)
+        int workers = Math.min(threads, workItems);
+        if (workers < 2)
+        {
+            try
+            {
+                task.call();
+            } catch (RuntimeException ex)
+            {
+                throw ex;
+            } catch (Exception ex)
+            {
+                throw new RuntimeException(ex);
+            }
             return;
+        }
 
-        int biggestStart = -1;
-        int maxCount = -1;
-        GHBitSetImpl bs = new GHBitSetImpl(g.getNodes());
-        for (Entry<Integer, Integer> e : map.entrySet())
+        ExecutorService executorService = Executors.newFixedThreadPool(workers);
+        try
         {
-            if (biggestStart < 0)
+            for (Future<Object> future : executorService.invokeAll(Collections.nCopies(workers, task)))
             {
-                biggestStart = e.getKey();
-                maxCount = e.getValue();
-                continue;
+                future.get();
             }
+        } catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Finding subnetworks was interrupted", ex);
+        } catch (ExecutionException ex)
+        {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
 
-            if (maxCount < e.getValue())
-            {
-                // new biggest area found. remove old
-                removeNetwork(biggestStart, maxCount, bs);
+            throw new RuntimeException(ex.getCause());
+        } finally
+        {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the root of the set of the specified node. The path to the root is halved on the
+     * way which is safe for concurrent calls as a node is only linked to one of its ancestors.
+     */
+    private static int find( AtomicIntegerArray parents, int node )
+    {
+        int parent;
+        while ((parent = parents.get(node)) != node)
+        {
+            int grandParent = parents.get(parent);
+            if (grandParent != parent)
+                parents.compareAndSet(node, parent, grandParent);
+
+            node = grandParent;
+        }
+        return node;
+    }
 
-                biggestStart = e.getKey();
-                maxCount = e.getValue();
-            } else
+    private static void union( AtomicIntegerArray parents, int nodeA, int nodeB )
+    {
+        while (true)
+        {
+            int rootA = find(parents, nodeA);
+            int rootB = find(parents, nodeB);
+            if (rootA == rootB)
+                return;
+
+            // link the bigger root to the smaller one, fails if the bigger root got a parent meanwhile
+            if (rootA < rootB)
             {
-                removeNetwork(e.getKey(), e.getValue(), bs);
-            }
+                if (parents.compareAndSet(rootB, rootB, rootA))
+                    return;
+            } else if (parents.compareAndSet(rootA, rootA, rootB))
+                return;
         }
     }
 
     /**
-     * Deletes the complete subnetwork reachable through start
+     * @return the number of nodes of every subnetwork, indexed by its id
      */
-    void removeNetwork( int start, int entries, final GHBitSet bs )
+    static int[] countNodes( int[] subnetworkIds )
     {
-        if (entries >= minNetworkSize)
+        int[] sizes = new int[subnetworkIds.length];
+        for (int id : subnetworkIds)
         {
-            // logger.info("did not remove large network (" + entries + ")");
-            return;
+            if (id >= 0)
+                sizes[id]++;
         }
-        EdgeExplorer explorer = g.createEdgeExplorer(edgeFilter);
-        new DepthFirstSearch()
+        return sizes;
+    }
+
+    /**
+     * Deletes all but the largest subnetworks in one pass over all nodes.
+     * <p/>
+     * @return the number of removed nodes
+     */
+    int keepLargeNetworks( int[] subnetworkIds, int[] sizes )
+    {
+        // the first subnetwork wins if several have the biggest size
+        int biggest = -1;
+        for (int node = 0; node < subnetworkIds.length; node++)
         {
-            @Override
-            protected GHBitSet createBitSet()
-            {
-                return bs;
-            }
+            if (subnetworkIds[node] == node && (biggest < 0 || sizes[node] > sizes[biggest]))
+                biggest = node;
+        }
 
-            @Override
-            protected boolean goFurther( int nodeId )
+        int removed = 0;
+        for (int node = 0; node < subnetworkIds.length; node++)
+        {
+            int id = subnetworkIds[node];
+            if (id >= 0 && id != biggest && sizes[id] < minNetworkSize)
             {
-                g.markNodeRemoved(nodeId);
-                return super.goFurther(nodeId);
+                g.markNodeRemoved(node);
+                removed++;
             }
-        }.start(explorer, start);
+        }
+        return removed;
     }
 
     /**
@@ -43,6 +43,8 @@ public abstract class AbstractDataAccess implements DataAccess
     protected final ByteOrder byteOrder;
     protected final BitUtil bitUtil;
     protected transient boolean closed = false;
+    // only for the writing thread, readers get the state via the directory
+    protected transient boolean frozen = false;
 
     public AbstractDataAccess( String name, String location, ByteOrder order )
     {
@@ -55,6 +57,24 @@ public abstract class AbstractDataAccess implements DataAccess
         this.location = location;
     }
 
+    @Override
+    public void freeze()
+    {
+        frozen = true;
+    }
+
+    @Override
+    public boolean isFrozen()
+    {
+        return frozen;
+    }
+
+    protected final void ensureNotFrozen()
+    {
+        if (frozen)
+            throw new IllegalStateException("Cannot change " + getFullName() + " as it is frozen");
+    }
+
     @Override
     public String getName()
     {
@@ -81,6 +101,7 @@ public abstract class AbstractDataAccess implements DataAccess
     @Override
     public void setHeader( int bytePos, int value )
     {
+        ensureNotFrozen();
         bytePos >>= 2;
         header[bytePos] = value;
     }
@@ -202,6 +223,7 @@ public abstract class AbstractDataAccess implements DataAccess
     @Override
     public void rename( String newName )
     {
+        ensureNotFrozen();
         File file = new File(location + name);
         if (file.exists())
         {
@@ -133,6 +133,12 @@ class BaseGraph implements Graph
                 return tmpIter.fetchWayGeometry(type);
             }
 
+            @Override
+            public PointList fetchWayGeometry( int type, PointList pointList )
+            {
+                return tmpIter.fetchWayGeometry(type, pointList);
+            }
+
             @Override
             public EdgeIteratorState setWayGeometry( PointList list )
             {
@@ -27,35 +27,35 @@ public class DAType
     /**
      * The DA object is hold entirely in-memory. Loading and flushing is a no-op. See RAMDataAccess.
      */
-    public static final DAType RAM = new DAType(MemRef.HEAP, false, false, true, false);
+    public static final DAType RAM = new DAType(MemRef.HEAP, false, false, true);
     /**
      * Optimized RAM DA type for integer access. The set and getBytes methods cannot be used.
      */
-    public static final DAType RAM_INT = new DAType(MemRef.HEAP, false, true, true, false);
+    public static final DAType RAM_INT = new DAType(MemRef.HEAP, false, true, true);
     /**
      * The DA object is hold entirely in-memory. It will read load disc and flush to it if they
      * equivalent methods are called. See RAMDataAccess.
      */
-    public static final DAType RAM_STORE = new DAType(MemRef.HEAP, true, false, true, false);
+    public static final DAType RAM_STORE = new DAType(MemRef.HEAP, true, false, true);
     /**
      * Optimized RAM_STORE DA type for integer access. The set and getBytes methods cannot be used.
      */
-    public static final DAType RAM_INT_STORE = new DAType(MemRef.HEAP, true, true, true, false);
+    public static final DAType RAM_INT_STORE = new DAType(MemRef.HEAP, true, true, true);
     /**
-     * Memory mapped DA object. See MMapDataAccess. To make it read and write thread-safe you need
-     * to use 'new DAType(MMAP, true)'
+     * Memory mapped DA object. See MMapDataAccess. It can be read from multiple threads after
+     * Directory.freeze was called.
      */
-    public static final DAType MMAP = new DAType(MemRef.MMAP, true, false, true, false);
+    public static final DAType MMAP = new DAType(MemRef.MMAP, true, false, true);
 
     /**
      * Read-only memory mapped DA object. To avoid write access useful for reading on mobile or
      * embedded data stores.
      */
-    public static final DAType MMAP_RO = new DAType(MemRef.MMAP, true, false, false, false);
+    public static final DAType MMAP_RO = new DAType(MemRef.MMAP, true, false, false);
     /**
      * Experimental API. Do not use yet.
      */
-    public static final DAType UNSAFE_STORE = new DAType(MemRef.UNSAFE, true, false, true, false);
+    public static final DAType UNSAFE_STORE = new DAType(MemRef.UNSAFE, true, false, true);
 
     public enum MemRef
     {
@@ -65,25 +65,14 @@ public class DAType
     private final MemRef memRef;
     private final boolean storing;
     private final boolean integ;
-    private final boolean synched;
     private final boolean allowWrites;
 
-    public DAType( DAType type, boolean synched )
-    {
-        this(type.getMemRef(), type.isStoring(), type.isInteg(), type.isAllowWrites(), synched);
-        if (!synched)
-            throw new IllegalStateException("constructor can only be used with synched=true");
-        if (type.isSynched())
-            throw new IllegalStateException("something went wrong as DataAccess object is already synched!?");
-    }
-
-    public DAType( MemRef memRef, boolean storing, boolean integ, boolean allowWrites, boolean synched )
+    public DAType( MemRef memRef, boolean storing, boolean integ, boolean allowWrites )
     {
         this.memRef = memRef;
         this.storing = storing;
         this.integ = integ;
         this.allowWrites = allowWrites;
-        this.synched = synched;
     }
 
     /**
@@ -128,16 +117,6 @@ public class DAType
         return integ;
     }
 
-    /**
-     * Synchronized access wrapper around DataAccess objects? default is false and so an in-memory
-     * DataAccess object is only read-thread safe where a memory mapped one is not even
-     * read-threadsafe!
-     */
-    public boolean isSynched()
-    {
-        return synched;
-    }
-
     @Override
     public String toString()
     {
@@ -153,8 +132,6 @@ public class DAType
             str += "_INT";
         if (isStoring())
             str += "_STORE";
-        if (isSynched())
-            str += "_SYNC";
         return str;
     }
 
@@ -173,9 +150,6 @@ public class DAType
             else
                 type = DAType.RAM;
         }
-
-        if (dataAccess.contains("SYNC"))
-            type = new DAType(type, true);
         return type;
     }
 
@@ -186,7 +160,6 @@ public class DAType
         hash = 59 * hash + 37 * this.memRef.hashCode();
         hash = 59 * hash + (this.storing ? 1 : 0);
         hash = 59 * hash + (this.integ ? 1 : 0);
-        hash = 59 * hash + (this.synched ? 1 : 0);
         return hash;
     }
 
@@ -204,8 +177,6 @@ public class DAType
             return false;
         if (this.integ != other.integ)
             return false;
-        if (this.synched != other.synched)
-            return false;
         return true;
     }
 }
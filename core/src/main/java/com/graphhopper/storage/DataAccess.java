@@ -23,7 +23,11 @@ package com.graphhopper.storage;
  * Directory.create. Current implementations are RAM and memory mapped access.
  * <p/>
  * Life cycle: (1) object creation, (2) configuration (e.g. segment size), (3) create or
- * loadExisting, (4) usage and calling ensureCapacity if necessary, (5) close
+ * loadExisting, (4) usage and calling ensureCapacity if necessary, (5) optionally freeze for
+ * concurrent read access, (6) close
+ * <p/>
+ * The read methods need no locking: after freeze all threads which have seen the frozen state via
+ * Directory.isFrozen can read concurrently.
  * <p/>
  * @author Peter Karich
  */
@@ -62,6 +66,16 @@ public interface DataAccess extends Storable<DataAccess>
      */
     short getShort( long bytePos );
 
+    /**
+     * Set 1 byte at position 'bytePos' to the specified value
+     */
+    void setByte( long bytePos, byte value );
+
+    /**
+     * Get 1 byte from position 'bytePos'
+     */
+    byte getByte( long bytePos );
+
     /**
      * Set bytes from position 'index' to the specified values
      */
@@ -131,4 +145,13 @@ public interface DataAccess extends Storable<DataAccess>
      * @return the data access type of this object.
      */
     DAType getType();
+
+    /**
+     * Makes this object read-only. Every later attempt to change the content or the capacity
+     * fails. Call this after flush. Use Directory.freeze to publish the frozen state to other
+     * threads.
+     */
+    void freeze();
+
+    boolean isFrozen();
 }
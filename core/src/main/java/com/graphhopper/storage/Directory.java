@@ -64,4 +64,15 @@ public interface Directory
      * Removes all contained objects from the directory and releases its resources.
      */
     void clear();
+
+    /**
+     * Makes all contained DataAccess objects read-only, e.g. after import or loading, and no new
+     * objects can be created. The DataAccess objects can then be read from multiple threads
+     * without locking. Every reading thread has to see isFrozen() returning true before the first
+     * read which is the case if the directory was passed to the thread after this call, e.g. via
+     * an ExecutorService.
+     */
+    void freeze();
+
+    boolean isFrozen();
 }
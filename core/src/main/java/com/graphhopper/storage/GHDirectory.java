@@ -36,6 +36,8 @@ public class GHDirectory implements Directory
     protected final String location;
     private final DAType defaultType;
     private final ByteOrder byteOrder = ByteOrder.LITTLE_ENDIAN;
+    // volatile to publish all writes made before freeze to the reading threads
+    private volatile boolean frozen = false;
 
     public GHDirectory( String _location, DAType defaultType )
     {
@@ -104,6 +106,9 @@ public class GHDirectory implements Directory
             return da;
         }
 
+        if (frozen)
+            throw new IllegalStateException("Cannot create DataAccess object '" + name + "' as " + location + " is frozen");
+
         if (type.isInMemory())
         {
             if (type.isInteg())
@@ -127,9 +132,6 @@ public class GHDirectory implements Directory
             da = new UnsafeDataAccess(name, location, byteOrder);
         }
 
-        if (type.isSynched())
-            da = new SynchedDAWrapper(da);
-
         map.put(name, da);
         return da;
     }
@@ -154,6 +156,22 @@ public class GHDirectory implements Directory
         map.clear();
     }
 
+    @Override
+    public void freeze()
+    {
+        for (DataAccess da : map.values())
+        {
+            da.freeze();
+        }
+        frozen = true;
+    }
+
+    @Override
+    public boolean isFrozen()
+    {
+        return frozen;
+    }
+
     @Override
     public void remove( DataAccess da )
     {
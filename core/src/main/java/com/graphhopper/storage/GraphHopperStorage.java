@@ -35,17 +35,18 @@ import com.graphhopper.util.shapes.BBox;
 
 import static com.graphhopper.util.Helper.nf;
 import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
 
 /**
  * The main implementation which handles nodes and edges file format. It can be used with different
  * Directory implementations like RAMDirectory for fast access or via MMapDirectory for
- * virtual-memory and not thread safe usage.
+ * virtual-memory usage.
  * <p/>
- * Note: A RAM DataAccess Object is thread-safe in itself but if used in this Graph implementation
- * it is not write thread safe.
+ * Note: This graph is not thread safe while writing. After flush call getDirectory().freeze() and
+ * all read methods can be used from multiple threads without locking, see Directory.freeze.
  * <p/>
  * Life cycle: (1) object creation, (2) configuration via setters & getters, (3) create or
- * loadExisting, (4) usage, (5) flush, (6) close
+ * loadExisting, (4) usage, (5) flush, (6) optionally freeze, (7) close
  * <p/>
  * @see GraphBuilder Use the GraphBuilder class to create a (Level)GraphStorage easier.
  * @see LevelGraphStorage
@@ -87,9 +88,9 @@ public class GraphHopperStorage implements GraphStorage
     private GHBitSet removedNodes;
     private int edgeEntryIndex, nodeEntryIndex;
     // length | nodeA | nextNode | ... | nodeB
-    // as we use integer index in 'egdes' area => 'geometry' area is limited to 2GB (currently ~311M for world wide)
+    // pillar nodes as zig-zag delta varints, referenced with a 64 bit byte position from the 'edges' area
     private final DataAccess wayGeometry;
-    private int maxGeoRef;
+    private long maxGeoRef;
     private boolean initialized = false;
     private EncodingManager encodingManager;
     private final NameIndex nameIndex;
@@ -98,6 +99,13 @@ public class GraphHopperStorage implements GraphStorage
     private boolean flagsSizeIsLong;
     final GraphExtension extStorage;
     private final NodeAccess nodeAccess;
+    // optional frozen adjacency: nodeCount + 1 offsets followed by the entries (edge, adjNode)
+    // of all nodes, so that iterating the edges of a node reads one contiguous block
+    private static final int ADJ_ENTRY_BYTES = 8;
+    private final DataAccess adjacency;
+    private boolean adjacencyFrozen;
+    private long adjEntriesStart;
+    private int adjEntries;
 
     public GraphHopperStorage( Directory dir, EncodingManager encodingManager, boolean withElevation )
     {
@@ -118,6 +126,7 @@ public class GraphHopperStorage implements GraphStorage
         this.nodes = dir.find("nodes");
         this.edges = dir.find("edges");
         this.wayGeometry = dir.find("geometry");
+        this.adjacency = dir.find("adjacency");
         this.nameIndex = new NameIndex(dir);
         this.properties = new StorableProperties(dir);
         this.bounds = BBox.createInverse(withElevation);
@@ -174,6 +183,7 @@ public class GraphHopperStorage implements GraphStorage
         nodes.setSegmentSize(bytes);
         edges.setSegmentSize(bytes);
         wayGeometry.setSegmentSize(bytes);
+        adjacency.setSegmentSize(bytes);
         nameIndex.setSegmentSize(bytes);
         extStorage.setSegmentSize(bytes);
     }
@@ -339,19 +349,32 @@ public class GraphHopperStorage implements GraphStorage
         return iter;
     }
 
-    private int nextGeoRef( int arrayLength )
+    private long nextGeoRef( int byteLength )
     {
-        int tmp = maxGeoRef;
-        // one more integer to store also the size itself
-        maxGeoRef += arrayLength + 1;
+        long tmp = maxGeoRef;
+        maxGeoRef += byteLength;
         return tmp;
     }
 
+    private long getGeoRef( long edgePointer )
+    {
+        return ((long) edges.getInt(edgePointer + E_GEO + 4) << 32) | (edges.getInt(edgePointer + E_GEO) & 0xFFFFFFFFL);
+    }
+
+    private void setGeoRef( long edgePointer, long geoRef )
+    {
+        edges.setInt(edgePointer + E_GEO, (int) geoRef);
+        edges.setInt(edgePointer + E_GEO + 4, (int) (geoRef >>> 32));
+    }
+
     /**
      * Write new edge between nodes fromNodeId, and toNodeId both to nodes index and edges index
      */
     int internalEdgeAdd( int fromNodeId, int toNodeId )
     {
+        if (adjacencyFrozen)
+            throw new IllegalStateException("Cannot add edge " + fromNodeId + "-" + toNodeId + " as the adjacency is frozen");
+
         int newEdgeId = nextEdge();
         writeEdge(newEdgeId, fromNodeId, toNodeId, EdgeIterator.NO_EDGE, EdgeIterator.NO_EDGE);
         connectNewEdge(fromNodeId, newEdgeId);
@@ -611,6 +634,13 @@ public class GraphHopperStorage implements GraphStorage
                     type, getBaseNode(), getAdjNode());
         }
 
+        @Override
+        public PointList fetchWayGeometry( int type, PointList pointList )
+        {
+            return GraphHopperStorage.this.fetchWayGeometry(edgePointer, reverse,
+                    type, getBaseNode(), getAdjNode(), pointList);
+        }
+
         @Override
         public String getName()
         {
@@ -754,6 +784,9 @@ public class GraphHopperStorage implements GraphStorage
         long edgePointer;
         int nextEdge;
         boolean reverse;
+        // the current and the end position in the frozen adjacency or -1 to follow the edge links
+        long adjPointer;
+        long adjEnd = -1;
 
         public EdgeIterable( EdgeFilter filter )
         {
@@ -767,11 +800,22 @@ public class GraphHopperStorage implements GraphStorage
         {
             this.nextEdge = this.edgeId = edgeId;
             this.edgePointer = (long) nextEdge * edgeEntryBytes;
+            this.adjEnd = -1;
         }
 
         @Override
         public EdgeIterator setBaseNode( int baseNode )
         {
+            if (adjacencyFrozen)
+            {
+                long offsetPointer = (long) baseNode * 4;
+                adjPointer = adjEntriesStart + (long) adjacency.getInt(offsetPointer) * ADJ_ENTRY_BYTES;
+                adjEnd = adjEntriesStart + (long) adjacency.getInt(offsetPointer + 4) * ADJ_ENTRY_BYTES;
+                this.nextEdge = this.edgeId = EdgeIterator.NO_EDGE;
+                this.baseNode = baseNode;
+                return this;
+            }
+
             int edge = nodes.getInt((long) baseNode * nodeEntryBytes + N_EDGE_REF);
             setEdgeId(edge);
             this.baseNode = baseNode;
@@ -793,6 +837,21 @@ public class GraphHopperStorage implements GraphStorage
         @Override
         public final boolean next()
         {
+            if (adjEnd >= 0)
+            {
+                while (adjPointer < adjEnd)
+                {
+                    edgeId = adjacency.getInt(adjPointer);
+                    adjNode = adjacency.getInt(adjPointer + 4);
+                    adjPointer += ADJ_ENTRY_BYTES;
+                    edgePointer = (long) edgeId * edgeEntryBytes;
+                    reverse = baseNode > adjNode;
+                    if (filter.accept(this))
+                        return true;
+                }
+                return false;
+            }
+
             int i = 0;
             boolean foundNext = false;
             for (; i < MAX_EDGES; i++)
@@ -879,6 +938,12 @@ public class GraphHopperStorage implements GraphStorage
             return GraphHopperStorage.this.fetchWayGeometry(edgePointer, reverse, mode, getBaseNode(), getAdjNode());
         }
 
+        @Override
+        public PointList fetchWayGeometry( int mode, PointList pointList )
+        {
+            return GraphHopperStorage.this.fetchWayGeometry(edgePointer, reverse, mode, getBaseNode(), getAdjNode(), pointList);
+        }
+
         @Override
         public final int getEdge()
         {
@@ -966,97 +1031,161 @@ public class GraphHopperStorage implements GraphStorage
                 throw new IllegalArgumentException("Cannot use pointlist which is " + pillarNodes.getDimension()
                         + "D for graph which is " + nodeAccess.getDimension() + "D");
 
-            int len = pillarNodes.getSize();
-            int dim = nodeAccess.getDimension();
-            int tmpRef = nextGeoRef(len * dim);
-            edges.setInt(edgePointer + E_GEO, tmpRef);
-            long geoRef = (long) tmpRef * 4;
-            byte[] bytes = new byte[len * dim * 4 + 4];
-            ensureGeometry(geoRef, bytes.length);
-            bitUtil.fromInt(bytes, len, 0);
             if (reverse)
                 pillarNodes.reverse();
 
-            int tmpOffset = 4;
-            boolean is3D = nodeAccess.is3D();
-            for (int i = 0; i < len; i++)
-            {
-                double lat = pillarNodes.getLatitude(i);
-                bitUtil.fromInt(bytes, Helper.degreeToInt(lat), tmpOffset);
-                tmpOffset += 4;
-                bitUtil.fromInt(bytes, Helper.degreeToInt(pillarNodes.getLongitude(i)), tmpOffset);
-                tmpOffset += 4;
+            byte[] bytes = encodeWayGeometry(pillarNodes);
+            long geoRef = nextGeoRef(bytes.length);
+            ensureGeometry(geoRef, bytes.length);
+            wayGeometry.setBytes(geoRef, bytes, bytes.length);
+            setGeoRef(edgePointer, geoRef);
+        } else
+        {
+            setGeoRef(edgePointer, 0);
+        }
+    }
 
-                if (is3D)
-                {
-                    bitUtil.fromInt(bytes, Helper.eleToInt(pillarNodes.getElevation(i)), tmpOffset);
-                    tmpOffset += 4;
-                }
+    /**
+     * Encodes the number of points followed by the latitude, longitude and elevation of every point
+     * as zig-zag varint of the difference to the previous point. The first point is stored relative
+     * to 0 and not to the tower node as the tower nodes are changed independently e.g. when the
+     * nodes are renumbered.
+     */
+    private byte[] encodeWayGeometry( PointList pillarNodes )
+    {
+        int len = pillarNodes.getSize();
+        boolean is3D = nodeAccess.is3D();
+        // at most 5 bytes per varint
+        byte[] bytes = new byte[5 + len * nodeAccess.getDimension() * 5];
+        int pos = writeVarInt(bytes, 0, len);
+        int prevLat = 0, prevLon = 0, prevEle = 0;
+        for (int i = 0; i < len; i++)
+        {
+            int lat = Helper.degreeToInt(pillarNodes.getLatitude(i));
+            int lon = Helper.degreeToInt(pillarNodes.getLongitude(i));
+            pos = writeVarInt(bytes, pos, zigZagEncode(lat - prevLat));
+            pos = writeVarInt(bytes, pos, zigZagEncode(lon - prevLon));
+            prevLat = lat;
+            prevLon = lon;
+            if (is3D)
+            {
+                int ele = Helper.eleToInt(pillarNodes.getElevation(i));
+                pos = writeVarInt(bytes, pos, zigZagEncode(ele - prevEle));
+                prevEle = ele;
             }
+        }
+        return Arrays.copyOf(bytes, pos);
+    }
 
-            wayGeometry.setBytes(geoRef, bytes, bytes.length);
-        } else
+    private static int zigZagEncode( int value )
+    {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int zigZagDecode( int value )
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int writeVarInt( byte[] bytes, int pos, int value )
+    {
+        while ((value & ~0x7F) != 0)
         {
-            edges.setInt(edgePointer + E_GEO, 0);
+            bytes[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
         }
+        bytes[pos++] = (byte) value;
+        return pos;
     }
 
-    private PointList fetchWayGeometry( long edgePointer, boolean reverse, int mode, int baseNode, int adjNode )
+    /**
+     * Reads varints directly from the geometry storage.
+     */
+    private static final class GeometryReader
     {
-        long geoRef = edges.getInt(edgePointer + E_GEO);
-        int count = 0;
-        byte[] bytes = null;
-        if (geoRef > 0)
+        private final DataAccess da;
+        long pos;
+
+        GeometryReader( DataAccess da, long pos )
         {
-            geoRef *= 4;
-            count = wayGeometry.getInt(geoRef);
+            this.da = da;
+            this.pos = pos;
+        }
 
-            geoRef += 4;
-            bytes = new byte[count * nodeAccess.getDimension() * 4];
-            wayGeometry.getBytes(geoRef, bytes, bytes.length);
-        } else if (mode == 0)
+        int readVarInt()
+        {
+            int value = 0;
+            for (int shift = 0;; shift += 7)
+            {
+                byte b = da.getByte(pos++);
+                value |= (b & 0x7F) << shift;
+                if (b >= 0)
+                    return value;
+            }
+        }
+    }
+
+    private PointList fetchWayGeometry( long edgePointer, boolean reverse, int mode, int baseNode, int adjNode )
+    {
+        long geoRef = getGeoRef(edgePointer);
+        int count = geoRef > 0 ? new GeometryReader(wayGeometry, geoRef).readVarInt() : 0;
+        if (count == 0 && mode == 0)
             return PointList.EMPTY;
 
         PointList pillarNodes = new PointList(count + mode, nodeAccess.is3D());
+        return fetchWayGeometry(edgePointer, reverse, mode, baseNode, adjNode, pillarNodes);
+    }
+
+    /**
+     * Decodes the geometry of the specified edge and appends it to the specified list.
+     */
+    private PointList fetchWayGeometry( long edgePointer, boolean reverse, int mode, int baseNode, int adjNode,
+                                        PointList pointList )
+    {
+        int start = pointList.getSize();
         if (reverse)
         {
             if ((mode & 2) != 0)
-                pillarNodes.add(nodeAccess, adjNode);
+                pointList.add(nodeAccess, adjNode);
         } else
         {
             if ((mode & 1) != 0)
-                pillarNodes.add(nodeAccess, baseNode);
+                pointList.add(nodeAccess, baseNode);
         }
 
-        int index = 0;
-        for (int i = 0; i < count; i++)
+        long geoRef = getGeoRef(edgePointer);
+        if (geoRef > 0)
         {
-            double lat = Helper.intToDegree(bitUtil.toInt(bytes, index));
-            index += 4;
-            double lon = Helper.intToDegree(bitUtil.toInt(bytes, index));
-            index += 4;
-            if (nodeAccess.is3D())
-            {
-                pillarNodes.add(lat, lon, Helper.intToEle(bitUtil.toInt(bytes, index)));
-                index += 4;
-            } else
+            GeometryReader reader = new GeometryReader(wayGeometry, geoRef);
+            int count = reader.readVarInt();
+            boolean is3D = nodeAccess.is3D();
+            int lat = 0, lon = 0, ele = 0;
+            for (int i = 0; i < count; i++)
             {
-                pillarNodes.add(lat, lon);
+                lat += zigZagDecode(reader.readVarInt());
+                lon += zigZagDecode(reader.readVarInt());
+                if (is3D)
+                    ele += zigZagDecode(reader.readVarInt());
+
+                if (pointList.is3D())
+                    pointList.add(Helper.intToDegree(lat), Helper.intToDegree(lon), Helper.intToEle(ele));
+                else
+                    pointList.add(Helper.intToDegree(lat), Helper.intToDegree(lon));
             }
         }
 
         if (reverse)
         {
             if ((mode & 1) != 0)
-                pillarNodes.add(nodeAccess, baseNode);
-            pillarNodes.reverse();
+                pointList.add(nodeAccess, baseNode);
+            pointList.reverse(start);
         } else
         {
             if ((mode & 2) != 0)
-                pillarNodes.add(nodeAccess, adjNode);
+                pointList.add(nodeAccess, adjNode);
         }
 
-        return pillarNodes;
+        return pointList;
     }
 
     @Override
@@ -1106,6 +1235,16 @@ public class GraphHopperStorage implements GraphStorage
         // extStorage
         extStorage.copyTo(clonedG.extStorage);
 
+        if (adjacencyFrozen)
+        {
+            setAdjacencyHeader();
+            if (!clonedG.adjacencyFrozen)
+                clonedG.adjacency.create(adjacency.getCapacity());
+
+            adjacency.copyTo(clonedG.adjacency);
+            clonedG.loadAdjacencyHeader();
+        }
+
         properties.copyTo(clonedG.properties);
 
         if (removedNodes == null)
@@ -1135,7 +1274,8 @@ public class GraphHopperStorage implements GraphStorage
     @Override
     public boolean isNodeRemoved( int index )
     {
-        return getRemovedNodes().contains(index);
+        // avoid the lazy creation as this method is also used from concurrent readers
+        return removedNodes != null && removedNodes.contains(index);
     }
 
     @Override
@@ -1145,6 +1285,9 @@ public class GraphHopperStorage implements GraphStorage
         if (delNodes <= 0)
             return;
 
+        if (adjacencyFrozen)
+            throw new IllegalStateException("Cannot remove nodes as the adjacency is frozen");
+
         // Deletes only nodes.
         // It reduces the fragmentation of the node space but introduces new unused edges.
         inPlaceNodeRemove(delNodes);
@@ -1170,6 +1313,9 @@ public class GraphHopperStorage implements GraphStorage
      */
     long internalEdgeDisconnect( int edgeToRemove, long edgeToUpdatePointer, int baseNode, int adjNode )
     {
+        if (adjacencyFrozen)
+            throw new IllegalStateException("Cannot disconnect edge " + edgeToRemove + " as the adjacency is frozen");
+
         long edgeToRemovePointer = (long) edgeToRemove * edgeEntryBytes;
         // an edge is shared across the two nodes even if the edge is not in both directions
         // so we need to know two edge-pointers pointing to the edge before edgeToRemovePointer
@@ -1208,7 +1354,7 @@ public class GraphHopperStorage implements GraphStorage
         GHBitSet toRemoveSet = new GHBitSetImpl(removeNodeCount);
         removedNodes.copyTo(toRemoveSet);
 
-        EdgeExplorer delExplorer = createEdgeExplorer(EdgeFilter.ALL_EDGES);
+        EdgeExplorer delExplorer = new EdgeIterable(EdgeFilter.ALL_EDGES);
         // create map of old node ids pointing to new ids        
         for (int removeNode = removedNodes.next(0);
                 removeNode >= 0;
@@ -1233,7 +1379,7 @@ public class GraphHopperStorage implements GraphStorage
             itemsToMove++;
         }
 
-        EdgeIterable adjNodesToDelIter = (EdgeIterable) createEdgeExplorer();
+        EdgeIterable adjNodesToDelIter = new EdgeIterable(EdgeFilter.ALL_EDGES);
         // now similar process to disconnectEdges but only for specific nodes
         // all deleted nodes could be connected to existing. remove the connections
         for (int removeNode = toRemoveSet.next(0);
@@ -1261,7 +1407,7 @@ public class GraphHopperStorage implements GraphStorage
         }
 
         GHBitSet toMoveSet = new GHBitSetImpl(removeNodeCount * 3);
-        EdgeExplorer movedEdgeExplorer = createEdgeExplorer();
+        EdgeExplorer movedEdgeExplorer = new EdgeIterable(EdgeFilter.ALL_EDGES);
         // marks connected nodes to rewrite the edges
         for (int i = 0; i < itemsToMove; i++)
         {
@@ -1292,12 +1438,13 @@ public class GraphHopperStorage implements GraphStorage
             {
                 nodes.setInt(newOffset + j, nodes.getInt(oldOffset + j));
             }
+            nodeMoved(oldI, newI);
         }
 
         // *rewrites* all edges connected to moved nodes
         // go through all edges and pick the necessary <- this is easier to implement than
         // a more efficient (?) breadth-first search
-        EdgeIterator iter = getAllEdges();
+        EdgeIterator iter = new AllEdgeIterator();
         while (iter.next())
         {
             int nodeA = iter.getBaseNode();
@@ -1329,11 +1476,11 @@ public class GraphHopperStorage implements GraphStorage
         // we do not remove the invalid edges => edgeCount stays the same!
         nodeCount -= removeNodeCount;
 
-        EdgeExplorer explorer = createEdgeExplorer();
+        EdgeExplorer explorer = new EdgeIterable(EdgeFilter.ALL_EDGES);
         // health check
         if (isTestingEnabled())
         {
-            iter = getAllEdges();
+            iter = new AllEdgeIterator();
             while (iter.next())
             {
                 int base = iter.getBaseNode();
@@ -1371,6 +1518,201 @@ public class GraphHopperStorage implements GraphStorage
         removedNodes = null;
     }
 
+    /**
+     * Called from optimize after the data of the node oldIndex was moved to newIndex so that
+     * subclasses can move their additional node data too.
+     */
+    void nodeMoved( int oldIndex, int newIndex )
+    {
+    }
+
+    @Override
+    public void renumberNodes( int[] oldToNewNodes )
+    {
+        if (adjacencyFrozen)
+            throw new IllegalStateException("Cannot renumber nodes as the adjacency is frozen");
+
+        if (removedNodes != null && removedNodes.getCardinality() > 0)
+            throw new IllegalStateException("Call optimize before renumbering the nodes");
+
+        if (oldToNewNodes.length != nodeCount)
+            throw new IllegalArgumentException("The node order has " + oldToNewNodes.length
+                    + " entries but the graph has " + nodeCount + " nodes");
+
+        GHBitSet used = new GHBitSetImpl(nodeCount);
+        for (int newIndex : oldToNewNodes)
+        {
+            if (newIndex < 0 || newIndex >= nodeCount || used.contains(newIndex))
+                throw new IllegalArgumentException("The node order is not a permutation, index " + newIndex);
+
+            used.add(newIndex);
+        }
+
+        // edges of the same lower node are stored next to each other
+        int[] oldToNewEdges = createEntryOrder(edges, edgeEntryBytes, edgeCount, E_NODEA, E_NODEB, oldToNewNodes);
+        permute(nodes, nodeEntryBytes, oldToNewNodes);
+        permute(edges, edgeEntryBytes, oldToNewEdges);
+
+        for (long pointer = N_EDGE_REF; pointer < (long) nodeCount * nodeEntryBytes; pointer += nodeEntryBytes)
+        {
+            nodes.setInt(pointer, EdgeIterator.NO_EDGE);
+        }
+
+        for (int edge = 0; edge < edgeCount; edge++)
+        {
+            long edgePointer = (long) edge * edgeEntryBytes;
+            int nodeA = edges.getInt(edgePointer + E_NODEA);
+            // invalid edge of a removed node
+            if (nodeA == NO_NODE)
+                continue;
+
+            int newA = oldToNewNodes[nodeA];
+            int newB = oldToNewNodes[edges.getInt(edgePointer + E_NODEB)];
+            long flags = getFlags(edgePointer, false);
+            writeEdge(edge, newA, newB, EdgeIterator.NO_EDGE, EdgeIterator.NO_EDGE);
+            // flags and geometry are stored in the direction from the lower to the higher node
+            if (newA > newB)
+            {
+                setFlags(edgePointer, true, flags);
+                reverseWayGeometry(edgePointer);
+            }
+
+            connectNewEdge(newA, edge);
+            if (newA != newB)
+                connectNewEdge(newB, edge);
+        }
+
+        if (extStorage instanceof TurnCostExtension)
+            ((TurnCostExtension) extStorage).renumberEdges(oldToNewEdges);
+
+        nodesRenumbered(oldToNewNodes, oldToNewEdges);
+    }
+
+    /**
+     * Called from renumberNodes after the nodes and edges were renumbered so that subclasses can
+     * update their additional data too.
+     */
+    void nodesRenumbered( int[] oldToNewNodes, int[] oldToNewEdges )
+    {
+    }
+
+    /**
+     * Reverses the pillar nodes of the specified edge. The reversed deltas can need a few more bytes
+     * and only then new geometry space is allocated.
+     */
+    private void reverseWayGeometry( long edgePointer )
+    {
+        long geoRef = getGeoRef(edgePointer);
+        if (geoRef <= 0)
+            return;
+
+        PointList pillarNodes = fetchWayGeometry(edgePointer, true, 0, -1, -1);
+        byte[] bytes = encodeWayGeometry(pillarNodes);
+        if (bytes.length <= getWayGeometryBytes(geoRef))
+            wayGeometry.setBytes(geoRef, bytes, bytes.length);
+        else
+            setWayGeometry(pillarNodes, edgePointer, false);
+    }
+
+    private long getWayGeometryBytes( long geoRef )
+    {
+        GeometryReader reader = new GeometryReader(wayGeometry, geoRef);
+        int values = reader.readVarInt() * nodeAccess.getDimension();
+        for (int i = 0; i < values; i++)
+        {
+            reader.readVarInt();
+        }
+        return reader.pos - geoRef;
+    }
+
+    /**
+     * Creates a stable order for the specified entries where an entry with a lower 'lower node' is
+     * placed before one with a higher. Entries with an invalid node are placed at the end.
+     * <p/>
+     * @return the new index for every old entry index
+     */
+    static int[] createEntryOrder( DataAccess da, int entryBytes, int count, int nodeAPos, int nodeBPos,
+            int[] oldToNewNodes )
+    {
+        // counting sort, the last bucket is for invalid entries
+        int[] bucketStart = new int[oldToNewNodes.length + 2];
+        for (int entry = 0; entry < count; entry++)
+        {
+            bucketStart[getLowerNode(da, (long) entry * entryBytes, nodeAPos, nodeBPos, oldToNewNodes) + 1]++;
+        }
+        for (int i = 1; i < bucketStart.length; i++)
+        {
+            bucketStart[i] += bucketStart[i - 1];
+        }
+
+        int[] oldToNew = new int[count];
+        for (int entry = 0; entry < count; entry++)
+        {
+            int bucket = getLowerNode(da, (long) entry * entryBytes, nodeAPos, nodeBPos, oldToNewNodes);
+            oldToNew[entry] = bucketStart[bucket]++;
+        }
+        return oldToNew;
+    }
+
+    private static int getLowerNode( DataAccess da, long pointer, int nodeAPos, int nodeBPos, int[] oldToNewNodes )
+    {
+        int nodeA = da.getInt(pointer + nodeAPos);
+        if (nodeA == NO_NODE)
+            return oldToNewNodes.length;
+
+        return Math.min(oldToNewNodes[nodeA], oldToNewNodes[da.getInt(pointer + nodeBPos)]);
+    }
+
+    /**
+     * Moves every entry of the specified DataAccess from its old index to oldToNew[index]. The
+     * cycles of the permutation are followed so that only two entries need to be in memory.
+     */
+    static void permute( DataAccess da, int entryBytes, int[] oldToNew )
+    {
+        int ints = entryBytes / 4;
+        int[] moving = new int[ints];
+        int[] replaced = new int[ints];
+        GHBitSet moved = new GHBitSetImpl(oldToNew.length);
+        for (int start = 0; start < oldToNew.length; start++)
+        {
+            if (moved.contains(start))
+                continue;
+
+            readEntry(da, (long) start * entryBytes, moving);
+            moved.add(start);
+            int index = start;
+            while (true)
+            {
+                int target = oldToNew[index];
+                long targetPointer = (long) target * entryBytes;
+                if (target != start)
+                    readEntry(da, targetPointer, replaced);
+
+                for (int i = 0; i < ints; i++)
+                {
+                    da.setInt(targetPointer + i * 4, moving[i]);
+                }
+
+                if (target == start)
+                    break;
+
+                moved.add(target);
+                int[] tmp = moving;
+                moving = replaced;
+                replaced = tmp;
+                index = target;
+            }
+        }
+    }
+
+    private static void readEntry( DataAccess da, long pointer, int[] entry )
+    {
+        for (int i = 0; i < entry.length; i++)
+        {
+            entry[i] = da.getInt(pointer + i * 4);
+        }
+    }
+
     private static boolean isTestingEnabled()
     {
         boolean enableIfAssert = false;
@@ -1437,6 +1779,9 @@ public class GraphHopperStorage implements GraphStorage
             loadNodesHeader();
             loadEdgesHeader();
             loadWayGeometryHeader();
+            if (adjacency.loadExisting())
+                loadAdjacencyHeader();
+
             return true;
         }
         return false;
@@ -1453,7 +1798,7 @@ public class GraphHopperStorage implements GraphStorage
         E_DIST = nextEdgeEntryIndex(4);
         this.flagsSizeIsLong = encodingManager.getBytesForFlags() == 8;
         E_FLAGS = nextEdgeEntryIndex(encodingManager.getBytesForFlags());
-        E_GEO = nextEdgeEntryIndex(4);
+        E_GEO = nextEdgeEntryIndex(8);
         E_NAME = nextEdgeEntryIndex(4);
         if (extStorage.isRequireEdgeField())
             E_ADDITIONAL = nextEdgeEntryIndex(4);
@@ -1536,19 +1881,88 @@ public class GraphHopperStorage implements GraphStorage
 
     protected int loadWayGeometryHeader()
     {
-        maxGeoRef = wayGeometry.getHeader(0);
-        return 1;
+        maxGeoRef = ((long) wayGeometry.getHeader(4) << 32) | (wayGeometry.getHeader(0) & 0xFFFFFFFFL);
+        return 2;
     }
 
     protected int setWayGeometryHeader()
     {
-        wayGeometry.setHeader(0, maxGeoRef);
-        return 1;
+        wayGeometry.setHeader(0, (int) maxGeoRef);
+        wayGeometry.setHeader(4, (int) (maxGeoRef >>> 32));
+        return 2;
+    }
+
+    private void loadAdjacencyHeader()
+    {
+        int adjNodes = adjacency.getHeader(0);
+        if (adjNodes != nodeCount)
+            throw new IllegalStateException("Adjacency was frozen for " + adjNodes + " nodes but the graph has "
+                    + nodeCount + ", dir:" + dir.getLocation());
+
+        adjEntries = adjacency.getHeader(1 * 4);
+        adjEntriesStart = (long) (nodeCount + 1) * 4;
+        adjacencyFrozen = true;
+    }
+
+    private void setAdjacencyHeader()
+    {
+        adjacency.setHeader(0, nodeCount);
+        adjacency.setHeader(1 * 4, adjEntries);
+    }
+
+    /**
+     * Writes the edges of every node into one contiguous array in the order of the edge links and
+     * uses it for all following edge explorations. This avoids the jumps through the edges area
+     * which are necessary to follow the links. The array is stored as 'adjacency' in the graph
+     * folder and used automatically on the next load.
+     * <p/>
+     * Call this after the import and the preparation as it is not possible to add edges or remove
+     * nodes afterwards. The properties of the edges can still be changed.
+     */
+    @Override
+    public void freezeAdjacency()
+    {
+        if (adjacencyFrozen)
+            return;
+
+        long entriesStart = (long) (nodeCount + 1) * 4;
+        adjacency.create(entriesStart + (long) edgeCount * 2 * ADJ_ENTRY_BYTES);
+        EdgeIterable iter = new EdgeIterable(EdgeFilter.ALL_EDGES);
+        int entries = 0;
+        for (int node = 0; node < nodeCount; node++)
+        {
+            adjacency.setInt((long) node * 4, entries);
+            iter.setBaseNode(node);
+            while (iter.next())
+            {
+                long pointer = entriesStart + (long) entries * ADJ_ENTRY_BYTES;
+                adjacency.ensureCapacity(pointer + ADJ_ENTRY_BYTES);
+                adjacency.setInt(pointer, iter.getEdge());
+                adjacency.setInt(pointer + 4, iter.getAdjNode());
+                entries++;
+                if (entries < 0)
+                    throw new IllegalStateException("too many adjacency entries. " + toString());
+            }
+        }
+        adjacency.setInt((long) nodeCount * 4, entries);
+        adjEntries = entries;
+        adjEntriesStart = entriesStart;
+        adjacencyFrozen = true;
+    }
+
+    @Override
+    public boolean isAdjacencyFrozen()
+    {
+        return adjacencyFrozen;
     }
 
     @Override
     public void flush()
     {
+        // a frozen graph cannot be changed and was already flushed
+        if (dir.isFrozen())
+            return;
+
         setNodesHeader();
         setEdgesHeader();
         setWayGeometryHeader();
@@ -1559,6 +1973,11 @@ public class GraphHopperStorage implements GraphStorage
         edges.flush();
         nodes.flush();
         extStorage.flush();
+        if (adjacencyFrozen)
+        {
+            setAdjacencyHeader();
+            adjacency.flush();
+        }
     }
 
     @Override
@@ -1570,6 +1989,8 @@ public class GraphHopperStorage implements GraphStorage
         edges.close();
         nodes.close();
         extStorage.close();
+        if (adjacencyFrozen)
+            adjacency.close();
     }
 
     @Override
@@ -1588,7 +2009,7 @@ public class GraphHopperStorage implements GraphStorage
     public long getCapacity()
     {
         return edges.getCapacity() + nodes.getCapacity() + nameIndex.getCapacity() + wayGeometry.getCapacity()
-                + properties.getCapacity() + extStorage.getCapacity();
+                + properties.getCapacity() + extStorage.getCapacity() + adjacency.getCapacity();
     }
 
     @Override
@@ -1598,6 +2019,7 @@ public class GraphHopperStorage implements GraphStorage
                 + "nodes:" + nf(nodeCount) + "(" + nodes.getCapacity() / Helper.MB + "), "
                 + "name: /(" + nameIndex.getCapacity() / Helper.MB + "), "
                 + "geo:" + nf(maxGeoRef) + "(" + wayGeometry.getCapacity() / Helper.MB + "), "
+                + (adjacencyFrozen ? "adjacency:" + nf(adjEntries) + "(" + adjacency.getCapacity() / Helper.MB + "), " : "")
                 + "bounds:" + bounds;
     }
 
@@ -45,4 +45,25 @@ public interface GraphStorage extends Graph, Storable<GraphStorage>
      * Performs optimization routines like deletion or node rearrangements.
      */
     void optimize();
+
+    /**
+     * Renumbers the nodes so that nodes used together can be stored together, e.g. nodes which are
+     * close to each other. The edges are reordered by their new lower node and all references to
+     * node and edge ids stored in this graph are updated. A location index has to be created
+     * afterwards.
+     * <p/>
+     * @param oldToNewNodes the new id for every node id, it must be a permutation of [0, nodes)
+     */
+    void renumberNodes( int[] oldToNewNodes );
+
+    /**
+     * Stores the adjacency of all nodes in one contiguous array to speed up the edge exploration.
+     * Afterwards no edges can be added and no nodes can be removed.
+     */
+    void freezeAdjacency();
+
+    /**
+     * @return true if the edges are explored via the frozen adjacency
+     */
+    boolean isAdjacencyFrozen();
 }
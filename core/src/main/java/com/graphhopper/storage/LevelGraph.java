@@ -19,6 +19,7 @@ package com.graphhopper.storage;
 
 import com.graphhopper.routing.util.AllEdgesSkipIterator;
 import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.EdgeSkipExplorer;
 import com.graphhopper.util.EdgeSkipIterState;
 
@@ -48,6 +49,43 @@ public interface LevelGraph extends Graph
      */
     EdgeSkipIterState shortcut( int a, int b );
 
+    /**
+     * Disconnects the shortcut (higher->lower node) via the specified edgeState pointing from lower
+     * to higher node.
+     * <p>
+     * @param edgeState the edge from lower to higher
+     */
+    void disconnect( EdgeSkipExplorer explorer, EdgeIteratorState edgeState );
+
+    /**
+     * Stores for every shortcut the node between its two skipped edges and which skipped edge is
+     * adjacent to which node of the shortcut. Afterwards a shortcut can be unpacked via
+     * getSkippedNode and getSkippedEdge without fetching the edge states. Additionally the time of
+     * the original edges is accumulated for every shortcut, see getShortcutMillis. Call this after
+     * all shortcuts are created.
+     */
+    void prepareUnpacking();
+
+    /**
+     * @return the node between the two skipped edges of the specified shortcut or -1 if unknown,
+     * e.g. if prepareUnpacking was not called or the skipped edges were changed afterwards
+     */
+    int getSkippedNode( int shortcutId );
+
+    /**
+     * @return the skipped edge of the specified shortcut which is adjacent to the specified node of
+     * the shortcut. Only valid if getSkippedNode does not return -1.
+     */
+    int getSkippedEdge( int shortcutId, int node );
+
+    /**
+     * @return the time in millis to travel the original edges of the specified shortcut starting
+     * at the specified node of the shortcut or -1 if unknown, e.g. if prepareUnpacking was not
+     * called, the shortcut is not accessible in this direction or any shortcut was changed
+     * afterwards
+     */
+    long getShortcutMillis( int shortcutId, int baseNode );
+
     @Override
     EdgeSkipIterState getEdgeProps( int edgeId, int endNode );
 
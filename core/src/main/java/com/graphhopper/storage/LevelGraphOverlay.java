@@ -0,0 +1,1090 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.coll.GHBitSet;
+import com.graphhopper.coll.GHBitSetImpl;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.util.AllEdgesSkipIterator;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.util.*;
+import com.graphhopper.util.shapes.BBox;
+
+/**
+ * A LevelGraph which stores the levels and the shortcuts of one vehicle and weighting in its own
+ * DataAccess objects. The normal edges are read from the underlying LevelGraphStorage and are never
+ * modified, so several overlays of the same storage can be prepared at the same time.
+ * <p/>
+ * Shortcuts get the edge ids after the normal edges and are traversed before them. The access
+ * flags of a shortcut are returned in the bit layout of the encoder of this overlay, the weight is
+ * stored separately.
+ * <p/>
+ * @author Peter Karich
+ */
+final class LevelGraphOverlay implements LevelGraph
+{
+    private static final double WEIGHT_FACTOR = 1000f;
+    private static final double MAX_WEIGHT = Integer.MAX_VALUE / WEIGHT_FACTOR;
+    private static final double INT_DIST_FACTOR = 1000d;
+    private static final int S_NODEA = 0, S_NODEB = 4, S_LINKA = 8, S_LINKB = 12, S_DIST = 16,
+            S_WEIGHT = 20, S_ACCESS = 24, S_SKIP_EDGE1 = 28, S_SKIP_EDGE2 = 32;
+    private static final int shortcutEntryBytes = 36;
+    // the shortcut reference is stored as index + 1 so that a fresh node area means 'no shortcut'
+    private static final int N_LEVEL = 0, N_SC_REF = 4;
+    private static final int nodeEntryBytes = 8;
+    private static final int FWD = 1, BWD = 2;
+    // per shortcut the node between the skipped edges + 1, negative if skipped edge 1 is adjacent
+    // to node B, and the time + 1 from node A and from node B. 0 means unknown
+    private static final int U_NODE = 0, U_MILLIS_A = 4, U_MILLIS_B = 8;
+    private static final int unpackingEntryBytes = 12;
+    private final LevelGraphStorage storage;
+    private final String name;
+    private final DataAccess levels;
+    private final DataAccess shortcuts;
+    private final DataAccess unpacking;
+    private int unpackedShortcuts;
+    // the times are invalid if any shortcut was changed after prepareUnpacking
+    private boolean unpackedMillis;
+    private final FlagEncoder encoder;
+    // access bits (FWD | BWD) to the flags of the encoder
+    private final long[] accessFlags = new long[4];
+    private final long fwdFlag;
+    private final long bwdFlag;
+    private int shortcutCount;
+    private Graph baseGraph;
+
+    LevelGraphOverlay( LevelGraphStorage storage, String name, FlagEncoder encoder )
+    {
+        this.storage = storage;
+        this.name = name;
+        this.levels = storage.getDirectory().find("levels_" + name);
+        this.shortcuts = storage.getDirectory().find("shortcuts_" + name);
+        this.unpacking = storage.getDirectory().find("unpacking_" + name);
+        this.encoder = encoder;
+        fwdFlag = encoder.setAccess(0, true, false);
+        bwdFlag = encoder.setAccess(0, false, true);
+        accessFlags[FWD] = fwdFlag;
+        accessFlags[BWD] = bwdFlag;
+        accessFlags[FWD | BWD] = fwdFlag | bwdFlag;
+    }
+
+    String getName()
+    {
+        return name;
+    }
+
+    int getShortcutCount()
+    {
+        return shortcutCount;
+    }
+
+    void create( long byteCount )
+    {
+        long initSize = Math.max(byteCount, 100);
+        levels.create(initSize);
+        shortcuts.create(initSize);
+        unpacking.create(initSize);
+    }
+
+    boolean loadExisting()
+    {
+        if (!levels.loadExisting() || !shortcuts.loadExisting())
+            return false;
+
+        if (shortcuts.getHeader(0) != shortcutEntryBytes)
+            throw new IllegalStateException("Shortcut entry size of " + name + " does not match "
+                    + shortcuts.getHeader(0) + " vs " + shortcutEntryBytes);
+
+        shortcutCount = shortcuts.getHeader(1 * 4);
+        int baseEdges = shortcuts.getHeader(2 * 4);
+        if (shortcutCount > 0 && baseEdges != storage.getBaseEdgeCount())
+            throw new IllegalStateException("Shortcuts of " + name + " were created for " + baseEdges
+                    + " edges but the graph has " + storage.getBaseEdgeCount());
+
+        // the unpacking data is optional, without it shortcuts are unpacked via the edge states
+        if (!unpacking.loadExisting())
+            unpacking.create(100);
+        else if (unpacking.getHeader(1 * 4) == unpackingEntryBytes)
+        {
+            unpackedShortcuts = Math.min(unpacking.getHeader(0), shortcutCount);
+            unpackedMillis = unpacking.getHeader(2 * 4) == 1;
+        }
+        return true;
+    }
+
+    private void setHeader()
+    {
+        shortcuts.setHeader(0, shortcutEntryBytes);
+        shortcuts.setHeader(1 * 4, shortcutCount);
+        shortcuts.setHeader(2 * 4, storage.getBaseEdgeCount());
+        unpacking.setHeader(0, unpackedShortcuts);
+        unpacking.setHeader(1 * 4, unpackingEntryBytes);
+        unpacking.setHeader(2 * 4, unpackedMillis ? 1 : 0);
+    }
+
+    void flush()
+    {
+        setHeader();
+        levels.flush();
+        shortcuts.flush();
+        unpacking.flush();
+    }
+
+    void close()
+    {
+        levels.close();
+        shortcuts.close();
+        unpacking.close();
+    }
+
+    long getCapacity()
+    {
+        return levels.getCapacity() + shortcuts.getCapacity() + unpacking.getCapacity();
+    }
+
+    void setSegmentSize( int bytes )
+    {
+        levels.setSegmentSize(bytes);
+        shortcuts.setSegmentSize(bytes);
+        unpacking.setSegmentSize(bytes);
+    }
+
+    void copyTo( LevelGraphOverlay clone )
+    {
+        setHeader();
+        levels.copyTo(clone.levels);
+        shortcuts.copyTo(clone.shortcuts);
+        unpacking.copyTo(clone.unpacking);
+        clone.shortcutCount = shortcutCount;
+        clone.unpackedShortcuts = unpackedShortcuts;
+        clone.unpackedMillis = unpackedMillis;
+    }
+
+    void moveNode( int oldIndex, int newIndex )
+    {
+        long oldPointer = (long) oldIndex * nodeEntryBytes;
+        long newPointer = (long) newIndex * nodeEntryBytes;
+        boolean oldExists = oldPointer + nodeEntryBytes <= levels.getCapacity();
+        if (!oldExists && newPointer + nodeEntryBytes > levels.getCapacity())
+            return;
+
+        levels.setInt(newPointer + N_LEVEL, oldExists ? levels.getInt(oldPointer + N_LEVEL) : 0);
+        levels.setInt(newPointer + N_SC_REF, oldExists ? levels.getInt(oldPointer + N_SC_REF) : 0);
+    }
+
+    /**
+     * Moves the levels to the new node ids, orders the shortcuts by their new lower node and
+     * rewrites the skipped edges. Disconnected shortcuts stay disconnected.
+     */
+    void renumber( int[] oldToNewNodes, int[] oldToNewEdges )
+    {
+        // remember from which node a shortcut is reachable before the links get rebuilt
+        GHBitSet reachableFromA = new GHBitSetImpl(shortcutCount);
+        GHBitSet reachableFromB = new GHBitSetImpl(shortcutCount);
+        for (int node = 0; node < oldToNewNodes.length; node++)
+        {
+            int shortcut = getFirstShortcut(node);
+            while (shortcut >= 0)
+            {
+                long scPointer = (long) shortcut * shortcutEntryBytes;
+                int linkPos = getLinkPos(node, scPointer);
+                if (linkPos == S_LINKA)
+                    reachableFromA.add(shortcut);
+                else
+                    reachableFromB.add(shortcut);
+
+                shortcut = shortcuts.getInt(scPointer + linkPos) - 1;
+            }
+        }
+
+        if (oldToNewNodes.length > 0)
+            ensureLevelsIndex(oldToNewNodes.length - 1);
+
+        GraphHopperStorage.permute(levels, nodeEntryBytes, oldToNewNodes);
+        for (int node = 0; node < oldToNewNodes.length; node++)
+        {
+            setFirstShortcut(node, -1);
+        }
+
+        int baseEdges = storage.getBaseEdgeCount();
+        int[] oldToNewShortcuts = GraphHopperStorage.createEntryOrder(shortcuts, shortcutEntryBytes, shortcutCount,
+                S_NODEA, S_NODEB, oldToNewNodes);
+        int[] newToOldShortcuts = new int[shortcutCount];
+        for (int shortcut = 0; shortcut < shortcutCount; shortcut++)
+        {
+            newToOldShortcuts[oldToNewShortcuts[shortcut]] = shortcut;
+        }
+        GraphHopperStorage.permute(shortcuts, shortcutEntryBytes, oldToNewShortcuts);
+
+        for (int shortcut = 0; shortcut < shortcutCount; shortcut++)
+        {
+            long scPointer = (long) shortcut * shortcutEntryBytes;
+            int oldShortcut = newToOldShortcuts[shortcut];
+            int newA = oldToNewNodes[shortcuts.getInt(scPointer + S_NODEA)];
+            int newB = oldToNewNodes[shortcuts.getInt(scPointer + S_NODEB)];
+            boolean fromA = reachableFromA.contains(oldShortcut);
+            boolean fromB = reachableFromB.contains(oldShortcut);
+            if (newA > newB)
+            {
+                int tmp = newA;
+                newA = newB;
+                newB = tmp;
+                boolean tmpFrom = fromA;
+                fromA = fromB;
+                fromB = tmpFrom;
+                // the access is stored in the direction from the lower to the higher node
+                int access = shortcuts.getInt(scPointer + S_ACCESS);
+                shortcuts.setInt(scPointer + S_ACCESS, ((access & FWD) << 1) | ((access & BWD) >> 1));
+            }
+
+            shortcuts.setInt(scPointer + S_NODEA, newA);
+            shortcuts.setInt(scPointer + S_NODEB, newB);
+            shortcuts.setInt(scPointer + S_LINKA, 0);
+            shortcuts.setInt(scPointer + S_LINKB, 0);
+            if (fromA)
+            {
+                shortcuts.setInt(scPointer + S_LINKA, getFirstShortcut(newA) + 1);
+                setFirstShortcut(newA, shortcut);
+            }
+            if (fromB && newA != newB)
+            {
+                shortcuts.setInt(scPointer + S_LINKB, getFirstShortcut(newB) + 1);
+                setFirstShortcut(newB, shortcut);
+            }
+
+            shortcuts.setInt(scPointer + S_SKIP_EDGE1, renumberEdge(shortcuts.getInt(scPointer + S_SKIP_EDGE1),
+                    baseEdges, oldToNewEdges, oldToNewShortcuts));
+            shortcuts.setInt(scPointer + S_SKIP_EDGE2, renumberEdge(shortcuts.getInt(scPointer + S_SKIP_EDGE2),
+                    baseEdges, oldToNewEdges, oldToNewShortcuts));
+        }
+
+        // the stored nodes and orientations are outdated
+        if (unpackedShortcuts > 0)
+            prepareUnpacking();
+    }
+
+    private static int renumberEdge( int edge, int baseEdges, int[] oldToNewEdges, int[] oldToNewShortcuts )
+    {
+        if (!EdgeIterator.Edge.isValid(edge))
+            return edge;
+
+        if (edge < baseEdges)
+            return oldToNewEdges[edge];
+
+        return baseEdges + oldToNewShortcuts[edge - baseEdges];
+    }
+
+    private boolean existsInLevels( int nodeIndex )
+    {
+        return ((long) nodeIndex + 1) * nodeEntryBytes <= levels.getCapacity();
+    }
+
+    private void ensureLevelsIndex( int nodeIndex )
+    {
+        levels.ensureCapacity(((long) nodeIndex + 1) * nodeEntryBytes);
+    }
+
+    /**
+     * @return the index of the first shortcut of the specified node or -1
+     */
+    private int getFirstShortcut( int nodeIndex )
+    {
+        if (!existsInLevels(nodeIndex))
+            return -1;
+
+        return levels.getInt((long) nodeIndex * nodeEntryBytes + N_SC_REF) - 1;
+    }
+
+    private void setFirstShortcut( int nodeIndex, int shortcut )
+    {
+        levels.setInt((long) nodeIndex * nodeEntryBytes + N_SC_REF, shortcut + 1);
+    }
+
+    private int getLinkPos( int nodeThis, long scPointer )
+    {
+        return shortcuts.getInt(scPointer + S_NODEA) == nodeThis ? S_LINKA : S_LINKB;
+    }
+
+    @Override
+    public void setLevel( int nodeIndex, int level )
+    {
+        if (nodeIndex >= getNodes())
+            return;
+
+        ensureLevelsIndex(nodeIndex);
+        levels.setInt((long) nodeIndex * nodeEntryBytes + N_LEVEL, level);
+    }
+
+    @Override
+    public int getLevel( int nodeIndex )
+    {
+        // automatically allocate new nodes only via creating edges or setting node properties
+        if (nodeIndex >= getNodes())
+            throw new IllegalStateException("node " + nodeIndex + " is invalid. Not in [0," + getNodes() + ")");
+
+        if (!existsInLevels(nodeIndex))
+            return 0;
+
+        return levels.getInt((long) nodeIndex * nodeEntryBytes + N_LEVEL);
+    }
+
+    @Override
+    public boolean isShortcut( int edgeId )
+    {
+        return edgeId >= storage.getBaseEdgeCount();
+    }
+
+    @Override
+    public void prepareUnpacking()
+    {
+        unpacking.ensureCapacity(Math.max(unpackingEntryBytes, (long) shortcutCount * unpackingEntryBytes));
+        for (int shortcut = 0; shortcut < shortcutCount; shortcut++)
+        {
+            long uPointer = (long) shortcut * unpackingEntryBytes;
+            unpacking.setInt(uPointer + U_NODE, calcUnpacking(shortcut));
+            unpacking.setInt(uPointer + U_MILLIS_A, 0);
+            unpacking.setInt(uPointer + U_MILLIS_B, 0);
+        }
+        unpackedShortcuts = shortcutCount;
+
+        // the skipped edges of an updated shortcut can be newer shortcuts so calcShortcutMillis
+        // recurses and stores the times of the skipped shortcuts on the fly
+        for (int shortcut = 0; shortcut < shortcutCount; shortcut++)
+        {
+            calcShortcutMillis(shortcut, true);
+            calcShortcutMillis(shortcut, false);
+        }
+        unpackedMillis = true;
+    }
+
+    /**
+     * @return the time to travel the specified shortcut starting at node A (fromA) or node B or -1
+     * if this is not possible
+     */
+    private long calcShortcutMillis( int shortcut, boolean fromA )
+    {
+        long uPointer = (long) shortcut * unpackingEntryBytes + (fromA ? U_MILLIS_A : U_MILLIS_B);
+        int stored = unpacking.getInt(uPointer);
+        if (stored != 0)
+            return stored - 1;
+
+        long scPointer = (long) shortcut * shortcutEntryBytes;
+        int value = unpacking.getInt((long) shortcut * unpackingEntryBytes + U_NODE);
+        if (value == 0 || (shortcuts.getInt(scPointer + S_ACCESS) & (fromA ? FWD : BWD)) == 0)
+            return -1;
+
+        int nodeA = shortcuts.getInt(scPointer + S_NODEA);
+        int nodeB = shortcuts.getInt(scPointer + S_NODEB);
+        int middle = Math.abs(value) - 1;
+        // skipped edge 1 is adjacent to node A if value is positive
+        int edgeA = shortcuts.getInt(scPointer + (value > 0 ? S_SKIP_EDGE1 : S_SKIP_EDGE2));
+        int edgeB = shortcuts.getInt(scPointer + (value > 0 ? S_SKIP_EDGE2 : S_SKIP_EDGE1));
+        long millisA = fromA ? calcEdgeMillis(edgeA, nodeA, middle) : calcEdgeMillis(edgeA, middle, nodeA);
+        long millisB = fromA ? calcEdgeMillis(edgeB, middle, nodeB) : calcEdgeMillis(edgeB, nodeB, middle);
+        if (millisA < 0 || millisB < 0 || millisA + millisB >= Integer.MAX_VALUE)
+            return -1;
+
+        unpacking.setInt(uPointer, (int) (millisA + millisB) + 1);
+        return millisA + millisB;
+    }
+
+    /**
+     * @return the time to travel the specified edge from the node 'from' to the node 'to' or -1 if
+     * this is not possible. The time of an original edge is calculated like in Path.
+     */
+    private long calcEdgeMillis( int edgeId, int from, int to )
+    {
+        if (isShortcut(edgeId))
+        {
+            int shortcut = edgeId - storage.getBaseEdgeCount();
+            return calcShortcutMillis(shortcut, shortcuts.getInt((long) shortcut * shortcutEntryBytes + S_NODEA) == from);
+        }
+
+        EdgeIteratorState edgeState = getEdgeProps(edgeId, to);
+        if (edgeState == null || !encoder.isForward(edgeState.getFlags()))
+            return -1;
+
+        double speed = encoder.getSpeed(edgeState.getFlags());
+        if (Double.isInfinite(speed) || Double.isNaN(speed) || speed <= 0)
+            return -1;
+
+        return (long) (edgeState.getDistance() * 3600 / speed);
+    }
+
+    private int calcUnpacking( int shortcut )
+    {
+        long scPointer = (long) shortcut * shortcutEntryBytes;
+        int nodeA = shortcuts.getInt(scPointer + S_NODEA);
+        int nodeB = shortcuts.getInt(scPointer + S_NODEB);
+        int edge1 = shortcuts.getInt(scPointer + S_SKIP_EDGE1);
+        int edge2 = shortcuts.getInt(scPointer + S_SKIP_EDGE2);
+        // for loops it is not clear which skipped edge comes first
+        if (nodeA == nodeB || !EdgeIterator.Edge.isValid(edge1) || !EdgeIterator.Edge.isValid(edge2))
+            return 0;
+
+        int middleA = getOtherNode(edge1, nodeA);
+        if (middleA >= 0 && getOtherNode(edge2, nodeB) == middleA)
+            return middleA + 1;
+
+        int middleB = getOtherNode(edge1, nodeB);
+        if (middleB >= 0 && getOtherNode(edge2, nodeA) == middleB)
+            return -(middleB + 1);
+
+        return 0;
+    }
+
+    /**
+     * @return the node of the specified edge which is not the specified node or -1 if the edge is
+     * not adjacent to it
+     */
+    private int getOtherNode( int edgeId, int node )
+    {
+        int nodeA, nodeB;
+        if (isShortcut(edgeId))
+        {
+            int shortcut = edgeId - storage.getBaseEdgeCount();
+            if (shortcut >= shortcutCount)
+                return -1;
+
+            long scPointer = (long) shortcut * shortcutEntryBytes;
+            nodeA = shortcuts.getInt(scPointer + S_NODEA);
+            nodeB = shortcuts.getInt(scPointer + S_NODEB);
+        } else
+        {
+            nodeA = storage.getBaseNodeA(edgeId);
+            nodeB = storage.getBaseNodeB(edgeId);
+        }
+
+        if (nodeA == node)
+            return nodeB;
+        if (nodeB == node)
+            return nodeA;
+        return -1;
+    }
+
+    private int getUnpacking( int edgeId )
+    {
+        int shortcut = edgeId - storage.getBaseEdgeCount();
+        if (shortcut < 0 || shortcut >= unpackedShortcuts)
+            return 0;
+
+        return unpacking.getInt((long) shortcut * unpackingEntryBytes + U_NODE);
+    }
+
+    @Override
+    public int getSkippedNode( int shortcutId )
+    {
+        return Math.abs(getUnpacking(shortcutId)) - 1;
+    }
+
+    @Override
+    public int getSkippedEdge( int shortcutId, int node )
+    {
+        int value = getUnpacking(shortcutId);
+        if (value == 0)
+            throw new IllegalStateException("Shortcut " + shortcutId + " cannot be unpacked, call prepareUnpacking before");
+
+        long scPointer = (long) (shortcutId - storage.getBaseEdgeCount()) * shortcutEntryBytes;
+        boolean adjToA = shortcuts.getInt(scPointer + S_NODEA) == node;
+        // value is negative if skipped edge 1 is adjacent to node B
+        if (adjToA == value > 0)
+            return shortcuts.getInt(scPointer + S_SKIP_EDGE1);
+        return shortcuts.getInt(scPointer + S_SKIP_EDGE2);
+    }
+
+    @Override
+    public long getShortcutMillis( int shortcutId, int baseNode )
+    {
+        int shortcut = shortcutId - storage.getBaseEdgeCount();
+        if (!unpackedMillis || shortcut < 0 || shortcut >= unpackedShortcuts)
+            return -1;
+
+        long uPointer = (long) shortcut * unpackingEntryBytes;
+        boolean fromA = shortcuts.getInt((long) shortcut * shortcutEntryBytes + S_NODEA) == baseNode;
+        return unpacking.getInt(uPointer + (fromA ? U_MILLIS_A : U_MILLIS_B)) - 1L;
+    }
+
+    @Override
+    public EdgeSkipIterState shortcut( int a, int b )
+    {
+        storage.ensureNodeIndex(Math.max(a, b));
+        int shortcut = shortcutCount;
+        if (storage.getBaseEdgeCount() + shortcut + 1 < 0)
+            throw new IllegalStateException("too many shortcuts. new edge id would be negative. " + name);
+
+        shortcutCount++;
+        shortcuts.ensureCapacity((long) shortcutCount * shortcutEntryBytes);
+        int nodeA = Math.min(a, b);
+        int nodeB = Math.max(a, b);
+        ensureLevelsIndex(nodeB);
+        long scPointer = (long) shortcut * shortcutEntryBytes;
+        shortcuts.setInt(scPointer + S_NODEA, nodeA);
+        shortcuts.setInt(scPointer + S_NODEB, nodeB);
+        shortcuts.setInt(scPointer + S_LINKA, getFirstShortcut(nodeA) + 1);
+        setFirstShortcut(nodeA, shortcut);
+        if (nodeA != nodeB)
+        {
+            shortcuts.setInt(scPointer + S_LINKB, getFirstShortcut(nodeB) + 1);
+            setFirstShortcut(nodeB, shortcut);
+        } else
+        {
+            shortcuts.setInt(scPointer + S_LINKB, 0);
+        }
+        shortcuts.setInt(scPointer + S_DIST, 0);
+        shortcuts.setInt(scPointer + S_WEIGHT, 0);
+        shortcuts.setInt(scPointer + S_ACCESS, 0);
+        shortcuts.setInt(scPointer + S_SKIP_EDGE1, EdgeIterator.NO_EDGE);
+        shortcuts.setInt(scPointer + S_SKIP_EDGE2, EdgeIterator.NO_EDGE);
+        return getEdgeProps(storage.getBaseEdgeCount() + shortcut, b);
+    }
+
+    @Override
+    public void disconnect( EdgeSkipExplorer explorer, EdgeIteratorState edgeState )
+    {
+        // only shortcuts are disconnected as the normal edges are shared with other level graphs
+        if (!isShortcut(edgeState.getEdge()))
+            return;
+
+        int node = edgeState.getAdjNode();
+        int toRemove = edgeState.getEdge() - storage.getBaseEdgeCount();
+        long prevPointer = -1;
+        int shortcut = getFirstShortcut(node);
+        while (shortcut >= 0)
+        {
+            long scPointer = (long) shortcut * shortcutEntryBytes;
+            int next = shortcuts.getInt(scPointer + getLinkPos(node, scPointer));
+            if (shortcut == toRemove)
+            {
+                if (prevPointer < 0)
+                    levels.setInt((long) node * nodeEntryBytes + N_SC_REF, next);
+                else
+                    shortcuts.setInt(prevPointer + getLinkPos(node, prevPointer), next);
+                break;
+            }
+            prevPointer = scPointer;
+            shortcut = next - 1;
+        }
+    }
+
+    @Override
+    public EdgeSkipIterState edge( int a, int b )
+    {
+        EdgeIteratorState edge = storage.edge(a, b);
+        return getEdgeProps(edge.getEdge(), b);
+    }
+
+    @Override
+    public EdgeSkipIterState edge( int a, int b, double distance, boolean bothDirections )
+    {
+        EdgeSkipIterState edge = edge(a, b);
+        edge.setDistance(distance).setFlags(storage.getEncodingManager().flagsDefault(true, bothDirections));
+        return edge;
+    }
+
+    @Override
+    public EdgeSkipIterState getEdgeProps( int edgeId, int adjNode )
+    {
+        if (!isShortcut(edgeId))
+        {
+            EdgeIteratorState edge = storage.getBaseEdgeProps(edgeId, adjNode);
+            if (edge == null)
+                return null;
+
+            LevelEdge levelEdge = new LevelEdge();
+            levelEdge.setBaseEdge(edge);
+            return levelEdge;
+        }
+
+        int shortcut = edgeId - storage.getBaseEdgeCount();
+        if (shortcut >= shortcutCount)
+            throw new IllegalStateException("edgeId " + edgeId + " out of bounds [0,"
+                    + (storage.getBaseEdgeCount() + shortcutCount) + "]");
+
+        long scPointer = (long) shortcut * shortcutEntryBytes;
+        int nodeA = shortcuts.getInt(scPointer + S_NODEA);
+        int nodeB = shortcuts.getInt(scPointer + S_NODEB);
+        LevelEdge levelEdge = new LevelEdge();
+        if (adjNode == nodeB || adjNode == Integer.MIN_VALUE)
+            levelEdge.setShortcut(shortcut, nodeA);
+        else if (adjNode == nodeA)
+            levelEdge.setShortcut(shortcut, nodeB);
+        else
+            // if edgeId exists but adjacent nodes do not match
+            return null;
+
+        return levelEdge;
+    }
+
+    @Override
+    public EdgeSkipExplorer createEdgeExplorer()
+    {
+        return createEdgeExplorer(EdgeFilter.ALL_EDGES);
+    }
+
+    @Override
+    public EdgeSkipExplorer createEdgeExplorer( EdgeFilter filter )
+    {
+        return new LevelEdgeIterator(filter);
+    }
+
+    @Override
+    public AllEdgesSkipIterator getAllEdges()
+    {
+        return new AllLevelEdgeIterator();
+    }
+
+    @Override
+    public int getNodes()
+    {
+        return storage.getNodes();
+    }
+
+    @Override
+    public NodeAccess getNodeAccess()
+    {
+        return storage.getNodeAccess();
+    }
+
+    @Override
+    public BBox getBounds()
+    {
+        return storage.getBounds();
+    }
+
+    @Override
+    public Graph getBaseGraph()
+    {
+        if (baseGraph == null)
+            baseGraph = new BaseGraph(this);
+
+        return baseGraph;
+    }
+
+    /**
+     * Copies the normal edges together with the levels and shortcuts into the specified level
+     * graph which must have the same name, e.g. the level graph of a storage created via
+     * GHUtility.newStorage. The other level graphs of the storage are copied as well, as all of
+     * them share the normal edges. Other graphs cannot store the shortcuts and are rejected.
+     */
+    @Override
+    public Graph copyTo( Graph g )
+    {
+        if (!(g instanceof LevelGraphOverlay))
+            throw new IllegalArgumentException("The shortcuts of level graph " + name + " can only be copied into "
+                    + "the level graph of another LevelGraphStorage but was " + g);
+
+        LevelGraphOverlay other = (LevelGraphOverlay) g;
+        if (!name.equals(other.name))
+            throw new IllegalArgumentException("Level graph " + name + " cannot be copied into the level graph "
+                    + other.name);
+
+        storage.copyTo(other.storage);
+        return g;
+    }
+
+    @Override
+    public GraphExtension getExtension()
+    {
+        return storage.getExtension();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "levelGraph|" + name + "|shortcuts:" + shortcutCount;
+    }
+
+    /**
+     * The state of a normal edge or a shortcut. For normal edges all calls are delegated to the
+     * edge state of the underlying storage.
+     */
+    class LevelEdge implements EdgeSkipIterState
+    {
+        int baseNode;
+        int adjNode;
+        int edgeId = EdgeIterator.NO_EDGE;
+        boolean reverse;
+        long scPointer;
+        // null if this is a shortcut
+        EdgeIteratorState baseEdge;
+
+        final void setBaseEdge( EdgeIteratorState edge )
+        {
+            baseEdge = edge;
+            edgeId = edge.getEdge();
+            baseNode = edge.getBaseNode();
+            adjNode = edge.getAdjNode();
+        }
+
+        final void setShortcut( int shortcut, int baseNode )
+        {
+            baseEdge = null;
+            scPointer = (long) shortcut * shortcutEntryBytes;
+            edgeId = storage.getBaseEdgeCount() + shortcut;
+            this.baseNode = baseNode;
+            int nodeA = shortcuts.getInt(scPointer + S_NODEA);
+            adjNode = nodeA == baseNode ? shortcuts.getInt(scPointer + S_NODEB) : nodeA;
+            reverse = baseNode > adjNode;
+        }
+
+        private void checkNoShortcut( String method )
+        {
+            if (baseEdge == null)
+                throw new IllegalStateException("Cannot call " + method + " on shortcut " + edgeId);
+        }
+
+        private void checkShortcut( String method )
+        {
+            if (baseEdge != null)
+                throw new IllegalStateException(method + " is only available for shortcuts");
+        }
+
+        @Override
+        public final int getEdge()
+        {
+            return edgeId;
+        }
+
+        @Override
+        public final int getBaseNode()
+        {
+            return baseNode;
+        }
+
+        @Override
+        public final int getAdjNode()
+        {
+            return adjNode;
+        }
+
+        @Override
+        public final boolean isShortcut()
+        {
+            return baseEdge == null;
+        }
+
+        @Override
+        public final double getDistance()
+        {
+            if (baseEdge != null)
+                return baseEdge.getDistance();
+
+            int val = shortcuts.getInt(scPointer + S_DIST);
+            if (val == Integer.MAX_VALUE)
+                return Double.POSITIVE_INFINITY;
+
+            return val / INT_DIST_FACTOR;
+        }
+
+        @Override
+        public final EdgeIteratorState setDistance( double dist )
+        {
+            if (baseEdge != null)
+            {
+                baseEdge.setDistance(dist);
+                return this;
+            }
+
+            int integ = (int) (dist * INT_DIST_FACTOR);
+            if (integ < 0)
+                throw new IllegalArgumentException("Distance cannot be empty: "
+                        + dist + ", maybe overflow issue? integer: " + integ);
+
+            shortcuts.setInt(scPointer + S_DIST, integ);
+            return this;
+        }
+
+        @Override
+        public final long getFlags()
+        {
+            if (baseEdge != null)
+                return baseEdge.getFlags();
+
+            int access = shortcuts.getInt(scPointer + S_ACCESS);
+            if (reverse && access != (FWD | BWD))
+                access = ((access & FWD) << 1) | ((access & BWD) >> 1);
+
+            return accessFlags[access];
+        }
+
+        @Override
+        public final EdgeIteratorState setFlags( long flags )
+        {
+            if (baseEdge != null)
+            {
+                baseEdge.setFlags(flags);
+                return this;
+            }
+
+            boolean fwd = (flags & fwdFlag) != 0;
+            boolean bwd = (flags & bwdFlag) != 0;
+            if (reverse)
+            {
+                boolean tmp = fwd;
+                fwd = bwd;
+                bwd = tmp;
+            }
+            shortcuts.setInt(scPointer + S_ACCESS, (fwd ? FWD : 0) | (bwd ? BWD : 0));
+            return this;
+        }
+
+        @Override
+        public final EdgeSkipIterState setWeight( double weight )
+        {
+            checkShortcut("setWeight");
+            if (weight < 0)
+                throw new IllegalArgumentException("weight cannot be negative! but was " + weight);
+
+            int weightInt;
+            if (weight >= MAX_WEIGHT)
+                weightInt = Integer.MAX_VALUE;
+            else
+                weightInt = (int) (weight * WEIGHT_FACTOR);
+
+            shortcuts.setInt(scPointer + S_WEIGHT, weightInt);
+            return this;
+        }
+
+        @Override
+        public final double getWeight()
+        {
+            checkShortcut("getWeight");
+            int weightInt = shortcuts.getInt(scPointer + S_WEIGHT);
+            if (weightInt == Integer.MAX_VALUE)
+                return Double.POSITIVE_INFINITY;
+
+            return weightInt / WEIGHT_FACTOR;
+        }
+
+        @Override
+        public final int getSkippedEdge1()
+        {
+            if (baseEdge != null)
+                return EdgeIterator.NO_EDGE;
+
+            return shortcuts.getInt(scPointer + S_SKIP_EDGE1);
+        }
+
+        @Override
+        public final int getSkippedEdge2()
+        {
+            if (baseEdge != null)
+                return EdgeIterator.NO_EDGE;
+
+            return shortcuts.getInt(scPointer + S_SKIP_EDGE2);
+        }
+
+        @Override
+        public final void setSkippedEdges( int edge1, int edge2 )
+        {
+            if (EdgeIterator.Edge.isValid(edge1) != EdgeIterator.Edge.isValid(edge2))
+            {
+                throw new IllegalStateException("Skipped edges of a shortcut needs "
+                        + "to be both valid or invalid but they were not " + edge1 + ", " + edge2);
+            }
+
+            if (baseEdge != null)
+            {
+                if (EdgeIterator.Edge.isValid(edge1))
+                    throw new IllegalStateException("setSkippedEdges is only available for shortcuts");
+                return;
+            }
+
+            shortcuts.setInt(scPointer + S_SKIP_EDGE1, edge1);
+            shortcuts.setInt(scPointer + S_SKIP_EDGE2, edge2);
+            int shortcut = edgeId - storage.getBaseEdgeCount();
+            if (shortcut < unpackedShortcuts)
+            {
+                unpacking.setInt((long) shortcut * unpackingEntryBytes + U_NODE, 0);
+                // also the times of all shortcuts skipping this one are outdated
+                unpackedMillis = false;
+            }
+        }
+
+        @Override
+        public int getAdditionalField()
+        {
+            checkNoShortcut("getAdditionalField");
+            return baseEdge.getAdditionalField();
+        }
+
+        @Override
+        public EdgeIteratorState setAdditionalField( int value )
+        {
+            checkNoShortcut("setAdditionalField");
+            baseEdge.setAdditionalField(value);
+            return this;
+        }
+
+        @Override
+        public String getName()
+        {
+            checkNoShortcut("getName");
+            return baseEdge.getName();
+        }
+
+        @Override
+        public EdgeIteratorState setName( String name )
+        {
+            checkNoShortcut("setName");
+            baseEdge.setName(name);
+            return this;
+        }
+
+        @Override
+        public PointList fetchWayGeometry( int mode )
+        {
+            checkNoShortcut("fetchWayGeometry");
+            return baseEdge.fetchWayGeometry(mode);
+        }
+
+        @Override
+        public PointList fetchWayGeometry( int mode, PointList pointList )
+        {
+            checkNoShortcut("fetchWayGeometry");
+            return baseEdge.fetchWayGeometry(mode, pointList);
+        }
+
+        @Override
+        public EdgeIteratorState setWayGeometry( PointList list )
+        {
+            checkNoShortcut("setWayGeometry");
+            baseEdge.setWayGeometry(list);
+            return this;
+        }
+
+        @Override
+        public EdgeIteratorState detach( boolean reverseArg )
+        {
+            if (edgeId == EdgeIterator.NO_EDGE)
+                throw new IllegalStateException("call next before detaching");
+
+            LevelEdge edge = new LevelEdge();
+            if (baseEdge != null)
+            {
+                edge.setBaseEdge(baseEdge.detach(reverseArg));
+            } else
+            {
+                edge.setShortcut(edgeId - storage.getBaseEdgeCount(), reverseArg ? adjNode : baseNode);
+            }
+            return edge;
+        }
+
+        @Override
+        public EdgeIteratorState copyPropertiesTo( EdgeIteratorState edge )
+        {
+            checkNoShortcut("copyPropertiesTo");
+            return baseEdge.copyPropertiesTo(edge);
+        }
+
+        @Override
+        public String toString()
+        {
+            return getEdge() + " " + getBaseNode() + "-" + getAdjNode();
+        }
+    }
+
+    /**
+     * Traverses the shortcuts of a node first and then its normal edges.
+     */
+    class LevelEdgeIterator extends LevelEdge implements EdgeSkipExplorer, EdgeSkipIterator
+    {
+        private final EdgeFilter filter;
+        private final EdgeExplorer baseExplorer;
+        private EdgeIterator baseIter;
+        private int nextShortcut;
+
+        public LevelEdgeIterator( EdgeFilter filter )
+        {
+            if (filter == null)
+                throw new IllegalArgumentException("Instead null filter use EdgeFilter.ALL_EDGES");
+
+            this.filter = filter;
+            this.baseExplorer = storage.createBaseEdgeExplorer();
+        }
+
+        @Override
+        public EdgeSkipIterator setBaseNode( int baseNode )
+        {
+            this.baseNode = baseNode;
+            edgeId = EdgeIterator.NO_EDGE;
+            nextShortcut = getFirstShortcut(baseNode);
+            baseIter = baseExplorer.setBaseNode(baseNode);
+            return this;
+        }
+
+        @Override
+        public boolean next()
+        {
+            while (nextShortcut >= 0)
+            {
+                int node = baseNode;
+                setShortcut(nextShortcut, node);
+                nextShortcut = shortcuts.getInt(scPointer + getLinkPos(node, scPointer)) - 1;
+                if (filter.accept(this))
+                    return true;
+            }
+
+            while (baseIter.next())
+            {
+                setBaseEdge(baseIter);
+                if (filter.accept(this))
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Iterates over all normal edges and then over all shortcuts.
+     */
+    class AllLevelEdgeIterator extends LevelEdge implements AllEdgesSkipIterator
+    {
+        private final AllEdgesIterator baseIter = storage.getBaseAllEdges();
+        private boolean inBase = true;
+        private int shortcut = -1;
+
+        @Override
+        public int getCount()
+        {
+            return baseIter.getCount() + shortcutCount;
+        }
+
+        @Override
+        public boolean next()
+        {
+            if (inBase)
+            {
+                boolean hasNext = baseIter.next();
+                setBaseEdge(baseIter);
+                if (hasNext)
+                    return true;
+
+                inBase = false;
+            }
+
+            shortcut++;
+            if (shortcut >= shortcutCount)
+                return false;
+
+            setShortcut(shortcut, shortcuts.getInt((long) shortcut * shortcutEntryBytes + S_NODEA));
+            return true;
+        }
+    }
+}
@@ -1,14 +1,14 @@
 /*
  *  Licensed to GraphHopper and Peter Karich under one or more contributor
- *  license agreements. See the NOTICE file distributed with this work for 
+ *  license agreements. See the NOTICE file distributed with this work for
  *  additional information regarding copyright ownership.
- * 
- *  GraphHopper licenses this file to you under the Apache License, 
- *  Version 2.0 (the "License"); you may not use this file except in 
+ *
+ *  GraphHopper licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
  *  compliance with the License. You may obtain a copy of the License at
- * 
+ *
  *       http://www.apache.org/licenses/LICENSE-2.0
- * 
+ *
  *  Unless required by applicable law or agreed to in writing, software
  *  distributed under the License is distributed on an "AS IS" BASIS,
  *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
@@ -17,432 +17,376 @@
  */
 package com.graphhopper.storage;
 
-import com.graphhopper.routing.ch.PrepareEncoder;
+import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.AllEdgesSkipIterator;
 import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
 import com.graphhopper.util.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
- * A Graph necessary for shortcut algorithms like Contraction Hierarchies. This class enables the
- * storage to hold the level of a node and a shortcut edge per edge.
+ * A Graph necessary for shortcut algorithms like Contraction Hierarchies. The normal edges are
+ * stored once and several level graphs, e.g. one per vehicle and weighting, can be added on top of
+ * them. Every level graph stores the levels and its shortcuts in separate DataAccess objects so
+ * that all of them fit into the same graph folder and can be prepared concurrently.
+ * <p/>
+ * The LevelGraph methods of this class itself are delegated to the first added level graph. If no
+ * level graph was added before create or loadExisting one for the first vehicle is used.
  * <p/>
  * @see GraphBuilder
  * @author Peter Karich
  */
 public class LevelGraphStorage extends GraphHopperStorage implements LevelGraph
 {
-    private static final double WEIGHT_FACTOR = 1000f;
-    // 2 bits for access, for now only 32bit => not Long.MAX
-    private static final long MAX_WEIGHT_LONG = (Integer.MAX_VALUE >> 2) << 2;
-    private static final double MAX_WEIGHT = (Integer.MAX_VALUE >> 2) / WEIGHT_FACTOR;
-    private int I_SKIP_EDGE1;
-    private int I_SKIP_EDGE2;
-    private int I_LEVEL;
-    // after the last edge only shortcuts are stored
-    private int lastEdgeIndex = -1;
-    private final long scDirMask = PrepareEncoder.getScDirMask();
-    private final Graph baseGraph;
+    private final List<LevelGraphOverlay> levelGraphs = new ArrayList<LevelGraphOverlay>(2);
+    private LevelGraphOverlay defaultLevelGraph;
+    private Graph baseGraph;
 
     public LevelGraphStorage( Directory dir, EncodingManager encodingManager, boolean enabled3D )
     {
         super(dir, encodingManager, enabled3D);
-        baseGraph = new BaseGraph(this);
     }
 
-    @Override
-    public boolean isShortcut( int edgeId )
+    /**
+     * Adds a level graph for the specified vehicle and weighting. This has to be done before
+     * create or loadExisting is called.
+     */
+    public LevelGraph addLevelGraph( FlagEncoder encoder, String weighting )
     {
-        return edgeId > lastEdgeIndex;
+        checkInit();
+        String name = createLevelGraphName(encoder, weighting);
+        for (LevelGraphOverlay lg : levelGraphs)
+        {
+            if (lg.getName().equals(name))
+                throw new IllegalArgumentException("Level graph " + name + " already exists");
+        }
+
+        LevelGraphOverlay lg = new LevelGraphOverlay(this, name, encoder);
+        levelGraphs.add(lg);
+        if (defaultLevelGraph == null)
+            defaultLevelGraph = lg;
+
+        return lg;
+    }
+
+    /**
+     * @return the level graph for the specified vehicle and weighting or null if not available
+     */
+    public LevelGraph getLevelGraph( FlagEncoder encoder, String weighting )
+    {
+        String name = createLevelGraphName(encoder, weighting);
+        for (LevelGraphOverlay lg : levelGraphs)
+        {
+            if (lg.getName().equals(name))
+                return lg;
+        }
+        return null;
+    }
+
+    /**
+     * @return the names of all level graphs in the format vehicle_weighting
+     */
+    public List<String> getLevelGraphNames()
+    {
+        List<String> names = new ArrayList<String>(levelGraphs.size());
+        for (LevelGraphOverlay lg : levelGraphs)
+        {
+            names.add(lg.getName());
+        }
+        return Collections.unmodifiableList(names);
+    }
+
+    static String createLevelGraphName( FlagEncoder encoder, String weighting )
+    {
+        return (encoder.toString() + "_" + weighting).toLowerCase();
+    }
+
+    private void ensureDefaultLevelGraph()
+    {
+        if (defaultLevelGraph == null)
+            addLevelGraph(getEncodingManager().fetchEdgeEncoders().get(0), "fastest");
+    }
+
+    private LevelGraphOverlay getDefault()
+    {
+        if (defaultLevelGraph == null)
+            throw new IllegalStateException("Call create or loadExisting before using the level graph");
+
+        return defaultLevelGraph;
+    }
+
+    boolean hasShortcuts()
+    {
+        for (LevelGraphOverlay lg : levelGraphs)
+        {
+            if (lg.getShortcutCount() > 0)
+                return true;
+        }
+        return false;
     }
 
     @Override
-    protected void initStorage()
+    public boolean isShortcut( int edgeId )
     {
-        super.initStorage();
-        I_SKIP_EDGE1 = nextEdgeEntryIndex(4);
-        I_SKIP_EDGE2 = nextEdgeEntryIndex(4);
-        I_LEVEL = nextNodeEntryIndex(4);
-        initNodeAndEdgeEntrySize();
+        return getDefault().isShortcut(edgeId);
     }
 
     @Override
     public final void setLevel( int nodeIndex, int level )
     {
-        if (nodeIndex >= getNodes())
-            return;
-
-        nodes.setInt((long) nodeIndex * nodeEntryBytes + I_LEVEL, level);
+        getDefault().setLevel(nodeIndex, level);
     }
 
     @Override
     public final int getLevel( int nodeIndex )
     {
-        // automatically allocate new nodes only via creating edges or setting node properties
-        if (nodeIndex >= getNodes())
-            throw new IllegalStateException("node " + nodeIndex + " is invalid. Not in [0," + getNodes() + ")");
-
-        return nodes.getInt((long) nodeIndex * nodeEntryBytes + I_LEVEL);
+        return getDefault().getLevel(nodeIndex);
     }
 
     @Override
     public EdgeSkipIterState shortcut( int a, int b )
     {
-        return createEdge(a, b);
+        return getDefault().shortcut(a, b);
     }
 
     @Override
     public EdgeSkipIterState edge( int a, int b )
     {
-        if (lastEdgeIndex + 1 < edgeCount)
+        if (hasShortcuts())
             throw new IllegalStateException("Cannot create after shortcut was created");
 
-        lastEdgeIndex = edgeCount;
-        return createEdge(a, b);
-    }
-
-    private EdgeSkipIterState createEdge( int a, int b )
-    {
         ensureNodeIndex(Math.max(a, b));
         int edgeId = internalEdgeAdd(a, b);
-        EdgeSkipIteratorImpl iter = new EdgeSkipIteratorImpl(EdgeFilter.ALL_EDGES);
-        iter.setBaseNode(a);
-        iter.setEdgeId(edgeId);
-        iter.next();
-        iter.setSkippedEdges(EdgeIterator.NO_EDGE, EdgeIterator.NO_EDGE);
-        return iter;
+        return getDefault().getEdgeProps(edgeId, b);
     }
 
+    /**
+     * Disconnects the edges (higher->lower node) via the specified edgeState pointing from lower to
+     * higher node.
+     * <p>
+     * @param edgeState the edge from lower to higher
+     */
     @Override
-    public EdgeSkipExplorer createEdgeExplorer()
+    public void disconnect( EdgeSkipExplorer explorer, EdgeIteratorState edgeState )
     {
-        return createEdgeExplorer(EdgeFilter.ALL_EDGES);
+        getDefault().disconnect(explorer, edgeState);
     }
 
     @Override
-    public EdgeSkipExplorer createEdgeExplorer( EdgeFilter filter )
+    public void prepareUnpacking()
     {
-        return new EdgeSkipIteratorImpl(filter);
+        getDefault().prepareUnpacking();
     }
 
     @Override
-    public LevelGraphStorage create( long nodeCount )
+    public int getSkippedNode( int shortcutId )
     {
-        super.create(nodeCount);
-        return this;
+        return getDefault().getSkippedNode(shortcutId);
     }
 
     @Override
-    public final EdgeSkipIterState getEdgeProps( int edgeId, int endNode )
+    public int getSkippedEdge( int shortcutId, int node )
     {
-        return (EdgeSkipIterState) super.getEdgeProps(edgeId, endNode);
+        return getDefault().getSkippedEdge(shortcutId, node);
     }
 
-    class EdgeSkipIteratorImpl extends EdgeIterable implements EdgeSkipExplorer, EdgeSkipIterator
+    @Override
+    public long getShortcutMillis( int shortcutId, int baseNode )
     {
-        public EdgeSkipIteratorImpl( EdgeFilter filter )
-        {
-            super(filter);
-        }
-
-        @Override
-        public final EdgeSkipIterator setBaseNode( int baseNode )
-        {
-            super.setBaseNode(baseNode);
-            return this;
-        }
-
-        @Override
-        public final void setSkippedEdges( int edge1, int edge2 )
-        {
-            if (EdgeIterator.Edge.isValid(edge1) != EdgeIterator.Edge.isValid(edge2))
-            {
-                throw new IllegalStateException("Skipped edges of a shortcut needs "
-                        + "to be both valid or invalid but they were not " + edge1 + ", " + edge2);
-            }
-            edges.setInt(edgePointer + I_SKIP_EDGE1, edge1);
-            edges.setInt(edgePointer + I_SKIP_EDGE2, edge2);
-        }
-
-        @Override
-        public final int getSkippedEdge1()
-        {
-            return edges.getInt(edgePointer + I_SKIP_EDGE1);
-        }
-
-        @Override
-        public final int getSkippedEdge2()
-        {
-            return edges.getInt(edgePointer + I_SKIP_EDGE2);
-        }
-
-        @Override
-        public final boolean isShortcut()
-        {
-            return edgeId > lastEdgeIndex;
-        }
-
-        @Override
-        public final EdgeSkipIterState setWeight( double weight )
-        {
-            LevelGraphStorage.this.setWeight(this, weight);
-            return this;
-        }
-
-        @Override
-        public final double getWeight()
-        {
-            return LevelGraphStorage.this.getWeight(this);
-        }
-
-        @Override
-        public final EdgeIteratorState detach( boolean reverseArg )
-        {
-            if (edgeId == nextEdge)
-                throw new IllegalStateException("call next before detaching");
-            EdgeSkipIteratorImpl iter = new EdgeSkipIteratorImpl(filter);
-            iter.setBaseNode(baseNode);
-            iter.setEdgeId(edgeId);
-            iter.next();
-            if (reverseArg)
-            {
-                iter.reverse = !this.reverse;
-                iter.adjNode = baseNode;
-                iter.baseNode = adjNode;
-            }
-            return iter;
-        }
-
-        @Override
-        public final EdgeIteratorState copyPropertiesTo( EdgeIteratorState edge )
-        {
-            super.copyPropertiesTo(edge);
-
-//            EdgeSkipIterator eSkip = (EdgeSkipIterator) edge;
-//            setSkippedEdges(eSkip.getSkippedEdge1(), eSkip.getSkippedEdge2());
-            return edge;
-        }
-
-        @Override
-        public String getName()
-        {
-            if (isShortcut())
-                throw new IllegalStateException("Cannot call getName on shortcut " + getEdge());
-            return super.getName();
-        }
-
-        @Override
-        public EdgeIteratorState setName( String name )
-        {
-            if (isShortcut())
-                throw new IllegalStateException("Cannot call setName on shortcut " + getEdge());
-            return super.setName(name);
-        }
-
-        @Override
-        public PointList fetchWayGeometry( int mode )
-        {
-            if (isShortcut())
-                throw new IllegalStateException("Cannot call fetchWayGeometry on shortcut " + getEdge());
-            return super.fetchWayGeometry(mode);
-        }
+        return getDefault().getShortcutMillis(shortcutId, baseNode);
+    }
 
-        @Override
-        public EdgeIteratorState setWayGeometry( PointList list )
-        {
-            if (isShortcut())
-                throw new IllegalStateException("Cannot call setWayGeometry on shortcut " + getEdge());
-            return super.setWayGeometry(list);
-        }
+    @Override
+    public EdgeSkipExplorer createEdgeExplorer()
+    {
+        return createEdgeExplorer(EdgeFilter.ALL_EDGES);
     }
 
     @Override
-    long reverseFlags( long edgePointer, long flags )
+    public EdgeSkipExplorer createEdgeExplorer( EdgeFilter filter )
     {
-        boolean isShortcut = edgePointer > (long) lastEdgeIndex * edgeEntryBytes;
-        if (!isShortcut)
-            return super.reverseFlags(edgePointer, flags);
+        return getDefault().createEdgeExplorer(filter);
+    }
 
-        // we need a special swapping for level graph if it is a shortcut as we only store the weight and access flags then
-        long dir = flags & scDirMask;
-        if (dir == scDirMask || dir == 0)
-            return flags;
+    @Override
+    public final EdgeSkipIterState getEdgeProps( int edgeId, int endNode )
+    {
+        return getDefault().getEdgeProps(edgeId, endNode);
+    }
 
-        // swap the last bits with this mask
-        return flags ^ scDirMask;
+    @Override
+    public AllEdgesSkipIterator getAllEdges()
+    {
+        return getDefault().getAllEdges();
     }
 
     /**
-     * Disconnects the edges (higher->lower node) via the specified edgeState pointing from lower to
-     * higher node.
-     * <p>
-     * @param edgeState the edge from lower to higher
+     * @return an explorer which only traverses the normal edges
      */
-    public void disconnect( EdgeSkipExplorer explorer, EdgeIteratorState edgeState )
+    EdgeExplorer createBaseEdgeExplorer()
     {
-        // search edge with opposite direction but we need to know the previousEdge for the internalEdgeDisconnect so we cannot simply do:
-        // EdgeIteratorState tmpIter = getEdgeProps(iter.getEdge(), iter.getBaseNode());
-        EdgeSkipIterator tmpIter = explorer.setBaseNode(edgeState.getAdjNode());
-        int tmpPrevEdge = EdgeIterator.NO_EDGE;
-        while (tmpIter.next())
-        {
-            if (tmpIter.isShortcut() && tmpIter.getEdge() == edgeState.getEdge())
-            {
-                internalEdgeDisconnect(edgeState.getEdge(), (long) tmpPrevEdge * edgeEntryBytes, edgeState.getAdjNode(), edgeState.getBaseNode());
-                break;
-            }
-
-            tmpPrevEdge = tmpIter.getEdge();
-        }
+        return new EdgeIterable(EdgeFilter.ALL_EDGES);
     }
 
-    @Override
-    public AllEdgesSkipIterator getAllEdges()
+    AllEdgesIterator getBaseAllEdges()
     {
-        return new AllEdgeSkipIterator();
+        return super.getAllEdges();
     }
 
-    class AllEdgeSkipIterator extends AllEdgeIterator implements AllEdgesSkipIterator
+    EdgeIteratorState getBaseEdgeProps( int edgeId, int adjNode )
     {
-        @Override
-        public final void setSkippedEdges( int edge1, int edge2 )
-        {
-            edges.setInt(edgePointer + I_SKIP_EDGE1, edge1);
-            edges.setInt(edgePointer + I_SKIP_EDGE2, edge2);
-        }
+        return super.getEdgeProps(edgeId, adjNode);
+    }
 
-        @Override
-        public final int getSkippedEdge1()
-        {
-            return edges.getInt(edgePointer + I_SKIP_EDGE1);
-        }
+    int getBaseNodeA( int edgeId )
+    {
+        return edges.getInt((long) edgeId * edgeEntryBytes + E_NODEA);
+    }
 
-        @Override
-        public final int getSkippedEdge2()
-        {
-            return edges.getInt(edgePointer + I_SKIP_EDGE2);
-        }
+    int getBaseNodeB( int edgeId )
+    {
+        return edges.getInt((long) edgeId * edgeEntryBytes + E_NODEB);
+    }
 
-        @Override
-        public final boolean isShortcut()
-        {
-            return edgePointer / edgeEntryBytes > lastEdgeIndex;
-        }
+    int getBaseEdgeCount()
+    {
+        return edgeCount;
+    }
 
-        @Override
-        public final EdgeSkipIterState setWeight( double weight )
+    @Override
+    public LevelGraphStorage create( long nodeCount )
+    {
+        checkInit();
+        ensureDefaultLevelGraph();
+        super.create(nodeCount);
+        for (LevelGraphOverlay lg : levelGraphs)
         {
-            LevelGraphStorage.this.setWeight(this, weight);
-            return this;
+            lg.create(nodeCount);
         }
-
-        @Override
-        public final double getWeight()
+        String str = "";
+        for (String name : getLevelGraphNames())
         {
-            return LevelGraphStorage.this.getWeight(this);
+            if (!str.isEmpty())
+                str += ",";
+            str += name;
         }
+        getProperties().put("graph.levelGraphs", str);
+        return this;
     }
 
     @Override
-    protected SingleEdge createSingleEdge( int edge, int nodeId )
+    public boolean loadExisting()
     {
-        return new SingleLevelEdge(edge, nodeId);
-    }
-
-    class SingleLevelEdge extends SingleEdge implements EdgeSkipIterState
-    {
-        public SingleLevelEdge( int edge, int nodeId )
-        {
-            super(edge, nodeId);
-        }
+        ensureDefaultLevelGraph();
+        if (!super.loadExisting())
+            return false;
 
-        @Override
-        public final void setSkippedEdges( int edge1, int edge2 )
+        String levelGraphsStr = getProperties().get("graph.levelGraphs");
+        for (LevelGraphOverlay lg : levelGraphs)
         {
-            edges.setInt(edgePointer + I_SKIP_EDGE1, edge1);
-            edges.setInt(edgePointer + I_SKIP_EDGE2, edge2);
+            if (!lg.loadExisting())
+                throw new IllegalStateException("Cannot load level graph " + lg.getName()
+                        + ". Stored level graphs: " + levelGraphsStr + ", dir:" + getDirectory().getLocation());
         }
+        return true;
+    }
 
-        @Override
-        public final int getSkippedEdge1()
+    @Override
+    public void setSegmentSize( int bytes )
+    {
+        super.setSegmentSize(bytes);
+        for (LevelGraphOverlay lg : levelGraphs)
         {
-            return edges.getInt(edgePointer + I_SKIP_EDGE1);
+            lg.setSegmentSize(bytes);
         }
+    }
 
-        @Override
-        public final int getSkippedEdge2()
-        {
-            return edges.getInt(edgePointer + I_SKIP_EDGE2);
-        }
+    @Override
+    public void flush()
+    {
+        if (getDirectory().isFrozen())
+            return;
 
-        @Override
-        public final boolean isShortcut()
+        super.flush();
+        for (LevelGraphOverlay lg : levelGraphs)
         {
-            return edgeId > lastEdgeIndex;
+            lg.flush();
         }
+    }
 
-        @Override
-        public final EdgeSkipIterState setWeight( double weight )
+    @Override
+    public void close()
+    {
+        super.close();
+        for (LevelGraphOverlay lg : levelGraphs)
         {
-            LevelGraphStorage.this.setWeight(this, weight);
-            return this;
+            lg.close();
         }
+    }
 
-        @Override
-        public final double getWeight()
+    @Override
+    public long getCapacity()
+    {
+        long cap = super.getCapacity();
+        for (LevelGraphOverlay lg : levelGraphs)
         {
-            return LevelGraphStorage.this.getWeight(this);
+            cap += lg.getCapacity();
         }
+        return cap;
     }
 
-    final void setWeight( EdgeSkipIterState edge, double weight )
+    @Override
+    public void optimize()
     {
-        if (!edge.isShortcut())
-            throw new IllegalStateException("setWeight is only available for shortcuts");
-        if (weight < 0)
-            throw new IllegalArgumentException("weight cannot be negative! but was " + weight);
-
-        long weightLong;
-        if (weight > MAX_WEIGHT)
-            weightLong = MAX_WEIGHT_LONG;
-        else
-            weightLong = ((long) (weight * WEIGHT_FACTOR)) << 2;
+        if (hasShortcuts())
+            throw new IllegalStateException("Cannot optimize a graph with shortcuts");
 
-        long accessFlags = edge.getFlags() & PrepareEncoder.getScDirMask();
-        edge.setFlags(weightLong | accessFlags);
+        super.optimize();
     }
 
-    final double getWeight( EdgeSkipIterState edge )
+    @Override
+    void nodeMoved( int oldIndex, int newIndex )
     {
-        if (!edge.isShortcut())
-            throw new IllegalStateException("getWeight is only available for shortcuts");
-
-        double weight = (edge.getFlags() >> 2) / WEIGHT_FACTOR;
-        if (weight >= MAX_WEIGHT)
-            return Double.POSITIVE_INFINITY;
-
-        return weight;
+        for (LevelGraphOverlay lg : levelGraphs)
+        {
+            lg.moveNode(oldIndex, newIndex);
+        }
     }
 
     @Override
-    protected int loadEdgesHeader()
+    void nodesRenumbered( int[] oldToNewNodes, int[] oldToNewEdges )
     {
-        int next = super.loadEdgesHeader();
-        lastEdgeIndex = edges.getHeader(next * 4);
-        return next + 1;
+        for (LevelGraphOverlay lg : levelGraphs)
+        {
+            lg.renumber(oldToNewNodes, oldToNewEdges);
+        }
     }
 
     @Override
-    protected int setEdgesHeader()
+    Graph _copyTo( GraphHopperStorage clonedG )
     {
-        int next = super.setEdgesHeader();
-        edges.setHeader(next * 4, lastEdgeIndex);
-        return next + 1;
+        super._copyTo(clonedG);
+        LevelGraphStorage clonedLG = (LevelGraphStorage) clonedG;
+        if (!clonedLG.getLevelGraphNames().equals(getLevelGraphNames()))
+            throw new IllegalStateException("level graphs cannot be different for cloned graph. "
+                    + "Cloned: " + clonedLG.getLevelGraphNames() + " vs " + getLevelGraphNames());
+
+        for (int i = 0; i < levelGraphs.size(); i++)
+        {
+            levelGraphs.get(i).copyTo(clonedLG.levelGraphs.get(i));
+        }
+        return clonedG;
     }
 
     @Override
     public Graph getBaseGraph()
     {
+        if (baseGraph == null)
+            baseGraph = new BaseGraph(getDefault());
+
         return baseGraph;
     }
 }
@@ -32,7 +32,7 @@ import java.util.List;
 
 /**
  * This is a data structure which uses the operating system to synchronize between disc and memory.
- * Use SynchDAWrapper if you intent to use this from multiple threads!
+ * Not thread safe while writing, after freeze the read methods can be used concurrently.
  * <p/>
  * @author Peter Karich
  */
@@ -76,6 +76,7 @@ public class MMapDataAccess extends AbstractDataAccess
     @Override
     public MMapDataAccess create( long bytes )
     {
+        ensureNotFrozen();
         if (!segments.isEmpty())
         {
             throw new IllegalThreadStateException("already created");
@@ -101,6 +102,7 @@ public class MMapDataAccess extends AbstractDataAccess
     @Override
     public boolean ensureCapacity( long bytes )
     {
+        ensureNotFrozen();
         return mapIt(HEADER_OFFSET, bytes, true);
     }
 
@@ -299,6 +301,7 @@ public class MMapDataAccess extends AbstractDataAccess
     @Override
     public final void setInt( long bytePos, int value )
     {
+        assert !frozen : "cannot change frozen " + getFullName();
         int bufferIndex = (int) (bytePos >>> segmentSizePower);
         int index = (int) (bytePos & indexDivisor);
         segments.get(bufferIndex).putInt(index, value);
@@ -315,6 +318,7 @@ public class MMapDataAccess extends AbstractDataAccess
     @Override
     public final void setShort( long bytePos, short value )
     {
+        assert !frozen : "cannot change frozen " + getFullName();
         int bufferIndex = (int) (bytePos >>> segmentSizePower);
         int index = (int) (bytePos & indexDivisor);
         segments.get(bufferIndex).putShort(index, value);
@@ -328,9 +332,27 @@ public class MMapDataAccess extends AbstractDataAccess
         return segments.get(bufferIndex).getShort(index);
     }
 
+    @Override
+    public final void setByte( long bytePos, byte value )
+    {
+        assert !frozen : "cannot change frozen " + getFullName();
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        segments.get(bufferIndex).put(index, value);
+    }
+
+    @Override
+    public final byte getByte( long bytePos )
+    {
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        return segments.get(bufferIndex).get(index);
+    }
+
     @Override
     public void setBytes( long bytePos, byte[] values, int length )
     {
+        assert !frozen : "cannot change frozen " + getFullName();
         assert length <= segmentSizeInBytes : "the length has to be smaller or equal to the segment size: " + length + " vs. " + segmentSizeInBytes;
         int bufferIndex = (int) (bytePos >>> segmentSizePower);
         int index = (int) (bytePos & indexDivisor);
@@ -358,18 +380,26 @@ public class MMapDataAccess extends AbstractDataAccess
         int bufferIndex = (int) (bytePos >>> segmentSizePower);
         int index = (int) (bytePos & indexDivisor);
         ByteBuffer bb = segments.get(bufferIndex);
-        bb.position(index);
+        // use only absolute reads as changing the position is not safe for concurrent readers
         int delta = index + length - segmentSizeInBytes;
         if (delta > 0)
         {
             length -= delta;
-            bb.get(values, 0, length);
+            for (int i = 0; i < length; i++)
+            {
+                values[i] = bb.get(index + i);
+            }
             bb = segments.get(bufferIndex + 1);
-            bb.position(0);
-            bb.get(values, length, delta);
+            for (int i = 0; i < delta; i++)
+            {
+                values[length + i] = bb.get(i);
+            }
         } else
         {
-            bb.get(values, 0, length);
+            for (int i = 0; i < length; i++)
+            {
+                values[i] = bb.get(index + i);
+            }
         }
     }
 
@@ -410,6 +440,7 @@ public class MMapDataAccess extends AbstractDataAccess
     @Override
     public void trimTo( long capacity )
     {
+        ensureNotFrozen();
         if (capacity < segmentSizeInBytes)
         {
             capacity = segmentSizeInBytes;
@@ -455,6 +486,7 @@ public class MMapDataAccess extends AbstractDataAccess
     @Override
     public void rename( String newName )
     {
+        ensureNotFrozen();
         if (!checkBeforeRename(newName))
         {
             return;
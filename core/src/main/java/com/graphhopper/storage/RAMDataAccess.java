@@ -26,7 +26,7 @@ import org.slf4j.LoggerFactory;
 
 /**
  * This is an in-memory byte-based data structure with the possibility to be stored on flush().
- * Thread safe.
+ * Not thread safe while writing, after freeze the read methods can be used concurrently.
  * <p/>
  * @author Peter Karich
  */
@@ -82,6 +82,7 @@ public class RAMDataAccess extends AbstractDataAccess
     @Override
     public RAMDataAccess create( long bytes )
     {
+        ensureNotFrozen();
         if (segments.length > 0)
             throw new IllegalThreadStateException("already created");
 
@@ -94,6 +95,7 @@ public class RAMDataAccess extends AbstractDataAccess
     @Override
     public boolean ensureCapacity(long bytes)
     {
+        ensureNotFrozen();
         if (bytes < 0)
             throw new IllegalArgumentException("new capacity has to be strictly positive");
 
@@ -211,6 +213,7 @@ public class RAMDataAccess extends AbstractDataAccess
     @Override
     public final void setInt( long bytePos, int value )
     {
+        assert !frozen : "cannot change frozen " + getFullName();
         assert segmentSizePower > 0 : "call create or loadExisting before usage!";
         int bufferIndex = (int) (bytePos >>> segmentSizePower);
         int index = (int) (bytePos & indexDivisor);
@@ -237,6 +240,7 @@ public class RAMDataAccess extends AbstractDataAccess
     @Override
     public final void setShort( long bytePos, short value )
     {
+        assert !frozen : "cannot change frozen " + getFullName();
         assert segmentSizePower > 0 : "call create or loadExisting before usage!";
         int bufferIndex = (int) (bytePos >>> segmentSizePower);
         int index = (int) (bytePos & indexDivisor);
@@ -254,9 +258,25 @@ public class RAMDataAccess extends AbstractDataAccess
         return bitUtil.toShort(segments[bufferIndex], index);
     }
 
+    @Override
+    public final void setByte( long bytePos, byte value )
+    {
+        assert !frozen : "cannot change frozen " + getFullName();
+        assert segmentSizePower > 0 : "call create or loadExisting before usage!";
+        segments[(int) (bytePos >>> segmentSizePower)][(int) (bytePos & indexDivisor)] = value;
+    }
+
+    @Override
+    public final byte getByte( long bytePos )
+    {
+        assert segmentSizePower > 0 : "call create or loadExisting before usage!";
+        return segments[(int) (bytePos >>> segmentSizePower)][(int) (bytePos & indexDivisor)];
+    }
+
     @Override
     public void setBytes( long bytePos, byte[] values, int length )
     {
+        assert !frozen : "cannot change frozen " + getFullName();
         assert length <= segmentSizeInBytes : "the length has to be smaller or equal to the segment size: " + length + " vs. " + segmentSizeInBytes;
         assert segmentSizePower > 0 : "call create or loadExisting before usage!";
         int bufferIndex = (int) (bytePos >>> segmentSizePower);
@@ -319,6 +339,7 @@ public class RAMDataAccess extends AbstractDataAccess
     @Override
     public void trimTo( long capacity )
     {
+        ensureNotFrozen();
         if (capacity > getCapacity())
         {
             throw new IllegalStateException("Cannot increase capacity (" + getCapacity() + ") to " + capacity
@@ -340,6 +361,7 @@ public class RAMDataAccess extends AbstractDataAccess
     @Override
     public void rename( String newName )
     {
+        ensureNotFrozen();
         if (!checkBeforeRename(newName))
         {
             return;
@@ -83,6 +83,7 @@ class RAMIntDataAccess extends AbstractDataAccess
     @Override
     public RAMIntDataAccess create( long bytes )
     {
+        ensureNotFrozen();
         if (segments.length > 0)
         {
             throw new IllegalThreadStateException("already created");
@@ -97,6 +98,7 @@ class RAMIntDataAccess extends AbstractDataAccess
     @Override
     public boolean ensureCapacity(long bytes)
     {
+        ensureNotFrozen();
         if (bytes < 0)
             throw new IllegalArgumentException("new capacity has to be strictly positive");
 
@@ -226,6 +228,7 @@ class RAMIntDataAccess extends AbstractDataAccess
     @Override
     public final void setInt( long bytePos, int value )
     {
+        assert !frozen : "cannot change frozen " + getFullName();
         assert segmentSizeIntsPower > 0 : "call create or loadExisting before usage!";
         bytePos >>>= 2;
         int bufferIndex = (int) (bytePos >>> segmentSizeIntsPower);
@@ -246,6 +249,7 @@ class RAMIntDataAccess extends AbstractDataAccess
     @Override
     public final void setShort( long bytePos, short value )
     {
+        assert !frozen : "cannot change frozen " + getFullName();
         assert segmentSizeIntsPower > 0 : "call create or loadExisting before usage!";
         if (bytePos % 4 != 0 && bytePos % 4 != 2)
             throw new IllegalMonitorStateException("bytePos of wrong multiple for RAMInt " + bytePos);
@@ -275,6 +279,18 @@ class RAMIntDataAccess extends AbstractDataAccess
             return (short) (segments[bufferIndex][index] >> 16);
     }
 
+    @Override
+    public void setByte( long bytePos, byte value )
+    {
+        throw new UnsupportedOperationException(toString() + " does not support byte based acccess. Use RAMDataAccess instead");
+    }
+
+    @Override
+    public byte getByte( long bytePos )
+    {
+        throw new UnsupportedOperationException(toString() + " does not support byte based acccess. Use RAMDataAccess instead");
+    }
+
     @Override
     public void getBytes( long bytePos, byte[] values, int length )
     {
@@ -319,6 +335,7 @@ class RAMIntDataAccess extends AbstractDataAccess
     @Override
     public void trimTo( long capacity )
     {
+        ensureNotFrozen();
         if (capacity < segmentSizeInBytes)
         {
             capacity = segmentSizeInBytes;
@@ -341,6 +358,7 @@ class RAMIntDataAccess extends AbstractDataAccess
     @Override
     public void rename( String newName )
     {
+        ensureNotFrozen();
         if (!checkBeforeRename(newName))
         {
             return;
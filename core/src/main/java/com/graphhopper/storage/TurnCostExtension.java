@@ -204,6 +204,20 @@ public class TurnCostExtension implements GraphExtension
         return EMPTY_FLAGS;
     }
 
+    /**
+     * Updates the from and to edges of all entries after the graph renumbered its edges. The
+     * entries of a node are found via the node field which moves together with the node.
+     */
+    void renumberEdges( int[] oldToNewEdges )
+    {
+        for (int i = 0; i < turnCostsCount; i++)
+        {
+            long costsBase = (long) i * turnCostsEntryBytes;
+            turnCosts.setInt(costsBase + TC_FROM, oldToNewEdges[turnCosts.getInt(costsBase + TC_FROM)]);
+            turnCosts.setInt(costsBase + TC_TO, oldToNewEdges[turnCosts.getInt(costsBase + TC_TO)]);
+        }
+    }
+
     private void ensureTurnCostIndex( int nodeIndex )
     {
         turnCosts.ensureCapacity(((long) nodeIndex + 4) * turnCostsEntryBytes);
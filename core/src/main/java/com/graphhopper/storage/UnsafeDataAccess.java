@@ -70,6 +70,7 @@ public class UnsafeDataAccess extends AbstractDataAccess
     @Override
     public UnsafeDataAccess create( long bytes )
     {
+        ensureNotFrozen();
         // TODO use unsafe.pageSize() instead segmentSizeInBytes?
         // e.g. on my system pageSize is only 4096
         setSegmentSize(segmentSizeInBytes);
@@ -80,6 +81,7 @@ public class UnsafeDataAccess extends AbstractDataAccess
     @Override
     public final boolean ensureCapacity(long bytes)
     {
+        ensureNotFrozen();
         return ensureCapacity(bytes, true);
     }
 
@@ -209,6 +211,7 @@ public class UnsafeDataAccess extends AbstractDataAccess
     @Override
     public final void setInt( long bytePos, int value )
     {
+        assert !frozen : "cannot change frozen " + getFullName();
         UNSAFE.putInt(address + bytePos, value);
     }
 
@@ -230,9 +233,23 @@ public class UnsafeDataAccess extends AbstractDataAccess
         UNSAFE.putShort(address + bytePos, value);
     }
 
+    @Override
+    public final void setByte( long bytePos, byte value )
+    {
+        assert !frozen : "cannot change frozen " + getFullName();
+        UNSAFE.putByte(address + bytePos, value);
+    }
+
+    @Override
+    public final byte getByte( long bytePos )
+    {
+        return UNSAFE.getByte(address + bytePos);
+    }
+
     @Override
     public final void setBytes( long bytePos, byte[] values, int length )
     {
+        assert !frozen : "cannot change frozen " + getFullName();
         for (int offset = 0; offset < length; offset++)
         {
             UNSAFE.putByte(address + bytePos + offset, values[offset]);
@@ -264,6 +281,7 @@ public class UnsafeDataAccess extends AbstractDataAccess
     @Override
     public final void trimTo( long bytes )
     {
+        ensureNotFrozen();
         if (bytes > this.capacity)
             throw new IllegalStateException("Use ensureCapacity to increase capacity!");
 
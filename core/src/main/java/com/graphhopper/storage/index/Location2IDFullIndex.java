@@ -113,6 +113,20 @@ public class Location2IDFullIndex implements LocationIndex
         return res;
     }
 
+    @Override
+    public QueryResult[] findClosestBatch( double[] lats, double[] lons, EdgeFilter edgeFilter )
+    {
+        if (lats.length != lons.length)
+            throw new IllegalArgumentException("Latitudes and longitudes differ in length " + lats.length + " vs. " + lons.length);
+
+        QueryResult[] results = new QueryResult[lats.length];
+        for (int i = 0; i < lats.length; i++)
+        {
+            results[i] = findClosest(lats[i], lons[i], edgeFilter);
+        }
+        return results;
+    }
+
     @Override
     public int findID( double lat, double lon )
     {
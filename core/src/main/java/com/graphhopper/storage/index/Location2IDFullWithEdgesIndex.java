@@ -149,6 +149,20 @@ public class Location2IDFullWithEdgesIndex implements LocationIndex
         return res;
     }
 
+    @Override
+    public QueryResult[] findClosestBatch( double[] lats, double[] lons, EdgeFilter edgeFilter )
+    {
+        if (lats.length != lons.length)
+            throw new IllegalArgumentException("Latitudes and longitudes differ in length " + lats.length + " vs. " + lons.length);
+
+        QueryResult[] results = new QueryResult[lats.length];
+        for (int i = 0; i < lats.length; i++)
+        {
+            results[i] = findClosest(lats[i], lons[i], edgeFilter);
+        }
+        return results;
+    }
+
     @Override
     public LocationIndex create( long size )
     {
@@ -380,6 +380,20 @@ class Location2IDQuadtree implements LocationIndex
         return res;
     }
 
+    @Override
+    public QueryResult[] findClosestBatch( double[] lats, double[] lons, EdgeFilter edgeFilter )
+    {
+        if (lats.length != lons.length)
+            throw new IllegalArgumentException("Latitudes and longitudes differ in length " + lats.length + " vs. " + lons.length);
+
+        QueryResult[] results = new QueryResult[lats.length];
+        for (int i = 0; i < lats.length; i++)
+        {
+            results[i] = findClosest(lats[i], lons[i], edgeFilter);
+        }
+        return results;
+    }
+
     public void goFurtherHook( int n )
     {
     }
@@ -58,6 +58,14 @@ public interface LocationIndex extends Storable<LocationIndex>
      */
     QueryResult findClosest( double lat, double lon, EdgeFilter edgeFilter );
 
+    /**
+     * Looks up many points at once, which can be faster than calling findClosest for every point.
+     * <p>
+     * @param lats the latitudes of the points, must have the same length as lons
+     * @return the result of findClosest for every point in the order of the input
+     */
+    QueryResult[] findClosestBatch( double[] lats, double[] lons, EdgeFilter edgeFilter );
+
     /**
      * @param approxDist false if initialization and querying should be faster but less precise.
      */
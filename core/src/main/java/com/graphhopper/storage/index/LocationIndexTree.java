@@ -18,7 +18,7 @@
 package com.graphhopper.storage.index;
 
 import com.graphhopper.coll.GHBitSet;
-import com.graphhopper.coll.GHTBitSet;
+import com.graphhopper.coll.GHIntStampedSet;
 import com.graphhopper.geohash.SpatialKeyAlgo;
 import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.storage.DataAccess;
@@ -31,9 +31,15 @@ import com.graphhopper.util.shapes.BBox;
 import com.graphhopper.util.shapes.GHPoint;
 import gnu.trove.iterator.TIntIterator;
 import gnu.trove.list.array.TIntArrayList;
-import gnu.trove.procedure.TIntProcedure;
 import gnu.trove.set.hash.TIntHashSet;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -63,11 +69,29 @@ public class LocationIndexTree implements LocationIndex
     private int minResolutionInMeter = 300;
     private double deltaLat;
     private double deltaLon;
+    // the area covered by the root of the tree
+    private BBox treeBounds;
     private int initSizeLeafEntries = 4;
     private boolean initialized = false;
     // do not start with 0 as a positive value means leaf and a negative means "entry with subentries"
     static final int START_POINTER = 1;
     int maxRegionSearch = 4;
+    // smaller ranges of a batch are not worth the overhead of a task
+    private static final int BATCH_RANGE_SIZE = 500;
+    private int threads = 1;
+    // runs the ranges of findClosestBatch if more than one thread is configured, created on demand
+    private ExecutorService batchExecutor;
+    // the reusable sets and queue of findClosest, static so that a thread does not keep an index
+    // and its graph reachable
+    private static final ThreadLocal<LookupBuffers> lookupBuffers = new ThreadLocal<LookupBuffers>()
+    {
+        @Override
+        protected LookupBuffers initialValue()
+        {
+            return new LookupBuffers();
+        }
+    };
+
     /**
      * If normed distance is smaller than this value the node or edge is 'identical' and the
      * algorithm can stop search.
@@ -104,6 +128,50 @@ public class LocationIndexTree implements LocationIndex
         return this;
     }
 
+    /**
+     * Specifies how many threads create the in-memory index in prepareIndex. Every thread fills a
+     * partial tree from its own range of edges and the partial trees are merged before storing, so
+     * the stored index is the same for every number of threads. Big batches of findClosestBatch are
+     * also looked up by this number of threads.
+     */
+    public synchronized LocationIndexTree setThreads( int threads )
+    {
+        if (threads < 1 || threads == this.threads)
+            return this;
+
+        this.threads = threads;
+        shutdownBatchExecutor();
+        return this;
+    }
+
+    private synchronized ExecutorService getBatchExecutor()
+    {
+        if (batchExecutor == null)
+        {
+            final AtomicInteger counter = new AtomicInteger();
+            batchExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory()
+            {
+                @Override
+                public Thread newThread( Runnable r )
+                {
+                    Thread thread = new Thread(r, "location-index-batch-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return batchExecutor;
+    }
+
+    private synchronized void shutdownBatchExecutor()
+    {
+        if (batchExecutor != null)
+        {
+            batchExecutor.shutdownNow();
+            batchExecutor = null;
+        }
+    }
+
     /**
      * Searches also neighbouring tiles until the maximum distance from the query point is reached
      * (minResolutionInMeter*regionAround). Set to 1 for to force avoiding a fall back, good if you
@@ -178,6 +246,7 @@ public class LocationIndexTree implements LocationIndex
             throw new IllegalStateException("sum of all shifts does not fit into a long variable");
 
         keyAlgo = new SpatialKeyAlgo(shiftSum).bounds(bounds);
+        treeBounds = bounds.clone();
         parts = Math.round(Math.sqrt(parts));
         deltaLat = (bounds.maxLat - bounds.minLat) / parts;
         deltaLon = (bounds.maxLon - bounds.minLon) / parts;
@@ -231,7 +300,50 @@ public class LocationIndexTree implements LocationIndex
     InMemConstructionIndex getPrepareInMemIndex()
     {
         InMemConstructionIndex memIndex = new InMemConstructionIndex(entries[0]);
-        memIndex.prepare();
+        if (threads <= 1)
+        {
+            memIndex.prepare();
+            return memIndex;
+        }
+
+        int edges = graph.getAllEdges().getCount();
+        int edgesPerThread = Math.max(1, (edges + threads - 1) / threads);
+        List<Callable<InMemConstructionIndex>> tasks = new ArrayList<Callable<InMemConstructionIndex>>();
+        for (int fromEdge = 0; fromEdge < edges; fromEdge += edgesPerThread)
+        {
+            final int from = fromEdge;
+            final int to = (int) Math.min((long) fromEdge + edgesPerThread, edges);
+            tasks.add(new Callable<InMemConstructionIndex>()
+            {
+                @Override
+                public InMemConstructionIndex call()
+                {
+                    InMemConstructionIndex partialIndex = new InMemConstructionIndex(entries[0]);
+                    partialIndex.prepare(from, to);
+                    return partialIndex;
+                }
+            });
+        }
+
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try
+        {
+            // merge in the order of the edge ranges, the sorted leafs make the result independent of it anyway
+            for (Future<InMemConstructionIndex> future : executorService.invokeAll(tasks))
+            {
+                memIndex.merge(memIndex.root, future.get().root);
+            }
+        } catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while creating location index", ex);
+        } catch (ExecutionException ex)
+        {
+            throw new RuntimeException("Problem while creating location index", ex.getCause());
+        } finally
+        {
+            executorService.shutdownNow();
+        }
         return memIndex;
     }
 
@@ -347,6 +459,7 @@ public class LocationIndexTree implements LocationIndex
     @Override
     public void close()
     {
+        shutdownBatchExecutor();
         dataAccess.close();
     }
 
@@ -379,6 +492,9 @@ public class LocationIndexTree implements LocationIndex
             root = new InMemTreeEntry(noOfSubEntries);
         }
 
+        /**
+         * Adds all edges to this index.
+         */
         void prepare()
         {
             final EdgeIterator allIter = graph.getAllEdges();
@@ -386,25 +502,7 @@ public class LocationIndexTree implements LocationIndex
             {
                 while (allIter.next())
                 {
-                    int nodeA = allIter.getBaseNode();
-                    int nodeB = allIter.getAdjNode();
-                    double lat1 = nodeAccess.getLatitude(nodeA);
-                    double lon1 = nodeAccess.getLongitude(nodeA);
-                    double lat2;
-                    double lon2;
-                    PointList points = allIter.fetchWayGeometry(0);
-                    int len = points.getSize();
-                    for (int i = 0; i < len; i++)
-                    {
-                        lat2 = points.getLatitude(i);
-                        lon2 = points.getLongitude(i);
-                        addNode(nodeA, nodeB, lat1, lon1, lat2, lon2);
-                        lat1 = lat2;
-                        lon1 = lon2;
-                    }
-                    lat2 = nodeAccess.getLatitude(nodeB);
-                    lon2 = nodeAccess.getLongitude(nodeB);
-                    addNode(nodeA, nodeB, lat1, lon1, lat2, lon2);
+                    addEdge(allIter);
                 }
             } catch (Exception ex)
             {
@@ -413,6 +511,59 @@ public class LocationIndexTree implements LocationIndex
             }
         }
 
+        /**
+         * Adds the edges with an id in [fromEdge, toEdge) to this index. Only the edges of the
+         * range are read, so every thread of getPrepareInMemIndex reads its own part of the graph.
+         */
+        void prepare( int fromEdge, int toEdge )
+        {
+            for (int edge = fromEdge; edge < toEdge; edge++)
+            {
+                EdgeIteratorState edgeState;
+                try
+                {
+                    edgeState = graph.getEdgeProps(edge, Integer.MIN_VALUE);
+                } catch (IllegalStateException ex)
+                {
+                    // removed edges are skipped like in getAllEdges
+                    continue;
+                }
+
+                try
+                {
+                    addEdge(edgeState);
+                } catch (Exception ex)
+                {
+                    logger.error("Problem! base:" + edgeState.getBaseNode() + ", adj:" + edgeState.getAdjNode()
+                            + ", edge:" + edge, ex);
+                    return;
+                }
+            }
+        }
+
+        private void addEdge( EdgeIteratorState edge )
+        {
+            int nodeA = edge.getBaseNode();
+            int nodeB = edge.getAdjNode();
+            double lat1 = nodeAccess.getLatitude(nodeA);
+            double lon1 = nodeAccess.getLongitude(nodeA);
+            double lat2;
+            double lon2;
+            PointList points = edge.fetchWayGeometry(0);
+            int len = points.getSize();
+            for (int i = 0; i < len; i++)
+            {
+                lat2 = points.getLatitude(i);
+                lon2 = points.getLongitude(i);
+                addNode(nodeA, nodeB, lat1, lon1, lat2, lon2);
+                lat1 = lat2;
+                lon1 = lon2;
+            }
+            lat2 = nodeAccess.getLatitude(nodeB);
+            lon2 = nodeAccess.getLongitude(nodeB);
+            addNode(nodeA, nodeB, lat1, lon1, lat2, lon2);
+        }
+
         void addNode( final int nodeA, final int nodeB,
                 final double lat1, final double lon1,
                 final double lat2, final double lon2 )
@@ -462,6 +613,40 @@ public class LocationIndexTree implements LocationIndex
             }
         }
 
+        /**
+         * Adds all node ids of the other tree to the specified entry of this tree. Subtrees which
+         * only exist in the other tree are taken over without copying.
+         */
+        void merge( InMemEntry entry, InMemEntry other )
+        {
+            if (entry.isLeaf())
+            {
+                InMemLeafEntry leafEntry = (InMemLeafEntry) entry;
+                TIntArrayList otherNodes = ((InMemLeafEntry) other).getResults();
+                int len = otherNodes.size();
+                for (int i = 0; i < len; i++)
+                {
+                    leafEntry.addNode(otherNodes.get(i));
+                }
+                return;
+            }
+
+            InMemTreeEntry treeEntry = (InMemTreeEntry) entry;
+            InMemTreeEntry otherTreeEntry = (InMemTreeEntry) other;
+            for (int index = 0; index < treeEntry.subEntries.length; index++)
+            {
+                InMemEntry otherSubEntry = otherTreeEntry.subEntries[index];
+                if (otherSubEntry == null)
+                    continue;
+
+                InMemEntry subEntry = treeEntry.subEntries[index];
+                if (subEntry == null)
+                    treeEntry.setSubEntry(index, otherSubEntry);
+                else
+                    merge(subEntry, otherSubEntry);
+            }
+        }
+
         Collection<InMemEntry> getEntriesOf( int selectDepth )
         {
             List<InMemEntry> list = new ArrayList<InMemEntry>();
@@ -582,7 +767,7 @@ public class LocationIndexTree implements LocationIndex
     }
 
     // fillIDs according to how they are stored
-    final void fillIDs( long keyPart, int intIndex, TIntHashSet set, int depth )
+    final void fillIDs( long keyPart, int intIndex, GHBitSet set, int depth )
     {
         long pointer = (long) intIndex << 2;
         if (depth == entries.length)
@@ -640,10 +825,15 @@ public class LocationIndexTree implements LocationIndex
      */
     final double calculateRMin( double lat, double lon, int paddingTiles )
     {
-        GHPoint query = new GHPoint(lat, lon);
-        long key = keyAlgo.encode(query);
-        GHPoint center = new GHPoint();
-        keyAlgo.decode(key, center);
+        return calculateRMin(lat, lon, paddingTiles, new GHPoint());
+    }
+
+    /**
+     * @param center is overwritten with the center of the tile of the given coordinate
+     */
+    final double calculateRMin( double lat, double lon, int paddingTiles, GHPoint center )
+    {
+        keyAlgo.decode(keyAlgo.encode(lat, lon), center);
 
         // deltaLat and deltaLon comes from the LocationIndex:
         double minLat = center.lat - (0.5 + paddingTiles) * deltaLat;
@@ -651,27 +841,27 @@ public class LocationIndexTree implements LocationIndex
         double minLon = center.lon - (0.5 + paddingTiles) * deltaLon;
         double maxLon = center.lon + (0.5 + paddingTiles) * deltaLon;
 
-        double dSouthernLat = query.lat - minLat;
-        double dNorthernLat = maxLat - query.lat;
-        double dWesternLon = query.lon - minLon;
-        double dEasternLon = maxLon - query.lon;
+        double dSouthernLat = lat - minLat;
+        double dNorthernLat = maxLat - lat;
+        double dWesternLon = lon - minLon;
+        double dEasternLon = maxLon - lon;
 
         // convert degree deltas into a radius in meter
         double dMinLat, dMinLon;
         if (dSouthernLat < dNorthernLat)
         {
-            dMinLat = distCalc.calcDist(query.lat, query.lon, minLat, query.lon);
+            dMinLat = distCalc.calcDist(lat, lon, minLat, lon);
         } else
         {
-            dMinLat = distCalc.calcDist(query.lat, query.lon, maxLat, query.lon);
+            dMinLat = distCalc.calcDist(lat, lon, maxLat, lon);
         }
 
         if (dWesternLon < dEasternLon)
         {
-            dMinLon = distCalc.calcDist(query.lat, query.lon, query.lat, minLon);
+            dMinLon = distCalc.calcDist(lat, lon, lat, minLon);
         } else
         {
-            dMinLon = distCalc.calcDist(query.lat, query.lon, query.lat, maxLon);
+            dMinLon = distCalc.calcDist(lat, lon, lat, maxLon);
         }
 
         double rMin = Math.min(dMinLat, dMinLon);
@@ -707,7 +897,23 @@ public class LocationIndexTree implements LocationIndex
      */
     public final TIntHashSet findNetworkEntries( double queryLat, double queryLon, int maxIteration )
     {
-        TIntHashSet foundEntries = new TIntHashSet();
+        GHIntStampedSet foundEntries = new GHIntStampedSet();
+        findNetworkEntries(queryLat, queryLon, maxIteration, foundEntries, new GHPoint());
+        TIntHashSet set = new TIntHashSet(foundEntries.size());
+        for (int i = 0; i < foundEntries.size(); i++)
+        {
+            set.add(foundEntries.get(i));
+        }
+        return set;
+    }
+
+    /**
+     * Clears the specified set and fills it with the network entries in the order they were found.
+     */
+    final void findNetworkEntries( double queryLat, double queryLon, int maxIteration,
+                                   GHIntStampedSet foundEntries, GHPoint tmpCenter )
+    {
+        foundEntries.clear();
 
         for (int iteration = 0; iteration < maxIteration; iteration++)
         {
@@ -741,7 +947,7 @@ public class LocationIndexTree implements LocationIndex
                 // Check if something was found already...
                 if (foundEntries.size() > 0)
                 {
-                    double rMin = calculateRMin(queryLat, queryLon, iteration);
+                    double rMin = calculateRMin(queryLat, queryLon, iteration, tmpCenter);
                     double minDistance = calcMinDistance(queryLat, queryLon, foundEntries);
 
                     if (minDistance < rMin)
@@ -753,7 +959,6 @@ public class LocationIndexTree implements LocationIndex
                 }
             }
         }
-        return foundEntries;
     }
 
     final double calcMinDistance( double queryLat, double queryLon, TIntHashSet pointset )
@@ -774,67 +979,474 @@ public class LocationIndexTree implements LocationIndex
         return min;
     }
 
-    final void findNetworkEntriesSingleRegion( TIntHashSet storedNetworkEntryIds, double queryLat, double queryLon )
+    final double calcMinDistance( double queryLat, double queryLon, GHIntStampedSet pointset )
+    {
+        double min = Double.MAX_VALUE;
+        for (int i = 0; i < pointset.size(); i++)
+        {
+            int node = pointset.get(i);
+            double dist = distCalc.calcDist(queryLat, queryLon, nodeAccess.getLat(node), nodeAccess.getLon(node));
+            if (dist < min)
+            {
+                min = dist;
+            }
+        }
+        return min;
+    }
+
+    final void findNetworkEntriesSingleRegion( GHBitSet storedNetworkEntryIds, double queryLat, double queryLon )
     {
         long keyPart = createReverseKey(queryLat, queryLon);
         fillIDs(keyPart, START_POINTER, storedNetworkEntryIds, 0);
     }
 
     @Override
-    public QueryResult findClosest( final double queryLat, final double queryLon, final EdgeFilter edgeFilter )
+    public QueryResult findClosest( double queryLat, double queryLon, EdgeFilter edgeFilter )
+    {
+        return findClosest(queryLat, queryLon, edgeFilter, new QueryResult(queryLat, queryLon));
+    }
+
+    /**
+     * Same as findClosest but fills the specified result instead of creating a new one. The sets
+     * and the queue of the search are kept per thread and reused, so apart from the search itself,
+     * the way geometry of the visited edges and the detached closest edge a lookup does not
+     * allocate.
+     * <p>
+     * @param closestMatch is reset and then filled with the closest match
+     * @return the specified closestMatch
+     */
+    public QueryResult findClosest( double queryLat, double queryLon, EdgeFilter edgeFilter, QueryResult closestMatch )
     {
         if (isClosed())
             throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
 
-        final TIntHashSet storedNetworkEntryIds = findNetworkEntries(queryLat, queryLon, maxRegionSearch);
-        final QueryResult closestMatch = new QueryResult(queryLat, queryLon);
+        closestMatch.reset(queryLat, queryLon);
+        LookupBuffers buffers = lookupBuffers.get();
+        GHIntStampedSet storedNetworkEntryIds = buffers.entries;
+        findNetworkEntries(queryLat, queryLon, maxRegionSearch, storedNetworkEntryIds, buffers.tmpCenter);
         if (storedNetworkEntryIds.isEmpty())
             return closestMatch;
 
-        // clone storedIds to avoid interference with forEach
-        final GHBitSet checkBitset = new GHTBitSet(new TIntHashSet(storedNetworkEntryIds));
+        // all network entries are visited already, so no search enters the start of another
+        storedNetworkEntryIds.copyTo(buffers.visited);
         // find nodes from the network entries which are close to 'point'
-        final EdgeExplorer explorer = graph.createEdgeExplorer();
-        storedNetworkEntryIds.forEach(new TIntProcedure()
+        LookupSearch search = new LookupSearch(queryLat, queryLon, edgeFilter, buffers, closestMatch);
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        for (int i = 0; i < storedNetworkEntryIds.size(); i++)
+        {
+            search.start(explorer, storedNetworkEntryIds.get(i));
+        }
+
+        if (closestMatch.isValid())
+        {
+            // denormalize distance            
+            closestMatch.setQueryDistance(distCalc.calcDenormalizedDist(closestMatch.getQueryDistance()));
+            closestMatch.calcSnappedPoint(distCalc);
+        }
+
+        return closestMatch;
+    }
+
+    /**
+     * The reusable state of findClosest for one thread. It must not reference an index.
+     */
+    private static final class LookupBuffers
+    {
+        final GHIntStampedSet entries = new GHIntStampedSet();
+        final GHIntStampedSet visited = new GHIntStampedSet();
+        final SimpleIntDeque fifo = new SimpleIntDeque();
+        final GHPoint tmpCenter = new GHPoint();
+    }
+
+    private final class LookupSearch extends XFirstSearchCheck
+    {
+        private final SimpleIntDeque fifo;
+        private final QueryResult closestMatch;
+
+        LookupSearch( double queryLat, double queryLon, EdgeFilter edgeFilter, LookupBuffers buffers,
+                      QueryResult closestMatch )
+        {
+            super(queryLat, queryLon, buffers.visited, edgeFilter);
+            this.fifo = buffers.fifo;
+            this.closestMatch = closestMatch;
+        }
+
+        @Override
+        protected SimpleIntDeque createFifo()
+        {
+            fifo.clear();
+            return fifo;
+        }
+
+        @Override
+        protected double getQueryDistance()
+        {
+            return closestMatch.getQueryDistance();
+        }
+
+        @Override
+        protected boolean check( int node, double normedDist, int wayIndex, EdgeIteratorState edge, QueryResult.Position pos )
+        {
+            if (normedDist < closestMatch.getQueryDistance())
+            {
+                closestMatch.setQueryDistance(normedDist);
+                closestMatch.setClosestNode(node);
+                closestMatch.setClosestEdge(edge.detach(false));
+                closestMatch.setWayIndex(wayIndex);
+                closestMatch.setSnappedPosition(pos);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Sorts the points by their spatial key before the lookup, so that consecutive lookups read the
+     * same parts of the tree and of the graph. If more than one thread is configured via setThreads
+     * big batches are split into ranges of nearby points which are looked up concurrently by an
+     * executor shared by all batches of this index.
+     */
+    @Override
+    public QueryResult[] findClosestBatch( double[] lats, double[] lons, EdgeFilter edgeFilter )
+    {
+        return findClosestBatch(lats, lons, edgeFilter, threads > 1 ? getBatchExecutor() : null);
+    }
+
+    /**
+     * Same as findClosestBatch but big batches are split into ranges of nearby points which are
+     * looked up by the specified executor.
+     * <p>
+     * @param executor the executor which looks up the ranges concurrently, limit its threads to
+     * avoid overloading the machine. If null all points are looked up in the calling thread.
+     */
+    public QueryResult[] findClosestBatch( final double[] lats, final double[] lons, final EdgeFilter edgeFilter,
+                                           ExecutorService executor )
+    {
+        if (lats.length != lons.length)
+            throw new IllegalArgumentException("Latitudes and longitudes differ in length " + lats.length + " vs. " + lons.length);
+
+        final int[] order = sortBySpatialKey(lats, lons);
+        final QueryResult[] results = new QueryResult[lats.length];
+        if (executor == null || order.length < 2 * BATCH_RANGE_SIZE)
+        {
+            findClosestBatch(lats, lons, edgeFilter, order, 0, order.length, results);
+            return results;
+        }
+
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(order.length / BATCH_RANGE_SIZE + 1);
+        for (int fromIndex = 0; fromIndex < order.length; fromIndex += BATCH_RANGE_SIZE)
+        {
+            final int from = fromIndex;
+            final int to = Math.min(fromIndex + BATCH_RANGE_SIZE, order.length);
+            tasks.add(new Callable<Object>()
+            {
+                @Override
+                public Object call()
+                {
+                    findClosestBatch(lats, lons, edgeFilter, order, from, to, results);
+                    return null;
+                }
+            });
+        }
+
+        try
+        {
+            for (Future<Object> future : executor.invokeAll(tasks))
+            {
+                future.get();
+            }
+        } catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while looking up " + lats.length + " points", ex);
+        } catch (ExecutionException ex)
+        {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+
+            throw new RuntimeException("Problem while looking up " + lats.length + " points", ex.getCause());
+        }
+        return results;
+    }
+
+    private void findClosestBatch( double[] lats, double[] lons, EdgeFilter edgeFilter, int[] order,
+                                   int from, int to, QueryResult[] results )
+    {
+        for (int i = from; i < to; i++)
+        {
+            int index = order[i];
+            results[index] = findClosest(lats[index], lons[index], edgeFilter,
+                    new QueryResult(lats[index], lons[index]));
+        }
+    }
+
+    /**
+     * @return the indices of the points ordered by their spatial key
+     */
+    final int[] sortBySpatialKey( double[] lats, double[] lons )
+    {
+        // the upper 31 bits of the key are precise enough for the order and leave room for the
+        // index without touching the sign
+        int keyShift = Math.max(0, keyAlgo.getBits() - 31);
+        long[] keysAndIndices = new long[lats.length];
+        for (int i = 0; i < lats.length; i++)
+        {
+            keysAndIndices[i] = ((keyAlgo.encode(lats[i], lons[i]) >>> keyShift) << 32) | i;
+        }
+        Arrays.sort(keysAndIndices);
+        int[] order = new int[lats.length];
+        for (int i = 0; i < order.length; i++)
+        {
+            order[i] = (int) keysAndIndices[i];
+        }
+        return order;
+    }
+
+    /**
+     * Finds the k edges closest to the specified point. The cells of the tree are visited best first
+     * ordered by their distance to the point, so only the cells which could contain one of the k
+     * closest edges are read.
+     * <p>
+     * @return one result per edge ordered by increasing distance. Less than k results are returned
+     * if the graph does not have enough edges accepted by the filter.
+     */
+    public List<QueryResult> findKNearest( double queryLat, double queryLon, int k, EdgeFilter edgeFilter )
+    {
+        if (k < 1)
+            throw new IllegalArgumentException("k must be at least 1 but was " + k);
+
+        return findNearest(queryLat, queryLon, k, Double.MAX_VALUE, edgeFilter);
+    }
+
+    /**
+     * Finds all edges which are closer than the specified radius to the point.
+     * <p>
+     * @return one result per edge ordered by increasing distance
+     */
+    public List<QueryResult> findWithin( double queryLat, double queryLon, double radiusInMeter, EdgeFilter edgeFilter )
+    {
+        if (radiusInMeter < 0)
+            throw new IllegalArgumentException("radius must not be negative but was " + radiusInMeter);
+
+        return findNearest(queryLat, queryLon, Integer.MAX_VALUE, distCalc.calcNormalizedDist(radiusInMeter), edgeFilter);
+    }
+
+    private List<QueryResult> findNearest( double queryLat, double queryLon, int k, double maxNormedDist,
+                                           EdgeFilter edgeFilter )
+    {
+        if (isClosed())
+            throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
+
+        // the worst of the current results is on top
+        PriorityQueue<QueryResult> results = new PriorityQueue<QueryResult>(Math.min(k, 100), new Comparator<QueryResult>()
         {
             @Override
-            public boolean execute( int networkEntryNodeId )
+            public int compare( QueryResult o1, QueryResult o2 )
             {
-                new XFirstSearchCheck(queryLat, queryLon, checkBitset, edgeFilter)
+                return Double.compare(o2.getQueryDistance(), o1.getQueryDistance());
+            }
+        });
+        PriorityQueue<TreeCell> cells = new PriorityQueue<TreeCell>();
+        cells.add(new TreeCell(START_POINTER, 0, 0, treeBounds.minLat, treeBounds.maxLat,
+                treeBounds.minLon, treeBounds.maxLon));
+        GHIntStampedSet checkedNodes = new GHIntStampedSet();
+        GHIntStampedSet checkedEdges = new GHIntStampedSet();
+        GHIntStampedSet cellNodes = new GHIntStampedSet();
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        while (!cells.isEmpty())
+        {
+            double limit = results.size() < k ? maxNormedDist : results.peek().getQueryDistance();
+            TreeCell cell = cells.poll();
+            if (cell.normedDist > limit)
+                break;
+
+            if (cell.depth < entries.length)
+            {
+                addSubCells(cells, cell, queryLat, queryLon, limit);
+                continue;
+            }
+
+            // a cell at the maximum depth is a leaf, so the key is not necessary
+            cellNodes.clear();
+            fillIDs(0, cell.intIndex, cellNodes, entries.length);
+            for (int i = 0; i < cellNodes.size(); i++)
+            {
+                int node = cellNodes.get(i);
+                if (!checkedNodes.addOnce(node))
+                    continue;
+
+                EdgeIterator iter = explorer.setBaseNode(node);
+                while (iter.next())
                 {
-                    @Override
-                    protected double getQueryDistance()
-                    {
-                        return closestMatch.getQueryDistance();
-                    }
+                    // an edge not accepted in this direction could be accepted from its other node
+                    if (!edgeFilter.accept(iter) || checkedEdges.contains(iter.getEdge()))
+                        continue;
 
-                    @Override
-                    protected boolean check( int node, double normedDist, int wayIndex, EdgeIteratorState edge, QueryResult.Position pos )
+                    checkedEdges.add(iter.getEdge());
+                    QueryResult res = calcClosestOnEdge(queryLat, queryLon, iter);
+                    if (res.getQueryDistance() > maxNormedDist)
+                        continue;
+
+                    if (results.size() < k)
+                    {
+                        results.add(res);
+                    } else if (res.getQueryDistance() < results.peek().getQueryDistance())
                     {
-                        if (normedDist < closestMatch.getQueryDistance())
-                        {
-                            closestMatch.setQueryDistance(normedDist);
-                            closestMatch.setClosestNode(node);
-                            closestMatch.setClosestEdge(edge.detach(false));
-                            closestMatch.setWayIndex(wayIndex);
-                            closestMatch.setSnappedPosition(pos);
-                            return true;
-                        }
-                        return false;
+                        results.poll();
+                        results.add(res);
                     }
-                }.start(explorer, networkEntryNodeId);
-                return true;
+                }
+            }
+        }
+
+        List<QueryResult> list = new ArrayList<QueryResult>(results);
+        Collections.sort(list, new Comparator<QueryResult>()
+        {
+            @Override
+            public int compare( QueryResult o1, QueryResult o2 )
+            {
+                int cmp = Double.compare(o1.getQueryDistance(), o2.getQueryDistance());
+                if (cmp != 0)
+                    return cmp;
+
+                return o1.getClosestEdge().getEdge() - o2.getClosestEdge().getEdge();
             }
         });
+        for (QueryResult res : list)
+        {
+            res.setQueryDistance(distCalc.calcDenormalizedDist(res.getQueryDistance()));
+            res.calcSnappedPoint(distCalc);
+        }
+        return list;
+    }
 
-        if (closestMatch.isValid())
+    /**
+     * Adds the existing sub cells of the specified cell which are not farther away than the limit.
+     * The bits of a sub index are the next bits of the spatial key, alternating between latitude
+     * and longitude.
+     */
+    private void addSubCells( PriorityQueue<TreeCell> cells, TreeCell cell, double queryLat, double queryLon,
+                              double limit )
+    {
+        long pointer = (long) cell.intIndex << 2;
+        int shift = shifts[cell.depth];
+        for (int index = 0; index < entries[cell.depth]; index++)
         {
-            // denormalize distance            
-            closestMatch.setQueryDistance(distCalc.calcDenormalizedDist(closestMatch.getQueryDistance()));
-            closestMatch.calcSnappedPoint(distCalc);
+            int value = dataAccess.getInt(pointer + (index << 2));
+            if (value <= 0)
+                continue;
+
+            double minLat = cell.minLat, maxLat = cell.maxLat, minLon = cell.minLon, maxLon = cell.maxLon;
+            for (int bit = 0; bit < shift; bit++)
+            {
+                boolean upper = ((index >>> bit) & 1) != 0;
+                if (((cell.keyBits + bit) & 1) == 0)
+                {
+                    double mid = (minLat + maxLat) / 2;
+                    if (upper)
+                        minLat = mid;
+                    else
+                        maxLat = mid;
+                } else
+                {
+                    double mid = (minLon + maxLon) / 2;
+                    if (upper)
+                        minLon = mid;
+                    else
+                        maxLon = mid;
+                }
+            }
+
+            TreeCell subCell = new TreeCell(value, cell.depth + 1, cell.keyBits + shift, minLat, maxLat, minLon, maxLon);
+            subCell.normedDist = distCalc.calcNormalizedDist(queryLat, queryLon,
+                    Math.max(minLat, Math.min(maxLat, queryLat)), Math.max(minLon, Math.min(maxLon, queryLon)));
+            if (subCell.normedDist <= limit)
+                cells.add(subCell);
         }
+    }
 
-        return closestMatch;
+    /**
+     * @return the closest point of the edge geometry to the query point with the normed distance
+     */
+    private QueryResult calcClosestOnEdge( double queryLat, double queryLon, EdgeIteratorState edge )
+    {
+        QueryResult res = new QueryResult(queryLat, queryLon);
+        PointList pointList = edge.fetchWayGeometry(3);
+        int last = pointList.getSize() - 1;
+        double prevLat = pointList.getLatitude(0);
+        double prevLon = pointList.getLongitude(0);
+        res.setQueryDistance(distCalc.calcNormalizedDist(queryLat, queryLon, prevLat, prevLon));
+        res.setWayIndex(0);
+        res.setSnappedPosition(QueryResult.Position.TOWER);
+        for (int pointIndex = 1; pointIndex <= last; pointIndex++)
+        {
+            double lat = pointList.getLatitude(pointIndex);
+            double lon = pointList.getLongitude(pointIndex);
+            if (distCalc.validEdgeDistance(queryLat, queryLon, prevLat, prevLon, lat, lon))
+            {
+                double normedDist = distCalc.calcNormalizedEdgeDistance(queryLat, queryLon, prevLat, prevLon, lat, lon);
+                if (normedDist < res.getQueryDistance())
+                {
+                    res.setQueryDistance(normedDist);
+                    res.setWayIndex(pointIndex - 1);
+                    res.setSnappedPosition(QueryResult.Position.EDGE);
+                }
+            }
+
+            double normedDist = distCalc.calcNormalizedDist(queryLat, queryLon, lat, lon);
+            if (normedDist < res.getQueryDistance())
+            {
+                res.setQueryDistance(normedDist);
+                res.setWayIndex(pointIndex);
+                res.setSnappedPosition(pointIndex == last ? QueryResult.Position.TOWER : QueryResult.Position.PILLAR);
+            }
+            prevLat = lat;
+            prevLon = lon;
+        }
+
+        int baseNode = edge.getBaseNode();
+        int adjNode = edge.getAdjNode();
+        if (res.getSnappedPosition() == QueryResult.Position.TOWER)
+        {
+            res.setClosestNode(res.getWayIndex() == 0 ? baseNode : adjNode);
+        } else
+        {
+            double baseDist = distCalc.calcNormalizedDist(queryLat, queryLon, pointList.getLatitude(0), pointList.getLongitude(0));
+            double adjDist = distCalc.calcNormalizedDist(queryLat, queryLon, pointList.getLatitude(last), pointList.getLongitude(last));
+            res.setClosestNode(adjDist < baseDist ? adjNode : baseNode);
+        }
+        res.setClosestEdge(edge.detach(false));
+        return res;
+    }
+
+    /**
+     * A cell of the tree which is queued by its distance to the query point.
+     */
+    private static class TreeCell implements Comparable<TreeCell>
+    {
+        final int intIndex;
+        final int depth;
+        // the number of key bits which lead to this cell
+        final int keyBits;
+        final double minLat, maxLat, minLon, maxLon;
+        double normedDist;
+
+        TreeCell( int intIndex, int depth, int keyBits, double minLat, double maxLat, double minLon, double maxLon )
+        {
+            this.intIndex = intIndex;
+            this.depth = depth;
+            this.keyBits = keyBits;
+            this.minLat = minLat;
+            this.maxLat = maxLat;
+            this.minLon = minLon;
+            this.maxLon = maxLon;
+        }
+
+        @Override
+        public int compareTo( TreeCell o )
+        {
+            return Double.compare(normedDist, o.normedDist);
+        }
     }
 
     /**
@@ -847,10 +1459,10 @@ public class LocationIndexTree implements LocationIndex
         double currLat;
         double currLon;
         int currNode;
-        final double queryLat;
-        final double queryLon;
-        final GHBitSet checkBitset;
-        final EdgeFilter edgeFilter;
+        double queryLat;
+        double queryLon;
+        GHBitSet checkBitset;
+        EdgeFilter edgeFilter;
 
         public XFirstSearchCheck( double queryLat, double queryLon, GHBitSet checkBitset, EdgeFilter edgeFilter )
         {
@@ -860,6 +1472,13 @@ public class LocationIndexTree implements LocationIndex
             this.edgeFilter = edgeFilter;
         }
 
+        @Override
+        public void start( EdgeExplorer explorer, int startNode )
+        {
+            goFurther = true;
+            super.start(explorer, startNode);
+        }
+
         @Override
         protected GHBitSet createBitSet()
         {
@@ -62,6 +62,24 @@ public class QueryResult
         queryPoint = new GHPoint(queryLat, queryLon);
     }
 
+    /**
+     * Clears this result and sets a new query point so that it can be reused for another lookup.
+     * <p>
+     * @return this
+     */
+    public QueryResult reset( double queryLat, double queryLon )
+    {
+        queryPoint.lat = queryLat;
+        queryPoint.lon = queryLon;
+        queryDistance = Double.MAX_VALUE;
+        wayIndex = -1;
+        closestNode = -1;
+        closestEdge = null;
+        snappedPoint = null;
+        snappedPosition = null;
+        return this;
+    }
+
     public void setClosestNode( int node )
     {
         closestNode = node;
@@ -187,6 +205,22 @@ public class QueryResult
             snappedPoint = new GHPoint3D(tmpLat, tmpLon, tmpEle);
     }
 
+    /**
+     * A QueryGraph changes the query result in its lookup method. Use a copy if the same result
+     * should be used for several QueryGraphs.
+     */
+    public QueryResult copy()
+    {
+        QueryResult res = new QueryResult(queryPoint.lat, queryPoint.lon);
+        res.queryDistance = queryDistance;
+        res.wayIndex = wayIndex;
+        res.closestNode = closestNode;
+        res.closestEdge = closestEdge;
+        res.snappedPoint = snappedPoint;
+        res.snappedPosition = snappedPosition;
+        return res;
+    }
+
     @Override
     public String toString()
     {
@@ -26,10 +26,18 @@ import com.graphhopper.coll.GHBitSet;
  */
 public class BreadthFirstSearch extends XFirstSearch
 {
+    /**
+     * @return an empty queue for the nodes to be explored. Override to reuse a queue.
+     */
+    protected SimpleIntDeque createFifo()
+    {
+        return new SimpleIntDeque();
+    }
+
     @Override
     public void start( EdgeExplorer explorer, int startNode )
     {
-        SimpleIntDeque fifo = new SimpleIntDeque();
+        SimpleIntDeque fifo = createFifo();
         GHBitSet visited = createBitSet();
         visited.add(startNode);
         fifo.push(startNode);
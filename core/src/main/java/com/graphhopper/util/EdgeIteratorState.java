@@ -61,6 +61,14 @@ public interface EdgeIteratorState
      */
     PointList fetchWayGeometry( int mode );
 
+    /**
+     * Same as fetchWayGeometry(mode) but appends the points to the specified list instead of
+     * creating a new one. This way a caller can reuse one list for many edges.
+     * <p/>
+     * @return the specified list
+     */
+    PointList fetchWayGeometry( int mode, PointList pointList );
+
     /**
      * @param list is a sorted collection of nodes between the baseNode and the current adjacent
      * node. Specify the list without the adjacent and base nodes.
@@ -19,6 +19,7 @@ package com.graphhopper.util;
 
 import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.coll.GHBitSetImpl;
+import com.graphhopper.geohash.SpatialKeyAlgo;
 import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.AllEdgesSkipIterator;
 import com.graphhopper.routing.util.EdgeFilter;
@@ -211,9 +212,16 @@ public class GHUtility
      */
     public static Graph sortDFS( Graph g, Graph sortedGraph )
     {
-        final TIntList list = new TIntArrayList(g.getNodes(), -1);
+        return createSortedGraph(g, sortedGraph, new TIntArrayList(createDFSOrder(g)));
+    }
+
+    /**
+     * @return the new node id for every node id according to the depth-first search traversal
+     */
+    public static int[] createDFSOrder( Graph g )
+    {
         int nodes = g.getNodes();
-        list.fill(0, nodes, -1);
+        final int[] oldToNew = new int[nodes];
         final GHBitSetImpl bitset = new GHBitSetImpl(nodes);
         final AtomicInteger ref = new AtomicInteger(-1);
         EdgeExplorer explorer = g.createEdgeExplorer();
@@ -231,12 +239,56 @@ public class GHUtility
                 @Override
                 protected boolean goFurther( int nodeId )
                 {
-                    list.set(nodeId, ref.incrementAndGet());
+                    oldToNew[nodeId] = ref.incrementAndGet();
                     return super.goFurther(nodeId);
                 }
             }.start(explorer, startNode);
         }
-        return createSortedGraph(g, sortedGraph, list);
+        return oldToNew;
+    }
+
+    /**
+     * @return the new node id for every node id where nodes close to each other get close ids. The
+     * nodes are ordered along the z-curve of the spatial key within the bounds of the graph.
+     */
+    public static int[] createSpatialOrder( Graph g )
+    {
+        int nodes = g.getNodes();
+        // 15 bits per axis, the key must fit into the upper half of a positive long
+        SpatialKeyAlgo keyAlgo = new SpatialKeyAlgo(30).bounds(g.getBounds());
+        NodeAccess na = g.getNodeAccess();
+        long[] keyAndNode = new long[nodes];
+        for (int node = 0; node < nodes; node++)
+        {
+            keyAndNode[node] = keyAlgo.encode(na.getLatitude(node), na.getLongitude(node)) << 32 | node;
+        }
+        return createOrder(keyAndNode);
+    }
+
+    /**
+     * @return the new node id for every node id where nodes with a higher level get lower ids. The
+     * nodes with the highest levels are visited by nearly every query and end up close together.
+     */
+    public static int[] createLevelOrder( LevelGraph g )
+    {
+        int nodes = g.getNodes();
+        long[] keyAndNode = new long[nodes];
+        for (int node = 0; node < nodes; node++)
+        {
+            keyAndNode[node] = (long) (Integer.MAX_VALUE - g.getLevel(node)) << 32 | node;
+        }
+        return createOrder(keyAndNode);
+    }
+
+    private static int[] createOrder( long[] keyAndNode )
+    {
+        Arrays.sort(keyAndNode);
+        int[] oldToNew = new int[keyAndNode.length];
+        for (int i = 0; i < keyAndNode.length; i++)
+        {
+            oldToNew[(int) (keyAndNode[i] & 0xFFFFFFFFL)] = i;
+        }
+        return oldToNew;
     }
 
     static Graph createSortedGraph( Graph fromGraph, Graph toSortedGraph, final TIntList oldToNewNodeList )
@@ -436,6 +488,12 @@ public class GHUtility
             throw new UnsupportedOperationException("Not supported. Edge is empty.");
         }
 
+        @Override
+        public PointList fetchWayGeometry( int type, PointList pointList )
+        {
+            throw new UnsupportedOperationException("Not supported. Edge is empty.");
+        }
+
         @Override
         public EdgeIteratorState setWayGeometry( PointList list )
         {
@@ -17,8 +17,10 @@
  */
 package com.graphhopper.util;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.text.SimpleDateFormat;
-
 import java.util.*;
 
 /**
@@ -108,6 +110,49 @@ public class InstructionList implements Iterable<Instruction>
         return instrList;
     }
 
+    /**
+     * Writes the same array as createJson directly into the specified writer.
+     */
+    public void writeJson( JsonWriter writer ) throws IOException
+    {
+        writer.startArray();
+        int pointsIndex = 0;
+        int counter = 0;
+        for (Instruction instruction : instructions)
+        {
+            writer.startObject();
+            InstructionAnnotation ia = instruction.getAnnotation();
+            String str = instruction.getTurnDescription(tr);
+            if (Helper.isEmpty(str))
+                str = ia.getMessage();
+            writer.name("text").value(Helper.firstBig(str));
+            if (!ia.isEmpty())
+            {
+                writer.name("annotation_text").value(ia.getMessage());
+                writer.name("annotation_importance").value(ia.getImportance());
+            }
+
+            writer.name("time").value(instruction.getTime());
+            writer.name("distance").value(instruction.getDistance(), 3);
+            writer.name("sign").value(instruction.getSign());
+            for (Map.Entry<String, Object> e : instruction.getExtraInfoJSON().entrySet())
+            {
+                writer.name(e.getKey()).value(e.getValue());
+            }
+
+            int tmpIndex = pointsIndex + instruction.getPoints().size();
+            // the last instruction should not point to the next instruction
+            if (counter + 1 == instructions.size())
+                tmpIndex--;
+
+            writer.name("interval").startArray().value(pointsIndex).value(tmpIndex).endArray();
+            writer.endObject();
+            pointsIndex = tmpIndex;
+            counter++;
+        }
+        writer.endArray();
+    }
+
     public boolean isEmpty()
     {
         return instructions.isEmpty();
@@ -178,6 +223,24 @@ public class InstructionList implements Iterable<Instruction>
     }
 
     public String createGPX( String trackName, long startTimeMillis, String timeZoneId, boolean includeElevation )
+    {
+        StringWriter writer = new StringWriter();
+        try
+        {
+            writeGPX(writer, trackName, startTimeMillis, timeZoneId, includeElevation);
+        } catch (IOException ex)
+        {
+            throw new IllegalStateException(ex);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Writes the GPX to the specified writer. In contrast to createGPX the whole document is never
+     * hold in memory, which is important for long routes.
+     */
+    public void writeGPX( Writer writer, String trackName, long startTimeMillis, String timeZoneId,
+            boolean includeElevation ) throws IOException
     {
         SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ");
         TimeZone tz = TimeZone.getDefault();
@@ -185,53 +248,60 @@ public class InstructionList implements Iterable<Instruction>
             tz = TimeZone.getTimeZone(timeZoneId);
 
         formatter.setTimeZone(tz);
-        String header = "<?xml version='1.0' encoding='UTF-8' standalone='no' ?>"
-                + "<gpx xmlns='http://www.topografix.com/GPX/1/1' xmlns:xsi='http://www.w3.org/2001/XMLSchema-instance'"
-                + " creator='Graphhopper' version='1.1'"
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\" ?>"
+                + "<gpx xmlns=\"http://www.topografix.com/GPX/1/1\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\""
+                + " creator=\"Graphhopper\" version=\"1.1\""
                 // This xmlns:gh acts only as ID, no valid URL necessary.
                 // Use a separate namespace for custom extensions to make basecamp happy.
-                + " xmlns:gh='https://graphhopper.com/public/schema/gpx/1.1'>"
+                + " xmlns:gh=\"https://graphhopper.com/public/schema/gpx/1.1\">"
                 + "\n<metadata>"
                 + "<copyright author=\"OpenStreetMap contributors\"/>"
-                + "<link href='http://graphhopper.com'>"
+                + "<link href=\"http://graphhopper.com\">"
                 + "<text>GraphHopper GPX</text>"
                 + "</link>"
                 + "<time>" + tzHack(formatter.format(startTimeMillis)) + "</time>"
-                + "</metadata>";
-        StringBuilder track = new StringBuilder(header);
+                + "</metadata>");
+        StringBuilder block = new StringBuilder();
         if (!isEmpty())
         {
-            track.append("\n<rte>");
+            writer.write("\n<rte>");
             Instruction nextInstr = null;
             for (Instruction currInstr : instructions)
             {
                 if (null != nextInstr)
-                    createRteptBlock(track, nextInstr, currInstr);
+                    createRteptBlock(block, nextInstr, currInstr);
 
                 nextInstr = currInstr;
+                writer.append(block);
+                block.setLength(0);
             }
-            createRteptBlock(track, nextInstr, null);
-            track.append("</rte>");
+            createRteptBlock(block, nextInstr, null);
+            writer.append(block);
+            block.setLength(0);
+            writer.write("</rte>");
         }
 
-        track.append("\n<trk><name>").append(trackName).append("</name>");
+        writer.write("\n<trk><name>");
+        writer.write(trackName);
+        writer.write("</name>");
 
-        track.append("<trkseg>");
+        writer.write("<trkseg>");
         for (GPXEntry entry : createGPXList())
         {
-            track.append("\n<trkpt lat='").append(Helper.round6(entry.getLat()));
-            track.append("' lon='").append(Helper.round6(entry.getLon())).append("'>");
+            block.append("\n<trkpt lat=\"").append(Helper.round6(entry.getLat()));
+            block.append("\" lon=\"").append(Helper.round6(entry.getLon())).append("\">");
             if (includeElevation)
-                track.append("<ele>").append(Helper.round2(entry.getEle())).append("</ele>");
-            track.append("<time>").append(tzHack(formatter.format(startTimeMillis + entry.getMillis()))).append("</time>");
-            track.append("</trkpt>");
+                block.append("<ele>").append(Helper.round2(entry.getEle())).append("</ele>");
+            block.append("<time>").append(tzHack(formatter.format(startTimeMillis + entry.getMillis()))).append("</time>");
+            block.append("</trkpt>");
+            writer.append(block);
+            block.setLength(0);
         }
-        track.append("</trkseg>");
-        track.append("</trk>");
+        writer.write("</trkseg>");
+        writer.write("</trk>");
 
         // we could now use 'wpt' for via points
-        track.append("</gpx>");
-        return track.toString().replaceAll("\\'", "\"");
+        writer.write("</gpx>");
     }
 
     /**
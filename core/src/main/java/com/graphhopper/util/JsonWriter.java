@@ -0,0 +1,369 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A minimal json writer which serializes directly into a Writer. Used for the web responses where
+ * routes with many points would otherwise create lots of temporary maps, lists and boxed numbers.
+ * <p/>
+ * Not thread safe and the correct nesting of objects and arrays is not checked.
+ * <p/>
+ * @author Peter Karich
+ */
+public class JsonWriter
+{
+    private static final long[] POW10 =
+    {
+        1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L
+    };
+    private final Writer writer;
+    // per nesting level: true if no element was written so far
+    private boolean[] empty = new boolean[16];
+    private int depth;
+    private boolean afterName;
+    private int indent;
+    private final char[] numberBuffer = new char[24];
+
+    public JsonWriter( Writer writer )
+    {
+        this.writer = writer;
+    }
+
+    /**
+     * Specifies the number of spaces used to indent nested elements. Default is 0 which writes
+     * everything in one line.
+     */
+    public JsonWriter setIndent( int indent )
+    {
+        this.indent = indent;
+        return this;
+    }
+
+    public JsonWriter startObject() throws IOException
+    {
+        return open('{');
+    }
+
+    public JsonWriter endObject() throws IOException
+    {
+        return close('}');
+    }
+
+    public JsonWriter startArray() throws IOException
+    {
+        return open('[');
+    }
+
+    public JsonWriter endArray() throws IOException
+    {
+        return close(']');
+    }
+
+    public JsonWriter name( String name ) throws IOException
+    {
+        beforeValue();
+        writeString(name);
+        writer.write(indent > 0 ? ": " : ":");
+        afterName = true;
+        return this;
+    }
+
+    public JsonWriter value( String str ) throws IOException
+    {
+        if (str == null)
+            return nullValue();
+
+        beforeValue();
+        writeString(str);
+        return this;
+    }
+
+    public JsonWriter value( boolean b ) throws IOException
+    {
+        beforeValue();
+        writer.write(b ? "true" : "false");
+        return this;
+    }
+
+    public JsonWriter value( long l ) throws IOException
+    {
+        beforeValue();
+        writeLong(l);
+        return this;
+    }
+
+    /**
+     * Writes the specified number without trailing zeros. NaN and infinity are not valid in json
+     * and are written as null.
+     */
+    public JsonWriter value( double d ) throws IOException
+    {
+        if (Double.isNaN(d) || Double.isInfinite(d))
+            return nullValue();
+
+        beforeValue();
+        if (d == (long) d && Math.abs(d) < 1e15)
+            writeLong((long) d);
+        else
+            writer.write(Double.toString(d));
+        return this;
+    }
+
+    /**
+     * Writes the specified number rounded to the specified decimal places without creating
+     * temporary objects. Trailing zeros are removed.
+     */
+    public JsonWriter value( double d, int decimals ) throws IOException
+    {
+        if (decimals < 0 || decimals >= POW10.length)
+            throw new IllegalArgumentException("decimals must be in [0, " + POW10.length + ") but was " + decimals);
+
+        if (Double.isNaN(d) || Double.isInfinite(d))
+            return nullValue();
+
+        double scaled = d * POW10[decimals];
+        if (Math.abs(scaled) >= Long.MAX_VALUE)
+            return value(d);
+
+        beforeValue();
+        long l = Math.round(scaled);
+        if (l < 0)
+        {
+            writer.write('-');
+            l = -l;
+        }
+        long factor = POW10[decimals];
+        writeLong(l / factor);
+        long fraction = l % factor;
+        if (fraction > 0)
+        {
+            int digits = decimals;
+            while (fraction % 10 == 0)
+            {
+                fraction /= 10;
+                digits--;
+            }
+            writer.write('.');
+            for (long pow = POW10[digits - 1]; pow > fraction; pow /= 10)
+            {
+                writer.write('0');
+            }
+            writeLong(fraction);
+        }
+        return this;
+    }
+
+    public JsonWriter nullValue() throws IOException
+    {
+        beforeValue();
+        writer.write("null");
+        return this;
+    }
+
+    /**
+     * Writes maps, collections, arrays, numbers, booleans and strings. Other objects are written
+     * via their toString method.
+     */
+    public JsonWriter value( Object obj ) throws IOException
+    {
+        if (obj == null)
+            return nullValue();
+
+        if (obj instanceof String)
+            return value((String) obj);
+
+        if (obj instanceof Boolean)
+            return value(((Boolean) obj).booleanValue());
+
+        if (obj instanceof Double || obj instanceof Float)
+            return value(((Number) obj).doubleValue());
+
+        if (obj instanceof Number)
+            return value(((Number) obj).longValue());
+
+        if (obj instanceof Map)
+        {
+            startObject();
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) obj).entrySet())
+            {
+                name(String.valueOf(e.getKey()));
+                value(e.getValue());
+            }
+            return endObject();
+        }
+
+        if (obj instanceof Iterable)
+        {
+            startArray();
+            for (Object o : (Iterable<?>) obj)
+            {
+                value(o);
+            }
+            return endArray();
+        }
+
+        if (obj.getClass().isArray())
+        {
+            startArray();
+            int len = Array.getLength(obj);
+            for (int i = 0; i < len; i++)
+            {
+                value(Array.get(obj, i));
+            }
+            return endArray();
+        }
+
+        return value(obj.toString());
+    }
+
+    /**
+     * Writes the specified string as it is. E.g. to write an already serialized json value.
+     */
+    public JsonWriter rawValue( String json ) throws IOException
+    {
+        beforeValue();
+        writer.write(json);
+        return this;
+    }
+
+    public JsonWriter flush() throws IOException
+    {
+        writer.flush();
+        return this;
+    }
+
+    private JsonWriter open( char c ) throws IOException
+    {
+        beforeValue();
+        writer.write(c);
+        depth++;
+        if (depth >= empty.length)
+            empty = Arrays.copyOf(empty, empty.length * 2);
+
+        empty[depth] = true;
+        return this;
+    }
+
+    private JsonWriter close( char c ) throws IOException
+    {
+        if (depth == 0)
+            throw new IllegalStateException("Nothing to close");
+
+        boolean wasEmpty = empty[depth];
+        depth--;
+        if (!wasEmpty)
+            newLine();
+
+        writer.write(c);
+        return this;
+    }
+
+    private void beforeValue() throws IOException
+    {
+        if (afterName)
+        {
+            afterName = false;
+            return;
+        }
+
+        if (depth == 0)
+            return;
+
+        if (empty[depth])
+            empty[depth] = false;
+        else
+            writer.write(',');
+
+        newLine();
+    }
+
+    private void newLine() throws IOException
+    {
+        if (indent <= 0)
+            return;
+
+        writer.write('\n');
+        for (int i = depth * indent; i > 0; i--)
+        {
+            writer.write(' ');
+        }
+    }
+
+    private void writeLong( long l ) throws IOException
+    {
+        if (l == Long.MIN_VALUE)
+        {
+            writer.write(Long.toString(l));
+            return;
+        }
+
+        int pos = numberBuffer.length;
+        boolean negative = l < 0;
+        if (negative)
+            l = -l;
+
+        do
+        {
+            numberBuffer[--pos] = (char) ('0' + (l % 10));
+            l /= 10;
+        } while (l > 0);
+
+        if (negative)
+            numberBuffer[--pos] = '-';
+
+        writer.write(numberBuffer, pos, numberBuffer.length - pos);
+    }
+
+    private void writeString( String str ) throws IOException
+    {
+        writer.write('"');
+        int len = str.length();
+        int start = 0;
+        for (int i = 0; i < len; i++)
+        {
+            char c = str.charAt(i);
+            String replacement;
+            if (c == '"')
+                replacement = "\\\"";
+            else if (c == '\\')
+                replacement = "\\\\";
+            else if (c == '\n')
+                replacement = "\\n";
+            else if (c == '\r')
+                replacement = "\\r";
+            else if (c == '\t')
+                replacement = "\\t";
+            else if (c < 0x20 || c == '\u2028' || c == '\u2029')
+                replacement = String.format("\\u%04x", (int) c);
+            else
+                continue;
+
+            writer.write(str, start, i - start);
+            writer.write(replacement);
+            start = i + 1;
+        }
+        writer.write(str, start, len - start);
+        writer.write('"');
+    }
+}
@@ -20,6 +20,7 @@ package com.graphhopper.util;
 
 import com.graphhopper.util.shapes.GHPoint;
 import com.graphhopper.util.shapes.GHPoint3D;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -227,24 +228,33 @@ public class PointList implements PointAccess
 
     public void reverse()
     {
-        // in-place reverse
-        int max = size / 2;
+        reverse(0);
+    }
+
+    /**
+     * Reverses the points starting at the specified index in-place, the points before stay as they
+     * are. Useful if a reversed part is appended to an existing list.
+     */
+    public void reverse( int fromIndex )
+    {
+        int max = (size - fromIndex) / 2;
         for (int i = 0; i < max; i++)
         {
+            int index = fromIndex + i;
             int swapIndex = size - i - 1;
 
-            double tmp = latitudes[i];
-            latitudes[i] = latitudes[swapIndex];
+            double tmp = latitudes[index];
+            latitudes[index] = latitudes[swapIndex];
             latitudes[swapIndex] = tmp;
 
-            tmp = longitudes[i];
-            longitudes[i] = longitudes[swapIndex];
+            tmp = longitudes[index];
+            longitudes[index] = longitudes[swapIndex];
             longitudes[swapIndex] = tmp;
 
             if (is3D)
             {
-                tmp = elevations[i];
-                elevations[i] = elevations[swapIndex];
+                tmp = elevations[index];
+                elevations[index] = elevations[swapIndex];
                 elevations[swapIndex] = tmp;
             }
         }
@@ -314,6 +324,26 @@ public class PointList implements PointAccess
         return points;
     }
 
+    /**
+     * Writes the same array as toGeoJson but directly into the specified writer, which avoids the
+     * temporary arrays and boxed numbers for every point.
+     */
+    public void writeGeoJson( JsonWriter writer, boolean includeElevation ) throws IOException
+    {
+        writer.startArray();
+        for (int i = 0; i < size; i++)
+        {
+            writer.startArray().
+                    value(getLongitude(i), 6).
+                    value(getLatitude(i), 6);
+            if (includeElevation)
+                writer.value(Helper.round2(getElevation(i)));
+
+            writer.endArray();
+        }
+        writer.endArray();
+    }
+
     @Override
     public boolean equals( Object obj )
     {
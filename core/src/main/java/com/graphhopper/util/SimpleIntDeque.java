@@ -92,6 +92,15 @@ public class SimpleIntDeque
         return endIndexPlusOne - frontIndex;
     }
 
+    /**
+     * Removes all entries but keeps the underlying array.
+     */
+    public void clear()
+    {
+        frontIndex = 0;
+        endIndexPlusOne = 0;
+    }
+
     public void push( int v )
     {
         if (endIndexPlusOne >= arr.length)
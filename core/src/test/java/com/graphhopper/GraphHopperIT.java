@@ -22,12 +22,22 @@ import com.graphhopper.routing.AlgorithmOptions;
 import com.graphhopper.routing.RoutingAlgorithmFactorySimple;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.util.*;
+import com.graphhopper.util.shapes.BBox;
 import com.graphhopper.util.shapes.GHPoint;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import static org.junit.Assert.*;
 
 /**
@@ -35,6 +45,7 @@ import static org.junit.Assert.*;
  */
 public class GraphHopperIT
 {
+    private static final Logger logger = LoggerFactory.getLogger(GraphHopperIT.class);
     private static GraphHopper hopper;
     private static final String graphFileFoot = "target/graphhopperIT-foot";
     private static final String osmFile = "files/monaco.osm.gz";
@@ -381,4 +392,331 @@ public class GraphHopperIT
         assertEquals(89, rsp.getPoints().getSize());
         tmpHopper.close();
     }
+
+    @Test
+    public void testMatrixWithAndWithoutCH()
+    {
+        GraphHopper tmpHopper = new GraphHopper().
+                setStoreOnFlush(true).
+                setOSMFile(osmFile).
+                setCHWeighting(weightCalcStr).
+                setGraphHopperLocation(tmpGraphFile).
+                setEncodingManager(new EncodingManager(importVehicles)).
+                importOrLoad();
+
+        List<GHPoint> points = Arrays.asList(new GHPoint(43.727687, 7.418737), new GHPoint(43.74958, 7.436566),
+                new GHPoint(43.73005, 7.415707), new GHPoint(43.741522, 7.42826), new GHPoint(43.745084, 7.430513));
+        GHMatrixRequest req = new GHMatrixRequest(points, points).setVehicle(vehicle).setWeighting(weightCalcStr);
+        GHMatrixResponse chRsp = tmpHopper.calcMatrix(req);
+        assertFalse(chRsp.getErrors().toString(), chRsp.hasErrors());
+        assertTrue(chRsp.getDebugInfo(), chRsp.getDebugInfo().contains("manyToManyCH"));
+        GHMatrixResponse rsp = hopper.calcMatrix(req);
+        assertFalse(rsp.getErrors().toString(), rsp.hasErrors());
+
+        for (int from = 0; from < points.size(); from++)
+        {
+            for (int to = 0; to < points.size(); to++)
+            {
+                GHResponse routeRsp = hopper.route(new GHRequest(points.get(from), points.get(to)).
+                        setVehicle(vehicle).setWeighting(weightCalcStr));
+                assertEquals(routeRsp.getDistance(), rsp.getDistance(from, to), .1);
+                assertEquals(routeRsp.getMillis(), rsp.getMillis(from, to), 1);
+                assertEquals(routeRsp.getDistance(), chRsp.getDistance(from, to), .1);
+                assertEquals(routeRsp.getMillis(), chRsp.getMillis(from, to), 10);
+            }
+        }
+        assertEquals(0, chRsp.getDistance(2, 2), 1e-3);
+        assertEquals(3437.6, chRsp.getDistance(0, 1), .1);
+        tmpHopper.close();
+    }
+
+    @Test
+    public void testRouteBatch() throws Exception
+    {
+        List<GHRequest> requests = Arrays.asList(
+                new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setVehicle(vehicle).setWeighting(weightCalcStr),
+                new GHRequest(Arrays.asList(new GHPoint(43.727687, 7.418737), new GHPoint(43.74958, 7.436566),
+                                new GHPoint(43.727687, 7.418737))).setVehicle(vehicle).setWeighting(weightCalcStr),
+                new GHRequest(43.73005, 7.415707, 43.741522, 7.42826).setVehicle(vehicle).setWeighting(weightCalcStr),
+                new GHRequest(43.73005, 7.415707, 43.741522, 7.42826).setVehicle("car").setWeighting(weightCalcStr),
+                new GHRequest(43.73005, 7.415707, 43.745084, 7.430513).setVehicle(vehicle).setWeighting(weightCalcStr));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try
+        {
+            List<Future<GHResponse>> futures = hopper.routeBatch(requests, executor);
+            assertEquals(requests.size(), futures.size());
+            for (int i = 0; i < requests.size(); i++)
+            {
+                GHResponse expected = hopper.route(requests.get(i));
+                GHResponse rsp = futures.get(i).get();
+                assertEquals("request " + i, expected.hasErrors(), rsp.hasErrors());
+                if (expected.hasErrors())
+                    continue;
+
+                assertEquals(expected.getDistance(), rsp.getDistance(), 1e-3);
+                assertEquals(expected.getMillis(), rsp.getMillis());
+                assertEquals(expected.getPoints().getSize(), rsp.getPoints().getSize());
+            }
+            assertTrue(futures.get(3).get().hasErrors());
+            assertEquals(2 * futures.get(0).get().getDistance(), futures.get(1).get().getDistance(), 1);
+        } finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testConcurrentRoutingOnFrozenGraph() throws Exception
+    {
+        assertTrue(hopper.getGraph().getDirectory().isFrozen());
+        Random rand = new Random(0);
+        BBox bounds = hopper.getGraph().getBounds();
+        final List<GHRequest> requests = new ArrayList<GHRequest>();
+        for (int i = 0; i < 200; i++)
+        {
+            requests.add(new GHRequest(
+                    bounds.minLat + rand.nextDouble() * (bounds.maxLat - bounds.minLat),
+                    bounds.minLon + rand.nextDouble() * (bounds.maxLon - bounds.minLon),
+                    bounds.minLat + rand.nextDouble() * (bounds.maxLat - bounds.minLat),
+                    bounds.minLon + rand.nextDouble() * (bounds.maxLon - bounds.minLon)).
+                    setVehicle(vehicle).setWeighting(weightCalcStr));
+        }
+        final List<String> expected = new ArrayList<String>();
+        for (GHRequest req : requests)
+        {
+            expected.add(toRouteString(hopper.route(req)));
+        }
+
+        int maxThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        for (int threads = 1; threads <= maxThreads; threads *= 2)
+        {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try
+            {
+                StopWatch sw = new StopWatch().start();
+                List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+                for (int t = 0; t < threads; t++)
+                {
+                    final int offset = t;
+                    futures.add(executor.submit(new Callable<Integer>()
+                    {
+                        @Override
+                        public Integer call()
+                        {
+                            int errors = 0;
+                            for (int i = 0; i < requests.size(); i++)
+                            {
+                                int index = (i + offset * 17) % requests.size();
+                                if (!expected.get(index).equals(toRouteString(hopper.route(requests.get(index)))))
+                                    errors++;
+                            }
+                            return errors;
+                        }
+                    }));
+                }
+                for (Future<Integer> future : futures)
+                {
+                    assertEquals(0, (int) future.get());
+                }
+                sw.stop();
+                // every thread does the same amount of work, so the time stays constant for linear scaling
+                logger.info(threads + " threads, " + threads * requests.size() + " routes, took " + sw.getSeconds()
+                        + "s, " + threads * requests.size() / sw.getSeconds() + " routes/s");
+            } finally
+            {
+                executor.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void testFreezeAdjacency()
+    {
+        Random rand = new Random(0);
+        List<GHRequest> requests = new ArrayList<GHRequest>();
+        for (int i = 0; i < 100; i++)
+        {
+            requests.add(new GHRequest(43.727 + rand.nextDouble() * 0.02, 7.41 + rand.nextDouble() * 0.03,
+                    43.727 + rand.nextDouble() * 0.02, 7.41 + rand.nextDouble() * 0.03).setVehicle("car"));
+        }
+        List<String> expected = new ArrayList<String>();
+        GraphHopper tmpHopper = createCarHopper().importOrLoad();
+        assertFalse(tmpHopper.getGraph().isAdjacencyFrozen());
+        for (GHRequest req : requests)
+        {
+            expected.add(toRouteString(tmpHopper.route(req)));
+        }
+        tmpHopper.close();
+        Helper.removeDir(new File(tmpGraphFile));
+
+        // import and load
+        for (int run = 0; run < 2; run++)
+        {
+            tmpHopper = createCarHopper().setFreezeAdjacency(true).importOrLoad();
+            assertTrue(tmpHopper.getGraph().isAdjacencyFrozen());
+            for (int i = 0; i < requests.size(); i++)
+            {
+                assertEquals("run " + run + ", " + requests.get(i), expected.get(i), toRouteString(tmpHopper.route(requests.get(i))));
+            }
+            tmpHopper.close();
+        }
+    }
+
+    @Test
+    public void testNodeOrder()
+    {
+        Random rand = new Random(1);
+        List<GHRequest> requests = new ArrayList<GHRequest>();
+        for (int i = 0; i < 100; i++)
+        {
+            requests.add(new GHRequest(43.727 + rand.nextDouble() * 0.02, 7.41 + rand.nextDouble() * 0.03,
+                    43.727 + rand.nextDouble() * 0.02, 7.41 + rand.nextDouble() * 0.03).setVehicle("car"));
+        }
+        // the snapping of a query point on a tower node can pick another of its edges, which can
+        // change the points and the last digit of the distance sum but not the route
+        List<String> expected = new ArrayList<String>();
+        GraphHopper tmpHopper = createCarHopper().importOrLoad();
+        for (GHRequest req : requests)
+        {
+            expected.add(toDistanceString(tmpHopper.route(req)));
+        }
+        tmpHopper.close();
+        Helper.removeDir(new File(tmpGraphFile));
+
+        for (String nodeOrder : new String[]
+        {
+            "level", "spatial", "dfs"
+        })
+        {
+            // import and load
+            for (int run = 0; run < 2; run++)
+            {
+                tmpHopper = createCarHopper().setNodeOrder(nodeOrder).setMemoryMapped().importOrLoad();
+                assertEquals(nodeOrder, tmpHopper.getGraph().getProperties().get("graph.nodeOrder"));
+                for (int i = 0; i < requests.size(); i++)
+                {
+                    assertEquals(nodeOrder + ", run " + run + ", " + requests.get(i), expected.get(i),
+                            toDistanceString(tmpHopper.route(requests.get(i))));
+                }
+                tmpHopper.close();
+            }
+            Helper.removeDir(new File(tmpGraphFile));
+        }
+    }
+
+    private GraphHopper createCarHopper()
+    {
+        return new GraphHopper().
+                setStoreOnFlush(true).
+                setOSMFile(osmFile).
+                setCHWeighting("fastest").
+                setGraphHopperLocation(tmpGraphFile).
+                setEncodingManager(new EncodingManager("CAR"));
+    }
+
+    private static String toDistanceString( GHResponse rsp )
+    {
+        if (rsp.hasErrors())
+            return rsp.getErrors().toString();
+
+        return Helper.round(rsp.getDistance(), 6) + " " + rsp.getMillis();
+    }
+
+    private static String toRouteString( GHResponse rsp )
+    {
+        if (rsp.hasErrors())
+            return rsp.getErrors().toString();
+
+        return rsp.getDistance() + " " + rsp.getMillis() + " " + rsp.getPoints();
+    }
+
+    @Test
+    public void testIsochrone()
+    {
+        GHIsochroneRequest req = new GHIsochroneRequest(43.727687, 7.418737).setVehicle(vehicle).
+                setDistanceLimit(1000).setBuckets(2);
+        GHIsochroneResponse rsp = hopper.calcIsochrone(req);
+        assertFalse(rsp.getErrors().toString(), rsp.hasErrors());
+        int reachable = rsp.getPoints().getSize();
+        assertTrue("too few reachable points " + reachable, reachable > 50);
+        for (int i = 0; i < reachable; i++)
+        {
+            assertTrue(rsp.getWeight(i) <= 1000);
+        }
+        assertEquals(2, rsp.getPolygons().size());
+        assertTrue(rsp.getPolygons().get(0).getSize() > 3);
+        assertTrue(rsp.getPolygons().get(1).getSize() > 3);
+
+        // the weight is the same as the distance of the route
+        int index = reachable - 1;
+        GHResponse routeRsp = hopper.route(new GHRequest(req.getPoint(), rsp.getPoints().toGHPoint(index)).
+                setVehicle(vehicle).setWeighting("shortest"));
+        assertEquals(routeRsp.getDistance(), rsp.getWeight(index), 1);
+
+        // walking 10 minutes is less than 1km
+        rsp = hopper.calcIsochrone(new GHIsochroneRequest(43.727687, 7.418737).setVehicle(vehicle).setTimeLimit(600));
+        assertFalse(rsp.getErrors().toString(), rsp.hasErrors());
+        assertTrue(rsp.getPoints().getSize() < reachable);
+
+        rsp = hopper.calcIsochrone(new GHIsochroneRequest(43.727687, 7.418737).setVehicle(vehicle));
+        assertTrue(rsp.hasErrors());
+    }
+
+    @Test
+    public void testIsochroneTimeLimitForBike()
+    {
+        GraphHopper tmpHopper = new GraphHopper().
+                setStoreOnFlush(true).
+                setOSMFile(osmFile).
+                setCHEnable(false).
+                setGraphHopperLocation(tmpGraphFile).
+                setEncodingManager(new EncodingManager("BIKE")).
+                importOrLoad();
+
+        GHIsochroneRequest req = new GHIsochroneRequest(43.727687, 7.418737).setVehicle("BIKE").setTimeLimit(300);
+        GHIsochroneResponse rsp = tmpHopper.calcIsochrone(req);
+        assertFalse(rsp.getErrors().toString(), rsp.hasErrors());
+        int reachable = rsp.getPoints().getSize();
+        assertTrue("too few reachable points " + reachable, reachable > 50);
+        int furthest = 0;
+        for (int i = 0; i < reachable; i++)
+        {
+            assertTrue(rsp.getWeight(i) <= 300);
+            if (rsp.getWeight(i) > rsp.getWeight(furthest))
+                furthest = i;
+        }
+
+        // the weight is the minimum time in seconds, so no route can be faster
+        for (int index : new int[]
+        {
+            furthest, reachable / 2, reachable - 1
+        })
+        {
+            GHResponse routeRsp = tmpHopper.route(new GHRequest(req.getPoint(), rsp.getPoints().toGHPoint(index)).
+                    setVehicle("BIKE"));
+            assertFalse(routeRsp.getErrors().toString(), routeRsp.hasErrors());
+            assertTrue(routeRsp.getMillis() + " vs. " + rsp.getWeight(index),
+                    routeRsp.getMillis() / 1000.0 >= rsp.getWeight(index) - 1);
+        }
+        tmpHopper.close();
+    }
+
+    @Test
+    public void testIsochroneWithCH()
+    {
+        GraphHopper tmpHopper = new GraphHopper().
+                setStoreOnFlush(true).
+                setOSMFile(osmFile).
+                setCHWeighting(weightCalcStr).
+                setGraphHopperLocation(tmpGraphFile).
+                setEncodingManager(new EncodingManager(importVehicles)).
+                importOrLoad();
+
+        GHIsochroneRequest req = new GHIsochroneRequest(43.727687, 7.418737).setVehicle(vehicle).setDistanceLimit(1000);
+        GHIsochroneResponse chRsp = tmpHopper.calcIsochrone(req);
+        assertFalse(chRsp.getErrors().toString(), chRsp.hasErrors());
+        // shortcuts are not used
+        assertEquals(hopper.calcIsochrone(req).getPoints().getSize(), chRsp.getPoints().getSize());
+        tmpHopper.close();
+    }
 }
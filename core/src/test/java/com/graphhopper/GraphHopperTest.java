@@ -21,6 +21,7 @@ import com.graphhopper.reader.DataReader;
 import com.graphhopper.routing.AlgorithmOptions;
 import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.storage.LevelGraphStorage;
 import com.graphhopper.storage.index.QueryResult;
 import com.graphhopper.util.CmdArgs;
 import com.graphhopper.util.Helper;
@@ -28,6 +29,7 @@ import com.graphhopper.util.Instruction;
 import com.graphhopper.util.shapes.GHPoint;
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
@@ -235,6 +237,52 @@ public class GraphHopperTest
         assertEquals(3, rsp.getPoints().getSize());
     }
 
+    @Test
+    public void testPrepareMultipleCHProfiles()
+    {
+        instance = new GraphHopper().
+                setStoreOnFlush(true).
+                setEncodingManager(new EncodingManager("CAR,FOOT")).
+                setCHVehicles("car,foot").
+                setCHWeighting("fastest,shortest").
+                setGraphHopperLocation(ghLoc).
+                setOSMFile(testOsm);
+        instance.importOrLoad();
+        assertEquals(Arrays.asList("car_fastest", "car_shortest", "foot_fastest", "foot_shortest"),
+                ((LevelGraphStorage) instance.getGraph()).getLevelGraphNames());
+
+        GHRequest req = new GHRequest(51.2492152, 9.4317166, 51.2, 9.4).setVehicle("foot");
+        req.getHints().put("weighting", "shortest");
+        GHResponse rsp = instance.route(req);
+        assertFalse(rsp.hasErrors());
+        assertTrue(rsp.getDebugInfo(), rsp.getDebugInfo().contains("CH"));
+        instance.close();
+
+        // compare with the flexibility mode
+        GraphHopper noCHHopper = new GraphHopper().
+                setStoreOnFlush(false).
+                setEncodingManager(new EncodingManager("CAR,FOOT")).
+                setCHEnable(false).
+                setGraphHopperLocation(ghLoc + "_nch").
+                setOSMFile(testOsm);
+        noCHHopper.importOrLoad();
+        GHResponse noCHRsp = noCHHopper.route(req);
+        noCHHopper.close();
+        assertEquals(noCHRsp.getDistance(), rsp.getDistance(), 1e-3);
+        assertEquals(noCHRsp.getPoints(), rsp.getPoints());
+
+        // load all profiles again
+        instance = new GraphHopper().
+                setStoreOnFlush(true).
+                setEncodingManager(new EncodingManager("CAR,FOOT")).
+                setCHVehicles("car,foot").
+                setCHWeighting("fastest,shortest");
+        assertTrue(instance.load(ghLoc));
+        rsp = instance.route(req);
+        assertFalse(rsp.hasErrors());
+        assertEquals(noCHRsp.getDistance(), rsp.getDistance(), 1e-3);
+    }
+
     @Test
     public void testSortedGraph_noCH()
     {
@@ -0,0 +1,100 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import gnu.trove.map.hash.TIntIntHashMap;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Peter Karich
+ */
+public class GHIntIntStampedMapTest
+{
+    @Test
+    public void testPutAndGet()
+    {
+        GHIntIntStampedMap map = new GHIntIntStampedMap(2);
+        assertEquals(GHIntIntStampedMap.NO_VALUE, map.get(3));
+        map.put(3, 10);
+        map.put(-5, 11);
+        map.put(3, 12);
+        assertEquals(2, map.size());
+        assertEquals(12, map.get(3));
+        assertEquals(11, map.get(-5));
+
+        assertEquals(12, map.putIfAbsent(3, 13));
+        assertEquals(12, map.get(3));
+        assertEquals(GHIntIntStampedMap.NO_VALUE, map.putIfAbsent(4, 14));
+        assertEquals(14, map.get(4));
+        assertEquals(3, map.size());
+    }
+
+    @Test
+    public void testClearAndEnsureCapacity()
+    {
+        GHIntIntStampedMap map = new GHIntIntStampedMap();
+        for (int run = 0; run < 3; run++)
+        {
+            map.clear();
+            assertTrue(map.isEmpty());
+            assertFalse(map.containsKey(run - 1));
+            for (int i = 0; i < 100; i++)
+            {
+                map.put(run + i * 3, i);
+            }
+            assertEquals(100, map.size());
+            assertEquals(0, map.get(run));
+            assertFalse(map.containsKey(run + 1));
+        }
+
+        long bytes = map.getCapacityInBytes();
+        map.ensureCapacity(50);
+        assertEquals(bytes, map.getCapacityInBytes());
+        map.ensureCapacity(1000);
+        assertTrue(map.getCapacityInBytes() > bytes);
+        assertEquals(100, map.size());
+        assertEquals(99, map.get(2 + 99 * 3));
+    }
+
+    @Test
+    public void testRandom()
+    {
+        Random rand = new Random(1);
+        GHIntIntStampedMap map = new GHIntIntStampedMap();
+        for (int run = 0; run < 20; run++)
+        {
+            map.clear();
+            TIntIntHashMap expected = new TIntIntHashMap(100, 0.5f, -1, -1);
+            int count = rand.nextInt(500);
+            for (int i = 0; i < count; i++)
+            {
+                int key = rand.nextInt(1000);
+                map.put(key, i);
+                expected.put(key, i);
+            }
+            assertEquals(expected.size(), map.size());
+            for (int key = 0; key < 1000; key++)
+            {
+                assertEquals(expected.get(key), map.get(key));
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import gnu.trove.set.hash.TIntHashSet;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Peter Karich
+ */
+public class GHIntStampedSetTest
+{
+    @Test
+    public void testAddAndContains()
+    {
+        GHIntStampedSet set = new GHIntStampedSet(2);
+        assertTrue(set.addOnce(7));
+        assertTrue(set.addOnce(-3));
+        assertTrue(set.addOnce(0));
+        assertFalse(set.addOnce(7));
+        assertEquals(3, set.size());
+        assertTrue(set.contains(-3));
+        assertTrue(set.contains(0));
+        assertFalse(set.contains(1));
+
+        // insertion order
+        assertEquals(7, set.get(0));
+        assertEquals(-3, set.get(1));
+        assertEquals(0, set.get(2));
+    }
+
+    @Test
+    public void testClear()
+    {
+        GHIntStampedSet set = new GHIntStampedSet();
+        for (int run = 0; run < 3; run++)
+        {
+            set.clear();
+            assertTrue(set.isEmpty());
+            assertFalse(set.contains(run - 1));
+            for (int i = 0; i < 100; i++)
+            {
+                set.add(run + i * 3);
+            }
+            assertEquals(100, set.getCardinality());
+            assertTrue(set.contains(run));
+            assertFalse(set.contains(run + 1));
+        }
+    }
+
+    @Test
+    public void testRandom()
+    {
+        Random rand = new Random(1);
+        GHIntStampedSet set = new GHIntStampedSet();
+        for (int run = 0; run < 20; run++)
+        {
+            set.clear();
+            TIntHashSet expected = new TIntHashSet();
+            int count = rand.nextInt(500);
+            for (int i = 0; i < count; i++)
+            {
+                int value = rand.nextInt(1000);
+                assertEquals(expected.add(value), set.addOnce(value));
+            }
+            assertEquals(expected.size(), set.size());
+            for (int value = 0; value < 1000; value++)
+            {
+                assertEquals(expected.contains(value), set.contains(value));
+            }
+        }
+    }
+
+    @Test
+    public void testNext()
+    {
+        GHIntStampedSet set = new GHIntStampedSet();
+        assertEquals(-1, set.next(0));
+        set.add(20);
+        set.add(5);
+        set.add(12);
+        assertEquals(5, set.next(0));
+        assertEquals(5, set.next(5));
+        assertEquals(12, set.next(6));
+        assertEquals(20, set.next(13));
+        assertEquals(-1, set.next(21));
+    }
+
+    @Test
+    public void testEnsureCapacity()
+    {
+        GHIntStampedSet set = new GHIntStampedSet(2);
+        set.add(3);
+        set.ensureCapacity(100);
+        for (int i = 0; i < 100; i++)
+        {
+            set.add(i);
+        }
+        assertEquals(100, set.size());
+        assertEquals(3, set.get(0));
+        assertTrue(set.contains(99));
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.graphhopper.storage.RAMDirectory;
+import gnu.trove.map.hash.TLongLongHashMap;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Peter Karich
+ */
+public class GHLongSegmentMapTest
+{
+    @Test
+    public void testPutAndGet()
+    {
+        GHLongSegmentMap map = new GHLongSegmentMap(new RAMDirectory(), "test");
+        assertEquals(-1, map.get(5));
+        assertEquals(-1, map.put(5, 10));
+        assertEquals(-1, map.put(3, 6));
+        assertEquals(-1, map.put(1024, 7));
+        assertEquals(10, map.put(5, 11));
+        assertEquals(3, map.getSize());
+
+        assertEquals(6, map.get(3));
+        assertEquals(11, map.get(5));
+        assertEquals(7, map.get(1024));
+        assertEquals(-1, map.get(4));
+        assertEquals(-1, map.get(1023));
+        assertEquals(-1, map.get(2048));
+    }
+
+    @Test
+    public void testKeysOutsideOfSegments()
+    {
+        GHLongSegmentMap map = new GHLongSegmentMap(new RAMDirectory(), "test");
+        map.put(-Long.MAX_VALUE, 1);
+        map.put(-2, 2);
+        map.put(1L << 50, 3);
+        map.put(-2, 4);
+        assertEquals(3, map.getSize());
+        assertEquals(1, map.get(-Long.MAX_VALUE));
+        assertEquals(4, map.get(-2));
+        assertEquals(3, map.get(1L << 50));
+        assertEquals(-1, map.get(-1));
+    }
+
+    @Test
+    public void testLongValues()
+    {
+        GHLongSegmentMap map = new GHLongSegmentMap(new RAMDirectory(), "test", 8, 0);
+        assertEquals(0, map.getLong(12));
+        map.putLong(12, Long.MAX_VALUE);
+        map.putLong(13, -1L);
+        map.putLong(11, 1L << 40);
+        assertEquals(Long.MAX_VALUE, map.getLong(12));
+        assertEquals(-1L, map.getLong(13));
+        assertEquals(1L << 40, map.getLong(11));
+        assertEquals(1L << 40, map.putLong(11, 0));
+        assertEquals(0, map.getLong(11));
+    }
+
+    @Test
+    public void testSegmentGrowsToAllKeys()
+    {
+        GHLongSegmentMap map = new GHLongSegmentMap(new RAMDirectory(), "test");
+        // descending keys force an insert at the front
+        for (int i = 2047; i >= 1024; i--)
+        {
+            map.put(i, i * 2);
+        }
+        assertEquals(1024, map.getSize());
+        for (int i = 1024; i < 2048; i++)
+        {
+            assertEquals(i * 2, map.get(i));
+        }
+        assertEquals(-1, map.get(1023));
+        assertEquals(-1, map.get(2048));
+    }
+
+    @Test
+    public void testRandom()
+    {
+        Random rand = new Random(123);
+        for (int valueBytes : new int[]
+        {
+            4, 8
+        })
+        {
+            GHLongSegmentMap map = new GHLongSegmentMap(new RAMDirectory(), "test", valueBytes, -1);
+            TLongLongHashMap expected = new TLongLongHashMap(100, .5f, 0, -1);
+            long offset = 0;
+            for (int i = 0; i < 50000; i++)
+            {
+                // nearly sorted like OSM ids, but with jumps back
+                offset += rand.nextInt(100);
+                long key = rand.nextInt(10) == 0 ? rand.nextInt((int) offset + 1) : offset;
+                long value = valueBytes == 4 ? rand.nextInt() : rand.nextLong();
+                assertEquals(expected.put(key, value), map.putLong(key, value));
+            }
+            assertEquals(expected.size(), map.getSize());
+            for (long key = 0; key < offset + 10; key++)
+            {
+                assertEquals(expected.get(key), map.getLong(key));
+            }
+        }
+    }
+
+    @Test
+    public void testFencePointerOverflow()
+    {
+        assertEquals(1, GHLongSegmentMap.toFencePointer(0));
+        // positions beyond 16 GiB use the sign bit of the pointer
+        long record = 20L << 30;
+        assertEquals(record, ((GHLongSegmentMap.toFencePointer(record) & 0xFFFFFFFFL) - 1) << 3);
+        assertEquals(-1, GHLongSegmentMap.toFencePointer(GHLongSegmentMap.MAX_RECORD));
+        try
+        {
+            GHLongSegmentMap.toFencePointer(GHLongSegmentMap.MAX_RECORD + 8);
+            fail("pointer must not wrap around");
+        } catch (IllegalStateException ex)
+        {
+        }
+    }
+}
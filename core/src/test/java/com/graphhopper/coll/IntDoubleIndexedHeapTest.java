@@ -0,0 +1,103 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Peter Karich
+ */
+public class IntDoubleIndexedHeapTest extends AbstractBinHeapTest
+{
+    @Override
+    public BinHeapWrapper<Number, Integer> createHeap( int capacity )
+    {
+        return new IntDoubleIndexedHeap(capacity);
+    }
+
+    @Test
+    public void testDecreaseKeyAndContains()
+    {
+        IntDoubleIndexedHeap heap = new IntDoubleIndexedHeap(10);
+        heap.insert_(10, 5);
+        heap.insert_(20, 50);
+        heap.insert_(30, 7);
+        assertTrue(heap.contains(50));
+        assertFalse(heap.contains(6));
+        assertFalse(heap.contains(1000));
+        assertFalse(heap.update_(1, 6));
+
+        assertTrue(heap.update_(1, 7));
+        assertEquals(7, heap.peek_element());
+        assertEquals(7, heap.poll_element());
+        assertFalse(heap.contains(7));
+        // key is still available
+        assertEquals(1, heap.getKey(7), 1e-6);
+
+        heap.insertOrUpdate(40, 7);
+        heap.insertOrUpdate(5, 50);
+        assertEquals(50, heap.poll_element());
+        assertEquals(5, heap.poll_element());
+        assertEquals(7, heap.poll_element());
+        assertTrue(heap.isEmpty());
+    }
+
+    @Test
+    public void testClearResetsPositions()
+    {
+        IntDoubleIndexedHeap heap = new IntDoubleIndexedHeap(10);
+        heap.insert_(1, 3);
+        heap.insert_(2, 4);
+        heap.clear();
+        assertFalse(heap.contains(3));
+        heap.insert_(3, 3);
+        assertEquals(1, heap.getSize());
+    }
+
+    @Test
+    public void testRandomUpdates()
+    {
+        IntDoubleIndexedHeap heap = new IntDoubleIndexedHeap(10);
+        Random rand = new Random(2);
+        int N = 1000;
+        double[] expected = new double[N];
+        for (int i = 0; i < N; i++)
+        {
+            expected[i] = rand.nextDouble();
+            heap.insert_(expected[i], i);
+        }
+        for (int i = 0; i < 3 * N; i++)
+        {
+            int element = rand.nextInt(N);
+            expected[element] = rand.nextDouble();
+            assertTrue(heap.update_(expected[element], element));
+        }
+
+        double last = -1;
+        for (int i = 0; i < N; i++)
+        {
+            int element = heap.poll_element();
+            assertEquals(expected[element], heap.getKey(element), 1e-10);
+            assertTrue(expected[element] >= last);
+            last = expected[element];
+        }
+    }
+}
@@ -37,6 +37,7 @@ import org.junit.Test;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.reader.dem.ElevationProvider;
 import com.graphhopper.reader.dem.SRTMProvider;
+import com.graphhopper.reader.pbf.PbfBlobIndex;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.storage.*;
 import com.graphhopper.util.EdgeExplorer;
@@ -635,7 +636,7 @@ public class OSMReaderTest
         // save some node tags for first node
         OSMNode osmNode = new OSMNode(1, 1.1d, 1.0d);
         osmNode.setTag("test", "now");
-        osmreader.getNodeFlagsMap().put(1, encoder.handleNodeTags(osmNode));
+        osmreader.getNodeFlagsMap().putLong(1, encoder.handleNodeTags(osmNode));
 
         OSMWay way = new OSMWay(1L);
         way.getNodes().add(1);
@@ -791,4 +792,120 @@ public class OSMReaderTest
             }
         }
     }
+
+    int[] countPbfElements( PbfBlobIndex blobIndex, int typeMask ) throws Exception
+    {
+        int[] counts = new int[3];
+        OSMInputFile in = new OSMInputFile(new File("files/andorra.osm.pbf")).
+                setWorkerThreads(3).setBlobIndex(blobIndex, typeMask).open();
+        try
+        {
+            OSMElement item;
+            while ((item = in.getNext()) != null)
+            {
+                counts[item.getType()]++;
+            }
+        } finally
+        {
+            in.close();
+        }
+        return counts;
+    }
+
+    @Test
+    public void testPbfBlobIndex() throws Exception
+    {
+        int[] all = countPbfElements(null, PbfBlobIndex.ALL_TYPES);
+        assertTrue(all[OSMElement.NODE] > 0);
+        assertTrue(all[OSMElement.WAY] > 0);
+        assertTrue(all[OSMElement.RELATION] > 0);
+
+        // the first pass decodes only ways and fills the index
+        PbfBlobIndex blobIndex = new PbfBlobIndex();
+        int[] ways = countPbfElements(blobIndex, PbfBlobIndex.toMask(OSMElement.WAY));
+        assertTrue(blobIndex.isComplete());
+        assertArrayEquals(new int[]
+        {
+            0, all[OSMElement.WAY], 0
+        }, ways);
+
+        // the second pass skips the blobs without nodes and relations
+        int[] nodesAndRelations = countPbfElements(blobIndex,
+                PbfBlobIndex.toMask(OSMElement.NODE) | PbfBlobIndex.toMask(OSMElement.RELATION));
+        assertArrayEquals(new int[]
+        {
+            all[OSMElement.NODE], 0, all[OSMElement.RELATION]
+        }, nodesAndRelations);
+
+        int skippable = 0;
+        for (int blob = 0; blob < blobIndex.getBlobs(); blob++)
+        {
+            if ((blobIndex.getContentTypes(blob) & PbfBlobIndex.toMask(OSMElement.WAY)) == 0)
+                skippable++;
+        }
+        assertTrue(skippable > 0);
+    }
+
+    @Test
+    public void testPbfNodeBlocks() throws Exception
+    {
+        Map<Long, OSMNode> nodes = new HashMap<Long, OSMNode>();
+        OSMInputFile in = new OSMInputFile(new File("files/andorra.osm.pbf")).
+                setBlobIndex(null, PbfBlobIndex.toMask(OSMElement.NODE)).open();
+        try
+        {
+            OSMElement item;
+            while ((item = in.getNext()) != null)
+            {
+                nodes.put(item.getId(), (OSMNode) item);
+            }
+        } finally
+        {
+            in.close();
+        }
+
+        int blockNodes = 0;
+        int taggedNodes = 0;
+        in = new OSMInputFile(new File("files/andorra.osm.pbf")).
+                setBlobIndex(null, PbfBlobIndex.toMask(OSMElement.NODE)).setNodeBlocks(true).open();
+        try
+        {
+            OSMElement item;
+            while ((item = in.getNext()) != null)
+            {
+                assertEquals(OSMElement.NODE_BLOCK, item.getType());
+                OSMNodeBlock block = (OSMNodeBlock) item;
+                for (int index = 0; index < block.getSize(); index++)
+                {
+                    OSMNode expected = nodes.get(block.getId(index));
+                    OSMNode node = block.createNode(index);
+                    assertEquals(expected.getLat(), block.getLat(index), 1e-9);
+                    assertEquals(expected.getLon(), node.getLon(), 1e-9);
+                    assertEquals(expected.getTags(), node.getTags());
+                    assertEquals(expected.hasTags(), block.hasTags(index));
+                    if (block.hasTags(index))
+                    {
+                        taggedNodes++;
+                        String key = expected.getTags().keySet().iterator().next();
+                        assertTrue(block.hasTag(index, key, expected.getTag(key)));
+                    }
+                    blockNodes++;
+                }
+            }
+        } finally
+        {
+            in.close();
+        }
+        assertEquals(nodes.size(), blockNodes);
+        assertTrue(taggedNodes > 0);
+    }
+
+    @Test
+    public void testCalcPerSecond()
+    {
+        assertEquals(500, OSMReader.calcPerSecond(1000, 2000000000L));
+        // 20 billion elements would overflow when multiplied by 10^9
+        assertEquals(10000000000L, OSMReader.calcPerSecond(20000000000L, 2000000000L));
+        assertEquals(1000000000L, OSMReader.calcPerSecond(1, 0));
+    }
 }
@@ -0,0 +1,63 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.pbf;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Peter Karich
+ */
+public class PbfStringCacheTest
+{
+    @Test
+    public void testShareUntilFull()
+    {
+        PbfStringCache cache = new PbfStringCache(2);
+        String first = cache.get(new String("name1"));
+        assertSame(first, cache.get(new String("name1")));
+        cache.get(new String("name2"));
+        assertEquals(2, cache.getSize());
+
+        // full, new strings are returned as they are
+        String str = new String("name3");
+        assertSame(str, cache.get(str));
+        assertNotSame(str, cache.get(new String("name3")));
+        assertEquals(2, cache.getSize());
+        assertSame(first, cache.get(new String("name1")));
+    }
+
+    @Test
+    public void testCommonStringsStaySharedWhenFull()
+    {
+        PbfStringCache cache = new PbfStringCache(1);
+        cache.get(new String("name1"));
+        cache.get(new String("name2"));
+
+        String highway = cache.get(new String("highway"));
+        assertSame(highway, cache.get(new String("highway")));
+        assertSame(cache.get(new String("residential")), cache.get(new String("residential")));
+        assertSame(cache.get(new String("oneway")), cache.get(new String("oneway")));
+        assertSame(cache.get(new String("yes")), cache.get(new String("yes")));
+        // also shared between caches of different files
+        assertSame(highway, new PbfStringCache(1).get(new String("highway")));
+        // common strings do not count to the limit
+        assertEquals(1, cache.getSize());
+    }
+}
@@ -49,6 +49,8 @@ public class AStarBidirectionTest extends AbstractRoutingAlgorithmTester
         });
     }
 
+    // shared across all tests to make sure reused search states do not leak into the next query
+    private static final SearchStatePool statePool = new SearchStatePool();
     private final TraversalMode traversalMode;
 
     public AStarBidirectionTest( TraversalMode tMode )
@@ -64,7 +66,8 @@ public class AStarBidirectionTest extends AbstractRoutingAlgorithmTester
             @Override
             public RoutingAlgorithm createAlgo( Graph g, AlgorithmOptions opts )
             {
-                return new AStarBidirection(g, opts.getFlagEncoder(), opts.getWeighting(), traversalMode);
+                return new AStarBidirection(g, opts.getFlagEncoder(), opts.getWeighting(), traversalMode).
+                        setSearchStatePool(statePool);
             }
         };
     }
@@ -48,6 +48,8 @@ public class AStarTest extends AbstractRoutingAlgorithmTester
         });
     }
 
+    // shared across all tests to make sure reused search states do not leak into the next query
+    private static final SearchStatePool statePool = new SearchStatePool();
     private final TraversalMode traversalMode;
 
     public AStarTest( TraversalMode tMode )
@@ -63,7 +65,8 @@ public class AStarTest extends AbstractRoutingAlgorithmTester
             @Override
             public RoutingAlgorithm createAlgo( Graph g, AlgorithmOptions opts )
             {
-                return new AStar(g, opts.getFlagEncoder(), opts.getWeighting(), traversalMode);
+                return new AStar(g, opts.getFlagEncoder(), opts.getWeighting(), traversalMode).
+                        setSearchStatePool(statePool);
             }
         };
     }
@@ -158,6 +158,17 @@ public class DijkstraOneToManyTest extends AbstractRoutingAlgorithmTester
         assertEquals(Helper.createTList(0, 1, 2), p.calcNodes());
     }
 
+    @Test
+    public void testUseCacheWithStartNode()
+    {
+        DijkstraOneToMany algo = (DijkstraOneToMany) createAlgo(createTestGraph());
+        assertEquals(0, algo.findEndNode(0, 0));
+        // the start node itself must not break the cache
+        assertEquals(4, algo.findEndNode(0, 4));
+        assertEquals(0, algo.findEndNode(0, 0));
+        assertEquals(7, algo.findEndNode(0, 7));
+    }
+
     @Test
     public void testDifferentEdgeFilter()
     {
@@ -0,0 +1,156 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.util.*;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PointList;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * @author Peter Karich
+ */
+public class IsochroneTest
+{
+    private final EncodingManager encodingManager = new EncodingManager("CAR");
+    private final FlagEncoder carEncoder = encodingManager.getEncoder("CAR");
+
+    // 6-7-8
+    // | | |
+    // 3-4-5
+    // | | |
+    // 0-1-2
+    Graph createGridGraph()
+    {
+        Graph g = new GraphBuilder(encodingManager).create();
+        NodeAccess na = g.getNodeAccess();
+        for (int node = 0; node < 9; node++)
+        {
+            na.setNode(node, 50 + 0.001 * (node / 3), 10 + 0.001 * (node % 3));
+        }
+        for (int node = 0; node < 9; node++)
+        {
+            if (node % 3 < 2)
+                g.edge(node, node + 1, 100, true);
+            if (node < 6)
+                g.edge(node, node + 3, 100, true);
+        }
+        return g;
+    }
+
+    @Test
+    public void testSearchAndPolygons()
+    {
+        Isochrone isochrone = new Isochrone(createGridGraph(), carEncoder, new ShortestWeighting());
+        isochrone.setWeightLimit(200);
+        assertEquals(9, isochrone.search(4).size());
+        assertEquals(0, isochrone.getWeight(4), 1e-6);
+        assertEquals(100, isochrone.getWeight(1), 1e-6);
+        assertEquals(200, isochrone.getWeight(0), 1e-6);
+
+        List<PointList> polygons = isochrone.calcPolygons(2);
+        assertEquals(2, polygons.size());
+        // the diamond of the direct neighbors, closed
+        PointList diamond = polygons.get(0);
+        assertEquals(5, diamond.getSize());
+        assertEquals(diamond.getLatitude(0), diamond.getLatitude(4), 1e-6);
+        assertEquals(diamond.getLongitude(0), diamond.getLongitude(4), 1e-6);
+        // the middle points of the square edges are not part of the hull
+        assertEquals(5, polygons.get(1).getSize());
+        assertEquals(50, polygons.get(1).getLatitude(0), 1e-6);
+        assertEquals(10, polygons.get(1).getLongitude(0), 1e-6);
+
+        isochrone.setWeightLimit(150);
+        assertEquals(Helper.createTList(0, 3, 1), isochrone.search(0));
+        // a closed triangle
+        assertEquals(4, isochrone.calcPolygons(1).get(0).getSize());
+    }
+
+    @Test
+    public void testTimeLimitForBike()
+    {
+        EncodingManager em = new EncodingManager("BIKE");
+        FlagEncoder bikeEncoder = em.getEncoder("BIKE");
+        Graph g = new GraphBuilder(em).create();
+        // 0-1-2-3 with 100m per edge, 20 seconds for 18km/h
+        for (int node = 0; node < 3; node++)
+        {
+            g.edge(node, node + 1).setDistance(100).setFlags(bikeEncoder.setProperties(18, true, true));
+        }
+
+        Isochrone isochrone = new Isochrone(g, bikeEncoder, new FastestWeighting(bikeEncoder));
+        isochrone.setWeightLimit(45);
+        assertEquals(Helper.createTList(0, 1, 2), isochrone.search(0));
+        assertEquals(20, isochrone.getWeight(1), 1e-6);
+        assertEquals(40, isochrone.getWeight(2), 1e-6);
+        assertTrue(Double.isInfinite(isochrone.getWeight(3)));
+    }
+
+    @Test
+    public void testUnreachable()
+    {
+        Isochrone isochrone = new Isochrone(createGridGraph(), carEncoder, new ShortestWeighting());
+        isochrone.setWeightLimit(50);
+        assertEquals(Helper.createTList(4), isochrone.search(4));
+        // too less points for a polygon
+        assertTrue(isochrone.calcPolygons(1).get(0).isEmpty());
+    }
+
+    @Test
+    public void testConvexHull()
+    {
+        List<double[]> points = new ArrayList<double[]>();
+        points.add(new double[]
+        {
+            0, 0
+        });
+        points.add(new double[]
+        {
+            2, 0
+        });
+        points.add(new double[]
+        {
+            1, 1
+        });
+        points.add(new double[]
+        {
+            1, 0.5
+        });
+        points.add(new double[]
+        {
+            1, 2
+        });
+        PointList hull = Isochrone.calcConvexHull(points);
+        // (0,0), (2,0), (1,2), (0,0)
+        assertEquals(4, hull.getSize());
+        assertEquals(2, hull.getLongitude(1), 1e-6);
+        assertEquals(2, hull.getLatitude(2), 1e-6);
+        assertEquals(0, hull.getLongitude(3), 1e-6);
+
+        points.remove(4);
+        points.remove(2);
+        points.remove(0);
+        assertTrue(Isochrone.calcConvexHull(points).isEmpty());
+    }
+}
@@ -175,6 +175,14 @@ public class QueryGraphTest
         // fetch virtual edge and check way geometry
         state = GHUtility.getEdge(queryGraph, 4, 3);
         assertEquals(2, state.fetchWayGeometry(3).size());
+        for (int mode = 0; mode < 4; mode++)
+        {
+            PointList buffer = Helper.createPointList(5, 5);
+            state.fetchWayGeometry(mode, buffer);
+            PointList expected = Helper.createPointList(5, 5);
+            expected.add(state.fetchWayGeometry(mode));
+            assertEquals(expected, buffer);
+        }
     }
 
     @Test
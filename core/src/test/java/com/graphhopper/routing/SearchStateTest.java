@@ -0,0 +1,129 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.storage.EdgeEntry;
+import com.graphhopper.util.EdgeIterator;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Peter Karich
+ */
+public class SearchStateTest
+{
+    @Test
+    public void testMapAndReset()
+    {
+        SearchState state = new SearchState(10);
+        assertTrue(state.isEmpty());
+        assertEquals(SearchState.NO_ENTRY, state.get(5));
+
+        // force several rehashes
+        for (int i = 0; i < 1000; i++)
+        {
+            int entry = state.add(i, i * 7, i, SearchState.NO_ENTRY);
+            state.put(i * 7, entry);
+        }
+        assertFalse(state.isEmpty());
+        for (int i = 0; i < 1000; i++)
+        {
+            assertEquals(i, state.get(i * 7));
+            assertEquals(i * 7, state.getAdjNode(i));
+        }
+        assertEquals(SearchState.NO_ENTRY, state.get(3));
+
+        state.reset();
+        assertTrue(state.isEmpty());
+        assertEquals(0, state.getSize());
+        assertEquals(SearchState.NO_ENTRY, state.get(7));
+
+        int entry = state.add(1, 7, 2, SearchState.NO_ENTRY);
+        state.put(7, entry);
+        assertEquals(entry, state.get(7));
+        assertEquals(SearchState.NO_ENTRY, state.get(14));
+    }
+
+    @Test
+    public void testHeapWithDecreaseKey()
+    {
+        SearchState state = new SearchState(4);
+        Random rand = new Random(0);
+        int entries = 500;
+        for (int i = 0; i < entries; i++)
+        {
+            state.push(state.add(i, i, rand.nextDouble() * 100, SearchState.NO_ENTRY));
+        }
+        // decrease some keys
+        for (int i = 0; i < entries; i += 3)
+        {
+            state.update(i, i, state.getWeight(i) / 2, SearchState.NO_ENTRY);
+            state.push(i);
+        }
+        assertEquals(entries, state.getHeapSize());
+
+        double last = -1;
+        while (!state.isHeapEmpty())
+        {
+            double w = state.getWeight(state.poll());
+            assertTrue(w + " should be >= " + last, w >= last);
+            last = w;
+        }
+
+        // polled entries can be pushed again
+        state.push(3);
+        assertEquals(3, state.poll());
+    }
+
+    @Test
+    public void testCreateEdgeEntry()
+    {
+        SearchState state = new SearchState();
+        int start = state.add(EdgeIterator.NO_EDGE, 0, 0, SearchState.NO_ENTRY);
+        int e1 = state.add(10, 1, 1.5, start);
+        int e2 = state.add(11, 2, 3, e1);
+
+        EdgeEntry ee = state.createEdgeEntry(e2);
+        assertEquals(11, ee.edge);
+        assertEquals(2, ee.adjNode);
+        assertEquals(3, ee.weight, 1e-6);
+        assertEquals(10, ee.parent.edge);
+        assertEquals(1.5, ee.parent.weight, 1e-6);
+        assertEquals(0, ee.parent.parent.adjNode);
+        assertNull(ee.parent.parent.parent);
+    }
+
+    @Test
+    public void testPool()
+    {
+        SearchStatePool pool = new SearchStatePool(1);
+        SearchState s1 = pool.acquire(10);
+        SearchState s2 = pool.acquire(10);
+        assertNotSame(s1, s2);
+        s1.put(3, s1.add(1, 3, 1, SearchState.NO_ENTRY));
+
+        pool.release(s1);
+        pool.release(s2);
+        SearchState s3 = pool.acquire(10);
+        assertSame(s1, s3);
+        assertTrue(s3.isEmpty());
+        assertEquals(SearchState.NO_ENTRY, s3.get(3));
+        assertNotSame(s1, pool.acquire(10));
+    }
+}
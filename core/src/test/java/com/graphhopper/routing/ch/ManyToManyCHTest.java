@@ -0,0 +1,100 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.routing.*;
+import com.graphhopper.routing.util.*;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.LevelGraph;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ * @author Peter Karich
+ */
+public class ManyToManyCHTest
+{
+    private final EncodingManager encodingManager = new EncodingManager("CAR");
+    private final FlagEncoder carEncoder = encodingManager.getEncoder("CAR");
+    private final TraversalMode tMode = TraversalMode.NODE_BASED;
+
+    LevelGraph createGraph()
+    {
+        return new GraphBuilder(encodingManager).levelGraphCreate();
+    }
+
+    @Test
+    public void testRandomGrid()
+    {
+        Weighting weighting = new FastestWeighting(carEncoder);
+        LevelGraph g = PrepareContractionHierarchiesTest.initRandomGrid(createGraph(), 15);
+        PrepareContractionHierarchies prepare = new PrepareContractionHierarchies(g, carEncoder, weighting, tMode);
+        prepare.doWork();
+
+        int[] fromNodes = new int[]
+        {
+            0, 17, 99, 130, 224, 17
+        };
+        int[] toNodes = new int[]
+        {
+            224, 5, 0, 17, 150, 77, 201
+        };
+        ManyToManyCH algo = prepare.createManyToMany(g).calcMatrix(fromNodes, toNodes);
+        LevelGraph baseGraph = PrepareContractionHierarchiesTest.initRandomGrid(createGraph(), 15);
+        for (int i = 0; i < fromNodes.length; i++)
+        {
+            for (int j = 0; j < toNodes.length; j++)
+            {
+                Path expected = new Dijkstra(baseGraph, carEncoder, weighting, tMode).calcPath(fromNodes[i], toNodes[j]);
+                String str = fromNodes[i] + "->" + toNodes[j];
+                assertEquals(str, expected.getWeight(), algo.getWeights()[i][j], 1e-2);
+                assertEquals(str, expected.getDistance(), algo.getDistances()[i][j], 1e-3);
+                assertEquals(str, expected.getMillis(), algo.getMillis()[i][j], 1);
+            }
+        }
+        assertEquals(0, algo.getDistances()[1][3], 1e-6);
+        assertTrue(algo.getVisitedNodes() > 0);
+    }
+
+    @Test
+    public void testDirectedGraphAndUnreachable()
+    {
+        Weighting weighting = new ShortestWeighting();
+        LevelGraph g = createGraph();
+        PrepareContractionHierarchiesTest.initDirected2(g);
+        // 18 is not connected
+        g.edge(18, 19, 1, true);
+        PrepareContractionHierarchies prepare = new PrepareContractionHierarchies(g, carEncoder, weighting, tMode);
+        prepare.doWork();
+
+        ManyToManyCH algo = prepare.createManyToMany(g).calcMatrix(new int[]
+        {
+            0, 11
+        }, new int[]
+        {
+            10, 9, 18
+        });
+        assertEquals(10, algo.getDistances()[0][0], 1e-6);
+        assertEquals(9, algo.getDistances()[0][1], 1e-6);
+        assertEquals(Double.MAX_VALUE, algo.getDistances()[0][2], 1e-6);
+        assertEquals(Long.MAX_VALUE, algo.getMillis()[0][2]);
+        // 11->10 is only possible via 9 as 10->11 is one way
+        assertEquals(4, algo.getDistances()[1][0], 1e-6);
+        assertEquals(3, algo.getDistances()[1][1], 1e-6);
+    }
+}
@@ -27,6 +27,7 @@ import com.graphhopper.storage.GraphBuilder;
 import com.graphhopper.util.*;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.Random;
 import static org.junit.Assert.*;
 import org.junit.Test;
 
@@ -438,6 +439,127 @@ public class PrepareContractionHierarchiesTest
         assertEquals(2, prepare.getShortcuts());
     }
 
+    @Test
+    public void testParallelContraction()
+    {
+        LevelGraph g = initRandomGrid(createGraph(), 20);
+        PrepareContractionHierarchies prepare = new PrepareContractionHierarchies(g, carEncoder, weighting, tMode).
+                setThreads(3);
+        prepare.doWork();
+        assertTrue(prepare.getShortcuts() > 0);
+
+        // same number of threads => same result
+        LevelGraph g2 = initRandomGrid(createGraph(), 20);
+        PrepareContractionHierarchies prepare2 = new PrepareContractionHierarchies(g2, carEncoder, weighting, tMode).
+                setThreads(3);
+        prepare2.doWork();
+        assertEquals(prepare.getShortcuts(), prepare2.getShortcuts());
+        assertEquals(g.getAllEdges().getCount(), g2.getAllEdges().getCount());
+        for (int node = 0; node < g.getNodes(); node++)
+        {
+            assertEquals(g.getLevel(node), g2.getLevel(node));
+        }
+
+        Graph baseGraph = initRandomGrid(createGraph(), 20);
+        Random rand = new Random(1);
+        for (int i = 0; i < 50; i++)
+        {
+            int from = rand.nextInt(g.getNodes());
+            int to = rand.nextInt(g.getNodes());
+            Path expected = new Dijkstra(baseGraph, carEncoder, weighting, tMode).calcPath(from, to);
+            RoutingAlgorithm algo = prepare.createAlgo(g, new AlgorithmOptions(AlgorithmOptions.DIJKSTRA_BI, carEncoder, weighting, tMode));
+            Path p = algo.calcPath(from, to);
+            assertEquals(from + "->" + to, expected.isFound(), p.isFound());
+            assertEquals(from + "->" + to, expected.getDistance(), p.getDistance(), 1e-6);
+        }
+    }
+
+    @Test
+    public void testUnpackingWithPreparedShortcuts()
+    {
+        LevelGraph g = initRandomGrid(createGraph(), 20);
+        PrepareContractionHierarchies prepare = new PrepareContractionHierarchies(g, carEncoder, weighting, tMode).
+                setUnpackCacheSize(100);
+        prepare.doWork();
+
+        // the same shortcuts without unpacking data as changing the skipped edges invalidates it
+        LevelGraph g2 = initRandomGrid(createGraph(), 20);
+        PrepareContractionHierarchies prepare2 = new PrepareContractionHierarchies(g2, carEncoder, weighting, tMode);
+        prepare2.doWork();
+        AllEdgesSkipIterator iter = g2.getAllEdges();
+        while (iter.next())
+        {
+            if (!iter.isShortcut())
+                continue;
+
+            assertTrue(g2.getSkippedNode(iter.getEdge()) >= 0);
+            iter.setSkippedEdges(iter.getSkippedEdge1(), iter.getSkippedEdge2());
+            assertEquals(-1, g2.getSkippedNode(iter.getEdge()));
+        }
+
+        Random rand = new Random(1);
+        for (int i = 0; i < 50; i++)
+        {
+            int from = rand.nextInt(g.getNodes());
+            int to = rand.nextInt(g.getNodes());
+            Path expected = prepare2.createAlgo(g2, new AlgorithmOptions(AlgorithmOptions.DIJKSTRA_BI, carEncoder, weighting, tMode)).
+                    calcPath(from, to);
+            // the second query uses the cached shortcuts
+            for (int j = 0; j < 2; j++)
+            {
+                Path p = prepare.createAlgo(g, new AlgorithmOptions(AlgorithmOptions.DIJKSTRA_BI, carEncoder, weighting, tMode)).
+                        calcPath(from, to);
+                assertEquals(from + "->" + to, expected.calcNodes(), p.calcNodes());
+                assertEquals(from + "->" + to, expected.getDistance(), p.getDistance(), 1e-6);
+                assertEquals(from + "->" + to, expected.getMillis(), p.getMillis());
+            }
+        }
+    }
+
+    @Test
+    public void testQueryWithoutUnpacking()
+    {
+        LevelGraph g = initRandomGrid(createGraph(), 20);
+        PrepareContractionHierarchies prepare = new PrepareContractionHierarchies(g, carEncoder, weighting, tMode);
+        prepare.doWork();
+        AlgorithmOptions opts = new AlgorithmOptions(AlgorithmOptions.DIJKSTRA_BI, carEncoder, weighting, tMode);
+        AlgorithmOptions noUnpackOpts = new AlgorithmOptions(AlgorithmOptions.DIJKSTRA_BI, carEncoder, weighting, tMode);
+        noUnpackOpts.getHints().put("ch.unpack", false);
+
+        Random rand = new Random(1);
+        for (int i = 0; i < 50; i++)
+        {
+            int from = rand.nextInt(g.getNodes());
+            int to = rand.nextInt(g.getNodes());
+            Path expected = prepare.createAlgo(g, opts).calcPath(from, to);
+            Path p = prepare.createAlgo(g, noUnpackOpts).calcPath(from, to);
+            assertTrue(p.isFound());
+            assertEquals(from + "->" + to, expected.getWeight(), p.getWeight(), 1e-6);
+            // the distance of a shortcut is rounded
+            assertEquals(from + "->" + to, expected.getDistance(), p.getDistance(), 1e-2);
+            assertEquals(from + "->" + to, expected.getMillis(), p.getMillis());
+            assertTrue(p.calcEdges().isEmpty());
+        }
+    }
+
+    // a grid with random distances
+    static LevelGraph initRandomGrid( LevelGraph g, int size )
+    {
+        Random rand = new Random(12);
+        for (int y = 0; y < size; y++)
+        {
+            for (int x = 0; x < size; x++)
+            {
+                int node = y * size + x;
+                if (x > 0)
+                    g.edge(node - 1, node, 1 + rand.nextInt(10), true);
+                if (y > 0)
+                    g.edge(node - size, node, 1 + rand.nextInt(10), true);
+            }
+        }
+        return g;
+    }
+
     // 0-1-2-3-4
     // |     / |
     // |    8  |
@@ -0,0 +1,68 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Peter Karich
+ */
+public class ShortcutUnpackCacheTest
+{
+    @Test
+    public void testGetAndPut()
+    {
+        ShortcutUnpackCache cache = new ShortcutUnpackCache(10);
+        long key = ShortcutUnpackCache.createKey(5, false);
+        long reverseKey = ShortcutUnpackCache.createKey(5, true);
+        assertNull(cache.get(key));
+
+        cache.put(new ShortcutUnpackCache.Entry(key, new int[]
+        {
+            1, 2
+        }, 100, 2000));
+        assertNull(cache.get(reverseKey));
+        ShortcutUnpackCache.Entry entry = cache.get(key);
+        assertArrayEquals(new int[]
+        {
+            1, 2
+        }, entry.edges);
+        assertEquals(100, entry.distance, 1e-6);
+        assertEquals(2000, entry.millis);
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testBounded()
+    {
+        ShortcutUnpackCache cache = new ShortcutUnpackCache(10);
+        for (int i = 0; i < 100; i++)
+        {
+            long key = ShortcutUnpackCache.createKey(i, false);
+            cache.put(new ShortcutUnpackCache.Entry(key, new int[]
+            {
+                i
+            }, i, i));
+            // the newest entry always stays
+            assertEquals(i, cache.get(key).edges[0]);
+        }
+        assertTrue(cache.size() <= 10);
+    }
+}
@@ -20,12 +20,14 @@ package com.graphhopper.routing.util;
 import com.graphhopper.storage.GraphBuilder;
 import com.graphhopper.storage.GraphStorage;
 import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
 import com.graphhopper.util.GHUtility;
 
 import gnu.trove.list.array.TIntArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import org.junit.*;
 import static org.junit.Assert.*;
 
@@ -89,17 +91,53 @@ public class PrepareRoutingSubnetworksTest
     {
         GraphStorage g = createSubnetworkTestGraph();
         PrepareRoutingSubnetworks instance = new PrepareRoutingSubnetworks(g, em);
-        Map<Integer, Integer> map = instance.findSubnetworks();
-        instance.keepLargeNetworks(map);
+        int[] subnetworkIds = instance.findSubnetworkIds();
+        instance.keepLargeNetworks(subnetworkIds, PrepareRoutingSubnetworks.countNodes(subnetworkIds));
         g.optimize();
 
         assertEquals(7, g.getNodes());
         assertEquals(Arrays.<String>asList(), GHUtility.getProblems(g));
-        map = instance.findSubnetworks();
+        Map<Integer, Integer> map = instance.findSubnetworks();
         assertEquals(1, map.size());
         assertEquals(7, (int) map.get(0));
     }
 
+    @Test
+    public void testFindSubnetworkIdsInParallel()
+    {
+        // a grid where some edges are missing, big enough to be read by several threads
+        GraphStorage g = createGraph(em);
+        Random rand = new Random(1);
+        int size = 200;
+        for (int y = 0; y < size; y++)
+        {
+            for (int x = 0; x < size; x++)
+            {
+                int node = y * size + x;
+                if (x > 0 && rand.nextInt(3) > 0)
+                    g.edge(node - 1, node, 1, rand.nextBoolean());
+                if (y > 0 && rand.nextInt(3) > 0)
+                    g.edge(node - size, node, 1, rand.nextBoolean());
+            }
+        }
+
+        int[] expected = new PrepareRoutingSubnetworks(g, em).findSubnetworkIds();
+        int[] subnetworkIds = new PrepareRoutingSubnetworks(g, em).setThreads(4).findSubnetworkIds();
+        assertArrayEquals(expected, subnetworkIds);
+
+        // every subnetwork is identified by its smallest node
+        EdgeExplorer explorer = g.createEdgeExplorer();
+        for (int node = 0; node < g.getNodes(); node++)
+        {
+            assertTrue(subnetworkIds[node] <= node);
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next())
+            {
+                assertEquals(subnetworkIds[node], subnetworkIds[iter.getAdjNode()]);
+            }
+        }
+    }
+
     GraphStorage createSubnetworkTestGraph2( EncodingManager em )
     {
         GraphStorage g = createGraph(em);
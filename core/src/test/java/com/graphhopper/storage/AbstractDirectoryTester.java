@@ -52,10 +52,10 @@ public abstract class AbstractDirectoryTester
     public void testRequestedDataAccessHasToBeTheIdenticalType()
     {
         Directory dir = createDir();
-        da = dir.find("testing", new DAType(DAType.MemRef.HEAP, false, false, false, false));
+        da = dir.find("testing", new DAType(DAType.MemRef.HEAP, false, false, false));
         try
         {
-            dir.find("testing", new DAType(DAType.MemRef.HEAP, false, false, false, true));
+            dir.find("testing", new DAType(DAType.MemRef.HEAP, false, true, false));
             assertFalse(true);
         } catch (Exception ex)
         {
@@ -63,13 +63,31 @@ public abstract class AbstractDirectoryTester
     }
 
     @Test
-    public void testSynched()
+    public void testFreeze()
     {
         Directory dir = createDir();
-        DataAccess da1 = dir.find("testing", new DAType(DAType.MemRef.HEAP, false, false, true, false));
-        da = dir.find("testing_synched", new DAType(DAType.MemRef.HEAP, false, false, true, true));
-        assertFalse(da.getClass() == da1.getClass());
-        da1.close();
+        da = dir.find("testing").create(100);
+        da.setInt(0, 12);
+        assertFalse(dir.isFrozen());
+        dir.freeze();
+        assertTrue(dir.isFrozen());
+        assertTrue(da.isFrozen());
+        assertSame(da, dir.find("testing"));
+        assertEquals(12, da.getInt(0));
+        try
+        {
+            dir.find("testing2");
+            assertFalse(true);
+        } catch (IllegalStateException ex)
+        {
+        }
+        try
+        {
+            da.ensureCapacity(10000);
+            assertFalse(true);
+        } catch (IllegalStateException ex)
+        {
+        }
     }
 
     @Test
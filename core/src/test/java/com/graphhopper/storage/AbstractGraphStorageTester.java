@@ -17,6 +17,8 @@
  */
 package com.graphhopper.storage;
 
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.Path;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.util.*;
 import static com.graphhopper.util.GHUtility.*;
@@ -25,7 +27,13 @@ import java.io.Closeable;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import static org.junit.Assert.*;
 import org.junit.After;
 import org.junit.Before;
@@ -90,6 +98,264 @@ public abstract class AbstractGraphStorageTester
         assertTrue(Double.isInfinite(edge.getDistance()));
     }
 
+    @Test
+    public void testFreeze()
+    {
+        graph = createGraph();
+        graph.edge(0, 1, 10, true).setName("named");
+        graph.flush();
+        graph.getDirectory().freeze();
+        assertEquals("named", graph.getEdgeProps(0, 1).getName());
+        assertEquals(1, GHUtility.count(carAllExplorer.setBaseNode(0)));
+        try
+        {
+            graph.edge(1, 2, 10, true);
+            assertTrue(false);
+        } catch (IllegalStateException ex)
+        {
+        }
+        // nothing to do
+        graph.flush();
+    }
+
+    @Test
+    public void testConcurrentReadsOfFrozenGraph() throws Exception
+    {
+        graph = createGraph();
+        final int size = 15;
+        NodeAccess na = graph.getNodeAccess();
+        for (int y = 0; y < size; y++)
+        {
+            for (int x = 0; x < size; x++)
+            {
+                int node = y * size + x;
+                na.setNode(node, 50 + y * 0.001, 10 + x * 0.001);
+                if (x + 1 < size)
+                    graph.edge(node, node + 1, 100 + (x * 7 + y * 13) % 50, true).setName("street " + y).
+                            setWayGeometry(Helper.createPointList(50 + y * 0.001, 10 + x * 0.001 + 0.0005));
+                if (y + 1 < size)
+                    graph.edge(node, node + size, 100 + (x * 11 + y * 3) % 50, true).setName("avenue " + x);
+            }
+        }
+        graph.flush();
+        graph.getDirectory().freeze();
+
+        Random rand = new Random(0);
+        final int[][] pairs = new int[30][];
+        final String[] expected = new String[pairs.length];
+        for (int i = 0; i < pairs.length; i++)
+        {
+            pairs[i] = new int[]
+            {
+                rand.nextInt(size * size), rand.nextInt(size * size)
+            };
+            expected[i] = calcRouteString(pairs[i][0], pairs[i][1]);
+        }
+
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try
+        {
+            List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+            for (int t = 0; t < threads; t++)
+            {
+                final int offset = t;
+                futures.add(executor.submit(new Callable<Integer>()
+                {
+                    @Override
+                    public Integer call()
+                    {
+                        int errors = 0;
+                        for (int round = 0; round < 10; round++)
+                        {
+                            for (int i = 0; i < pairs.length; i++)
+                            {
+                                int index = (i + offset) % pairs.length;
+                                if (!expected[index].equals(calcRouteString(pairs[index][0], pairs[index][1])))
+                                    errors++;
+                            }
+                        }
+                        return errors;
+                    }
+                }));
+            }
+            for (Future<Integer> future : futures)
+            {
+                assertEquals(0, (int) future.get());
+            }
+        } finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testFreezeAdjacency()
+    {
+        graph = createGraph();
+        initExampleGraph(graph);
+        graph.edge(3, 4, 10, false);
+        graph.edge(5, 1, 20, false);
+        graph.edge(2, 2, 5, true);
+        String expected = toAdjacencyString(graph);
+        assertFalse(graph.isAdjacencyFrozen());
+
+        graph.freezeAdjacency();
+        assertTrue(graph.isAdjacencyFrozen());
+        assertEquals(expected, toAdjacencyString(graph));
+        assertEquals(GHUtility.asSet(5, 4, 3, 2, 1), GHUtility.getNeighbors(carOutExplorer.setBaseNode(0)));
+        assertEquals(GHUtility.asSet(0), GHUtility.getNeighbors(carOutExplorer.setBaseNode(4)));
+        assertEquals(GHUtility.asSet(0, 3), GHUtility.getNeighbors(carInExplorer.setBaseNode(4)));
+
+        // properties can still be changed
+        EdgeIterator iter = carAllExplorer.setBaseNode(1);
+        assertTrue(iter.next());
+        iter.setName("frozen street");
+        EdgeIteratorState detached = iter.detach(false);
+        assertEquals(iter.getEdge(), detached.getEdge());
+        assertEquals(iter.getAdjNode(), detached.getAdjNode());
+        assertEquals("frozen street", detached.getName());
+        assertEquals("frozen street", graph.getEdgeProps(iter.getEdge(), iter.getAdjNode()).getName());
+
+        GraphStorage clone = (GraphStorage) graph.copyTo(createGraph(locationParent + "/clone", false));
+        assertTrue(clone.isAdjacencyFrozen());
+        assertEquals(expected, toAdjacencyString(clone));
+        Helper.close((Closeable) clone);
+
+        try
+        {
+            graph.edge(1, 2, 10, true);
+            assertTrue(false);
+        } catch (IllegalStateException ex)
+        {
+        }
+
+        graph.markNodeRemoved(5);
+        try
+        {
+            graph.optimize();
+            assertTrue(false);
+        } catch (IllegalStateException ex)
+        {
+        }
+    }
+
+    @Test
+    public void testRenumberNodes()
+    {
+        graph = createGraph();
+        initExampleGraph(graph);
+        graph.edge(3, 4, 10, false).setWayGeometry(Helper.createPointList(10, 11, 12, 13)).setName("oneway");
+        // the lower node changes from 1 to 5
+        graph.edge(5, 1, 20, false).setWayGeometry(Helper.createPointList(20, 21, 22, 23));
+        graph.edge(2, 2, 5, true);
+        int[] identity = new int[]
+        {
+            0, 1, 2, 3, 4, 5
+        };
+        int[] oldToNew = new int[]
+        {
+            5, 3, 4, 0, 2, 1
+        };
+        List<String> expected = new ArrayList<String>();
+        for (int node = 0; node < graph.getNodes(); node++)
+        {
+            expected.add(toEdgesString(graph, node, identity));
+        }
+
+        graph.renumberNodes(oldToNew);
+        assertEquals(6, graph.getNodes());
+        assertEquals(8, graph.getAllEdges().getCount());
+        for (int node = 0; node < graph.getNodes(); node++)
+        {
+            assertEquals(expected.get(node), toEdgesString(graph, oldToNew[node], oldToNew));
+        }
+        assertEquals(12, graph.getNodeAccess().getLatitude(5), 1e-6);
+        assertEquals(GHUtility.asSet(5), GHUtility.getNeighbors(carOutExplorer.setBaseNode(2)));
+        assertEquals(GHUtility.asSet(5, 0), GHUtility.getNeighbors(carInExplorer.setBaseNode(2)));
+        assertEquals(GHUtility.asSet(5, 3), GHUtility.getNeighbors(carOutExplorer.setBaseNode(1)));
+
+        // the edges are ordered by their new lower node
+        AllEdgesIterator iter = graph.getAllEdges();
+        int prevLowerNode = -1;
+        while (iter.next())
+        {
+            int lowerNode = Math.min(iter.getBaseNode(), iter.getAdjNode());
+            assertTrue(prevLowerNode <= lowerNode);
+            prevLowerNode = lowerNode;
+        }
+
+        try
+        {
+            graph.renumberNodes(new int[]
+            {
+                0, 1, 2, 3, 4, 4
+            });
+            assertTrue(false);
+        } catch (IllegalArgumentException ex)
+        {
+        }
+    }
+
+    /**
+     * @return the edges of the specified node with the adjacent nodes mapped back to the old ids
+     */
+    private String toEdgesString( Graph g, int node, int[] oldToNew )
+    {
+        int[] newToOld = new int[oldToNew.length];
+        for (int i = 0; i < oldToNew.length; i++)
+        {
+            newToOld[oldToNew[i]] = i;
+        }
+
+        List<String> list = new ArrayList<String>();
+        EdgeIterator iter = g.createEdgeExplorer().setBaseNode(node);
+        while (iter.next())
+        {
+            list.add(newToOld[iter.getAdjNode()] + " " + iter.getDistance() + " " + carEncoder.isForward(iter.getFlags())
+                    + " " + carEncoder.isBackward(iter.getFlags()) + " " + iter.getName() + " " + iter.fetchWayGeometry(0));
+        }
+        Collections.sort(list);
+        return list.toString();
+    }
+
+    protected String toAdjacencyString( Graph g )
+    {
+        StringBuilder sb = new StringBuilder();
+        EdgeExplorer[] explorers = new EdgeExplorer[]
+        {
+            g.createEdgeExplorer(), g.createEdgeExplorer(carOutFilter), g.createEdgeExplorer(carInFilter)
+        };
+        for (int node = 0; node < g.getNodes(); node++)
+        {
+            sb.append(node).append(":");
+            for (EdgeExplorer explorer : explorers)
+            {
+                EdgeIterator iter = explorer.setBaseNode(node);
+                while (iter.next())
+                {
+                    sb.append(" ").append(iter.getEdge()).append("-").append(iter.getAdjNode()).
+                            append("/").append(iter.getFlags());
+                }
+                sb.append(";");
+            }
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+
+    private String calcRouteString( int from, int to )
+    {
+        Path p = new Dijkstra(graph, carEncoder, new ShortestWeighting(), TraversalMode.NODE_BASED).calcPath(from, to);
+        StringBuilder sb = new StringBuilder();
+        sb.append(p.getDistance()).append(p.calcNodes()).append(p.calcPoints());
+        for (EdgeIteratorState edge : p.calcEdges())
+        {
+            sb.append(edge.getName());
+        }
+        return sb.toString();
+    }
+
     @Test
     public void testSetNodes()
     {
@@ -889,6 +1155,14 @@ public abstract class AbstractGraphStorageTester
         assertPList(Helper.createPointList(0.99, 0.99, 1, 9, 1, 8, 1, 7, 1, 6, 1, 5), iter.fetchWayGeometry(1));
         assertPList(Helper.createPointList(1, 9, 1, 8, 1, 7, 1, 6, 1, 5, 0.4, 0.4), iter.fetchWayGeometry(2));
         assertPList(Helper.createPointList(0.99, 0.99, 1, 9, 1, 8, 1, 7, 1, 6, 1, 5, 0.4, 0.4), iter.fetchWayGeometry(3));
+
+        // append to an existing list
+        PointList buffer = Helper.createPointList(5, 5);
+        assertSame(buffer, iter.fetchWayGeometry(1, buffer));
+        assertPList(Helper.createPointList(5, 5, 0.99, 0.99, 1, 9, 1, 8, 1, 7, 1, 6, 1, 5), buffer);
+        iter.fetchWayGeometry(2, buffer);
+        assertPList(Helper.createPointList(5, 5, 0.99, 0.99, 1, 9, 1, 8, 1, 7, 1, 6, 1, 5,
+                1, 9, 1, 8, 1, 7, 1, 6, 1, 5, 0.4, 0.4), buffer);
         assertFalse(iter.next());
     }
 
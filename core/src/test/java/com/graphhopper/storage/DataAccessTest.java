@@ -163,6 +163,42 @@ public abstract class DataAccessTest
         da.close();
     }
 
+    @Test
+    public void testFreeze()
+    {
+        DataAccess da = createDataAccess(name);
+        da.create(128);
+        da.setInt(4, 200);
+        da.setHeader(0, 7);
+        da.freeze();
+        assertTrue(da.isFrozen());
+        assertEquals(200, da.getInt(4));
+        assertEquals(7, da.getHeader(0));
+        try
+        {
+            da.ensureCapacity(2 * 128);
+            assertFalse(true);
+        } catch (IllegalStateException ex)
+        {
+        }
+        try
+        {
+            da.setHeader(0, 8);
+            assertFalse(true);
+        } catch (IllegalStateException ex)
+        {
+        }
+        try
+        {
+            da.trimTo(0);
+            assertFalse(true);
+        } catch (IllegalStateException ex)
+        {
+        }
+        assertEquals(7, da.getHeader(0));
+        da.close();
+    }
+
     @Test
     public void testCopy()
     {
@@ -356,6 +392,25 @@ public abstract class DataAccessTest
         assertEquals(11111, index);
     }
 
+    @Test
+    public void testSet_GetByte()
+    {
+        DataAccess da = createDataAccess(name);
+        da.create(300);
+        da.setByte(0, (byte) -1);
+        da.setByte(127, (byte) 42);
+        da.setByte(128, (byte) -128);
+        assertEquals(-1, da.getByte(0));
+        assertEquals(42, da.getByte(127));
+        assertEquals(-128, da.getByte(128));
+
+        byte[] bytes = new byte[2];
+        da.getBytes(127, bytes, bytes.length);
+        assertEquals(42, bytes[0]);
+        assertEquals(-128, bytes[1]);
+        da.close();
+    }
+
     @Test
     public void testSet_Get_Short_Long()
     {
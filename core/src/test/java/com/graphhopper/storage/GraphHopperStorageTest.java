@@ -19,6 +19,7 @@ package com.graphhopper.storage;
 
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.BBox;
+import java.io.File;
 import java.io.IOException;
 import static org.junit.Assert.*;
 import org.junit.Test;
@@ -101,6 +102,36 @@ public class GraphHopperStorageTest extends AbstractGraphStorageTester
         checkGraph(graph);
     }
 
+    @Test
+    public void testFreezeAdjacency_SaveAndLoad()
+    {
+        graph = newGraph(new RAMDirectory(defaultGraphLoc, true), false).create(defaultSize);
+        initExampleGraph(graph);
+        graph.edge(3, 4, 10, false);
+        graph.freezeAdjacency();
+        String expected = toAdjacencyString(graph);
+        graph.flush();
+        graph.close();
+
+        graph = newGraph(new RAMDirectory(defaultGraphLoc, true), false);
+        assertTrue(graph.loadExisting());
+        assertTrue(graph.isAdjacencyFrozen());
+        assertEquals(expected, toAdjacencyString(graph));
+        graph.close();
+
+        // graphs without the adjacency still load
+        Helper.removeDir(new File(defaultGraphLoc));
+        graph = newGraph(new RAMDirectory(defaultGraphLoc, true), false).create(defaultSize);
+        initExampleGraph(graph);
+        graph.flush();
+        graph.close();
+
+        graph = newGraph(new RAMDirectory(defaultGraphLoc, true), false);
+        assertTrue(graph.loadExisting());
+        assertFalse(graph.isAdjacencyFrozen());
+        assertEquals(GHUtility.asSet(5, 4, 3, 2, 1), GHUtility.getNeighbors(graph.createEdgeExplorer().setBaseNode(0)));
+    }
+
     protected void checkGraph( Graph g )
     {
         NodeAccess na = g.getNodeAccess();
@@ -209,4 +240,42 @@ public class GraphHopperStorageTest extends AbstractGraphStorageTester
 
         }
     }
+
+    @Test
+    public void testWayGeometryDeltaEncoding()
+    {
+        graph = newGraph(new RAMDirectory(defaultGraphLoc, true), true).create(defaultSize);
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(0, 10, 10, 1);
+        na.setNode(1, 11, 11, 2);
+        na.setNode(2, 12, 12, 3);
+        // big jumps and negative deltas need the full 5 bytes per varint
+        PointList pl = Helper.createPointList3D(-89.9, -179.9, -10, 89.9, 179.9, 8000, 0.000001, -0.000001, 0, 10.5, 10.5, 1.5);
+        graph.edge(1, 0, 10, true).setWayGeometry(pl.clone(false));
+        graph.edge(0, 2, 10, true).setWayGeometry(Helper.createPointList3D(11.1, 11.2, 5));
+        graph.edge(1, 2, 10, true);
+
+        EdgeIteratorState edge = GHUtility.getEdge(graph, 1, 0);
+        assertEquals(pl, edge.fetchWayGeometry(0));
+        assertEquals(pl.clone(true), GHUtility.getEdge(graph, 0, 1).fetchWayGeometry(0));
+        assertEquals(0, GHUtility.getEdge(graph, 1, 2).fetchWayGeometry(0).getSize());
+        assertEquals(Helper.createPointList3D(11, 11, 2, 12, 12, 3), GHUtility.getEdge(graph, 1, 2).fetchWayGeometry(3));
+
+        // geometry is stored from the lower to the higher node, so it is re-encoded in reverse order
+        graph.renumberNodes(new int[]
+        {
+            1, 0, 2
+        });
+        assertEquals(pl, GHUtility.getEdge(graph, 0, 1).fetchWayGeometry(0));
+        assertEquals(Helper.createPointList3D(11.1, 11.2, 5), GHUtility.getEdge(graph, 1, 2).fetchWayGeometry(0));
+
+        graph.flush();
+        graph.close();
+        graph = newGraph(new RAMDirectory(defaultGraphLoc, true), true);
+        assertTrue(graph.loadExisting());
+        assertEquals(pl, GHUtility.getEdge(graph, 0, 1).fetchWayGeometry(0));
+        graph.edge(0, 2, 10, true).setWayGeometry(Helper.createPointList3D(1, 2, 3));
+        assertEquals(Helper.createPointList3D(1, 2, 3), GHUtility.getEdge(graph, 0, 2).fetchWayGeometry(0));
+        assertEquals(Helper.createPointList3D(11.1, 11.2, 5), GHUtility.getEdge(graph, 1, 2).fetchWayGeometry(0));
+    }
 }
@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.util.Random;
 
 import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
 import com.graphhopper.util.Helper;
 import org.junit.Test;
 
@@ -96,6 +97,28 @@ public class GraphHopperStorageWithTurnCostsTest extends GraphHopperStorageTest
         checkGraph(graph);
     }
 
+    @Test
+    public void testRenumberNodesWithTurnCosts()
+    {
+        graph = createGraph();
+        EdgeIteratorState edge01 = graph.edge(0, 1, 10, true);
+        EdgeIteratorState edge12 = graph.edge(1, 2, 10, true);
+        EdgeIteratorState edge13 = graph.edge(1, 3, 10, true);
+        turnCostStorage.addTurnInfo(edge01.getEdge(), 1, edge12.getEdge(), 1337);
+        turnCostStorage.addTurnInfo(edge12.getEdge(), 1, edge13.getEdge(), 666);
+
+        graph.renumberNodes(new int[]
+        {
+            3, 0, 2, 1
+        });
+        int newEdge01 = GHUtility.getEdge(graph, 3, 0).getEdge();
+        int newEdge12 = GHUtility.getEdge(graph, 0, 2).getEdge();
+        int newEdge13 = GHUtility.getEdge(graph, 0, 1).getEdge();
+        assertEquals(1337, turnCostStorage.getTurnCostFlags(newEdge01, 0, newEdge12));
+        assertEquals(666, turnCostStorage.getTurnCostFlags(newEdge12, 0, newEdge13));
+        assertEquals(0, turnCostStorage.getTurnCostFlags(newEdge01, 0, newEdge13));
+    }
+
     @Test
     public void testEnsureCapacity() throws IOException
     {
@@ -26,6 +26,7 @@ import com.graphhopper.routing.util.LevelEdgeFilter;
 import com.graphhopper.storage.index.QueryResult;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.BBox;
+import java.util.Arrays;
 import static org.junit.Assert.*;
 import org.junit.Test;
 
@@ -158,6 +159,156 @@ public class LevelGraphStorageTest extends GraphHopperStorageTest
         assertEquals(0, GHUtility.count(carOutExplorer.setBaseNode(2)));
     }
 
+    @Test
+    public void testRenumberNodesWithShortcuts()
+    {
+        LevelGraphStorage g = (LevelGraphStorage) createGraph();
+        g.edge(0, 1, 10, true);
+        g.edge(1, 2, 10, true);
+        g.edge(2, 3, 10, true);
+        for (int node = 0; node < 4; node++)
+        {
+            g.setLevel(node, node + 10);
+        }
+        EdgeSkipIterState sc02 = g.shortcut(0, 2);
+        sc02.setFlags(carEncoder.setProperties(60, true, false)).setDistance(20);
+        sc02.setWeight(20);
+        sc02.setSkippedEdges(0, 1);
+        EdgeSkipIterState sc03 = g.shortcut(0, 3);
+        sc03.setFlags(carEncoder.setProperties(60, true, true)).setDistance(30);
+        sc03.setWeight(30);
+        sc03.setSkippedEdges(sc02.getEdge(), 2);
+        EdgeIterator iter = g.createEdgeExplorer().setBaseNode(0);
+        while (iter.next())
+        {
+            if (iter.getAdjNode() == 3)
+                break;
+        }
+        // only reachable from 0 afterwards
+        g.disconnect(g.createEdgeExplorer(), iter);
+
+        g.renumberNodes(new int[]
+        {
+            3, 2, 1, 0
+        });
+        assertEquals(13, g.getLevel(0));
+        assertEquals(10, g.getLevel(3));
+        assertEquals(GHUtility.asSet(2, 1, 0), GHUtility.getNeighbors(carOutExplorer.setBaseNode(3)));
+        assertEquals(GHUtility.asSet(2, 0), GHUtility.getNeighbors(carInExplorer.setBaseNode(3)));
+        assertEquals(GHUtility.asSet(1), GHUtility.getNeighbors(g.createEdgeExplorer().setBaseNode(0)));
+
+        EdgeSkipIterState sc = (EdgeSkipIterState) GHUtility.getEdge(g, 3, 1);
+        assertTrue(sc.isShortcut());
+        assertEquals(20, sc.getWeight(), 1e-3);
+        assertTrue(carEncoder.isForward(sc.getFlags()));
+        assertFalse(carEncoder.isBackward(sc.getFlags()));
+        assertEquals(GHUtility.getEdge(g, 3, 2).getEdge(), sc.getSkippedEdge1());
+        assertEquals(GHUtility.getEdge(g, 2, 1).getEdge(), sc.getSkippedEdge2());
+
+        sc = (EdgeSkipIterState) GHUtility.getEdge(g, 3, 0);
+        assertEquals(30, sc.getDistance(), 1e-3);
+        assertEquals(GHUtility.getEdge(g, 3, 1).getEdge(), sc.getSkippedEdge1());
+        assertEquals(GHUtility.getEdge(g, 1, 0).getEdge(), sc.getSkippedEdge2());
+    }
+
+    @Test
+    public void testPrepareUnpacking()
+    {
+        LevelGraphStorage g = (LevelGraphStorage) newGraph(new RAMDirectory(defaultGraphLoc, true), false).
+                create(defaultSize);
+        g.edge(0, 1, 10, true);
+        g.edge(1, 2, 10, true);
+        g.edge(2, 3, 10, true);
+        EdgeSkipIterState sc02 = g.shortcut(0, 2);
+        sc02.setFlags(carEncoder.setProperties(60, true, true)).setDistance(20);
+        sc02.setSkippedEdges(0, 1);
+        // skipped edge 1 is adjacent to the higher node
+        EdgeSkipIterState sc03 = g.shortcut(0, 3);
+        sc03.setFlags(carEncoder.setProperties(60, true, true)).setDistance(30);
+        sc03.setSkippedEdges(2, sc02.getEdge());
+        // loops cannot be unpacked without the edge states
+        EdgeSkipIterState sc11 = g.shortcut(1, 1);
+        sc11.setSkippedEdges(0, 0);
+        assertEquals(-1, g.getSkippedNode(sc02.getEdge()));
+
+        g.prepareUnpacking();
+        assertEquals(1, g.getSkippedNode(sc02.getEdge()));
+        assertEquals(0, g.getSkippedEdge(sc02.getEdge(), 0));
+        assertEquals(1, g.getSkippedEdge(sc02.getEdge(), 2));
+        assertEquals(2, g.getSkippedNode(sc03.getEdge()));
+        assertEquals(sc02.getEdge(), g.getSkippedEdge(sc03.getEdge(), 0));
+        assertEquals(2, g.getSkippedEdge(sc03.getEdge(), 3));
+        assertEquals(-1, g.getSkippedNode(sc11.getEdge()));
+        assertEquals(-1, g.getSkippedNode(0));
+
+        g.renumberNodes(new int[]
+        {
+            3, 2, 1, 0
+        });
+        int sc = GHUtility.getEdge(g, 3, 0).getEdge();
+        assertEquals(1, g.getSkippedNode(sc));
+        assertEquals(GHUtility.getEdge(g, 1, 0).getEdge(), g.getSkippedEdge(sc, 0));
+        assertEquals(GHUtility.getEdge(g, 3, 1).getEdge(), g.getSkippedEdge(sc, 3));
+
+        g.flush();
+        g.close();
+        g = (LevelGraphStorage) newGraph(new RAMDirectory(defaultGraphLoc, true), false);
+        assertTrue(g.loadExisting());
+        assertEquals(1, g.getSkippedNode(sc));
+        assertEquals(GHUtility.getEdge(g, 1, 0).getEdge(), g.getSkippedEdge(sc, 0));
+
+        // changed skipped edges are not unpacked via the outdated data
+        EdgeSkipIterState scState = (EdgeSkipIterState) GHUtility.getEdge(g, 3, 0);
+        scState.setSkippedEdges(scState.getSkippedEdge1(), scState.getSkippedEdge2());
+        assertEquals(-1, g.getSkippedNode(sc));
+        g.close();
+    }
+
+    @Test
+    public void testShortcutMillis()
+    {
+        LevelGraphStorage g = (LevelGraphStorage) newGraph(new RAMDirectory(defaultGraphLoc, true), false).
+                create(defaultSize);
+        g.edge(0, 1).setDistance(50).setFlags(carEncoder.setProperties(60, true, true));
+        g.edge(1, 2).setDistance(100).setFlags(carEncoder.setProperties(60, true, true));
+        g.edge(2, 3).setDistance(50).setFlags(carEncoder.setProperties(30, true, false));
+        EdgeSkipIterState sc02 = g.shortcut(0, 2);
+        sc02.setFlags(carEncoder.setProperties(0, true, true)).setDistance(150);
+        sc02.setSkippedEdges(0, 1);
+        EdgeSkipIterState sc03 = g.shortcut(0, 3);
+        sc03.setFlags(carEncoder.setProperties(0, true, false)).setDistance(200);
+        sc03.setSkippedEdges(2, sc02.getEdge());
+        assertEquals(-1, g.getShortcutMillis(sc02.getEdge(), 0));
+
+        g.prepareUnpacking();
+        assertEquals(9000, g.getShortcutMillis(sc02.getEdge(), 0));
+        assertEquals(9000, g.getShortcutMillis(sc02.getEdge(), 2));
+        assertEquals(15000, g.getShortcutMillis(sc03.getEdge(), 0));
+        // not accessible
+        assertEquals(-1, g.getShortcutMillis(sc03.getEdge(), 3));
+        assertEquals(-1, g.getShortcutMillis(0, 0));
+
+        g.renumberNodes(new int[]
+        {
+            3, 2, 1, 0
+        });
+        int sc = GHUtility.getEdge(g, 3, 0).getEdge();
+        assertEquals(15000, g.getShortcutMillis(sc, 3));
+        assertEquals(-1, g.getShortcutMillis(sc, 0));
+
+        g.flush();
+        g.close();
+        g = (LevelGraphStorage) newGraph(new RAMDirectory(defaultGraphLoc, true), false);
+        assertTrue(g.loadExisting());
+        assertEquals(15000, g.getShortcutMillis(sc, 3));
+
+        // changing any shortcut makes the times of all shortcuts outdated
+        EdgeSkipIterState scState = (EdgeSkipIterState) GHUtility.getEdge(g, 3, 1);
+        scState.setSkippedEdges(scState.getSkippedEdge1(), scState.getSkippedEdge2());
+        assertEquals(-1, g.getShortcutMillis(sc, 3));
+        g.close();
+    }
+
     @Test
     public void testGetWeight()
     {
@@ -213,6 +364,119 @@ public class LevelGraphStorageTest extends GraphHopperStorageTest
         assertEquals(1.011011, sc1.getWeight(), 1e-3);
     }
 
+    @Test
+    public void testMultipleLevelGraphs()
+    {
+        LevelGraphStorage g = new LevelGraphStorage(new RAMDirectory(defaultGraphLoc, true), encodingManager, false);
+        LevelGraph carLG = g.addLevelGraph(carEncoder, "fastest");
+        LevelGraph footLG = g.addLevelGraph(footEncoder, "shortest");
+        g.create(defaultSize);
+        assertEquals(Arrays.asList("car_fastest", "foot_shortest"), g.getLevelGraphNames());
+        assertSame(footLG, g.getLevelGraph(footEncoder, "shortest"));
+        assertNull(g.getLevelGraph(footEncoder, "fastest"));
+
+        g.edge(0, 1, 10, true);
+        g.edge(1, 2, 10, true);
+        carLG.setLevel(1, 5);
+        footLG.setLevel(1, 7);
+        EdgeSkipIterState carSc = carLG.shortcut(0, 2);
+        carSc.setFlags(carEncoder.setAccess(0, true, false)).setDistance(20);
+        carSc.setWeight(20);
+        carSc.setSkippedEdges(0, 1);
+        EdgeSkipIterState footSc = footLG.shortcut(2, 0);
+        footSc.setFlags(footEncoder.setAccess(0, true, false)).setDistance(20);
+        footSc.setWeight(21);
+        footSc.setSkippedEdges(1, 0);
+        footLG.shortcut(1, 2).setFlags(footEncoder.setAccess(0, true, true));
+
+        // shortcuts of different level graphs can have the same edge id
+        assertEquals(2, carSc.getEdge());
+        assertEquals(2, footSc.getEdge());
+        assertEquals(3, carLG.getAllEdges().getCount());
+        assertEquals(4, footLG.getAllEdges().getCount());
+        assertEquals(2, GHUtility.count(carLG.createEdgeExplorer().setBaseNode(1)));
+        assertEquals(3, GHUtility.count(footLG.createEdgeExplorer().setBaseNode(1)));
+        assertEquals(2, GHUtility.count(g.getBaseGraph().createEdgeExplorer().setBaseNode(1)));
+        try
+        {
+            g.edge(2, 3);
+            assertTrue(false);
+        } catch (IllegalStateException ex)
+        {
+        }
+
+        g.flush();
+        g.close();
+
+        g = new LevelGraphStorage(new RAMDirectory(defaultGraphLoc, true), encodingManager, false);
+        carLG = g.addLevelGraph(carEncoder, "fastest");
+        footLG = g.addLevelGraph(footEncoder, "shortest");
+        assertTrue(g.loadExisting());
+        assertEquals(5, carLG.getLevel(1));
+        assertEquals(7, footLG.getLevel(1));
+        assertEquals(5, g.getLevel(1));
+
+        // the access flags are stored in the layout of the corresponding encoder
+        EdgeSkipIterState sc = carLG.getEdgeProps(2, 0);
+        assertEquals(20, sc.getWeight(), 1e-3);
+        assertEquals(20, sc.getDistance(), 1e-3);
+        assertFalse(carEncoder.isForward(sc.getFlags()));
+        assertTrue(carEncoder.isBackward(sc.getFlags()));
+        sc = footLG.getEdgeProps(2, 0);
+        assertEquals(21, sc.getWeight(), 1e-3);
+        assertTrue(footEncoder.isForward(sc.getFlags()));
+        assertFalse(footEncoder.isBackward(sc.getFlags()));
+        assertFalse(carEncoder.isForward(sc.getFlags()));
+        assertEquals(1, sc.getSkippedEdge1());
+        assertEquals(0, sc.getSkippedEdge2());
+        g.close();
+    }
+
+    @Test
+    public void testCopyLevelGraph()
+    {
+        LevelGraphStorage g = new LevelGraphStorage(new RAMDirectory(), encodingManager, false);
+        LevelGraph carLG = g.addLevelGraph(carEncoder, "fastest");
+        LevelGraph footLG = g.addLevelGraph(footEncoder, "shortest");
+        g.create(defaultSize);
+        g.edge(0, 1, 10, true);
+        g.edge(1, 2, 10, true);
+        carLG.setLevel(1, 5);
+        EdgeSkipIterState carSc = carLG.shortcut(0, 2);
+        carSc.setFlags(carEncoder.setAccess(0, true, false)).setDistance(20);
+        carSc.setWeight(20);
+        carSc.setSkippedEdges(0, 1);
+
+        LevelGraphStorage clone = new LevelGraphStorage(new RAMDirectory(), encodingManager, false);
+        LevelGraph clonedCarLG = clone.addLevelGraph(carEncoder, "fastest");
+        clone.addLevelGraph(footEncoder, "shortest");
+        clone.create(defaultSize);
+        assertSame(clonedCarLG, carLG.copyTo(clonedCarLG));
+        assertEquals(3, clonedCarLG.getAllEdges().getCount());
+        assertEquals(5, clonedCarLG.getLevel(1));
+        EdgeSkipIterState sc = clonedCarLG.getEdgeProps(2, 2);
+        assertTrue(sc.isShortcut());
+        assertEquals(20, sc.getWeight(), 1e-3);
+        assertEquals(0, sc.getSkippedEdge1());
+        assertEquals(1, sc.getSkippedEdge2());
+        assertEquals(10, clone.getBaseGraph().getEdgeProps(1, 2).getDistance(), 1e-3);
+
+        try
+        {
+            footLG.copyTo(clonedCarLG);
+            assertTrue(false);
+        } catch (IllegalArgumentException ex)
+        {
+        }
+        try
+        {
+            carLG.copyTo(new GraphHopperStorage(new RAMDirectory(), encodingManager, false).create(defaultSize));
+            assertTrue(false);
+        } catch (IllegalArgumentException ex)
+        {
+        }
+    }
+
     @Test
     public void testQueryGraph()
     {
@@ -34,4 +34,9 @@ public class RAMIntDataAccessTest extends DataAccessTest
     {
         // should we implement this?
     }
+
+    @Override
+    public void testSet_GetByte()
+    {
+    }
 }
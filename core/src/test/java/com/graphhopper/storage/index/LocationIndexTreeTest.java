@@ -17,6 +17,7 @@
  */
 package com.graphhopper.storage.index;
 
+import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.storage.Directory;
@@ -27,6 +28,10 @@ import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.GHPoint;
 import gnu.trove.set.hash.TIntHashSet;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -200,6 +205,175 @@ public class LocationIndexTreeTest extends AbstractLocationIndexTester
         assertEquals(1, res.getClosestNode());
     }
 
+    @Test
+    public void testPrepareWithThreads()
+    {
+        Graph g = createSampleGraph(new EncodingManager("CAR"));
+        LocationIndexTree index = createIndexNoPrepare(g, 500);
+        index.prepareIndex();
+        for (int threads : new int[]
+        {
+            2, 3, 7
+        })
+        {
+            LocationIndexTree parallelIndex = createIndexNoPrepare(g, 500).setThreads(threads);
+            parallelIndex.prepareIndex();
+            assertEquals(index.dataAccess.getCapacity(), parallelIndex.dataAccess.getCapacity());
+            for (long pointer = 0; pointer < index.dataAccess.getCapacity(); pointer += 4)
+            {
+                assertEquals("threads " + threads + ", pointer " + pointer,
+                        index.dataAccess.getInt(pointer), parallelIndex.dataAccess.getInt(pointer));
+            }
+        }
+    }
+
+    @Test
+    public void testFindClosestReusesResult()
+    {
+        Graph g = createSampleGraph(new EncodingManager("CAR"));
+        LocationIndexTree index = createIndex(g, -1);
+        QueryResult reused = new QueryResult(0, 0);
+        for (double lat = 0; lat < 0.8; lat += 0.05)
+        {
+            for (double lon = 0; lon < 1.3; lon += 0.05)
+            {
+                QueryResult expected = index.findClosest(lat, lon, EdgeFilter.ALL_EDGES);
+                assertSame(reused, index.findClosest(lat, lon, EdgeFilter.ALL_EDGES, reused));
+                assertEquals(lat, reused.getQueryPoint().lat, 1e-9);
+                assertEquals(expected.isValid(), reused.isValid());
+                assertEquals(expected.getClosestNode(), reused.getClosestNode());
+                assertEquals(expected.getQueryDistance(), reused.getQueryDistance(), 1e-9);
+                assertEquals(expected.getWayIndex(), reused.getWayIndex());
+                assertEquals(expected.getSnappedPosition(), reused.getSnappedPosition());
+                assertEquals(expected.getSnappedPoint(), reused.getSnappedPoint());
+            }
+        }
+
+        // no match resets the old result
+        EdgeFilter noEdges = new EdgeFilter()
+        {
+            @Override
+            public boolean accept( EdgeIteratorState edgeState )
+            {
+                return false;
+            }
+        };
+        assertFalse(index.findClosest(0.5, 0.5, noEdges, reused).isValid());
+        assertEquals(Double.MAX_VALUE, reused.getQueryDistance(), 1e-9);
+        assertNull(reused.getClosestEdge());
+    }
+
+    @Test
+    public void testFindClosestBatch()
+    {
+        Graph g = createSampleGraph(new EncodingManager("CAR"));
+        LocationIndexTree index = createIndex(g, -1);
+        Random rand = new Random(1);
+        double[] lats = new double[2000];
+        double[] lons = new double[lats.length];
+        for (int i = 0; i < lats.length; i++)
+        {
+            lats[i] = rand.nextDouble() * 5;
+            lons[i] = rand.nextDouble() * 5;
+        }
+
+        for (int threads : new int[]
+        {
+            1, 3
+        })
+        {
+            QueryResult[] results = index.setThreads(threads).findClosestBatch(lats, lons, EdgeFilter.ALL_EDGES);
+            assertBatch(index, lats, lons, results);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try
+        {
+            assertBatch(index, lats, lons, index.findClosestBatch(lats, lons, EdgeFilter.ALL_EDGES, executor));
+        } finally
+        {
+            executor.shutdownNow();
+        }
+        index.close();
+    }
+
+    private void assertBatch( LocationIndexTree index, double[] lats, double[] lons, QueryResult[] results )
+    {
+        assertEquals(lats.length, results.length);
+        for (int i = 0; i < lats.length; i++)
+        {
+            QueryResult expected = index.findClosest(lats[i], lons[i], EdgeFilter.ALL_EDGES);
+            assertEquals(lats[i], results[i].getQueryPoint().lat, 1e-9);
+            assertEquals(expected.getClosestNode(), results[i].getClosestNode());
+            assertEquals(expected.getQueryDistance(), results[i].getQueryDistance(), 1e-9);
+        }
+    }
+
+    @Test
+    public void testFindKNearestAndWithin()
+    {
+        Graph g = createSampleGraph(new EncodingManager("CAR"));
+        LocationIndexTree index = createIndex(g, 1000);
+        Random rand = new Random(12);
+        for (int i = 0; i < 50; i++)
+        {
+            double lat = rand.nextDouble() * 5;
+            double lon = rand.nextDouble() * 5;
+            double[] expected = calcEdgeDistances(g, lat, lon);
+
+            List<QueryResult> nearest = index.findKNearest(lat, lon, 5, EdgeFilter.ALL_EDGES);
+            assertEquals(5, nearest.size());
+            for (int k = 0; k < nearest.size(); k++)
+            {
+                assertEquals(expected[k], nearest.get(k).getQueryDistance(), 1e-3);
+                assertTrue(nearest.get(k).isValid());
+            }
+            // findClosest only searches a few tiles around the point
+            QueryResult closest = index.findClosest(lat, lon, EdgeFilter.ALL_EDGES);
+            if (closest.isValid())
+                assertEquals(closest.getQueryDistance(), nearest.get(0).getQueryDistance(), 1e-3);
+
+            double radius = expected[3] + 1;
+            List<QueryResult> within = index.findWithin(lat, lon, radius, EdgeFilter.ALL_EDGES);
+            int count = 0;
+            while (count < expected.length && expected[count] <= radius)
+            {
+                count++;
+            }
+            assertEquals(count, within.size());
+            assertEquals(expected[count - 1], within.get(count - 1).getQueryDistance(), 1e-3);
+        }
+
+        assertEquals(g.getAllEdges().getCount(), index.findKNearest(2, 2, 1000, EdgeFilter.ALL_EDGES).size());
+        assertTrue(index.findWithin(2, 2.5, 0, EdgeFilter.ALL_EDGES).isEmpty());
+    }
+
+    // the sorted distances from the point to every edge
+    static double[] calcEdgeDistances( Graph g, double lat, double lon )
+    {
+        DistanceCalc distCalc = Helper.DIST_PLANE;
+        AllEdgesIterator iter = g.getAllEdges();
+        double[] dists = new double[iter.getCount()];
+        while (iter.next())
+        {
+            PointList pl = iter.fetchWayGeometry(3);
+            double min = Double.MAX_VALUE;
+            for (int i = 0; i < pl.getSize(); i++)
+            {
+                min = Math.min(min, distCalc.calcDist(lat, lon, pl.getLatitude(i), pl.getLongitude(i)));
+                if (i > 0 && distCalc.validEdgeDistance(lat, lon, pl.getLatitude(i - 1), pl.getLongitude(i - 1),
+                        pl.getLatitude(i), pl.getLongitude(i)))
+                {
+                    min = Math.min(min, distCalc.calcDenormalizedDist(distCalc.calcNormalizedEdgeDistance(lat, lon,
+                            pl.getLatitude(i - 1), pl.getLongitude(i - 1), pl.getLatitude(i), pl.getLongitude(i))));
+                }
+            }
+            dists[iter.getEdge()] = min;
+        }
+        Arrays.sort(dists);
+        return dists;
+    }
+
     @Test
     public void testReverseSpatialKey()
     {
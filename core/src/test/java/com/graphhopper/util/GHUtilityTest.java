@@ -75,6 +75,44 @@ public class GHUtilityTest
         assertEquals(4.2, na.getLatitude(6), 1e-4); // 5
     }
 
+    @Test
+    public void testNodeOrders()
+    {
+        Graph g = initUnsorted(createGraph());
+        int[] dfsOrder = GHUtility.createDFSOrder(g);
+        assertEquals(0, dfsOrder[0]);
+        assertEquals(1, dfsOrder[1]);
+        assertEquals(3, dfsOrder[8]);
+
+        int[] spatialOrder = GHUtility.createSpatialOrder(g);
+        assertPermutation(spatialOrder);
+        // lower left corner first, upper right corner last
+        assertEquals(0, spatialOrder[0]);
+        assertEquals(8, spatialOrder[2]);
+
+        LevelGraph lg = new GraphBuilder(encodingManager).levelGraphCreate();
+        initUnsorted(lg);
+        for (int node = 0; node < lg.getNodes(); node++)
+        {
+            lg.setLevel(node, node % 3);
+        }
+        int[] levelOrder = GHUtility.createLevelOrder(lg);
+        assertPermutation(levelOrder);
+        assertEquals(0, levelOrder[2]);
+        assertEquals(1, levelOrder[5]);
+        assertEquals(8, levelOrder[6]);
+    }
+
+    private static void assertPermutation( int[] oldToNew )
+    {
+        boolean[] used = new boolean[oldToNew.length];
+        for (int newIndex : oldToNew)
+        {
+            assertFalse(used[newIndex]);
+            used[newIndex] = true;
+        }
+    }
+
     @Test
     public void testSort2()
     {
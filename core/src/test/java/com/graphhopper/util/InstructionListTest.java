@@ -369,6 +369,40 @@ public class InstructionListTest
         assertNotNull(new JSONObject(json).toString());
     }
 
+    @Test
+    public void testWriteJson() throws IOException
+    {
+        InstructionList il = new InstructionList(usTR);
+        PointList pl = new PointList();
+        pl.add(52.514, 13.349);
+        pl.add(52.5135, 13.35);
+        pl.add(52.514, 13.351);
+        il.add(new RoundaboutInstruction(Instruction.USE_ROUNDABOUT, "streetname",
+                new InstructionAnnotation(0, ""), pl).setDirOfRotation(-0.1).setRadian(-Math.PI + 1).
+                setExitNumber(2).setExited().setDistance(12.3456).setTime(1000));
+        pl = new PointList();
+        pl.add(52.515, 13.352);
+        il.add(new Instruction(Instruction.TURN_LEFT, "\"quoted\" street", new InstructionAnnotation(1, "toll"), pl));
+
+        StringWriter sw = new StringWriter();
+        il.writeJson(new JsonWriter(sw));
+        org.json.JSONArray written = new org.json.JSONArray(sw.toString());
+        List<Map<String, Object>> expected = il.createJson();
+        assertEquals(expected.size(), written.length());
+        for (int i = 0; i < expected.size(); i++)
+        {
+            JSONObject json = written.getJSONObject(i);
+            Map<String, Object> map = expected.get(i);
+            assertEquals(map.keySet(), json.keySet());
+            assertEquals(map.get("text"), json.getString("text"));
+            assertEquals(((Number) map.get("distance")).doubleValue(), json.getDouble("distance"), 1e-6);
+            assertEquals(map.get("interval"), Arrays.asList(json.getJSONArray("interval").getInt(0), json.getJSONArray("interval").getInt(1)));
+        }
+        assertEquals(-1, written.getJSONObject(0).getDouble("turn_angle"), 0.01);
+        assertEquals(2, written.getJSONObject(0).getInt("exit_number"));
+        assertEquals("toll", written.getJSONObject(1).getString("annotation_text"));
+    }
+
     // Roundabout with unknown dir of rotation
     @Test
     public void testRoundaboutJsonNaN()
@@ -0,0 +1,99 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.util;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.json.JSONObject;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Peter Karich
+ */
+public class JsonWriterTest
+{
+    @Test
+    public void testNesting() throws Exception
+    {
+        StringWriter sw = new StringWriter();
+        new JsonWriter(sw).startObject().
+                name("a").value(1).
+                name("b").startArray().value("x").startObject().endObject().startArray().endArray().endArray().
+                name("c").nullValue().
+                name("d").value(true).
+                endObject();
+        assertEquals("{\"a\":1,\"b\":[\"x\",{},[]],\"c\":null,\"d\":true}", sw.toString());
+    }
+
+    @Test
+    public void testIndent() throws Exception
+    {
+        StringWriter sw = new StringWriter();
+        new JsonWriter(sw).setIndent(2).startObject().
+                name("a").startArray().value(1).value(2).endArray().
+                name("b").startObject().endObject().
+                endObject();
+        assertEquals("{\n  \"a\": [\n    1,\n    2\n  ],\n  \"b\": {}\n}", sw.toString());
+    }
+
+    @Test
+    public void testNumbers() throws Exception
+    {
+        StringWriter sw = new StringWriter();
+        new JsonWriter(sw).startArray().value(1L).value(-2L).value(1.5).value(Double.NaN).
+                value(0.0, 6).value(12.3456789, 6).value(-0.001, 3).value(7.0000001, 3).value(-0.5, 2).
+                endArray();
+        assertEquals("[1,-2,1.5,null,0,12.345679,-0.001,7,-0.5]", sw.toString());
+
+        sw = new StringWriter();
+        new JsonWriter(sw).startArray().value(Long.MIN_VALUE).value(1e20).endArray();
+        assertEquals("[" + Long.MIN_VALUE + ",1.0E20]", sw.toString());
+    }
+
+    @Test
+    public void testEscaping() throws Exception
+    {
+        String str = "a\"b\\c\nd\te/\u0001 ";
+        StringWriter sw = new StringWriter();
+        new JsonWriter(sw).startObject().name("k").value(str).endObject();
+        assertEquals(str, new JSONObject(sw.toString()).getString("k"));
+        assertFalse(sw.toString().contains("\n"));
+    }
+
+    @Test
+    public void testObjects() throws Exception
+    {
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+        map.put("list", Arrays.asList(1, 2.5, "x"));
+        map.put("array", new Double[]
+        {
+            1.0, null
+        });
+        map.put("ints", new int[]
+        {
+            3, 4
+        });
+        map.put("bool", Boolean.FALSE);
+        StringWriter sw = new StringWriter();
+        new JsonWriter(sw).value(map);
+        assertEquals("{\"list\":[1,2.5,\"x\"],\"array\":[1,null],\"ints\":[3,4],\"bool\":false}", sw.toString());
+    }
+}
@@ -18,6 +18,8 @@
  */
 package com.graphhopper.util;
 
+import java.io.StringWriter;
+import org.json.JSONArray;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -56,6 +58,19 @@ public class PointListTest
         assertEquals(clonedList, instance.clone(true));
     }
 
+    @Test
+    public void testReverseFromIndex()
+    {
+        PointList instance = Helper.createPointList(1, 1, 2, 2, 3, 3, 4, 4);
+        instance.reverse(1);
+        assertEquals(Helper.createPointList(1, 1, 4, 4, 3, 3, 2, 2), instance);
+
+        instance.reverse(3);
+        assertEquals(Helper.createPointList(1, 1, 4, 4, 3, 3, 2, 2), instance);
+        instance.reverse(4);
+        assertEquals(4, instance.getSize());
+    }
+
     @Test
     public void testAddPL()
     {
@@ -87,4 +102,28 @@ public class PointListTest
             assertEquals(toAdd.getLatitude(i), instance.getLatitude(7 + i), 1e-1);
         }
     }
+
+    @Test
+    public void testWriteGeoJson() throws Exception
+    {
+        PointList pl = new PointList(3, true);
+        pl.add(52.5135, 13.35, 100.126);
+        pl.add(-0.0000012, 9.1234567, -3);
+        StringWriter sw = new StringWriter();
+        pl.writeGeoJson(new JsonWriter(sw), false);
+        assertEquals("[[13.35,52.5135],[9.123457,-0.000001]]", sw.toString());
+
+        sw = new StringWriter();
+        pl.writeGeoJson(new JsonWriter(sw), true);
+        JSONArray arr = new JSONArray(sw.toString());
+        assertEquals(pl.toGeoJson(true).size(), arr.length());
+        for (int i = 0; i < arr.length(); i++)
+        {
+            Double[] expected = pl.toGeoJson(true).get(i);
+            for (int j = 0; j < expected.length; j++)
+            {
+                assertEquals(expected[j], arr.getJSONArray(i).getDouble(j), 1e-7);
+            }
+        }
+    }
 }
@@ -33,6 +33,7 @@ function printUsage {
  echo "  build       creates the graphhopper JAR (without the web module)"
  echo "  clean       removes all JARs, necessary if you need to use the latest source (e.g. after switching the branch etc)"
  echo "  measurement does performance analysis of the current source version via artificial, random routes (Measurement class)"
+ echo "  benchmark   runs the JMH benchmarks of the hot paths on a bundled small OSM file, options are passed to JMH"
  echo "  torture     can be used to test real world routes via feeding graphhopper logs into a graphhopper system (Torture class)"
  echo "  miniui      is a simple Java/Swing application used for debugging purposes only (MiniGraphUI class)"
  echo "  extract     calls the overpass API to easily grab any area as .osm file"
@@ -151,6 +152,19 @@ elif [ "$ACTION" = "extract" ]; then
  wget -O extract.osm "$URL"
  exit
  
+elif [ "$ACTION" = "benchmark" ]; then
+ ensureMaven
+ "$MAVEN_HOME/bin/mvn" --projects benchmarks -am -DskipTests=true install > /tmp/graphhopper-benchmarks-compile.log
+ returncode=$?
+ if [[ $returncode != 0 ]] ; then
+   echo "## compilation of benchmarks failed"
+   cat /tmp/graphhopper-benchmarks-compile.log
+   exit $returncode
+ fi
+ shift
+ "$JAVA" $JAVA_OPTS -jar benchmarks/target/benchmarks.jar "$@"
+ exit
+
 elif [ "$ACTION" = "android" ]; then
  prepareEclipse
  "$MAVEN_HOME/bin/mvn" -P include-android --projects android install android:deploy android:run
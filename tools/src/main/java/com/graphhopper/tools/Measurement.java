@@ -20,7 +20,13 @@ package com.graphhopper.tools;
 import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopper;
+import com.graphhopper.coll.IntDoubleIndexedHeap;
+import com.graphhopper.routing.AlgorithmOptions;
+import com.graphhopper.routing.RoutingAlgorithm;
+import com.graphhopper.routing.RoutingAlgorithmFactory;
+import com.graphhopper.routing.RoutingAlgorithmFactorySimple;
 import com.graphhopper.routing.util.*;
+import com.graphhopper.storage.EdgeEntry;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.GraphStorage;
@@ -30,6 +36,7 @@ import com.graphhopper.util.CmdArgs;
 import com.graphhopper.util.Constants;
 import com.graphhopper.util.DistanceCalc;
 import com.graphhopper.util.DistanceCalcEarth;
+import com.graphhopper.util.EdgeIterator;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.MiniPerfTest;
 import com.graphhopper.util.StopWatch;
@@ -40,6 +47,7 @@ import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.PriorityQueue;
 import java.util.Random;
 import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -123,6 +131,8 @@ public class Measurement
             maxNode = g.getNodes();
             printGraphDetails(g, vehicleStr);
             printLocationIndexQuery(g, hopper.getLocationIndex(), count);
+            printHeapComparison(count);
+            printVisitedNodesPerSecond(g, hopper.getEncodingManager().getEncoder(vehicleStr), count / 20);
 
             // Route via dijkstrabi. Normal routing takes a lot of time => smaller query number than CH
             // => values are not really comparable to routingCH as e.g. the mean distance etc is different            
@@ -195,6 +205,114 @@ public class Measurement
         print("location2id", miniPerf);
     }
 
+    /**
+     * Compares the open set of the old algorithms (PriorityQueue with its linear remove) against
+     * the IntDoubleIndexedHeap with a Dijkstra-like workload: insert, decrease-key and poll.
+     */
+    private void printHeapComparison( int count )
+    {
+        final int size = 5000;
+        final int iterations = Math.max(1, count / 500);
+        final Random rand = new Random(seed);
+        MiniPerfTest miniPerf = new MiniPerfTest()
+        {
+            @Override
+            public int doCalc( boolean warmup, int run )
+            {
+                PriorityQueue<EdgeEntry> queue = new PriorityQueue<EdgeEntry>(size);
+                EdgeEntry[] entries = new EdgeEntry[size];
+                for (int i = 0; i < size; i++)
+                {
+                    entries[i] = new EdgeEntry(EdgeIterator.NO_EDGE, i, rand.nextDouble());
+                    queue.add(entries[i]);
+                }
+                for (int i = 0; i < size; i++)
+                {
+                    EdgeEntry ee = entries[rand.nextInt(size)];
+                    queue.remove(ee);
+                    ee.weight *= 0.9;
+                    queue.add(ee);
+                }
+                int sum = 0;
+                while (!queue.isEmpty())
+                {
+                    sum += queue.poll().adjNode;
+                }
+                return sum;
+            }
+        }.setIterations(iterations).start();
+        print("heap.priorityQueue", miniPerf);
+        put("heap.priorityQueue.opsPerSec", 3L * size * iterations / (miniPerf.getSum() / 1000));
+
+        miniPerf = new MiniPerfTest()
+        {
+            @Override
+            public int doCalc( boolean warmup, int run )
+            {
+                IntDoubleIndexedHeap heap = new IntDoubleIndexedHeap(size);
+                for (int i = 0; i < size; i++)
+                {
+                    heap.insert_(rand.nextDouble(), i);
+                }
+                for (int i = 0; i < size; i++)
+                {
+                    int element = rand.nextInt(size);
+                    heap.update_(heap.getKey(element) * 0.9, element);
+                }
+                int sum = 0;
+                while (!heap.isEmpty())
+                {
+                    sum += heap.poll_element();
+                }
+                return sum;
+            }
+        }.setIterations(iterations).start();
+        print("heap.indexed", miniPerf);
+        put("heap.indexed.opsPerSec", 3L * size * iterations / (miniPerf.getSum() / 1000));
+    }
+
+    /**
+     * Runs every non-CH algorithm directly (without location lookup and path details) to compare
+     * their pure search speed as visited nodes per second.
+     */
+    private void printVisitedNodesPerSecond( final Graph g, FlagEncoder encoder, int count )
+    {
+        final RoutingAlgorithmFactory factory = new RoutingAlgorithmFactorySimple();
+        final Weighting weighting = new FastestWeighting(encoder);
+        for (String algoStr : new String[]
+        {
+            AlgorithmOptions.DIJKSTRA, AlgorithmOptions.DIJKSTRA_BI,
+            AlgorithmOptions.ASTAR, AlgorithmOptions.ASTAR_BI
+        })
+        {
+            final AlgorithmOptions opts = AlgorithmOptions.start().algorithm(algoStr).
+                    traversalMode(TraversalMode.NODE_BASED).flagEncoder(encoder).weighting(weighting).
+                    build();
+            final Random rand = new Random(seed);
+            final AtomicLong visitedSum = new AtomicLong(0);
+            MiniPerfTest miniPerf = new MiniPerfTest()
+            {
+                @Override
+                public int doCalc( boolean warmup, int run )
+                {
+                    int from = rand.nextInt(maxNode);
+                    int to = rand.nextInt(maxNode);
+                    RoutingAlgorithm algo = factory.createAlgo(g, opts);
+                    int nodes = algo.calcPath(from, to).calcNodes().size();
+                    if (!warmup)
+                        visitedSum.addAndGet(algo.getVisitedNodes());
+
+                    return nodes;
+                }
+            }.setIterations(count).start();
+
+            String prefix = "routing." + algoStr;
+            print(prefix, miniPerf);
+            put(prefix + ".visitedNodesMean", (float) visitedSum.get() / count);
+            put(prefix + ".visitedNodesPerSec", (long) (visitedSum.get() / (miniPerf.getSum() / 1000)));
+        }
+    }
+
     private void printTimeOfRouteQuery( final GraphHopper hopper, int count, String prefix,
             final String vehicle, final boolean withInstructions )
     {
@@ -18,10 +18,10 @@
 package com.graphhopper.ui;
 
 import com.graphhopper.routing.AStarBidirection;
+import com.graphhopper.routing.SearchState;
 import com.graphhopper.routing.util.FlagEncoder;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.util.Weighting;
-import com.graphhopper.storage.EdgeEntry;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.util.EdgeIteratorState;
 import java.awt.Color;
@@ -48,12 +48,12 @@ public class DebugAStarBi extends AStarBidirection implements DebugAlgo
     }
 
     @Override
-    public void updateBestPath( EdgeIteratorState es, EdgeEntry bestEE, int currLoc )
+    public void updateBestPath( EdgeIteratorState es, SearchState state, int bestEntry, int currLoc )
     {
         if (g2 != null)
         {
             mg.plotNode(g2, currLoc, Color.YELLOW);
         }
-        super.updateBestPath(es, bestEE, currLoc);
+        super.updateBestPath(es, state, bestEntry, currLoc);
     }
 }
@@ -0,0 +1,215 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.routing.util.WeightingMap;
+import com.graphhopper.util.JsonWriter;
+import com.graphhopper.util.shapes.GHPoint;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import static javax.servlet.http.HttpServletResponse.*;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ * Servlet to calculate many routes with one POST request. The body has to be a json object with a
+ * list of requests:
+ * <pre>
+ * {"requests": [{"points": ["lat,lon", "lat,lon"], "vehicle": "car", "instructions": false}, ...]}
+ * </pre>
+ * Every request accepts the same parameters as the GET request of GraphHopperServlet, the URL
+ * parameters are used as defaults. The points of all requests are looked up together, the routes
+ * are calculated concurrently and written in the order of the requests as soon as they are
+ * available.
+ * <p/>
+ * @author Peter Karich
+ */
+public class BatchRouteServlet extends GraphHopperServlet
+{
+    @Inject
+    private GraphHopper hopper;
+    @Inject
+    @Named("batchThreads")
+    private int batchThreads;
+    @Inject
+    @Named("batchMaxRequests")
+    private int batchMaxRequests;
+    private ExecutorService executor;
+
+    @Override
+    public void init() throws ServletException
+    {
+        super.init();
+        final AtomicInteger counter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(batchThreads, new ThreadFactory()
+        {
+            @Override
+            public Thread newThread( Runnable r )
+            {
+                Thread thread = new Thread(r, "batch-route-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    @Override
+    public void destroy()
+    {
+        executor.shutdownNow();
+        super.destroy();
+    }
+
+    @Override
+    public void doGet( HttpServletRequest req, HttpServletResponse res ) throws ServletException, IOException
+    {
+        writeError(res, SC_METHOD_NOT_ALLOWED, "Use POST for batch requests");
+    }
+
+    @Override
+    public void doPost( HttpServletRequest req, HttpServletResponse res ) throws ServletException, IOException
+    {
+        List<GHRequest> requests;
+        try
+        {
+            JSONObject body = new JSONObject(new JSONTokener(req.getReader()));
+            JSONArray arr = body.getJSONArray("requests");
+            if (arr.length() > batchMaxRequests)
+                throw new IllegalArgumentException("Too many requests " + arr.length() + ", maximum is " + batchMaxRequests);
+
+            requests = new ArrayList<GHRequest>(arr.length());
+            for (int i = 0; i < arr.length(); i++)
+            {
+                requests.add(createRequest(req, arr.getJSONObject(i)));
+            }
+        } catch (JSONException ex)
+        {
+            writeError(res, SC_BAD_REQUEST, "Invalid batch request: " + ex.getMessage());
+            return;
+        } catch (IllegalArgumentException ex)
+        {
+            writeError(res, SC_BAD_REQUEST, ex.getMessage());
+            return;
+        }
+
+        try
+        {
+            writePaths(req, res, requests);
+        } catch (Exception ex)
+        {
+            logger.error("Error while executing batch request with " + requests.size() + " routes", ex);
+            if (!res.isCommitted())
+                writeError(res, SC_INTERNAL_SERVER_ERROR, "Problem occured:" + ex.getMessage());
+        }
+    }
+
+    GHRequest createRequest( HttpServletRequest httpReq, JSONObject json )
+    {
+        JSONArray jsonPoints = json.getJSONArray("points");
+        List<GHPoint> points = new ArrayList<GHPoint>(jsonPoints.length());
+        for (int i = 0; i < jsonPoints.length(); i++)
+        {
+            GHPoint point = GHPoint.parse(jsonPoints.getString(i));
+            if (point == null)
+                throw new IllegalArgumentException("Cannot parse point " + jsonPoints.getString(i));
+
+            points.add(point);
+        }
+
+        GHRequest request = new GHRequest(points).
+                setVehicle(json.optString("vehicle", getParam(httpReq, "vehicle", "car"))).
+                setWeighting(json.optString("weighting", getParam(httpReq, "weighting", "fastest"))).
+                setAlgorithm(json.optString("algorithm", getParam(httpReq, "algorithm", ""))).
+                setLocale(json.optString("locale", getParam(httpReq, "locale", "en")));
+        // the output options are only parsed here, writePaths reads them from the hints
+        request.getHints().
+                put("calcPoints", json.optBoolean("calc_points", getBooleanParam(httpReq, "calc_points", true))).
+                put("instructions", json.optBoolean("instructions", getBooleanParam(httpReq, "instructions", true))).
+                put("pointsEncoded", json.optBoolean("points_encoded", getBooleanParam(httpReq, "points_encoded", true))).
+                put("wayPointMaxDistance", json.optDouble("way_point_max_distance",
+                                getDoubleParam(httpReq, "way_point_max_distance", 1d)));
+        return request;
+    }
+
+    void writePaths( HttpServletRequest httpReq, HttpServletResponse res, List<GHRequest> requests )
+            throws Exception
+    {
+        long start = System.currentTimeMillis();
+        List<Future<GHResponse>> futures = hopper.routeBatch(requests, executor);
+        res.setCharacterEncoding("UTF-8");
+        res.setContentType("application/json");
+        res.setStatus(SC_OK);
+        JsonWriter writer = new JsonWriter(res.getWriter());
+        writer.startObject();
+        writer.name("info").startObject();
+        writer.name("copyrights").startArray().value("GraphHopper").value("OpenStreetMap contributors").endArray();
+        writer.endObject();
+        writer.name("results").startArray();
+        int errors = 0;
+        try
+        {
+            for (int i = 0; i < futures.size(); i++)
+            {
+                GHResponse ghRsp;
+                try
+                {
+                    ghRsp = futures.get(i).get();
+                } catch (ExecutionException ex)
+                {
+                    logger.error("Error while executing route " + i + ": " + requests.get(i), ex.getCause());
+                    ghRsp = new GHResponse().addError(ex.getCause());
+                }
+                if (ghRsp.hasErrors())
+                    errors++;
+
+                WeightingMap hints = requests.get(i).getHints();
+                boolean calcPoints = hints.getBool("calcPoints", true);
+                boolean instructions = hints.getBool("instructions", true);
+                boolean pointsEncoded = hints.getBool("pointsEncoded", true);
+                writeJson(writer, ghRsp, (System.currentTimeMillis() - start) / 1000f, instructions, pointsEncoded, calcPoints, false);
+                // make the finished routes available to the client
+                writer.flush();
+            }
+        } finally
+        {
+            for (Future<GHResponse> future : futures)
+            {
+                future.cancel(true);
+            }
+        }
+        writer.endArray().endObject().flush();
+        logger.info("batch with " + requests.size() + " routes from " + httpReq.getRemoteAddr()
+                + ", errors:" + errors + ", took:" + (System.currentTimeMillis() - start) / 1000f);
+    }
+}
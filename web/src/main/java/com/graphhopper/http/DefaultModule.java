@@ -77,6 +77,14 @@ public class DefaultModule extends AbstractModule
                 logger.info("jsonp disabled");
 
             bind(Boolean.class).annotatedWith(Names.named("jsonpAllowed")).toInstance(jsonpAllowed);
+
+            // batch requests are calculated with a limited number of threads
+            int batchThreads = args.getInt("web.batch.threads", Runtime.getRuntime().availableProcessors());
+            bind(Integer.class).annotatedWith(Names.named("batchThreads")).toInstance(batchThreads);
+            int batchMaxRequests = args.getInt("web.batch.maxRequests", 1000);
+            bind(Integer.class).annotatedWith(Names.named("batchMaxRequests")).toInstance(batchMaxRequests);
+            int matrixMaxSize = args.getInt("web.matrix.maxSize", 10000);
+            bind(Integer.class).annotatedWith(Names.named("matrixMaxSize")).toInstance(matrixMaxSize);
         } catch (Exception ex)
         {
             throw new IllegalStateException("Couldn't load graph", ex);
@@ -17,7 +17,12 @@
  */
 package com.graphhopper.http;
 
+import com.graphhopper.util.JsonWriter;
+import com.graphhopper.util.shapes.GHPoint;
 import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
 import javax.inject.Named;
 import javax.inject.Inject;
 import javax.servlet.http.HttpServlet;
@@ -40,44 +45,60 @@ public class GHBaseServlet extends HttpServlet
     private boolean jsonpAllowed;
 
     protected void writeJson( HttpServletRequest req, HttpServletResponse res, JSONObject json ) throws JSONException, IOException
+    {
+        JsonWriter writer = startJson(req, res);
+        if (writer == null)
+            return;
+
+        boolean debug = getBooleanParam(req, "debug", false) || getBooleanParam(req, "pretty", false);
+        writer.rawValue(debug ? json.toString(2) : json.toString());
+        endJson(req, res, writer);
+    }
+
+    /**
+     * Prepares the response for a json document which is then written directly to the client via
+     * the returned writer. For type=jsonp the document is wrapped into the callback.
+     * <p/>
+     * @return null if the request is invalid and an error was already sent
+     */
+    protected JsonWriter startJson( HttpServletRequest req, HttpServletResponse res ) throws IOException
     {
         String type = getParam(req, "type", "json");
         res.setCharacterEncoding("UTF-8");
         boolean debug = getBooleanParam(req, "debug", false) || getBooleanParam(req, "pretty", false);
+        Writer writer;
         if ("jsonp".equals(type))
         {
             res.setContentType("application/javascript");
             if (!jsonpAllowed)
             {
                 res.sendError(SC_BAD_REQUEST, "Server is not configured to allow jsonp!");
-                return;
+                return null;
             }
 
             String callbackName = getParam(req, "callback", null);
             if (callbackName == null)
             {
                 res.sendError(SC_BAD_REQUEST, "No callback provided, necessary if type=jsonp");
-                return;
+                return null;
             }
 
-            if (debug)
-            {
-                writeResponse(res, callbackName + "(" + json.toString(2) + ")");
-            } else
-            {
-                writeResponse(res, callbackName + "(" + json.toString() + ")");
-            }
+            writer = res.getWriter();
+            writer.write(callbackName + "(");
         } else
         {
             res.setContentType("application/json");
-            if (debug)
-            {
-                writeResponse(res, json.toString(2));
-            } else
-            {
-                writeResponse(res, json.toString());
-            }
+            writer = res.getWriter();
         }
+        return new JsonWriter(writer).setIndent(debug ? 2 : 0);
+    }
+
+    protected void endJson( HttpServletRequest req, HttpServletResponse res, JsonWriter writer ) throws IOException
+    {
+        if ("jsonp".equals(getParam(req, "type", "json")))
+            res.getWriter().write(")");
+
+        writer.flush();
     }
 
     void returnError( HttpServletResponse res, String errorMessage ) throws IOException
@@ -104,6 +125,26 @@ public class GHBaseServlet extends HttpServlet
         return new String[0];
     }
 
+    protected List<GHPoint> getPoints( HttpServletRequest req, String key ) throws IOException
+    {
+        String[] pointsAsStr = getParams(req, key);
+        final List<GHPoint> infoPoints = new ArrayList<GHPoint>(pointsAsStr.length);
+        for (String str : pointsAsStr)
+        {
+            String[] fromStrs = str.split(",");
+            if (fromStrs.length == 2)
+            {
+                GHPoint point = GHPoint.parse(str);
+                if (point != null)
+                {
+                    infoPoints.add(point);
+                }
+            }
+        }
+
+        return infoPoints;
+    }
+
     protected long getLongParam( HttpServletRequest req, String string, long _default )
     {
         try
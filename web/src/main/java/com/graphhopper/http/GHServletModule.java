@@ -62,7 +62,20 @@ public class GHServletModule extends ServletModule
         serve("/info*").with(InfoServlet.class);
         bind(InfoServlet.class).in(Singleton.class);
 
+        // must be registered before /route* as the first matching servlet is used
+        serve("/route/batch*").with(BatchRouteServlet.class);
+        bind(BatchRouteServlet.class).in(Singleton.class);
+
         serve("/route*").with(GraphHopperServlet.class);
         bind(GraphHopperServlet.class).in(Singleton.class);
+
+        serve("/matrix*").with(MatrixServlet.class);
+        bind(MatrixServlet.class).in(Singleton.class);
+
+        serve("/isochrone*").with(IsochroneServlet.class);
+        bind(IsochroneServlet.class).in(Singleton.class);
+
+        serve("/nearest*").with(NearestServlet.class);
+        bind(NearestServlet.class).in(Singleton.class);
     }
 }
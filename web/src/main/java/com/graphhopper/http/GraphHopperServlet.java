@@ -41,7 +41,6 @@ import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
-import org.json.JSONObject;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
@@ -127,12 +126,20 @@ public class GraphHopperServlet extends GHBaseServlet
                     + "min, points:" + ghRsp.getPoints().getSize() + ", debug - " + ghRsp.getDebugInfo());
 
         if (writeGPX)
-            writeResponse(res, createGPXString(httpReq, res, ghRsp));
-        else
-            writeJson(httpReq, res, new JSONObject(createJson(httpReq, ghRsp, took)));
+        {
+            writeGPX(httpReq, res, ghRsp);
+        } else
+        {
+            JsonWriter writer = startJson(httpReq, res);
+            if (writer == null)
+                return;
+
+            writeJson(httpReq, writer, ghRsp, took);
+            endJson(httpReq, res, writer);
+        }
     }
 
-    protected String createGPXString( HttpServletRequest req, HttpServletResponse res, GHResponse rsp )
+    protected void writeGPX( HttpServletRequest req, HttpServletResponse res, GHResponse rsp )
             throws Exception
     {
         boolean includeElevation = getBooleanParam(req, "elevation", false);
@@ -143,9 +150,13 @@ public class GraphHopperServlet extends GHBaseServlet
         String timeZone = getParam(req, "timezone", "GMT");
         long time = getLongParam(req, "millis", System.currentTimeMillis());
         if (rsp.hasErrors())
-            return errorsToXML(rsp.getErrors());
-        else
-            return rsp.getInstructions().createGPX(trackName, time, timeZone, includeElevation);
+        {
+            writeResponse(res, errorsToXML(rsp.getErrors()));
+        } else
+        {
+            res.setStatus(SC_OK);
+            rsp.getInstructions().writeGPX(res.getWriter(), trackName, time, timeZone, includeElevation);
+        }
     }
 
     String errorsToXML( List<Throwable> list ) throws Exception
@@ -178,90 +189,87 @@ public class GraphHopperServlet extends GHBaseServlet
         return writer.toString();
     }
 
-    protected Map<String, Object> createJson( HttpServletRequest req, GHResponse rsp, float took )
+    protected void writeJson( HttpServletRequest req, JsonWriter writer, GHResponse rsp, float took )
+            throws IOException
     {
         boolean enableInstructions = getBooleanParam(req, "instructions", true);
         boolean pointsEncoded = getBooleanParam(req, "points_encoded", true);
         boolean calcPoints = getBooleanParam(req, "calc_points", true);
         boolean includeElevation = getBooleanParam(req, "elevation", false);
-        Map<String, Object> json = new HashMap<String, Object>();
-        Map<String, Object> jsonInfo = new HashMap<String, Object>();
-        json.put("info", jsonInfo);
-        jsonInfo.put("copyrights", Arrays.asList("GraphHopper", "OpenStreetMap contributors"));
+        writeJson(writer, rsp, took, enableInstructions, pointsEncoded, calcPoints, includeElevation);
+    }
 
+    /**
+     * Serializes the response directly into the writer. For long routes this avoids the temporary
+     * maps and point arrays otherwise necessary to create the json.
+     */
+    protected void writeJson( JsonWriter writer, GHResponse rsp, float took, boolean enableInstructions,
+            boolean pointsEncoded, boolean calcPoints, boolean includeElevation ) throws IOException
+    {
+        writer.startObject();
+        writer.name("info").startObject();
+        writer.name("copyrights").startArray().value("GraphHopper").value("OpenStreetMap contributors").endArray();
         if (rsp.hasErrors())
         {
-            List<Map<String, String>> list = new ArrayList<Map<String, String>>();
+            writer.name("errors").startArray();
             for (Throwable t : rsp.getErrors())
             {
-                Map<String, String> map = new HashMap<String, String>();
-                map.put("message", t.getMessage());
-                map.put("details", t.getClass().getName());
-                list.add(map);
+                writer.startObject().
+                        name("message").value(t.getMessage()).
+                        name("details").value(t.getClass().getName()).
+                        endObject();
             }
-            jsonInfo.put("errors", list);
+            writer.endArray();
+            writer.endObject();
         } else
         {
-            jsonInfo.put("took", Math.round(took * 1000));
-            Map<String, Object> jsonPath = new HashMap<String, Object>();
-            jsonPath.put("distance", Helper.round(rsp.getDistance(), 3));
-            jsonPath.put("weight", Helper.round6(rsp.getDistance()));
-            jsonPath.put("time", rsp.getMillis());
+            writer.name("took").value(Math.round(took * 1000));
+            writer.endObject();
+            writer.name("paths").startArray().startObject();
+            writer.name("distance").value(rsp.getDistance(), 3);
+            writer.name("weight").value(rsp.getDistance(), 6);
+            writer.name("time").value(rsp.getMillis());
 
             if (calcPoints)
             {
-                jsonPath.put("points_encoded", pointsEncoded);
+                writer.name("points_encoded").value(pointsEncoded);
 
                 PointList points = rsp.getPoints();
                 if (points.getSize() >= 2)
                 {
                     BBox maxBounds = hopper.getGraph().getBounds();
                     BBox maxBounds2D = new BBox(maxBounds.minLon, maxBounds.maxLon, maxBounds.minLat, maxBounds.maxLat);
-                    jsonPath.put("bbox", rsp.calcRouteBBox(maxBounds2D).toGeoJson());
+                    writer.name("bbox").value(rsp.calcRouteBBox(maxBounds2D).toGeoJson());
                 }
 
-                jsonPath.put("points", createPoints(points, pointsEncoded, includeElevation));
+                writer.name("points");
+                writePoints(writer, points, pointsEncoded, includeElevation);
 
                 if (enableInstructions)
                 {
-                    InstructionList instructions = rsp.getInstructions();
-                    jsonPath.put("instructions", instructions.createJson());
+                    writer.name("instructions");
+                    rsp.getInstructions().writeJson(writer);
                 }
             }
-            json.put("paths", Collections.singletonList(jsonPath));
+            writer.endObject().endArray();
         }
-        return json;
+        writer.endObject();
     }
 
-    protected Object createPoints( PointList points, boolean pointsEncoded, boolean includeElevation )
+    protected void writePoints( JsonWriter writer, PointList points, boolean pointsEncoded, boolean includeElevation )
+            throws IOException
     {
         if (pointsEncoded)
-            return WebHelper.encodePolyline(points, includeElevation);
-
-        Map<String, Object> jsonPoints = new HashMap<String, Object>();
-        jsonPoints.put("type", "LineString");
-        jsonPoints.put("coordinates", points.toGeoJson(includeElevation));
-        return jsonPoints;
-    }
-
-    protected List<GHPoint> getPoints( HttpServletRequest req, String key ) throws IOException
-    {
-        String[] pointsAsStr = getParams(req, key);
-        final List<GHPoint> infoPoints = new ArrayList<GHPoint>(pointsAsStr.length);
-        for (String str : pointsAsStr)
         {
-            String[] fromStrs = str.split(",");
-            if (fromStrs.length == 2)
-            {
-                GHPoint point = GHPoint.parse(str);
-                if (point != null)
-                {
-                    infoPoints.add(point);
-                }
-            }
+            writer.value(WebHelper.encodePolyline(points, includeElevation));
+            return;
         }
 
-        return infoPoints;
+        writer.startObject();
+        writer.name("type").value("LineString");
+        writer.name("coordinates");
+        points.writeGeoJson(writer, includeElevation);
+        writer.endObject();
     }
 
     protected void initHints( GHRequest request, Map<String, String[]> parameterMap )
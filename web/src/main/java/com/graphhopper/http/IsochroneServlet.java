@@ -0,0 +1,154 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.graphhopper.GHIsochroneRequest;
+import com.graphhopper.GHIsochroneResponse;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.util.PointList;
+import com.graphhopper.util.StopWatch;
+import com.graphhopper.util.shapes.GHPoint;
+import java.io.IOException;
+import java.util.*;
+import javax.inject.Inject;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import static javax.servlet.http.HttpServletResponse.*;
+import org.json.JSONObject;
+
+/**
+ * Servlet to calculate the area reachable from one point within a time limit in seconds
+ * (time_limit) or a distance limit in meter (distance_limit). Returns one GeoJson polygon per
+ * bucket.
+ * <p/>
+ * @author Peter Karich
+ */
+public class IsochroneServlet extends GHBaseServlet
+{
+    @Inject
+    private GraphHopper hopper;
+
+    @Override
+    public void doGet( HttpServletRequest req, HttpServletResponse res ) throws ServletException, IOException
+    {
+        try
+        {
+            writeIsochrone(req, res);
+        } catch (IllegalArgumentException ex)
+        {
+            writeError(res, SC_BAD_REQUEST, ex.getMessage());
+        } catch (Exception ex)
+        {
+            logger.error("Error while executing request: " + req.getQueryString(), ex);
+            writeError(res, SC_INTERNAL_SERVER_ERROR, "Problem occured:" + ex.getMessage());
+        }
+    }
+
+    void writeIsochrone( HttpServletRequest httpReq, HttpServletResponse res ) throws Exception
+    {
+        List<GHPoint> points = getPoints(httpReq, "point");
+        String vehicleStr = getParam(httpReq, "vehicle", "car");
+        double distanceLimit = getDoubleParam(httpReq, "distance_limit", -1);
+        // without a limit the area reachable within 10 minutes is calculated
+        double timeLimit = getDoubleParam(httpReq, "time_limit", distanceLimit < 0 ? 600 : -1);
+        int buckets = (int) getLongParam(httpReq, "buckets", 1);
+        boolean reachablePoints = getBooleanParam(httpReq, "reachable_points", false);
+
+        StopWatch sw = new StopWatch().start();
+        GHIsochroneResponse isoRsp;
+        if (points.size() != 1)
+        {
+            isoRsp = new GHIsochroneResponse().addError(new IllegalArgumentException("Specify exactly one point but was " + points.size()));
+        } else if (!hopper.getEncodingManager().supports(vehicleStr))
+        {
+            isoRsp = new GHIsochroneResponse().addError(new IllegalArgumentException("Vehicle not supported: " + vehicleStr));
+        } else
+        {
+            GHIsochroneRequest request = new GHIsochroneRequest(points.get(0)).
+                    setVehicle(vehicleStr).
+                    setTimeLimit(timeLimit).
+                    setDistanceLimit(distanceLimit).
+                    setBuckets(buckets);
+            isoRsp = hopper.calcIsochrone(request);
+        }
+
+        float took = sw.stop().getSeconds();
+        String logStr = httpReq.getQueryString() + " " + httpReq.getRemoteAddr() + " " + points
+                + ", took:" + took + ", " + vehicleStr;
+        if (isoRsp.hasErrors())
+            logger.error(logStr + ", errors:" + isoRsp.getErrors());
+        else
+            logger.info(logStr + ", debug - " + isoRsp.getDebugInfo());
+
+        writeJson(httpReq, res, new JSONObject(createJson(isoRsp, took, timeLimit >= 0 ? timeLimit : distanceLimit,
+                buckets, reachablePoints)));
+    }
+
+    protected Map<String, Object> createJson( GHIsochroneResponse rsp, float took, double limit, int buckets,
+            boolean reachablePoints )
+    {
+        Map<String, Object> json = new HashMap<String, Object>();
+        Map<String, Object> jsonInfo = new HashMap<String, Object>();
+        json.put("info", jsonInfo);
+        jsonInfo.put("copyrights", Arrays.asList("GraphHopper", "OpenStreetMap contributors"));
+
+        if (rsp.hasErrors())
+        {
+            List<Map<String, String>> list = new ArrayList<Map<String, String>>();
+            for (Throwable t : rsp.getErrors())
+            {
+                Map<String, String> map = new HashMap<String, String>();
+                map.put("message", t.getMessage());
+                map.put("details", t.getClass().getName());
+                list.add(map);
+            }
+            jsonInfo.put("errors", list);
+            return json;
+        }
+
+        jsonInfo.put("took", Math.round(took * 1000));
+        List<Map<String, Object>> jsonPolygons = new ArrayList<Map<String, Object>>(buckets);
+        List<PointList> polygons = rsp.getPolygons();
+        for (int bucket = 0; bucket < polygons.size(); bucket++)
+        {
+            Map<String, Object> jsonPolygon = new HashMap<String, Object>();
+            jsonPolygon.put("type", "Polygon");
+            jsonPolygon.put("coordinates", Collections.singletonList(polygons.get(bucket).toGeoJson(false)));
+            jsonPolygon.put("bucket", bucket);
+            jsonPolygon.put("limit", limit * (bucket + 1) / buckets);
+            jsonPolygons.add(jsonPolygon);
+        }
+        json.put("polygons", jsonPolygons);
+
+        PointList points = rsp.getPoints();
+        jsonInfo.put("reachable_count", points.getSize());
+        if (reachablePoints)
+        {
+            List<Double[]> coordinates = points.toGeoJson(false);
+            List<Object> weights = new ArrayList<Object>(points.getSize());
+            for (int i = 0; i < points.getSize(); i++)
+            {
+                weights.add(rsp.getWeight(i));
+            }
+            json.put("reachable_points", coordinates);
+            json.put("reachable_weights", weights);
+        }
+        return json;
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.graphhopper.GHMatrixRequest;
+import com.graphhopper.GHMatrixResponse;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.util.JsonWriter;
+import com.graphhopper.util.StopWatch;
+import com.graphhopper.util.shapes.GHPoint;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import static javax.servlet.http.HttpServletResponse.*;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ * Servlet to calculate distance and time tables between many locations. Specify the locations via
+ * from_point and to_point or via point if the from and to locations are identical. Large tables
+ * can be requested via POST with a json body containing the arrays from_points and to_points or
+ * points. Not connected entries are returned as null.
+ * <p/>
+ * @author Peter Karich
+ */
+public class MatrixServlet extends GHBaseServlet
+{
+    @Inject
+    private GraphHopper hopper;
+    @Inject
+    @Named("matrixMaxSize")
+    private int matrixMaxSize;
+
+    @Override
+    public void doGet( HttpServletRequest req, HttpServletResponse res ) throws ServletException, IOException
+    {
+        try
+        {
+            List<GHPoint> fromPoints = getPoints(req, "from_point");
+            List<GHPoint> toPoints = getPoints(req, "to_point");
+            if (fromPoints.isEmpty() && toPoints.isEmpty())
+            {
+                fromPoints = getPoints(req, "point");
+                toPoints = fromPoints;
+            }
+
+            writeMatrix(req, res, fromPoints, toPoints, getParam(req, "vehicle", "car"),
+                    getParam(req, "weighting", "fastest"));
+        } catch (IllegalArgumentException ex)
+        {
+            writeError(res, SC_BAD_REQUEST, ex.getMessage());
+        } catch (Exception ex)
+        {
+            logger.error("Error while executing request: " + req.getQueryString(), ex);
+            writeError(res, SC_INTERNAL_SERVER_ERROR, "Problem occured:" + ex.getMessage());
+        }
+    }
+
+    @Override
+    public void doPost( HttpServletRequest req, HttpServletResponse res ) throws ServletException, IOException
+    {
+        List<GHPoint> fromPoints;
+        List<GHPoint> toPoints;
+        String vehicleStr;
+        String weighting;
+        try
+        {
+            JSONObject body = new JSONObject(new JSONTokener(req.getReader()));
+            if (body.has("from_points") || body.has("to_points"))
+            {
+                fromPoints = parsePoints(body.optJSONArray("from_points"));
+                toPoints = parsePoints(body.optJSONArray("to_points"));
+            } else
+            {
+                fromPoints = parsePoints(body.optJSONArray("points"));
+                toPoints = fromPoints;
+            }
+            vehicleStr = body.optString("vehicle", getParam(req, "vehicle", "car"));
+            weighting = body.optString("weighting", getParam(req, "weighting", "fastest"));
+        } catch (JSONException ex)
+        {
+            writeError(res, SC_BAD_REQUEST, "Invalid matrix request: " + ex.getMessage());
+            return;
+        } catch (IllegalArgumentException ex)
+        {
+            writeError(res, SC_BAD_REQUEST, ex.getMessage());
+            return;
+        }
+
+        try
+        {
+            writeMatrix(req, res, fromPoints, toPoints, vehicleStr, weighting);
+        } catch (IllegalArgumentException ex)
+        {
+            writeError(res, SC_BAD_REQUEST, ex.getMessage());
+        } catch (Exception ex)
+        {
+            logger.error("Error while executing matrix request " + fromPoints.size() + "x" + toPoints.size(), ex);
+            if (!res.isCommitted())
+                writeError(res, SC_INTERNAL_SERVER_ERROR, "Problem occured:" + ex.getMessage());
+        }
+    }
+
+    List<GHPoint> parsePoints( JSONArray jsonPoints )
+    {
+        if (jsonPoints == null)
+            return new ArrayList<GHPoint>(0);
+
+        List<GHPoint> points = new ArrayList<GHPoint>(jsonPoints.length());
+        for (int i = 0; i < jsonPoints.length(); i++)
+        {
+            GHPoint point = GHPoint.parse(jsonPoints.getString(i));
+            if (point == null)
+                throw new IllegalArgumentException("Cannot parse point " + jsonPoints.getString(i));
+
+            points.add(point);
+        }
+        return points;
+    }
+
+    void writeMatrix( HttpServletRequest httpReq, HttpServletResponse res, List<GHPoint> fromPoints,
+            List<GHPoint> toPoints, String vehicleStr, String weighting ) throws Exception
+    {
+        long size = (long) fromPoints.size() * toPoints.size();
+        if (size > matrixMaxSize)
+            throw new IllegalArgumentException("Matrix too big " + fromPoints.size() + "x" + toPoints.size()
+                    + ", maximum number of entries is " + matrixMaxSize);
+
+        StopWatch sw = new StopWatch().start();
+        GHMatrixResponse matrixRsp;
+        if (!hopper.getEncodingManager().supports(vehicleStr))
+        {
+            matrixRsp = new GHMatrixResponse().addError(new IllegalArgumentException("Vehicle not supported: " + vehicleStr));
+        } else
+        {
+            GHMatrixRequest request = new GHMatrixRequest(fromPoints, toPoints).
+                    setVehicle(vehicleStr).
+                    setWeighting(weighting);
+            matrixRsp = hopper.calcMatrix(request);
+        }
+
+        float took = sw.stop().getSeconds();
+        String logStr = httpReq.getQueryString() + " " + httpReq.getRemoteAddr() + " " + fromPoints.size()
+                + "x" + toPoints.size() + ", took:" + took + ", " + weighting + ", " + vehicleStr;
+        if (matrixRsp.hasErrors())
+            logger.error(logStr + ", errors:" + matrixRsp.getErrors());
+        else
+            logger.info(logStr + ", debug - " + matrixRsp.getDebugInfo());
+
+        JsonWriter writer = startJson(httpReq, res);
+        if (writer == null)
+            return;
+
+        writeJson(writer, matrixRsp, took);
+        endJson(httpReq, res, writer);
+    }
+
+    /**
+     * Streams the tables row by row into the writer, so no boxed copy of the matrix is necessary.
+     */
+    protected void writeJson( JsonWriter writer, GHMatrixResponse rsp, float took ) throws IOException
+    {
+        writer.startObject();
+        writer.name("info").startObject();
+        writer.name("copyrights").startArray().value("GraphHopper").value("OpenStreetMap contributors").endArray();
+        if (rsp.hasErrors())
+        {
+            writer.name("errors").startArray();
+            for (Throwable t : rsp.getErrors())
+            {
+                writer.startObject().
+                        name("message").value(t.getMessage()).
+                        name("details").value(t.getClass().getName()).
+                        endObject();
+            }
+            writer.endArray();
+            writer.endObject();
+        } else
+        {
+            writer.name("took").value(Math.round(took * 1000));
+            writer.endObject();
+
+            writer.name("weights").startArray();
+            for (int from = 0; from < rsp.getFromSize(); from++)
+            {
+                writer.startArray();
+                for (int to = 0; to < rsp.getToSize(); to++)
+                {
+                    if (rsp.isConnected(from, to))
+                        writer.value(rsp.getWeight(from, to), 6);
+                    else
+                        writer.nullValue();
+                }
+                writer.endArray();
+            }
+            writer.endArray();
+
+            writer.name("distances").startArray();
+            for (int from = 0; from < rsp.getFromSize(); from++)
+            {
+                writer.startArray();
+                for (int to = 0; to < rsp.getToSize(); to++)
+                {
+                    if (rsp.isConnected(from, to))
+                        writer.value(rsp.getDistance(from, to), 3);
+                    else
+                        writer.nullValue();
+                }
+                writer.endArray();
+            }
+            writer.endArray();
+
+            writer.name("times").startArray();
+            for (int from = 0; from < rsp.getFromSize(); from++)
+            {
+                writer.startArray();
+                for (int to = 0; to < rsp.getToSize(); to++)
+                {
+                    if (rsp.isConnected(from, to))
+                        writer.value(rsp.getMillis(from, to));
+                    else
+                        writer.nullValue();
+                }
+                writer.endArray();
+            }
+            writer.endArray();
+        }
+        writer.endObject();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.routing.util.DefaultEdgeFilter;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.JsonWriter;
+import com.graphhopper.util.StopWatch;
+import com.graphhopper.util.shapes.GHPoint;
+import com.graphhopper.util.shapes.GHPoint3D;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.inject.Inject;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import static javax.servlet.http.HttpServletResponse.*;
+
+/**
+ * Servlet to find the k closest edges (k) or all edges within a radius in meter (radius) of one
+ * point. Returns the snapped point, the distance and the edge for every hit.
+ * <p/>
+ * @author Peter Karich
+ */
+public class NearestServlet extends GHBaseServlet
+{
+    static final int MAX_K = 100;
+    static final double MAX_RADIUS = 5000;
+    @Inject
+    private GraphHopper hopper;
+
+    @Override
+    public void doGet( HttpServletRequest req, HttpServletResponse res ) throws ServletException, IOException
+    {
+        try
+        {
+            writeNearest(req, res);
+        } catch (IllegalArgumentException ex)
+        {
+            writeError(res, SC_BAD_REQUEST, ex.getMessage());
+        } catch (Exception ex)
+        {
+            logger.error("Error while executing request: " + req.getQueryString(), ex);
+            writeError(res, SC_INTERNAL_SERVER_ERROR, "Problem occured:" + ex.getMessage());
+        }
+    }
+
+    void writeNearest( HttpServletRequest httpReq, HttpServletResponse res ) throws Exception
+    {
+        List<GHPoint> points = getPoints(httpReq, "point");
+        String vehicleStr = getParam(httpReq, "vehicle", "car");
+        int k = (int) getLongParam(httpReq, "k", 1);
+        double radius = getDoubleParam(httpReq, "radius", -1);
+
+        StopWatch sw = new StopWatch().start();
+        List<Throwable> errors = new ArrayList<Throwable>();
+        List<QueryResult> hits = Collections.emptyList();
+        LocationIndex index = hopper.getLocationIndex();
+        if (points.size() != 1)
+            errors.add(new IllegalArgumentException("Specify exactly one point but was " + points.size()));
+        else if (!hopper.getEncodingManager().supports(vehicleStr))
+            errors.add(new IllegalArgumentException("Vehicle not supported: " + vehicleStr));
+        else if (!(index instanceof LocationIndexTree))
+            errors.add(new UnsupportedOperationException("Location index does not support nearest queries: " + index));
+        else if (k < 1 || k > MAX_K)
+            errors.add(new IllegalArgumentException("k must be between 1 and " + MAX_K + " but was " + k));
+        else if (radius > MAX_RADIUS)
+            errors.add(new IllegalArgumentException("radius must not be bigger than " + MAX_RADIUS + " but was " + radius));
+        else
+        {
+            GHPoint point = points.get(0);
+            EdgeFilter edgeFilter = new DefaultEdgeFilter(hopper.getEncodingManager().getEncoder(vehicleStr));
+            LocationIndexTree tree = (LocationIndexTree) index;
+            if (radius >= 0)
+                hits = tree.findWithin(point.lat, point.lon, radius, edgeFilter);
+            else
+                hits = tree.findKNearest(point.lat, point.lon, k, edgeFilter);
+        }
+
+        float took = sw.stop().getSeconds();
+        String logStr = httpReq.getQueryString() + " " + httpReq.getRemoteAddr() + " " + points
+                + ", took:" + took + ", " + vehicleStr;
+        if (!errors.isEmpty())
+            logger.error(logStr + ", errors:" + errors);
+        else
+            logger.info(logStr + ", hits:" + hits.size());
+
+        JsonWriter writer = startJson(httpReq, res);
+        if (writer == null)
+            return;
+
+        writeJson(writer, hits, errors, took);
+        endJson(httpReq, res, writer);
+    }
+
+    protected void writeJson( JsonWriter writer, List<QueryResult> hits, List<Throwable> errors, float took )
+            throws IOException
+    {
+        writer.startObject();
+        writer.name("info").startObject();
+        writer.name("copyrights").startArray().value("GraphHopper").value("OpenStreetMap contributors").endArray();
+        if (!errors.isEmpty())
+        {
+            writer.name("errors").startArray();
+            for (Throwable t : errors)
+            {
+                writer.startObject().
+                        name("message").value(t.getMessage()).
+                        name("details").value(t.getClass().getName()).
+                        endObject();
+            }
+            writer.endArray();
+            writer.endObject();
+        } else
+        {
+            writer.name("took").value(Math.round(took * 1000));
+            writer.endObject();
+            writer.name("hits").startArray();
+            for (QueryResult hit : hits)
+            {
+                GHPoint3D snapped = hit.getSnappedPoint();
+                EdgeIteratorState edge = hit.getClosestEdge();
+                writer.startObject();
+                writer.name("point").startArray().value(snapped.lon).value(snapped.lat).endArray();
+                writer.name("distance").value(hit.getQueryDistance());
+                writer.name("edge_id").value(edge.getEdge());
+                writer.name("base_node").value(edge.getBaseNode());
+                writer.name("adj_node").value(edge.getAdjNode());
+                writer.name("name").value(edge.getName());
+                writer.endObject();
+            }
+            writer.endArray();
+        }
+        writer.endObject();
+    }
+}
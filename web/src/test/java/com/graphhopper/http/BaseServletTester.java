@@ -22,6 +22,10 @@ import com.google.inject.Injector;
 import com.google.inject.Module;
 import com.graphhopper.util.CmdArgs;
 import com.graphhopper.util.Downloader;
+import com.graphhopper.util.Helper;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -96,12 +100,22 @@ public class BaseServletTester
     }
 
     protected String getTestAPIUrl()
+    {
+        return getTestAPIUrl("/route");
+    }
+
+    protected String getTestAPIUrl( String servicePath )
     {
         String host = "localhost";
-        return "http://" + host + ":" + port + "/route";
+        return "http://" + host + ":" + port + servicePath;
     }
 
     protected JSONObject query( String query ) throws Exception
+    {
+        return query("/route", query);
+    }
+
+    protected JSONObject query( String servicePath, String query ) throws Exception
     {
         String resQuery = "";
         for (String q : query.split("\\&"))
@@ -114,8 +128,26 @@ public class BaseServletTester
 
             resQuery += "&";
         }
-        String url = getTestAPIUrl() + "?" + resQuery;
+        String url = getTestAPIUrl(servicePath) + "?" + resQuery;
         Downloader downloader = new Downloader("web integration tester");
         return new JSONObject(downloader.downloadAsString(url));
     }    
+
+    protected HttpURLConnection openPost( String servicePath, String body ) throws Exception
+    {
+        HttpURLConnection conn = (HttpURLConnection) new URL(getTestAPIUrl(servicePath)).openConnection();
+        conn.setRequestMethod("POST");
+        conn.setDoOutput(true);
+        conn.setRequestProperty("Content-Type", "application/json");
+        OutputStream os = conn.getOutputStream();
+        os.write(body.getBytes(Helper.UTF_CS));
+        os.close();
+        return conn;
+    }
+
+    protected JSONObject post( String servicePath, String body ) throws Exception
+    {
+        HttpURLConnection conn = openPost(servicePath, body);
+        return new JSONObject(Helper.isToString(conn.getInputStream()));
+    }
 }
@@ -0,0 +1,85 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.graphhopper.util.CmdArgs;
+import com.graphhopper.util.Helper;
+import java.io.File;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Peter Karich
+ */
+public class BatchRouteServletIT extends BaseServletTester
+{
+    private static final String dir = "./target/andorra-gh/";
+
+    @AfterClass
+    public static void cleanUp()
+    {
+        Helper.removeDir(new File(dir));
+        shutdownJetty(true);
+    }
+
+    @Before
+    public void setUp()
+    {
+        CmdArgs args = new CmdArgs().
+                put("config", "../config-example.properties").
+                put("osmreader.osm", "../core/files/andorra.osm.pbf").
+                put("graph.location", dir);
+        setUpJetty(args);
+    }
+
+    @Test
+    public void testBatch() throws Exception
+    {
+        JSONObject json = post("/route/batch", "{\"requests\": ["
+                + "{\"points\": [\"42.554851,1.536198\", \"42.510071,1.548128\"]},"
+                + "{\"points\": [\"42.531896,1.553278\", \"42.510071,1.548128\"], \"instructions\": false},"
+                + "{\"points\": [\"42.554851,1.536198\", \"42.510071,1.548128\"], \"vehicle\": \"SPACE-SHUTTLE\"}"
+                + "]}");
+        JSONArray results = json.getJSONArray("results");
+        assertEquals(3, results.length());
+
+        JSONObject path = results.getJSONObject(0).getJSONArray("paths").getJSONObject(0);
+        double distance = path.getDouble("distance");
+        assertTrue("distance wasn't correct:" + distance, distance > 9000);
+        assertTrue("distance wasn't correct:" + distance, distance < 9500);
+        assertTrue(path.has("instructions"));
+
+        path = results.getJSONObject(1).getJSONArray("paths").getJSONObject(0);
+        assertFalse(path.has("instructions"));
+        JSONObject route = query("point=42.531896,1.553278&point=42.510071,1.548128");
+        assertEquals(route.getJSONArray("paths").getJSONObject(0).getDouble("distance"), path.getDouble("distance"), 1e-3);
+
+        assertTrue(results.getJSONObject(2).getJSONObject("info").has("errors"));
+    }
+
+    @Test
+    public void testInvalidRequests() throws Exception
+    {
+        assertEquals(400, openPost("/route/batch", "{\"requests\": [{\"points\": [\"abc\"]}]}").getResponseCode());
+        assertEquals(400, openPost("/route/batch", "no json").getResponseCode());
+    }
+}
@@ -21,6 +21,7 @@ import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopperAPI;
 import com.graphhopper.util.CmdArgs;
+import com.graphhopper.util.Downloader;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.shapes.GHPoint;
 import java.io.File;
@@ -76,6 +77,26 @@ public class GraphHopperServletIT extends BaseServletTester
         assertTrue("unexpected precision!", cson.toString().indexOf("[1.536374,42.554839]") >= 0);
     }
 
+    @Test
+    public void testGPX() throws Exception
+    {
+        String gpx = new Downloader("web integration tester").
+                downloadAsString(getTestAPIUrl() + "?point=42.554851,1.536198&point=42.510071,1.548128&type=gpx");
+        assertTrue(gpx, gpx.startsWith("<?xml version=\"1.0\""));
+        assertTrue(gpx, gpx.contains("<rtept lat=\"42.554839\" lon=\"1.536374\">"));
+        assertTrue(gpx, gpx.contains("<trkpt "));
+        assertTrue(gpx, gpx.endsWith("</gpx>"));
+    }
+
+    @Test
+    public void testPrettyJson() throws Exception
+    {
+        String str = new Downloader("web integration tester").
+                downloadAsString(getTestAPIUrl() + "?point=42.554851,1.536198&point=42.510071,1.548128&debug=true");
+        assertTrue(str, str.contains("\n  \"info\": {"));
+        assertEquals(1, new JSONObject(str).getJSONArray("paths").length());
+    }
+
     @Test
     public void testFailIfElevationRequestedButNotIncluded() throws Exception
     {
@@ -0,0 +1,97 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.graphhopper.util.CmdArgs;
+import com.graphhopper.util.Helper;
+import java.io.File;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Peter Karich
+ */
+public class IsochroneServletIT extends BaseServletTester
+{
+    private static final String dir = "./target/andorra-gh/";
+
+    @AfterClass
+    public static void cleanUp()
+    {
+        Helper.removeDir(new File(dir));
+        shutdownJetty(true);
+    }
+
+    @Before
+    public void setUp()
+    {
+        CmdArgs args = new CmdArgs().
+                put("config", "../config-example.properties").
+                put("osmreader.osm", "../core/files/andorra.osm.pbf").
+                put("graph.location", dir);
+        setUpJetty(args);
+    }
+
+    @Test
+    public void testBasicQuery() throws Exception
+    {
+        JSONObject json = query("/isochrone", "point=42.531896,1.553278&time_limit=300&buckets=2");
+        JSONObject infoJson = json.getJSONObject("info");
+        assertFalse(infoJson.has("errors"));
+        assertTrue(infoJson.getInt("reachable_count") > 10);
+        assertFalse(json.has("reachable_points"));
+
+        JSONArray polygons = json.getJSONArray("polygons");
+        assertEquals(2, polygons.length());
+        JSONObject polygon = polygons.getJSONObject(1);
+        assertEquals("Polygon", polygon.getString("type"));
+        assertEquals(300, polygon.getDouble("limit"), 1e-6);
+        JSONArray ring = polygon.getJSONArray("coordinates").getJSONArray(0);
+        assertTrue(ring.length() > 3);
+        // closed ring in the format lon, lat
+        assertEquals(ring.getJSONArray(0).getDouble(0), ring.getJSONArray(ring.length() - 1).getDouble(0), 1e-6);
+        assertEquals(1.55, ring.getJSONArray(0).getDouble(0), 0.1);
+    }
+
+    @Test
+    public void testDistanceLimitAndReachablePoints() throws Exception
+    {
+        JSONObject json = query("/isochrone", "point=42.531896,1.553278&distance_limit=500&reachable_points=true");
+        assertFalse(json.getJSONObject("info").has("errors"));
+        JSONArray weights = json.getJSONArray("reachable_weights");
+        assertEquals(json.getJSONArray("reachable_points").length(), weights.length());
+        for (int i = 0; i < weights.length(); i++)
+        {
+            assertTrue(weights.getDouble(i) <= 500);
+        }
+    }
+
+    @Test
+    public void testErrors() throws Exception
+    {
+        JSONObject json = query("/isochrone", "point=42.531896,1.553278&point=42.510071,1.548128");
+        assertTrue(json.getJSONObject("info").has("errors"));
+
+        json = query("/isochrone", "point=42.531896,1.553278&distance_limit=500&time_limit=60");
+        assertTrue(json.getJSONObject("info").has("errors"));
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.graphhopper.util.CmdArgs;
+import com.graphhopper.util.Helper;
+import java.io.File;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Peter Karich
+ */
+public class MatrixServletIT extends BaseServletTester
+{
+    private static final String dir = "./target/andorra-gh/";
+
+    @AfterClass
+    public static void cleanUp()
+    {
+        Helper.removeDir(new File(dir));
+        shutdownJetty(true);
+    }
+
+    @Before
+    public void setUp()
+    {
+        CmdArgs args = new CmdArgs().
+                put("config", "../config-example.properties").
+                put("osmreader.osm", "../core/files/andorra.osm.pbf").
+                put("graph.location", dir).
+                put("web.matrix.maxSize", "20");
+        setUpJetty(args);
+    }
+
+    @Test
+    public void testBasicQuery() throws Exception
+    {
+        JSONObject json = query("/matrix", "from_point=42.554851,1.536198&from_point=42.531896,1.553278"
+                + "&to_point=42.510071,1.548128&to_point=42.554851,1.536198&to_point=42.531896,1.553278");
+        assertFalse(json.getJSONObject("info").has("errors"));
+        JSONArray distances = json.getJSONArray("distances");
+        assertEquals(2, distances.length());
+        assertEquals(3, distances.getJSONArray(0).length());
+
+        // same distance as the route in GraphHopperServletIT
+        double distance = distances.getJSONArray(0).getDouble(0);
+        assertTrue("distance wasn't correct:" + distance, distance > 9000);
+        assertTrue("distance wasn't correct:" + distance, distance < 9500);
+        assertEquals(0, distances.getJSONArray(0).getDouble(1), 1e-3);
+        assertEquals(0, distances.getJSONArray(1).getDouble(2), 1e-3);
+        assertTrue(json.getJSONArray("times").getJSONArray(0).getLong(0) > 0);
+        assertTrue(json.getJSONArray("weights").getJSONArray(0).getDouble(0) > 0);
+
+        JSONObject route = query("point=42.531896,1.553278&point=42.510071,1.548128");
+        assertEquals(route.getJSONArray("paths").getJSONObject(0).getDouble("distance"),
+                distances.getJSONArray(1).getDouble(0), 1);
+    }
+
+    @Test
+    public void testSymmetricQuery() throws Exception
+    {
+        JSONObject json = query("/matrix", "point=42.554851,1.536198&point=42.510071,1.548128");
+        JSONArray distances = json.getJSONArray("distances");
+        assertEquals(2, distances.length());
+        assertEquals(2, distances.getJSONArray(1).length());
+        assertTrue(distances.getJSONArray(1).getDouble(0) > 9000);
+    }
+
+    @Test
+    public void testErrors() throws Exception
+    {
+        JSONObject json = query("/matrix", "point=42.554851,1.536198&vehicle=SPACE-SHUTTLE");
+        assertTrue(json.getJSONObject("info").has("errors"));
+
+        json = query("/matrix", "from_point=42.554851,1.536198");
+        JSONObject infoJson = json.getJSONObject("info");
+        assertTrue(infoJson.has("errors"));
+        assertTrue(infoJson.getJSONArray("errors").getJSONObject(0).getString("message"),
+                infoJson.getJSONArray("errors").getJSONObject(0).getString("message").startsWith("At least one from and one to point"));
+    }
+
+    @Test
+    public void testPost() throws Exception
+    {
+        JSONObject json = post("/matrix", "{\"from_points\": [\"42.554851,1.536198\", \"42.531896,1.553278\"],"
+                + "\"to_points\": [\"42.510071,1.548128\"]}");
+        JSONArray distances = json.getJSONArray("distances");
+        assertEquals(2, distances.length());
+        assertEquals(1, distances.getJSONArray(0).length());
+        JSONObject getJson = query("/matrix", "from_point=42.554851,1.536198&from_point=42.531896,1.553278"
+                + "&to_point=42.510071,1.548128");
+        assertEquals(getJson.getJSONArray("distances").getJSONArray(1).getDouble(0),
+                distances.getJSONArray(1).getDouble(0), 1e-3);
+
+        json = post("/matrix", "{\"points\": [\"42.554851,1.536198\", \"42.510071,1.548128\"]}");
+        assertEquals(2, json.getJSONArray("times").getJSONArray(1).length());
+    }
+
+    @Test
+    public void testInvalidRequests() throws Exception
+    {
+        assertEquals(400, openPost("/matrix", "{\"points\": [\"abc\"]}").getResponseCode());
+        assertEquals(400, openPost("/matrix", "no json").getResponseCode());
+
+        // 5x5 entries exceed the configured maximum of 20
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5; i++)
+        {
+            if (i > 0)
+                sb.append(",");
+            sb.append("\"42.55485").append(i).append(",1.536198\"");
+        }
+        assertEquals(400, openPost("/matrix", "{\"points\": [" + sb + "]}").getResponseCode());
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ *  Licensed to GraphHopper and Peter Karich under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.graphhopper.util.CmdArgs;
+import com.graphhopper.util.Helper;
+import java.io.File;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Peter Karich
+ */
+public class NearestServletIT extends BaseServletTester
+{
+    private static final String dir = "./target/andorra-gh/";
+
+    @AfterClass
+    public static void cleanUp()
+    {
+        Helper.removeDir(new File(dir));
+        shutdownJetty(true);
+    }
+
+    @Before
+    public void setUp()
+    {
+        CmdArgs args = new CmdArgs().
+                put("config", "../config-example.properties").
+                put("osmreader.osm", "../core/files/andorra.osm.pbf").
+                put("graph.location", dir);
+        setUpJetty(args);
+    }
+
+    @Test
+    public void testKNearest() throws Exception
+    {
+        JSONObject json = query("/nearest", "point=42.531896,1.553278&k=3");
+        assertFalse(json.getJSONObject("info").has("errors"));
+        JSONArray hits = json.getJSONArray("hits");
+        assertEquals(3, hits.length());
+        double lastDistance = 0;
+        for (int i = 0; i < hits.length(); i++)
+        {
+            JSONObject hit = hits.getJSONObject(i);
+            assertTrue(hit.getDouble("distance") >= lastDistance);
+            lastDistance = hit.getDouble("distance");
+            // in the format lon, lat
+            assertEquals(1.553, hit.getJSONArray("point").getDouble(0), 0.01);
+            assertEquals(42.53, hit.getJSONArray("point").getDouble(1), 0.01);
+        }
+    }
+
+    @Test
+    public void testRadius() throws Exception
+    {
+        JSONArray nearest = query("/nearest", "point=42.531896,1.553278&k=3").getJSONArray("hits");
+        double radius = nearest.getJSONObject(2).getDouble("distance") + 1;
+        JSONArray hits = query("/nearest", "point=42.531896,1.553278&radius=" + radius).getJSONArray("hits");
+        assertTrue(hits.length() >= 3);
+        for (int i = 0; i < hits.length(); i++)
+        {
+            assertTrue(hits.getJSONObject(i).getDouble("distance") <= radius);
+        }
+    }
+
+    @Test
+    public void testErrors() throws Exception
+    {
+        JSONObject json = query("/nearest", "point=42.531896,1.553278&point=42.510071,1.548128");
+        assertTrue(json.getJSONObject("info").has("errors"));
+
+        json = query("/nearest", "point=42.531896,1.553278&k=1000");
+        assertTrue(json.getJSONObject("info").has("errors"));
+    }
+}